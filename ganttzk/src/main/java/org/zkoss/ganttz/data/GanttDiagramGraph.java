@@ -35,6 +35,7 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 
@@ -477,17 +478,35 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
             return result;
         }
 
+        /**
+         * The {@link TaskPoint task points} are kept between recalculations,
+         * so their immediate successors and predecessors are calculated only
+         * once while the graph is not modified
+         */
+        private Map<TaskPoint, TaskPoint> taskPoints = new HashMap<TaskPoint, TaskPoint>();
+
+        TaskPoint intern(TaskPoint taskPoint) {
+            TaskPoint result = taskPoints.get(taskPoint);
+            if (result == null) {
+                taskPoints.put(taskPoint, taskPoint);
+                return taskPoint;
+            }
+            return result;
+        }
+
         public void recalculationNeeded() {
             taskPointsByDepthCached = null;
+            taskPoints = new HashMap<TaskPoint, TaskPoint>();
         }
 
-        public List<Recalculation> sort(
-                Collection<? extends Recalculation> recalculationsToBeSorted) {
-
-            List<Recalculation> result = new ArrayList<Recalculation>(
-                    recalculationsToBeSorted);
+        /**
+         * @return a comparator that sorts the recalculations so the
+         *         predecessors are before their successors. The parent
+         *         recalculations go after the other ones at the same depth
+         */
+        public Comparator<Recalculation> inTopologicalOrder() {
             final Map<TaskPoint, Integer> taskPointsByDepth = taskPointsByDepth();
-            Collections.sort(result, new Comparator<Recalculation>() {
+            return new Comparator<Recalculation>() {
 
                 @Override
                 public int compare(Recalculation o1, Recalculation o2) {
@@ -510,8 +529,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                 private int asInt(boolean b) {
                     return b ? 1 : 0;
                 }
-            });
-            return result;
+            };
         }
     }
 
@@ -917,25 +935,15 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
 
         }
 
-        void enforceRestrictionsOn(Collection<? extends V> tasks) {
-            List<Recalculation> allRecalculations = new ArrayList<Recalculation>();
-            for (V each : tasks) {
-                allRecalculations.addAll(getRecalculationsNeededFrom(each));
-            }
-            enforceRestrictionsOn(allRecalculations, tasks);
-        }
-
         void enforceRestrictionsOn(V task) {
-            enforceRestrictionsOn(getRecalculationsNeededFrom(task),
-                    Collections.singleton(task));
+            enforceRestrictionsOn(Collections.singleton(task));
         }
 
-        void enforceRestrictionsOn(final List<Recalculation> recalculations,
-                final Collection<? extends V> initiallyModified) {
+        void enforceRestrictionsOn(final Collection<? extends V> tasks) {
             executeWithPreAndPostActionsOnlyIfNewEntrance(new IAction() {
                 @Override
                 public void doAction() {
-                    doRecalculations(recalculations, initiallyModified);
+                    doRecalculations(tasks);
                 }
             });
         }
@@ -1019,27 +1027,18 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
             executeWithPreAndPostActionsOnlyIfNewEntrance(new IAction() {
                 @Override
                 public void doAction() {
-                    List<Recalculation> recalculationsNeededFrom = getRecalculationsNeededFrom(task);
-                    doRecalculations(recalculationsNeededFrom,
-                            Collections.singletonList(task));
+                    doRecalculations(Collections.singletonList(task));
                 }
             });
         }
 
-        private void doRecalculations(List<Recalculation> recalculationsNeeded,
-                Collection<? extends V> initiallyModified) {
+        private void doRecalculations(Collection<? extends V> initiallyModified) {
             Set<V> allModified = new HashSet<V>();
             allModified.addAll(initiallyModified);
-            for (Recalculation each : recalculationsNeeded) {
-                boolean modified = each.doRecalculation();
-                if (modified) {
-                    allModified.add(each.taskPoint.task);
-                }
-            }
+            allModified.addAll(propagateFrom(initiallyModified));
             List<V> shrunkContainers = shrunkContainersOfModified(allModified);
             for (V each : getTaskAffectedByShrinking(shrunkContainers)) {
-                doRecalculations(getRecalculationsNeededFrom(each),
-                        Collections.singletonList(each));
+                doRecalculations(Collections.singletonList(each));
             }
         }
 
@@ -1144,24 +1143,41 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
     }
 
-    List<Recalculation> getRecalculationsNeededFrom(V task) {
-        List<Recalculation> result = new ArrayList<Recalculation>();
+    /**
+     * Recalculates the positions of the given tasks and of the ones depending
+     * on them. The recalculations are done in topological order and only the
+     * successors of the recalculations that modify their task are visited, so
+     * the propagation stops as soon as a task doesn't move.
+     *
+     * @return the tasks whose position has been modified
+     */
+    Set<V> propagateFrom(Collection<? extends V> tasks) {
+        Set<V> result = new HashSet<V>();
         Set<Recalculation> parentRecalculationsAlreadyDone = new HashSet<Recalculation>();
-        Recalculation first = recalculationFor(allPointsPotentiallyModified(task));
-        first.couldHaveBeenModifiedBeforehand();
-
-        result.addAll(getParentsRecalculations(parentRecalculationsAlreadyDone,
-                first.taskPoint));
-        result.add(first);
-
-        Queue<Recalculation> pendingOfVisit = new LinkedList<Recalculation>();
-        pendingOfVisit.offer(first);
-
         Map<Recalculation, Recalculation> alreadyVisited = new HashMap<Recalculation, Recalculation>();
-        alreadyVisited.put(first, first);
+        RecalculationsQueue pending = new RecalculationsQueue(
+                topologicalSorter.inTopologicalOrder());
+
+        for (V each : tasks) {
+            Recalculation first = recalculationFor(allPointsPotentiallyModified(each));
+            first.couldHaveBeenModifiedBeforehand();
+            if (!alreadyVisited.containsKey(first)) {
+                pending.addAll(getParentsRecalculations(
+                        parentRecalculationsAlreadyDone, first.taskPoint));
+                pending.offer(first);
+                alreadyVisited.put(first, first);
+            }
+        }
 
-        while (!pendingOfVisit.isEmpty()) {
-            Recalculation current = pendingOfVisit.poll();
+        while (!pending.isEmpty()) {
+            Recalculation current = pending.poll();
+            boolean modified = current.doRecalculation();
+            if (modified) {
+                result.add(current.taskPoint.task);
+            }
+            if (current.parentRecalculation || !current.canAffectSuccessors()) {
+                continue;
+            }
             for (TaskPoint each : current.taskPoint.getImmediateSuccessors()) {
                 if (each.isImmediatelyDerivedFrom(current.taskPoint)) {
                     continue;
@@ -1170,15 +1186,59 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                         alreadyVisited);
                 recalculationToAdd.comesFromPredecessor(current);
                 if (!alreadyVisited.containsKey(recalculationToAdd)) {
-                    result.addAll(getParentsRecalculations(
+                    pending.addAll(getParentsRecalculations(
                             parentRecalculationsAlreadyDone, each));
-                    result.add(recalculationToAdd);
-                    pendingOfVisit.offer(recalculationToAdd);
+                    pending.offer(recalculationToAdd);
                     alreadyVisited.put(recalculationToAdd, recalculationToAdd);
                 }
             }
         }
-        return topologicalSorter.sort(result);
+        return result;
+    }
+
+    /**
+     * Recalculations pending to be done. They're polled in topological order;
+     * the ones with the same depth in the order they were added
+     */
+    private class RecalculationsQueue {
+
+        private final Map<Recalculation, Integer> order = new HashMap<Recalculation, Integer>();
+
+        private final PriorityQueue<Recalculation> queue;
+
+        RecalculationsQueue(final Comparator<Recalculation> topologicalOrder) {
+            this.queue = new PriorityQueue<Recalculation>(11,
+                    new Comparator<Recalculation>() {
+
+                        @Override
+                        public int compare(Recalculation o1, Recalculation o2) {
+                            int result = topologicalOrder.compare(o1, o2);
+                            if (result != 0) {
+                                return result;
+                            }
+                            return order.get(o1) - order.get(o2);
+                        }
+                    });
+        }
+
+        void offer(Recalculation recalculation) {
+            order.put(recalculation, order.size());
+            queue.offer(recalculation);
+        }
+
+        void addAll(Collection<? extends Recalculation> recalculations) {
+            for (Recalculation each : recalculations) {
+                offer(each);
+            }
+        }
+
+        Recalculation poll() {
+            return queue.poll();
+        }
+
+        boolean isEmpty() {
+            return queue.isEmpty();
+        }
     }
 
     private Recalculation getRecalcualtionToAdd(TaskPoint taskPoint,
@@ -1285,6 +1345,14 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                     || predecessorsHaveBeenModified();
         }
 
+        /**
+         * Once done, if the task has not been modified by this recalculation
+         * nor before it, the successors don't need to be recalculated
+         */
+        boolean canAffectSuccessors() {
+            return dataPointModified || couldHaveBeenModifiedBeforehand;
+        }
+
         private boolean predecessorsHaveBeenModified() {
             for (Recalculation each : recalculationsCouldAffectThis) {
                 if (!each.recalculationCalled) {
@@ -2170,7 +2238,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
 
     TaskPoint destinationPoint(D dependency) {
         V destination = getDependencyDestination(dependency);
-        return new TaskPoint(destination,
+        return taskPoint(destination,
                 getDestinationPoint(dependency.getType()));
     }
 
@@ -2180,7 +2248,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
 
     TaskPoint sourcePoint(D dependency) {
         V source = getDependencySource(dependency);
-        return new TaskPoint(source, getSourcePoint(dependency.getType()));
+        return taskPoint(source, getSourcePoint(dependency.getType()));
     }
 
     /**
@@ -2210,8 +2278,12 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                 : adapter.getSource(dependency);
     }
 
+    private TaskPoint taskPoint(V task, Point entryPoint) {
+        return topologicalSorter.intern(new TaskPoint(task, entryPoint));
+    }
+
     TaskPoint allPointsPotentiallyModified(V task) {
-        return new TaskPoint(task, getDominatingPoint());
+        return taskPoint(task, getDominatingPoint());
     }
 
     private class TaskPoint {
@@ -2339,7 +2411,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         private Collection<TaskPoint> getImmediatelyDerivedOnSameTask() {
             for (Point each : pointsModified) {
                 if (isDominatingPoint(each)) {
-                    return Collections.singletonList(new TaskPoint(task, each
+                    return Collections.singletonList(taskPoint(task, each
                             .getOther()));
                 }
             }
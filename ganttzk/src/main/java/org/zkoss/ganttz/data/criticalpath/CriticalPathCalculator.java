@@ -27,10 +27,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.lang.Validate;
 import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.zkoss.ganttz.data.DependencyType;
@@ -41,10 +44,20 @@ import org.zkoss.ganttz.data.constraint.Constraint;
 /**
  * Class that calculates the critical path of a Gantt diagram graph.
  *
+ * The tasks that aren't containers are identified by consecutive ints and all
+ * the values of the calculation are kept in arrays indexed by them. The
+ * forward and backward passes are a single traversal of the tasks in
+ * topological order, so the calculation is linear on the number of tasks and
+ * dependencies. Once calculated, the duration of a task can be modified and
+ * only the affected part of the passes is done again (see
+ * {@link #taskDurationModified(Object)}).
+ *
  * @author Manuel Rego Casasnovas <mrego@igalia.com>
  */
 public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
+    private static final int[] NO_TASKS = new int[0];
+
     private final boolean dependenciesConstraintsHavePriority;
 
     public static <T, D extends IDependency<T>> CriticalPathCalculator<T, D> create(
@@ -61,31 +74,53 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
     private LocalDate initDate;
 
-    private Map<T, Node<T, D>> nodes;
+    private Map<T, Map<T, DependencyType>> dependencies;
 
-    private InitialNode<T, D> bop;
-    private LastNode<T, D> eop;
+    private Map<T, Integer> ids;
 
-    private Map<T, Map<T, DependencyType>> dependencies;
+    private List<T> tasks;
 
-    private class VisitorTracker {
+    private int[][] next;
 
-        private Map<T, Set<T>> visitorsOn = new HashMap<T, Set<T>>();
+    private DependencyType[][] nextTypes;
 
-        void visit(T visited, T visitor) {
-            if (!visitorsOn.containsKey(visited)) {
-                visitorsOn.put(visited, new HashSet<T>());
-            }
-            visitorsOn.get(visited).add(visitor);
-        }
+    private int[][] previous;
 
-        boolean hasBeenVisitedByAll(T current,
-                Collection<? extends T> collection) {
-            return visitorsOn.containsKey(current)
-                    && visitorsOn.get(current).containsAll(collection);
-        }
+    private DependencyType[][] previousTypes;
 
-    }
+    /**
+     * The tasks starting from the beginning of the project
+     */
+    private boolean[] initial;
+
+    /**
+     * The tasks that finish at the end of the project
+     */
+    private boolean[] last;
+
+    /**
+     * The tasks whose earliest finish is taken into account for calculating
+     * the end of the project
+     */
+    private boolean[] endsProject;
+
+    private List<Constraint<GanttDate>> constraints;
+
+    private int[] topologicalOrder;
+
+    private int[] positionInOrder;
+
+    private int[] duration;
+
+    private int[] earliestStart;
+
+    private int[] earliestFinish;
+
+    private int[] latestStart;
+
+    private int[] latestFinish;
+
+    private int projectEnd;
 
     public List<T> calculateCriticalPath(ICriticalPathCalculable<T> graph) {
         this.graph = graph;
@@ -94,19 +129,59 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
         initDate = calculateInitDate();
 
-        bop = createBeginningOfProjectNode();
-        eop = createEndOfProjectNode();
+        createGraphNodes();
+        topologicalOrder = calculateTopologicalOrder();
 
-        nodes = createGraphNodes();
+        forward(0);
+        projectEnd = calculateProjectEnd();
+        backward(topologicalOrder.length - 1);
 
-        forward(bop, null, new VisitorTracker());
-        eop.updateLatestValues();
-
-        backward(eop, null, new VisitorTracker());
+        return getTasksOnCriticalPath();
+    }
 
+    /**
+     * Updates the critical path after the duration of the task has changed.
+     * Only the tasks after it are recalculated in the forward pass and, if the
+     * end of the project doesn't change, only the ones before it in the
+     * backward pass.
+     *
+     * @param task
+     *            a task, not a container, of the graph which the critical path
+     *            was calculated for
+     * @return the new critical path
+     */
+    public List<T> taskDurationModified(T task) {
+        int id = idOf(task);
+        duration[id] = calculateDuration(task);
+        int position = positionInOrder[id];
+        forward(position);
+        int previousProjectEnd = projectEnd;
+        projectEnd = calculateProjectEnd();
+        if (projectEnd != previousProjectEnd) {
+            backward(topologicalOrder.length - 1);
+        } else {
+            backward(position);
+        }
         return getTasksOnCriticalPath();
     }
 
+    /**
+     * @return the days the task can be delayed without delaying the end of
+     *         the project. The tasks on the critical path have no float.
+     */
+    public int getTotalFloat(T task) {
+        int id = idOf(task);
+        return latestStart[id] - earliestStart[id];
+    }
+
+    private int idOf(T task) {
+        Validate.notNull(ids, "the critical path has not been calculated");
+        Integer result = ids.get(task);
+        Validate.notNull(result, "the task " + task
+                + " isn't a task of the graph or it's a container");
+        return result;
+    }
+
     private LocalDate calculateInitDate() {
         if (graph.getTasks().isEmpty()) {
             return null;
@@ -139,13 +214,6 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return noConatinersTasks;
     }
 
-    private InitialNode<T, D> createBeginningOfProjectNode() {
-        return new InitialNode<T, D>(
-                removeWithVisibleIncomingDependencies(removeContainers(graph
-                .getInitialTasks())));
-    }
-
-
     private Set<T> removeWithVisibleIncomingDependencies(Collection<T> tasks) {
         Set<T> result = new HashSet<T>();
         for (T each : tasks) {
@@ -156,12 +224,6 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return result;
     }
 
-    private LastNode<T, D> createEndOfProjectNode() {
-        return new LastNode<T, D>(
-                removeWithVisibleOutcomingDependencies(removeContainers(graph
-                        .getLatestTasks())));
-    }
-
     private Set<T> removeWithVisibleOutcomingDependencies(
             Collection<T> removeContainers) {
         Set<T> result = new HashSet<T>();
@@ -173,20 +235,16 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return result;
     }
 
-    private Map<T, Node<T, D>> createGraphNodes() {
-        Map<T, Node<T, D>> result = new HashMap<T, Node<T, D>>();
+    private void createGraphNodes() {
+        Map<T, Set<T>> nextTasks = new LinkedHashMap<T, Set<T>>();
+        Map<T, Set<T>> previousTasks = new LinkedHashMap<T, Set<T>>();
 
         for (T task : graph.getTasks()) {
             if (!graph.isContainer(task)) {
-                Set<T> in = withoutContainers(task, graph
-                        .getIncomingTasksFor(task));
-                Set<T> out = withoutContainers(task, graph
-                        .getOutgoingTasksFor(task));
-
-                Node<T, D> node = new Node<T, D>(task, in, out, graph
-                        .getStartDate(task), graph.getEndDateFor(task));
-
-                result.put(task, node);
+                previousTasks.put(task,
+                        withoutContainers(graph.getIncomingTasksFor(task)));
+                nextTasks.put(task,
+                        withoutContainers(graph.getOutgoingTasksFor(task)));
             }
         }
 
@@ -204,7 +262,7 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
                     if (dependency != null) {
                         type = dependency.getType();
                     }
-                    addDepedenciesAndRelatedTasks(result,
+                    addDepedenciesAndRelatedTasks(nextTasks, previousTasks,
                             removeContainers(Arrays.asList(t)), allChildren,
                             type);
                 }
@@ -218,29 +276,110 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
                     if (dependency != null) {
                         type = dependency.getType();
                     }
-                    addDepedenciesAndRelatedTasks(result, allChildren,
-                            removeContainers(Arrays.asList(t)), type);
+                    addDepedenciesAndRelatedTasks(nextTasks, previousTasks,
+                            allChildren, removeContainers(Arrays.asList(t)),
+                            type);
                 }
             }
         }
 
+        index(nextTasks, previousTasks);
+    }
+
+    private void index(Map<T, Set<T>> nextTasks, Map<T, Set<T>> previousTasks) {
+        tasks = new ArrayList<T>(nextTasks.keySet());
+        ids = new HashMap<T, Integer>();
+        for (int i = 0; i < tasks.size(); i++) {
+            ids.put(tasks.get(i), i);
+        }
+
+        int size = tasks.size();
+        next = new int[size][];
+        nextTypes = new DependencyType[size][];
+        previous = new int[size][];
+        previousTypes = new DependencyType[size][];
+        initial = new boolean[size];
+        last = new boolean[size];
+        endsProject = new boolean[size];
+        constraints = new ArrayList<Constraint<GanttDate>>(size);
+        duration = new int[size];
+        earliestStart = new int[size];
+        earliestFinish = new int[size];
+        latestStart = new int[size];
+        latestFinish = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            T task = tasks.get(i);
+
+            Set<T> out = nextTasks.get(task);
+            next[i] = toIds(out);
+            nextTypes[i] = new DependencyType[next[i].length];
+            int countStartStart = 0;
+            for (int j = 0; j < next[i].length; j++) {
+                nextTypes[i][j] = getDependencyTypeEndStartByDefault(task,
+                        tasks.get(next[i][j]));
+                if (nextTypes[i][j] == DependencyType.START_START) {
+                    countStartStart++;
+                }
+            }
+            endsProject[i] = next[i].length == countStartStart;
+
+            Set<T> in = previousTasks.get(task);
+            previous[i] = toIds(in);
+            previousTypes[i] = new DependencyType[previous[i].length];
+            for (int j = 0; j < previous[i].length; j++) {
+                previousTypes[i][j] = getDependencyTypeEndStartByDefault(
+                        tasks.get(previous[i][j]), task);
+            }
+
+            constraints.add(getDateConstraints(task));
+            duration[i] = calculateDuration(task);
+        }
+
+        for (T each : removeWithVisibleIncomingDependencies(removeContainers(graph
+                .getInitialTasks()))) {
+            initial[idOf(each)] = true;
+        }
+        for (T each : removeWithVisibleOutcomingDependencies(removeContainers(graph
+                .getLatestTasks()))) {
+            last[idOf(each)] = true;
+        }
+    }
+
+    private int[] toIds(Set<T> tasks) {
+        if (tasks.isEmpty()) {
+            return NO_TASKS;
+        }
+        int[] result = new int[tasks.size()];
+        int i = 0;
+        for (T each : tasks) {
+            result[i++] = idOf(each);
+        }
         return result;
     }
 
-    private void addDepedenciesAndRelatedTasks(Map<T, Node<T, D>> graph,
-            Collection<T> origins,
+    private int calculateDuration(T task) {
+        LocalDate start = new LocalDate(graph.getStartDate(task)
+                .toDayRoundedDate());
+        LocalDate end = new LocalDate(graph.getEndDateFor(task)
+                .toDayRoundedDate());
+        return Days.daysBetween(start, end).getDays();
+    }
+
+    private void addDepedenciesAndRelatedTasks(Map<T, Set<T>> nextTasks,
+            Map<T, Set<T>> previousTasks, Collection<T> origins,
             Collection<T> destinations, DependencyType type) {
         for (T origin : origins) {
             for (T destination : destinations) {
-                graph.get(origin).addNextTask(destination);
-                graph.get(destination).addPreviousTask(origin);
+                nextTasks.get(origin).add(destination);
+                previousTasks.get(destination).add(origin);
                 addDependency(origin, destination, type);
             }
         }
     }
 
-    private Set<T> withoutContainers(T task, Set<T> tasks) {
-        Set<T> result = new HashSet<T>();
+    private Set<T> withoutContainers(Set<T> tasks) {
+        Set<T> result = new LinkedHashSet<T>();
         for (T t : tasks) {
             if (!graph.isContainer(t)) {
                 result.add(t);
@@ -291,71 +430,89 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return DependencyType.END_START;
     }
 
-    private void forward(Node<T, D> currentNode, T previousTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int earliestStart = currentNode.getEarliestStart();
-        int earliestFinish = currentNode.getEarliestFinish();
-
-        Set<T> nextTasks = currentNode.getNextTasks();
-        if (nextTasks.isEmpty()) {
-            eop.setEarliestStart(earliestFinish);
-        } else {
-            int countStartStart = 0;
-
-            for (T task : nextTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, previousTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
+    /**
+     * Kahn's algorithm. If there were cycles the tasks on them are put at the
+     * end in no particular order.
+     */
+    private int[] calculateTopologicalOrder() {
+        int size = tasks.size();
+        int[] result = new int[size];
+        int[] pendingPrevious = new int[size];
+        int added = 0;
+        for (int i = 0; i < size; i++) {
+            pendingPrevious[i] = previous[i].length;
+            if (pendingPrevious[i] == 0) {
+                result[added++] = i;
+            }
+        }
+        for (int visited = 0; visited < added; visited++) {
+            for (int each : next[result[visited]]) {
+                if (--pendingPrevious[each] == 0) {
+                    result[added++] = each;
                 }
+            }
+        }
+        for (int i = 0; added < size && i < size; i++) {
+            if (pendingPrevious[i] > 0) {
+                result[added++] = i;
+            }
+        }
+        positionInOrder = new int[size];
+        for (int i = 0; i < size; i++) {
+            positionInOrder[result[i]] = i;
+        }
+        return result;
+    }
 
-                Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        currentTask, task);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
-
-                switch (dependencyType) {
+    private void forward(int fromPosition) {
+        for (int i = fromPosition; i < topologicalOrder.length; i++) {
+            int task = topologicalOrder[i];
+            int result = 0;
+            if (initial[task]) {
+                result = Math.max(result, applyConstraintToStart(task, 0));
+            }
+            for (int j = 0; j < previous[task].length; j++) {
+                int each = previous[task][j];
+                int candidate;
+                switch (previousTypes[task][j]) {
                 case START_START:
-                    setEarliestStart(node, earliestStart, constraint);
-                    countStartStart++;
+                    candidate = earliestStart[each];
                     break;
                 case END_END:
-                    setEarliestStart(node, earliestFinish - node.getDuration(),
-                            constraint);
+                    candidate = earliestFinish[each] - duration[task];
                     break;
                 case END_START:
                 default:
-                    setEarliestStart(node, earliestFinish, constraint);
+                    candidate = earliestFinish[each];
                     break;
                 }
-
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getPreviousTasks())) {
-                    forward(node, currentTask, visitorTracker);
-                }
+                result = Math.max(result,
+                        applyConstraintToStart(task, candidate));
             }
+            earliestStart[task] = result;
+            earliestFinish[task] = result + duration[task];
+        }
+    }
 
-            if (nextTasks.size() == countStartStart) {
-                eop.setEarliestStart(earliestFinish);
+    private int calculateProjectEnd() {
+        int result = 0;
+        for (int i = 0; i < endsProject.length; i++) {
+            if (endsProject[i]) {
+                result = Math.max(result, earliestFinish[i]);
             }
         }
+        return result;
     }
 
-    private void setEarliestStart(Node<T, D> node, int earliestStart,
-            Constraint<GanttDate> constraint) {
-        if (constraint != null) {
-            GanttDate date = GanttDate.createFrom(initDate
-                    .plusDays(earliestStart));
-            date = constraint.applyTo(date);
-            earliestStart = Days.daysBetween(initDate,
-                    LocalDate.fromDateFields(date.toDayRoundedDate()))
-                    .getDays();
-        }
-        node.setEarliestStart(earliestStart);
+    private int applyConstraintToStart(int task, int start) {
+        Constraint<GanttDate> constraint = constraints.get(task);
+        if (constraint == null) {
+            return start;
+        }
+        GanttDate date = GanttDate.createFrom(initDate.plusDays(start));
+        date = constraint.applyTo(date);
+        return Days.daysBetween(initDate,
+                LocalDate.fromDateFields(date.toDayRoundedDate())).getDays();
     }
 
     private Constraint<GanttDate> getDateConstraints(T task) {
@@ -377,87 +534,59 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         if (endConstraints == null || endConstraints.isEmpty()) {
             return Constraint.coalesce(startConstraints);
         }
-        startConstraints.addAll(endConstraints);
-        return Constraint.coalesce(startConstraints);
+        List<Constraint<GanttDate>> all = new ArrayList<Constraint<GanttDate>>(
+                startConstraints);
+        all.addAll(endConstraints);
+        return Constraint.coalesce(all);
     }
 
-    private void backward(Node<T, D> currentNode, T nextTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int latestStart = currentNode.getLatestStart();
-        int latestFinish = currentNode.getLatestFinish();
-
-        Set<T> previousTasks = currentNode.getPreviousTasks();
-        if (previousTasks.isEmpty()) {
-            bop.setLatestFinish(latestStart);
-        } else {
-            int countEndEnd = 0;
-
-            for (T task : previousTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, nextTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
-                }
-
-                Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        task, currentTask);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
-
-                switch (dependencyType) {
+    private void backward(int fromPosition) {
+        for (int i = fromPosition; i >= 0; i--) {
+            int task = topologicalOrder[i];
+            Integer result = null;
+            if (last[task]) {
+                result = applyConstraintToFinish(task, projectEnd);
+            }
+            for (int j = 0; j < next[task].length; j++) {
+                int each = next[task][j];
+                int candidate;
+                switch (nextTypes[task][j]) {
                 case START_START:
-                    setLatestFinish(node, latestStart + node.getDuration(),
-                            constraint);
+                    candidate = latestStart[each] + duration[task];
                     break;
                 case END_END:
-                    setLatestFinish(node, latestFinish, constraint);
-                    countEndEnd++;
+                    candidate = latestFinish[each];
                     break;
                 case END_START:
                 default:
-                    setLatestFinish(node, latestStart, constraint);
+                    candidate = latestStart[each];
                     break;
                 }
-
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getNextTasks())) {
-                    backward(node, currentTask, visitorTracker);
+                candidate = applyConstraintToFinish(task, candidate);
+                if (result == null || candidate < result) {
+                    result = candidate;
                 }
             }
-
-            if (previousTasks.size() == countEndEnd) {
-                bop.setLatestFinish(latestStart);
-            }
+            latestFinish[task] = result != null ? result : projectEnd;
+            latestStart[task] = latestFinish[task] - duration[task];
         }
     }
 
-    private void setLatestFinish(Node<T, D> node, int latestFinish,
-            Constraint<GanttDate> constraint) {
-        if (constraint != null) {
-            int duration = node.getDuration();
-            GanttDate date = GanttDate.createFrom(initDate.plusDays(latestFinish - duration));
-            date = constraint.applyTo(date);
-            int daysBetween = Days.daysBetween(initDate,
-                    LocalDate.fromDateFields(date.toDayRoundedDate()))
-                    .getDays();
-            latestFinish = daysBetween + duration;
-        }
-        node.setLatestFinish(latestFinish);
+    private int applyConstraintToFinish(int task, int finish) {
+        if (constraints.get(task) == null) {
+            return finish;
+        }
+        return applyConstraintToStart(task, finish - duration[task])
+                + duration[task];
     }
 
     private List<T> getTasksOnCriticalPath() {
         List<T> result = new ArrayList<T>();
-
-        for (Node<T, D> node : nodes.values()) {
-            if (node.getLatestStart() == node.getEarliestStart()) {
-                result.add(node.getTask());
+        for (int i = 0; i < tasks.size(); i++) {
+            if (latestStart[i] == earliestStart[i]) {
+                result.add(tasks.get(i));
             }
         }
-
         return result;
     }
 
@@ -0,0 +1,323 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.zkoss.ganttz.data.constraint.ConstraintOnComparableValues.biggerOrEqualThan;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties.IModifications;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties.IUpdatablePosition;
+import org.zkoss.ganttz.data.constraint.Constraint;
+import org.zkoss.ganttz.util.IAction;
+
+/**
+ * Tests for the propagation of the modifications done by
+ * {@link GanttDiagramGraph}
+ */
+public class GanttDiagramGraphTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private static LocalDate day(int offset) {
+        return START.plusDays(offset);
+    }
+
+    /**
+     * Keeps the dates of a task. Moving the start or the end of a leaf moves
+     * the whole task, while the start and end of a container are set
+     * independently, like the containers of the planning do
+     */
+    private static class Properties extends DefaultFundamentalProperties {
+
+        private final boolean container;
+
+        private LocalDate start;
+
+        private LocalDate end;
+
+        private LocalDate notBefore;
+
+        private int startConstraintsRequests = 0;
+
+        private final IUpdatablePosition position = new IUpdatablePosition() {
+
+            @Override
+            public void setBeginDate(GanttDate beginDate) {
+                LocalDate newStart = beginDate.toLocalDate();
+                if (!container) {
+                    end = end.plusDays(Days.daysBetween(start, newStart)
+                            .getDays());
+                }
+                start = newStart;
+            }
+
+            @Override
+            public void setEndDate(GanttDate endDate) {
+                LocalDate newEnd = endDate.toLocalDate();
+                if (!container) {
+                    start = start.plusDays(Days.daysBetween(end, newEnd)
+                            .getDays());
+                }
+                end = newEnd;
+            }
+
+            @Override
+            public void resizeTo(GanttDate endDate) {
+                end = endDate.toLocalDate();
+            }
+
+            @Override
+            public void moveTo(GanttDate newStart) {
+                setBeginDate(newStart);
+            }
+        };
+
+        private Properties(boolean container, LocalDate start, LocalDate end) {
+            this.container = container;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void doPositionModifications(IModifications modifications) {
+            modifications.doIt(position);
+        }
+
+        @Override
+        public GanttDate getBeginDate() {
+            return GanttDate.createFrom(start);
+        }
+
+        @Override
+        public GanttDate getEndDate() {
+            return GanttDate.createFrom(end);
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getStartConstraints() {
+            startConstraintsRequests++;
+            if (notBefore == null) {
+                return Collections.emptyList();
+            }
+            GanttDate date = GanttDate.createFrom(notBefore);
+            return Collections.singletonList(biggerOrEqualThan(date));
+        }
+
+    }
+
+    private final GanttDiagramGraph<Task, Dependency> graph = GanttDiagramGraph
+            .create(false, Collections.<Constraint<GanttDate>> emptyList(),
+                    Collections.<Constraint<GanttDate>> emptyList(), false);
+
+    private final Map<Task, Properties> properties = new IdentityHashMap<Task, Properties>();
+
+    private Properties propertiesOf(Task task) {
+        return properties.get(task);
+    }
+
+    private Task createTask(int startOffset, int days) {
+        Properties taskProperties = new Properties(false, day(startOffset),
+                day(startOffset + days));
+        Task result = new TaskLeaf(taskProperties);
+        properties.put(result, taskProperties);
+        return result;
+    }
+
+    private Task givenTask(int startOffset, int days) {
+        Task result = createTask(startOffset, days);
+        graph.addTopLevel(result);
+        return result;
+    }
+
+    private TaskContainer givenContainer(Task... children) {
+        LocalDate start = null;
+        LocalDate end = null;
+        for (Task each : children) {
+            LocalDate childStart = each.getBeginDate().toLocalDate();
+            LocalDate childEnd = each.getEndDate().toLocalDate();
+            start = start == null || childStart.isBefore(start) ? childStart
+                    : start;
+            end = end == null || childEnd.isAfter(end) ? childEnd : end;
+        }
+        Properties containerProperties = new Properties(true, start, end);
+        TaskContainer result = new TaskContainer(containerProperties, true);
+        properties.put(result, containerProperties);
+        for (Task each : children) {
+            result.add(each);
+        }
+        graph.addTopLevel(result);
+        return result;
+    }
+
+    private Dependency givenDependency(Task origin, Task destination,
+            DependencyType type) {
+        Dependency result = new Dependency(origin, destination, type);
+        graph.add(result);
+        return result;
+    }
+
+    private static void moveTo(Task task, final LocalDate date) {
+        task.doPositionModifications(new IModifications() {
+
+            @Override
+            public void doIt(IUpdatablePosition position) {
+                position.moveTo(GanttDate.createFrom(date));
+            }
+        });
+    }
+
+    /**
+     * Moves the task without triggering the enforcement of the dependencies
+     * and propagates the modification afterwards
+     *
+     * @return the tasks modified by the propagation
+     */
+    private Set<Task> moveAndPropagate(final Task task, final LocalDate date) {
+        final Set<Task> result = new HashSet<Task>();
+        graph.manualNotificationOn(new IAction() {
+
+            @Override
+            public void doAction() {
+                moveTo(task, date);
+                result.addAll(graph.propagateFrom(Collections
+                        .singletonList(task)));
+            }
+        });
+        return result;
+    }
+
+    private static void assertDates(Task task, LocalDate start, LocalDate end) {
+        assertEquals(start, task.getBeginDate().toLocalDate());
+        assertEquals(end, task.getEndDate().toLocalDate());
+    }
+
+    @Test
+    public void theModificationsArePropagatedAlongAChain() {
+        Task a = givenTask(0, 2);
+        Task b = givenTask(2, 3);
+        Task c = givenTask(5, 1);
+        givenDependency(a, b, DependencyType.END_START);
+        givenDependency(b, c, DependencyType.END_START);
+
+        Set<Task> modified = moveAndPropagate(a, day(3));
+
+        assertEquals(new HashSet<Task>(asList(b, c)), modified);
+        assertDates(a, day(3), day(5));
+        assertDates(b, day(5), day(8));
+        assertDates(c, day(8), day(9));
+    }
+
+    @Test
+    public void theLongestPathOfADiamondDecidesTheLastTask() {
+        Task a = givenTask(0, 1);
+        Task longer = givenTask(1, 4);
+        Task shorter = givenTask(1, 1);
+        Task last = givenTask(5, 2);
+        givenDependency(a, longer, DependencyType.END_START);
+        givenDependency(a, shorter, DependencyType.END_START);
+        givenDependency(longer, last, DependencyType.END_START);
+        givenDependency(shorter, last, DependencyType.END_START);
+
+        Set<Task> modified = moveAndPropagate(a, day(2));
+
+        assertEquals(new HashSet<Task>(asList(longer, shorter, last)),
+                modified);
+        assertDates(longer, day(3), day(7));
+        assertDates(shorter, day(3), day(4));
+        assertDates(last, day(7), day(9));
+    }
+
+    @Test
+    public void thePropagationStopsWhenATaskDoesntMove() {
+        Task a = givenTask(0, 2);
+        Task b = givenTask(5, 3);
+        propertiesOf(b).notBefore = day(5);
+        Task c = givenTask(8, 2);
+        givenDependency(a, b, DependencyType.END_START);
+        givenDependency(b, c, DependencyType.END_START);
+        propertiesOf(c).startConstraintsRequests = 0;
+
+        Set<Task> modified = moveAndPropagate(a, day(1));
+
+        assertTrue(modified.isEmpty());
+        assertDates(b, day(5), day(8));
+        assertDates(c, day(8), day(10));
+        assertEquals(0, propertiesOf(c).startConstraintsRequests);
+    }
+
+    @Test
+    public void theContainerShrinksWhenAChildMovesEarlier() {
+        Task first = createTask(2, 3);
+        Task last = createTask(4, 6);
+        propertiesOf(last).notBefore = day(4);
+        TaskContainer container = givenContainer(first, last);
+        graph.enforceAllRestrictions();
+        assertDates(container, day(2), day(10));
+
+        propertiesOf(last).notBefore = day(3);
+        moveTo(last, day(3));
+
+        assertDates(last, day(3), day(9));
+        assertDates(container, day(2), day(9));
+    }
+
+    @Test
+    public void theTaskPointsAreInternedWhileTheGraphIsNotModified() {
+        Task a = givenTask(0, 2);
+        Task b = givenTask(0, 3);
+        Object point = graph.allPointsPotentiallyModified(a);
+        assertSame(point, graph.allPointsPotentiallyModified(a));
+
+        givenDependency(a, b, DependencyType.END_START);
+
+        assertNotSame(point, graph.allPointsPotentiallyModified(a));
+    }
+
+    @Test
+    public void theTopologicalOrderIsRecalculatedWhenTheDependenciesChange() {
+        Task a = givenTask(0, 2);
+        Task b = givenTask(0, 3);
+        assertTrue(moveAndPropagate(a, day(1)).isEmpty());
+
+        Dependency dependency = givenDependency(a, b, DependencyType.END_START);
+        assertDates(b, day(3), day(6));
+        moveTo(a, day(4));
+        assertDates(b, day(6), day(9));
+
+        graph.removeDependency(dependency);
+        moveTo(a, day(10));
+        assertDates(b, day(6), day(9));
+    }
+
+}
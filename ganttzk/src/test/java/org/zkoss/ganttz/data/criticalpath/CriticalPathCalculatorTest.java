@@ -2316,6 +2316,80 @@ public class CriticalPathCalculatorTest {
         assertThat(daysBetweenStartAndEnd(criticalPath.get(0)), equalTo(10));
     }
 
+    @Test
+    public void theTasksOutOfTheCriticalPathHaveTotalFloat() {
+        givenTwoTasksNotConnected(5, 10);
+        CriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> calculator = buildCalculator();
+        calculator.calculateCriticalPath(diagramGraphExample);
+
+        List<ITaskFundamentalProperties> tasks = diagramGraphExample
+                .getTasks();
+        assertThat(calculator.getTotalFloat(tasks.get(0)), equalTo(5));
+        assertThat(calculator.getTotalFloat(tasks.get(1)), equalTo(0));
+    }
+
+    /**
+     * <pre>
+     * #### T1 #### (its duration changes after the first calculation)
+     *
+     * #### T2 ####
+     * </pre>
+     */
+    private void givenTwoTasksNotConnectedWithDurationChange(int daysTask1,
+            int newDaysTask1, int daysTask2) {
+        diagramGraphExample = createNiceMock(ICriticalPathCalculable.class);
+
+        ITaskFundamentalProperties task1 = createTask(START, daysTask1);
+        ITaskFundamentalProperties task2 = createTask(START, daysTask2);
+        List<ITaskFundamentalProperties> listOfTasks = Arrays.asList(task1,
+                task2);
+
+        expect(diagramGraphExample.getTasks()).andReturn(listOfTasks)
+                .anyTimes();
+        expect(diagramGraphExample.getInitialTasks()).andReturn(listOfTasks)
+                .anyTimes();
+        expect(diagramGraphExample.getLatestTasks())
+                .andReturn(listOfTasks).anyTimes();
+        expect(
+                diagramGraphExample
+                        .getIncomingTasksFor(isA(ITaskFundamentalProperties.class)))
+                .andReturn(new HashSet<ITaskFundamentalProperties>())
+                .anyTimes();
+        expect(
+                diagramGraphExample
+                        .getOutgoingTasksFor(isA(ITaskFundamentalProperties.class)))
+                .andReturn(new HashSet<ITaskFundamentalProperties>())
+                .anyTimes();
+
+        for (ITaskFundamentalProperties each : listOfTasks) {
+            expect(diagramGraphExample.getStartDate(each)).andReturn(
+                    each.getBeginDate()).anyTimes();
+        }
+        expect(diagramGraphExample.getEndDateFor(task1))
+                .andReturn(task1.getEndDate()).once()
+                .andReturn(toDate(START.plusDays(newDaysTask1))).anyTimes();
+        expect(diagramGraphExample.getEndDateFor(task2)).andReturn(
+                task2.getEndDate()).anyTimes();
+
+        replay(diagramGraphExample);
+    }
+
+    @Test
+    public void theCriticalPathIsUpdatedWhenTheDurationOfATaskChanges() {
+        givenTwoTasksNotConnectedWithDurationChange(5, 15, 10);
+        CriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> calculator = buildCalculator();
+        List<ITaskFundamentalProperties> tasks = diagramGraphExample
+                .getTasks();
+
+        List<ITaskFundamentalProperties> criticalPath = calculator
+                .calculateCriticalPath(diagramGraphExample);
+        assertThat(criticalPath, equalTo(Arrays.asList(tasks.get(1))));
+
+        criticalPath = calculator.taskDurationModified(tasks.get(0));
+        assertThat(criticalPath, equalTo(Arrays.asList(tasks.get(0))));
+        assertThat(calculator.getTotalFloat(tasks.get(1)), equalTo(5));
+    }
+
     @Test
     public void pairOfTasks() {
         givenPairOfTasks(10, 5);
@@ -0,0 +1,133 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.CalendarException;
+import org.libreplan.business.calendars.entities.CalendarExceptionType;
+import org.libreplan.business.calendars.entities.CalendarExceptionTypeColor;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
+
+/**
+ * Generators of the synthetic data used by the benchmarks of the business
+ * module.
+ */
+public class SyntheticData {
+
+    /**
+     * The calendars of the resources are available from the day they're
+     * created, so the synthetic data always starts in the future
+     */
+    public static final LocalDate START = new LocalDate().plusWeeks(1)
+            .withDayOfWeek(DateTimeConstants.MONDAY);
+
+    private static final int DAYS_BETWEEN_HOLIDAYS = 30;
+
+    private SyntheticData() {
+        // not instantiable
+    }
+
+    /**
+     * @return a calendar of eight hours from monday to friday with a holiday
+     *         every {@value #DAYS_BETWEEN_HOLIDAYS} days during the given
+     *         number of days
+     */
+    public static BaseCalendar calendar(int days) {
+        BaseCalendar result = BaseCalendar.createBasicCalendar();
+        CalendarExceptionType holiday = CalendarExceptionType.create(
+                "holiday", CalendarExceptionTypeColor.DEFAULT, true);
+        for (int i = 0; i < days; i += DAYS_BETWEEN_HOLIDAYS) {
+            result.addExceptionDay(CalendarException.create(START.plusDays(i),
+                    EffortDuration.zero(), holiday));
+        }
+        return result;
+    }
+
+    /**
+     * @return workers whose calendars are derived from the given one
+     */
+    public static List<Resource> workers(BaseCalendar parent, int count) {
+        List<Resource> result = new ArrayList<Resource>(count);
+        for (int i = 0; i < count; i++) {
+            Worker worker = Worker.create("worker" + i, "synthetic", "nif"
+                    + i);
+            worker.setCalendar(parent.newDerivedResourceCalendar());
+            result.add(worker);
+        }
+        return result;
+    }
+
+    /**
+     * Gives consecutive ids starting from one to the entities, as if they had
+     * been saved. It's needed by the calculations that identify the entities
+     * by id, like the ones over {@link ColumnarDayAssignments}.
+     */
+    public static void assignIds(List<? extends BaseEntity> entities) {
+        try {
+            Method setId = BaseEntity.class.getDeclaredMethod("setId",
+                    Long.class);
+            setId.setAccessible(true);
+            for (int i = 0; i < entities.size(); i++) {
+                setId.invoke(entities.get(i), (long) i + 1);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The allocations only need the dates and the calendar of the task, so
+     * it's mocked like in the allocation tests instead of building the whole
+     * order it belongs to
+     */
+    public static Task task(BaseCalendar calendar, LocalDate start, int days) {
+        IntraDayDate startDate = IntraDayDate.startOfDay(start);
+        IntraDayDate endDate = IntraDayDate.startOfDay(start.plusDays(days));
+        Task result = createNiceMock(Task.class);
+        expect(result.getCalendar()).andReturn(calendar).anyTimes();
+        expect(result.getStartDate()).andReturn(
+                startDate.toDateTimeAtStartOfDay().toDate()).anyTimes();
+        expect(result.getIntraDayStartDate()).andReturn(startDate).anyTimes();
+        expect(result.getEndDate()).andReturn(
+                endDate.toDateTimeAtStartOfDay().toDate()).anyTimes();
+        expect(result.getIntraDayEndDate()).andReturn(endDate).anyTimes();
+        expect(result.getFirstDayNotConsolidated()).andReturn(startDate)
+                .anyTimes();
+        replay(result);
+        return result;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks.chart;
+
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.libreplan.benchmarks.SyntheticData;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
+import org.libreplan.business.planner.chart.ResourceLoadChartData;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculation of the data of the company resource load chart, both from the
+ * day assignment entities and from the same assignments loaded in columns.
+ * Each resource is assigned every day of the period, with a load from one to
+ * ten hours, so some of them are overloaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResourceLoadChartDataBenchmark {
+
+    private static final int DAYS = 20;
+
+    @Param({ "1000", "10000", "100000" })
+    public int resources;
+
+    private List<Resource> workers;
+
+    private List<DayAssignment> dayAssignments;
+
+    private ColumnarDayAssignments columnarDayAssignments;
+
+    @Setup
+    public void setUp() {
+        workers = SyntheticData.workers(SyntheticData.calendar(365),
+                resources);
+        SyntheticData.assignIds(workers);
+        dayAssignments = new ArrayList<DayAssignment>(DAYS * resources);
+        ColumnarDayAssignments.Builder builder = ColumnarDayAssignments
+                .builder();
+        for (int i = 0; i < DAYS; i++) {
+            LocalDate day = SyntheticData.START.plusDays(i);
+            for (int j = 0; j < workers.size(); j++) {
+                Resource worker = workers.get(j);
+                EffortDuration load = hours(1 + (i + j) % 10);
+                dayAssignments.add(SpecificDayAssignment.create(day, load,
+                        worker));
+                builder.add(day, worker.getId(), load.getSeconds(), j,
+                        false);
+            }
+        }
+        columnarDayAssignments = builder.build();
+    }
+
+    @Benchmark
+    public ResourceLoadChartData fromDayAssignments() {
+        return new ResourceLoadChartData(dayAssignments, workers);
+    }
+
+    @Benchmark
+    public ResourceLoadChartData fromColumnarDayAssignments() {
+        return new ResourceLoadChartData(columnarDayAssignments, workers);
+    }
+
+}
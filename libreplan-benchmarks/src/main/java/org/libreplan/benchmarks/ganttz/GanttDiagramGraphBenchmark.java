@@ -0,0 +1,102 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks.ganttz;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.benchmarks.ganttz.SyntheticProject.SyntheticDependency;
+import org.libreplan.benchmarks.ganttz.SyntheticProject.SyntheticTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.ganttz.data.criticalpath.CriticalPathCalculator;
+
+/**
+ * Enforcement of the dependencies of a whole project and calculation of its
+ * critical path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GanttDiagramGraphBenchmark {
+
+    @State(Scope.Thread)
+    public static class NotScheduledProject {
+
+        @Param({ "1000", "10000", "100000" })
+        public int tasks;
+
+        SyntheticProject project;
+
+        @Setup(Level.Trial)
+        public void create() {
+            project = SyntheticProject.create(tasks);
+        }
+
+        /**
+         * Otherwise the tasks would already be at their positions after the
+         * first invocation and nothing would be moved
+         */
+        @Setup(Level.Invocation)
+        public void moveAllToStart() {
+            project.moveAllToStart();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ScheduledProject {
+
+        @Param({ "1000", "10000", "100000" })
+        public int tasks;
+
+        SyntheticProject project;
+
+        @Setup(Level.Trial)
+        public void create() {
+            project = SyntheticProject.create(tasks);
+            project.getGraph().enforceAllRestrictions();
+        }
+    }
+
+    @Benchmark
+    public void enforceAllRestrictions(NotScheduledProject state) {
+        state.project.getGraph().enforceAllRestrictions();
+    }
+
+    @Benchmark
+    public List<SyntheticTask> calculateCriticalPath(ScheduledProject state) {
+        CriticalPathCalculator<SyntheticTask, SyntheticDependency> calculator = CriticalPathCalculator
+                .create(false);
+        return calculator.calculateCriticalPath(state.project.getGraph());
+    }
+
+}
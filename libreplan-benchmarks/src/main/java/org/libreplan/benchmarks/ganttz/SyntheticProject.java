@@ -0,0 +1,270 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks.ganttz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.data.ConstraintCalculator;
+import org.zkoss.ganttz.data.DependencyType;
+import org.zkoss.ganttz.data.DependencyType.Point;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IAdapter;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IDependenciesEnforcerHookFactory;
+import org.zkoss.ganttz.data.IDependency;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Synthetic projects for the benchmarks of the Gantt diagram graph. The tasks
+ * are plain objects, so the measures aren't affected by the ZK components or
+ * the business entities.
+ */
+public class SyntheticProject {
+
+    public static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    /**
+     * Number of tasks that can be done in parallel; each task depends on the
+     * task at the same lane in the previous row
+     */
+    private static final int LANES = 10;
+
+    public static class SyntheticTask {
+
+        private final int lengthInDays;
+
+        private GanttDate start;
+
+        private GanttDate end;
+
+        SyntheticTask(int lengthInDays) {
+            this.lengthInDays = lengthInDays;
+            moveToStart();
+        }
+
+        public void moveToStart() {
+            setStart(GanttDate.createFrom(START));
+        }
+
+        void setStart(GanttDate start) {
+            this.start = start;
+            this.end = GanttDate.createFrom(start.toLocalDate().plusDays(
+                    lengthInDays));
+        }
+
+        void setEnd(GanttDate end) {
+            this.end = end;
+        }
+    }
+
+    public static class SyntheticDependency implements
+            IDependency<SyntheticTask> {
+
+        private final SyntheticTask source;
+
+        private final SyntheticTask destination;
+
+        private final DependencyType type;
+
+        private final boolean visible;
+
+        SyntheticDependency(SyntheticTask source, SyntheticTask destination,
+                DependencyType type, boolean visible) {
+            this.source = source;
+            this.destination = destination;
+            this.type = type;
+            this.visible = visible;
+        }
+
+        @Override
+        public SyntheticTask getSource() {
+            return source;
+        }
+
+        @Override
+        public SyntheticTask getDestination() {
+            return destination;
+        }
+
+        @Override
+        public DependencyType getType() {
+            return type;
+        }
+    }
+
+    private static final IAdapter<SyntheticTask, SyntheticDependency> ADAPTER = new IAdapter<SyntheticTask, SyntheticDependency>() {
+
+        @Override
+        public List<SyntheticTask> getChildren(SyntheticTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public SyntheticTask getOwner(SyntheticTask task) {
+            return null;
+        }
+
+        @Override
+        public boolean isContainer(SyntheticTask task) {
+            return false;
+        }
+
+        @Override
+        public void registerDependenciesEnforcerHookOn(SyntheticTask task,
+                IDependenciesEnforcerHookFactory<SyntheticTask> hookFactory) {
+            // the synthetic tasks are only moved by the graph
+        }
+
+        @Override
+        public GanttDate getStartDate(SyntheticTask task) {
+            return task.start;
+        }
+
+        @Override
+        public void setStartDateFor(SyntheticTask task, GanttDate newStart) {
+            task.setStart(newStart);
+        }
+
+        @Override
+        public GanttDate getEndDateFor(SyntheticTask task) {
+            return task.end;
+        }
+
+        @Override
+        public void setEndDateFor(SyntheticTask task, GanttDate newEnd) {
+            task.setEnd(newEnd);
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getConstraints(
+                ConstraintCalculator<SyntheticTask> calculator,
+                Set<SyntheticDependency> withDependencies, Point point) {
+            List<Constraint<GanttDate>> result = new ArrayList<Constraint<GanttDate>>();
+            for (SyntheticDependency each : withDependencies) {
+                result.addAll(calculator.getConstraints(each, point));
+            }
+            return result;
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getStartConstraintsFor(
+                SyntheticTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getEndConstraintsFor(
+                SyntheticTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public SyntheticTask getSource(SyntheticDependency dependency) {
+            return dependency.source;
+        }
+
+        @Override
+        public SyntheticTask getDestination(SyntheticDependency dependency) {
+            return dependency.destination;
+        }
+
+        @Override
+        public Class<SyntheticDependency> getDependencyType() {
+            return SyntheticDependency.class;
+        }
+
+        @Override
+        public SyntheticDependency createInvisibleDependency(
+                SyntheticTask origin, SyntheticTask destination,
+                DependencyType type) {
+            return new SyntheticDependency(origin, destination, type, false);
+        }
+
+        @Override
+        public DependencyType getType(SyntheticDependency dependency) {
+            return dependency.type;
+        }
+
+        @Override
+        public boolean isVisible(SyntheticDependency dependency) {
+            return dependency.visible;
+        }
+
+        @Override
+        public boolean isFixed(SyntheticTask task) {
+            return false;
+        }
+    };
+
+    private final List<SyntheticTask> tasks;
+
+    private final GanttDiagramGraph<SyntheticTask, SyntheticDependency> graph;
+
+    /**
+     * Creates a project of the given number of tasks, all of them starting at
+     * {@link #START}. Every task depends on the one at the same lane in the
+     * previous row and one of each three also on the one at the next lane,
+     * with different types of dependencies.
+     */
+    public static SyntheticProject create(int numberOfTasks) {
+        return new SyntheticProject(numberOfTasks);
+    }
+
+    private SyntheticProject(int numberOfTasks) {
+        tasks = new ArrayList<SyntheticTask>(numberOfTasks);
+        for (int i = 0; i < numberOfTasks; i++) {
+            tasks.add(new SyntheticTask(1 + i % 10));
+        }
+        graph = GanttDiagramGraph.create(false, ADAPTER,
+                Collections.<Constraint<GanttDate>> emptyList(),
+                Collections.<Constraint<GanttDate>> emptyList(), false);
+        graph.addTopLevel(tasks);
+        for (int i = LANES; i < numberOfTasks; i++) {
+            graph.addWithoutEnforcingConstraints(new SyntheticDependency(tasks
+                    .get(i - LANES), tasks.get(i), DependencyType.END_START,
+                    true));
+            if (i % 3 == 0 && (i + 1) % LANES != 0) {
+                graph.addWithoutEnforcingConstraints(new SyntheticDependency(
+                        tasks.get(i - LANES + 1), tasks.get(i),
+                        i % 2 == 0 ? DependencyType.START_START
+                                : DependencyType.END_END, true));
+            }
+        }
+    }
+
+    public List<SyntheticTask> getTasks() {
+        return tasks;
+    }
+
+    public GanttDiagramGraph<SyntheticTask, SyntheticDependency> getGraph() {
+        return graph;
+    }
+
+    public void moveAllToStart() {
+        for (SyntheticTask each : tasks) {
+            each.moveToStart();
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks.planner;
+
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.libreplan.benchmarks.SyntheticData;
+import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortForResource;
+import org.libreplan.business.planner.entities.EffortDistributor;
+import org.libreplan.business.planner.entities.EffortDistributor.ResourceWithAssignedDuration;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Distribution of the effort of a day among the resources of a generic
+ * allocation. The resources already have some load, different for each one,
+ * so the distributor has to choose the least loaded ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EffortDistributorBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int resources;
+
+    private EffortDistributor distributor;
+
+    private EffortDuration effortToDistribute;
+
+    @Setup
+    public void setUp() {
+        List<Resource> workers = SyntheticData.workers(
+                SyntheticData.calendar(365), resources);
+        final Map<Resource, EffortDuration> load = new IdentityHashMap<Resource, EffortDuration>();
+        for (int i = 0; i < workers.size(); i++) {
+            load.put(workers.get(i), hours(i % 8));
+        }
+        distributor = new EffortDistributor(workers,
+                new IAssignedEffortForResource() {
+
+                    @Override
+                    public EffortDuration getAssignedDurationAt(
+                            Resource resource, LocalDate day) {
+                        return load.get(resource);
+                    }
+                });
+        effortToDistribute = hours(2 * resources);
+    }
+
+    @Benchmark
+    public List<ResourceWithAssignedDuration> distributeForDay() {
+        return distributor.distributeForDay(
+                PartialDay.wholeDay(SyntheticData.START.plusDays(1)),
+                effortToDistribute);
+    }
+
+}
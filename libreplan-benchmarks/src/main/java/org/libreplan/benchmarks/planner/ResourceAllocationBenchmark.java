@@ -0,0 +1,100 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks.planner;
+
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.benchmarks.SyntheticData;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.allocationalgorithms.ResourcesPerDayModification;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
+import org.libreplan.business.workingday.ResourcesPerDay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocation of a task with a specific allocation for each resource, both
+ * keeping the length of the task and until allocating an amount of effort.
+ * Each invocation reallocates the same allocations, replacing the day
+ * assignments done by the previous one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResourceAllocationBenchmark {
+
+    private static final int TASK_DAYS = 20;
+
+    @Param({ "1000", "10000", "100000" })
+    public int resources;
+
+    private List<ResourcesPerDayModification> allocations;
+
+    private EffortDuration effortToAllocate;
+
+    @Setup
+    public void setUp() {
+        BaseCalendar calendar = SyntheticData.calendar(365);
+        Task task = SyntheticData.task(calendar, SyntheticData.START,
+                TASK_DAYS);
+        allocations = new ArrayList<ResourcesPerDayModification>();
+        for (Resource each : SyntheticData.workers(calendar, resources)) {
+            SpecificResourceAllocation allocation = SpecificResourceAllocation
+                    .create(task);
+            allocation.setResource(each);
+            allocations.add(ResourcesPerDayModification.create(allocation,
+                    ResourcesPerDay.amount(1)));
+        }
+        effortToAllocate = hours(8 * (TASK_DAYS / 2) * resources);
+    }
+
+    @Benchmark
+    public void allocateOnTaskLength() {
+        ResourceAllocation.allocating(allocations).allocateOnTaskLength();
+    }
+
+    @Benchmark
+    public IntraDayDate untilAllocating() {
+        return ResourceAllocation.allocating(allocations).untilAllocating(
+                effortToAllocate);
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks.planner;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.business.planner.entities.ResourceLeveler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Leveling of a year of tasks randomly placed on some resources, each task
+ * lasting up to two weeks and loading one or two resources. Half of the tasks
+ * are chained by precedences and a tenth of them can't be moved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResourceLevelerBenchmark {
+
+    private static final int DAYS = 365;
+
+    private static final int EIGHT_HOURS = 8 * 3600;
+
+    @Param({ "1000", "10000" })
+    public int tasks;
+
+    private ResourceLeveler leveler;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        Random random = new Random(tasks);
+        int resources = Math.max(1, tasks / 50);
+        leveler = ResourceLeveler.create(resources, DAYS);
+        for (int resource = 0; resource < resources; resource++) {
+            for (int day = 0; day < DAYS; day++) {
+                leveler.setCapacity(resource, day, EIGHT_HOURS);
+            }
+        }
+        for (int i = 0; i < tasks; i++) {
+            int length = 1 + random.nextInt(10);
+            int start = random.nextInt(DAYS - length);
+            int task = i % 10 == 0 ? leveler.addFixedTask(start) : leveler
+                    .addTask(start, Math.max(0, start - 20),
+                            Math.min(DAYS - length, start + 20));
+            int resource = random.nextInt(resources);
+            for (int day = start; day < start + length; day++) {
+                leveler.addLoad(task, resource, day, EIGHT_HOURS / 2);
+                if (i % 3 == 0) {
+                    leveler.addLoad(task, (resource + 1) % resources, day,
+                            EIGHT_HOURS / 4);
+                }
+            }
+            if (i % 2 == 1 && leveler.getStart(task - 1) + 10 <= start) {
+                leveler.addPrecedence(task - 1, task, 0);
+            }
+        }
+    }
+
+    @Benchmark
+    public long level() {
+        leveler.level(Integer.MAX_VALUE);
+        return leveler.getTotalOverload();
+    }
+
+}
@@ -24,8 +24,10 @@ package org.libreplan.business.calendars.entities;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedMap;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
@@ -43,6 +45,8 @@ import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.entities.EntitySequence;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.resources.entities.VirtualWorker;
+import org.libreplan.business.util.deepcopy.OnCopy;
+import org.libreplan.business.util.deepcopy.Strategy;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
 import org.libreplan.business.workingday.IntraDayDate;
@@ -141,6 +145,12 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     private Integer lastSequenceCode = 0;
 
+    @OnCopy(Strategy.IGNORE)
+    private volatile CapacitiesCache capacitiesCache;
+
+    @OnCopy(Strategy.IGNORE)
+    private volatile ExceptionDaysIndex exceptionDaysIndex;
+
     /**
      * Constructor for hibernate. Do not use!
      */
@@ -190,46 +200,43 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         return Collections.unmodifiableSet(exceptions);
     }
 
+    /**
+     * @return the own exceptions plus the ones of the parents on other dates,
+     *         sorted by date
+     */
     public Set<CalendarException> getExceptions() {
-        Set<CalendarException> exceptionDays = new HashSet<CalendarException>();
-        exceptionDays.addAll(exceptions);
+        return getExceptionDaysIndex().getMergedExceptions(getParent());
+    }
 
-        if (getParent() != null) {
-            for (CalendarException exceptionDay : getParent().getExceptions()) {
-                if (!isExceptionDayAlreadyInExceptions(exceptionDay)) {
-                    exceptionDays.add(exceptionDay);
-                }
-            }
+    public Set<CalendarException> getExceptions(LocalDate date) {
+        BaseCalendar parent = getParent(date);
+        if (parent == getParent()) {
+            return getExceptions();
         }
+        return Collections.unmodifiableSet(new LinkedHashSet<CalendarException>(
+                getExceptionDaysIndex().mergeWithParent(parent).values()));
+    }
 
-        return Collections.unmodifiableSet(exceptionDays);
+    /**
+     * @return the exceptions returned by {@link #getExceptions()} indexed by
+     *         date
+     */
+    SortedMap<LocalDate, CalendarException> getMergedExceptionsByDate() {
+        return getExceptionDaysIndex().getMerged(getParent());
     }
 
-    public Set<CalendarException> getExceptions(LocalDate date) {
-        Set<CalendarException> exceptionDays = new HashSet<CalendarException>();
-        exceptionDays.addAll(exceptions);
-
-        if (getParent(date) != null) {
-            for (CalendarException exceptionDay : getParent(date)
-                    .getExceptions()) {
-                if (!isExceptionDayAlreadyInExceptions(exceptionDay)) {
-                    exceptionDays.add(exceptionDay);
-                }
-            }
+    private ExceptionDaysIndex getExceptionDaysIndex() {
+        ExceptionDaysIndex result = exceptionDaysIndex;
+        if (result == null || !result.isValid()) {
+            result = ExceptionDaysIndex.create(exceptions);
+            exceptionDaysIndex = result;
         }
-
-        return Collections.unmodifiableSet(exceptionDays);
+        return result;
     }
 
     private boolean isExceptionDayAlreadyInExceptions(
             CalendarException exceptionDay) {
-        for (CalendarException day : exceptions) {
-            if (day.getDate().equals(exceptionDay.getDate())) {
-                return true;
-            }
-        }
-
-        return false;
+        return getExceptionDaysIndex().hasOwnOn(exceptionDay.getDate());
     }
 
     public void addExceptionDay(CalendarException day)
@@ -239,23 +246,29 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
             throw new IllegalArgumentException(
                     "This exception day has a incorrect date");
         }
-        if (isExceptionDayAlreadyInExceptions(day)) {
+        ExceptionDaysIndex index = getExceptionDaysIndex();
+        if (index.hasOwnOn(day.getDate())) {
             throw new IllegalArgumentException(
                     "This day is already in the exception days");
         }
 
         exceptions.add(day);
+        CapacitiesCache.calendarsModified();
+        index.added(day);
     }
 
     public void removeExceptionDay(LocalDate date)
             throws IllegalArgumentException {
-        CalendarException day = getOwnExceptionDay(date);
+        ExceptionDaysIndex index = getExceptionDaysIndex();
+        CalendarException day = index.getOwn(date);
         if (day == null) {
             throw new IllegalArgumentException(
                     "There is not an exception day on that date");
         }
 
         exceptions.remove(day);
+        CapacitiesCache.calendarsModified();
+        index.removed(day);
     }
 
     public void updateExceptionDay(LocalDate date, Capacity capacity,
@@ -267,23 +280,17 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     public CalendarException getOwnExceptionDay(LocalDate date) {
-        for (CalendarException exceptionDay : exceptions) {
-            if (exceptionDay.getDate().equals(date)) {
-                return exceptionDay;
-            }
-        }
-
-        return null;
+        return getExceptionDaysIndex().getOwn(date);
     }
 
     public CalendarException getExceptionDay(LocalDate date) {
-        for (CalendarException exceptionDay : getExceptions(date)) {
-            if (exceptionDay.getDate().equals(date)) {
-                return exceptionDay;
-            }
+        CalendarException result = getOwnExceptionDay(date);
+        if (result != null) {
+            return result;
         }
-
-        return null;
+        BaseCalendar parent = getParent(date);
+        return parent != null ? parent.getMergedExceptionsByDate().get(date)
+                : null;
     }
 
     public EffortDuration getCapacityOn(PartialDay date) {
@@ -298,6 +305,23 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     private Capacity findCapacityAt(LocalDate date) {
+        return getCapacitiesCache().getCapacityAt(date);
+    }
+
+    private CapacitiesCache getCapacitiesCache() {
+        CapacitiesCache result = capacitiesCache;
+        if (result == null || !result.isValid()) {
+            result = CapacitiesCache.createFor(this);
+            capacitiesCache = result;
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the capacity without using the {@link CapacitiesCache}. It
+     * doesn't multiply by the calendar units
+     */
+    Capacity calculateCapacityAt(LocalDate date) {
         if (!isActive(date)) {
             return Capacity.zero();
         }
@@ -443,6 +467,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
                         Collections.sort(calendarDataVersions,
                                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
+                        CapacitiesCache.calendarsModified();
                         return newCalendarData;
                     }
                 } else {
@@ -489,6 +514,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         calendarDataVersions.add(newCalendarData);
         Collections.sort(calendarDataVersions,
                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
+        CapacitiesCache.calendarsModified();
         return newCalendarData;
     }
 
@@ -508,6 +534,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         calendarDataVersions.add(newCalendarData);
         Collections.sort(calendarDataVersions,
                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
+        CapacitiesCache.calendarsModified();
         return newCalendarData;
     }
 
@@ -564,6 +591,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
                 calendarDataVersions.add(version);
                 Collections.sort(calendarDataVersions,
                         CalendarData.BY_EXPIRING_DATE_COMPARATOR);
+                CapacitiesCache.calendarsModified();
                 return;
             }
         }
@@ -585,6 +613,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
                             "the date is null and overlap with the other work week.");
                 }
                 calendarDataVersions.add(i, version);
+                CapacitiesCache.calendarsModified();
                 return;
             }
         }
@@ -592,7 +621,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         calendarDataVersions.add(version);
         Collections.sort(calendarDataVersions,
                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
-
+        CapacitiesCache.calendarsModified();
     }
 
     public BaseCalendar newCopy() {
@@ -609,6 +638,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
             copy.calendarDataVersions.add(calendarData.copy());
         }
         copy.exceptions = new HashSet<CalendarException>(this.exceptions);
+        CapacitiesCache.calendarsModified();
     }
 
     public BaseCalendar newCopyResourceCalendar() {
@@ -806,6 +836,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         } else {
             calendarDataVersions.remove(calendarData);
         }
+        CapacitiesCache.calendarsModified();
     }
 
     public LocalDate getValidFrom(CalendarData calendarData) {
@@ -857,6 +888,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
                 }
             }
             calendarAvailabilities.add(calendarAvailability);
+            CapacitiesCache.calendarsModified();
         }
     }
 
@@ -864,6 +896,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
             CalendarAvailability calendarAvailability)
             throws IllegalArgumentException {
         calendarAvailabilities.remove(calendarAvailability);
+        CapacitiesCache.calendarsModified();
     }
 
     public boolean isActive(LocalDate date) {
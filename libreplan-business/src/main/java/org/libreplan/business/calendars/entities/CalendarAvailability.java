@@ -94,6 +94,7 @@ public class CalendarAvailability extends IntegrationEntity {
             }
         }
         this.startDate = startDate;
+        CapacitiesCache.calendarsModified();
     }
 
     public LocalDate getEndDate() {
@@ -108,6 +109,7 @@ public class CalendarAvailability extends IntegrationEntity {
             }
         }
         this.endDate = endDate;
+        CapacitiesCache.calendarsModified();
     }
 
     public boolean isActive(LocalDate date) {
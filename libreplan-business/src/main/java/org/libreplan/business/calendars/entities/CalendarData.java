@@ -76,6 +76,7 @@ public class CalendarData extends IntegrationEntity {
         if (parent != null) {
             this.parent = parent;
         }
+        CapacitiesCache.calendarsModified();
     }
 
     public void updateCapacitiesPerDay(Map<Integer, Capacity> capacityPerDay)
@@ -162,6 +163,7 @@ public class CalendarData extends IntegrationEntity {
 
     public void setCapacityAt(Days day, Capacity capacity) {
         capacityPerDay.put(day.ordinal(), capacity);
+        CapacitiesCache.calendarsModified();
     }
 
 
@@ -182,6 +184,7 @@ public class CalendarData extends IntegrationEntity {
 
     public void setExpiringDate(LocalDate expiringDate) {
         this.expiringDate = expiringDate;
+        CapacitiesCache.calendarsModified();
     }
 
     public CalendarData copy() {
@@ -200,10 +203,12 @@ public class CalendarData extends IntegrationEntity {
 
     public void setParent(BaseCalendar parent) {
         this.parent = parent;
+        CapacitiesCache.calendarsModified();
     }
 
     public void removeExpiringDate() {
         this.expiringDate = null;
+        CapacitiesCache.calendarsModified();
     }
 
     public boolean isPosteriorTo(LocalDate date) {
@@ -82,6 +82,7 @@ public class CalendarException extends IntegrationEntity {
         if (type != null) {
             this.type = type;
         }
+        CapacitiesCache.calendarsModified();
     }
 
     private LocalDate date;
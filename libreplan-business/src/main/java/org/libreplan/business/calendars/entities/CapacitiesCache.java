@@ -0,0 +1,121 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.calendars.entities;
+
+import static org.libreplan.business.workingday.EpochDays.fromEpochDay;
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Compiled view of the capacities of a {@link BaseCalendar}. The capacities
+ * are calculated in blocks of {@link #BLOCK_SIZE} consecutive days the first
+ * time one of them is requested, so the later lookups are array reads.
+ *
+ * Any modification to a calendar, its {@link CalendarData}, its
+ * {@link CalendarException exceptions} or its {@link CalendarAvailability
+ * availabilities} must call {@link #calendarsModified()}. Since a calendar
+ * doesn't know its derived calendars, a modification invalidates the caches
+ * of all the calendars.
+ *
+ * @see BaseCalendar#getCapacityWithOvertime(LocalDate)
+ */
+class CapacitiesCache {
+
+    static final int BLOCK_SIZE = 64;
+
+    private static final int BLOCK_SHIFT = 6;
+
+    /**
+     * When more blocks are cached the cache is emptied. It's about 45 years
+     */
+    private static final int MAX_BLOCKS = 256;
+
+    private static final AtomicLong modifications = new AtomicLong();
+
+    static void calendarsModified() {
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * @return a number that changes every time a calendar is modified
+     */
+    static long getModificationsCount() {
+        return modifications.get();
+    }
+
+    static CapacitiesCache createFor(BaseCalendar calendar) {
+        return new CapacitiesCache(calendar, modifications.get());
+    }
+
+    private final BaseCalendar calendar;
+
+    private final long modificationsWhenCreated;
+
+    private final ConcurrentMap<Integer, Capacity[]> blocks = new ConcurrentHashMap<Integer, Capacity[]>();
+
+    private CapacitiesCache(BaseCalendar calendar, long modificationsWhenCreated) {
+        this.calendar = calendar;
+        this.modificationsWhenCreated = modificationsWhenCreated;
+    }
+
+    boolean isValid() {
+        return modificationsWhenCreated == modifications.get();
+    }
+
+    Capacity getCapacityAt(LocalDate date) {
+        int epochDay = toEpochDay(date);
+        return getBlockContaining(epochDay)[epochDay & (BLOCK_SIZE - 1)];
+    }
+
+    /**
+     * @return the capacities, without multiplying by calendar units, of the
+     *         {@link #BLOCK_SIZE} days starting at the first day of the block
+     *         containing the given one. The returned array must not be
+     *         modified
+     */
+    Capacity[] getBlockContaining(int epochDay) {
+        int blockIndex = epochDay >> BLOCK_SHIFT;
+        Capacity[] result = blocks.get(blockIndex);
+        if (result == null) {
+            result = calculateBlock(blockIndex);
+            if (blocks.size() >= MAX_BLOCKS) {
+                blocks.clear();
+            }
+            blocks.put(blockIndex, result);
+        }
+        return result;
+    }
+
+    private Capacity[] calculateBlock(int blockIndex) {
+        Capacity[] result = new Capacity[BLOCK_SIZE];
+        LocalDate day = fromEpochDay(blockIndex << BLOCK_SHIFT);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            result[i] = calendar.calculateCapacityAt(day);
+            day = day.plusDays(1);
+        }
+        return result;
+    }
+
+}
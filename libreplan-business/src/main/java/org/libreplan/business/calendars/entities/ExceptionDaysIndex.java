@@ -0,0 +1,143 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.calendars.entities;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Index by date of the {@link CalendarException exceptions} of a
+ * {@link BaseCalendar}. It also keeps the exceptions merged along the chain of
+ * parents, so the exceptions of a calendar override the ones of its parents
+ * on the same date.
+ *
+ * It's discarded when any calendar is modified, except for the exceptions
+ * added or removed through {@link #added(CalendarException)} and
+ * {@link #removed(CalendarException)}.
+ *
+ * @see CapacitiesCache#calendarsModified()
+ */
+class ExceptionDaysIndex {
+
+    static ExceptionDaysIndex create(Collection<CalendarException> exceptions) {
+        ExceptionDaysIndex result = new ExceptionDaysIndex();
+        for (CalendarException each : exceptions) {
+            result.own.put(each.getDate(), each);
+        }
+        return result;
+    }
+
+    private long modificationsWhenUpdated = CapacitiesCache
+            .getModificationsCount();
+
+    private final SortedMap<LocalDate, CalendarException> own = new TreeMap<LocalDate, CalendarException>();
+
+    private SortedMap<LocalDate, CalendarException> merged;
+
+    private Set<CalendarException> mergedExceptions;
+
+    private ExceptionDaysIndex() {
+    }
+
+    boolean isValid() {
+        return modificationsWhenUpdated == CapacitiesCache
+                .getModificationsCount();
+    }
+
+    CalendarException getOwn(LocalDate date) {
+        return own.get(date);
+    }
+
+    boolean hasOwnOn(LocalDate date) {
+        return own.containsKey(date);
+    }
+
+    /**
+     * Must be called just after adding the exception to the calendar. The
+     * index must be valid before the addition.
+     */
+    void added(CalendarException exception) {
+        own.put(exception.getDate(), exception);
+        ownModified();
+    }
+
+    /**
+     * Must be called just after removing the exception from the calendar. The
+     * index must be valid before the removal.
+     */
+    void removed(CalendarException exception) {
+        own.remove(exception.getDate());
+        ownModified();
+    }
+
+    private void ownModified() {
+        merged = null;
+        mergedExceptions = null;
+        modificationsWhenUpdated = CapacitiesCache.getModificationsCount();
+    }
+
+    /**
+     * @param parent
+     *            the last parent of the calendar this index belongs to. It
+     *            can be <code>null</code>
+     */
+    SortedMap<LocalDate, CalendarException> getMerged(BaseCalendar parent) {
+        if (merged == null) {
+            merged = mergeWithParent(parent);
+        }
+        return merged;
+    }
+
+    /**
+     * @param parent
+     *            the last parent of the calendar this index belongs to. It
+     *            can be <code>null</code>
+     */
+    Set<CalendarException> getMergedExceptions(BaseCalendar parent) {
+        if (mergedExceptions == null) {
+            mergedExceptions = Collections
+                    .unmodifiableSet(new LinkedHashSet<CalendarException>(
+                            getMerged(parent).values()));
+        }
+        return mergedExceptions;
+    }
+
+    /**
+     * @param parent
+     *            the parent to merge with. The exceptions of the parent are
+     *            merged along its last parents
+     */
+    SortedMap<LocalDate, CalendarException> mergeWithParent(
+            BaseCalendar parent) {
+        SortedMap<LocalDate, CalendarException> result = new TreeMap<LocalDate, CalendarException>();
+        if (parent != null) {
+            result.putAll(parent.getMergedExceptionsByDate());
+        }
+        result.putAll(own);
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+}
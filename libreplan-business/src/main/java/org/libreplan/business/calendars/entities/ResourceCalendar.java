@@ -46,6 +46,7 @@ public class ResourceCalendar extends BaseCalendar {
 
     public void setCapacity(Integer capacity) {
         this.capacity = capacity;
+        CapacitiesCache.calendarsModified();
     }
 
     public static ResourceCalendar create() {
@@ -67,7 +68,11 @@ public class ResourceCalendar extends BaseCalendar {
 
     @Override
     protected Capacity multiplyByCalendarUnits(Capacity capacity) {
-        return capacity.multiplyBy(getCapacity());
+        int units = getCapacity();
+        if (units == 1) {
+            return capacity;
+        }
+        return capacity.multiplyBy(units);
     }
 
     @AssertTrue(message = "Capacity must be a positive integer number")
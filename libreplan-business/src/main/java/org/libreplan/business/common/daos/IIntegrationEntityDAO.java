@@ -21,7 +21,9 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
@@ -63,6 +65,21 @@ public interface IIntegrationEntityDAO<E extends IntegrationEntity>
 
     public E findExistingEntityByCode(String code);
 
+    /**
+     * It retrieves the entities with the given codes using as few queries as
+     * possible. As {@link #findByCode(String)}, the codes are trimmed and
+     * compared ignoring case. Blank codes are ignored.
+     *
+     * @return the entities found indexed by {@link #normalizeCode(String)
+     *         normalized code}
+     */
+    public Map<String, E> findByCodes(Collection<String> codes);
+
+    /**
+     * @return the code as it is compared by {@link #findByCodes(Collection)}
+     */
+    public String normalizeCode(String code);
+
     /**
      * It returns all entities ordered by ascending code.
      */
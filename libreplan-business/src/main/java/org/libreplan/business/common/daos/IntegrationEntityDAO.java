@@ -21,7 +21,12 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.criterion.Order;
@@ -100,6 +105,42 @@ public class IntegrationEntityDAO<E extends IntegrationEntity>
 
     }
 
+    /**
+     * Maximum number of codes sent in a single IN clause
+     */
+    private static final int CODES_PER_QUERY = 1000;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, E> findByCodes(Collection<String> codes) {
+        List<String> normalized = new ArrayList<String>();
+        for (String each : new HashSet<String>(codes)) {
+            if (!StringUtils.isBlank(each)) {
+                normalized.add(normalizeCode(each));
+            }
+        }
+        Map<String, E> result = new HashMap<String, E>();
+        for (int i = 0; i < normalized.size(); i += CODES_PER_QUERY) {
+            List<String> chunk = normalized.subList(i,
+                    Math.min(i + CODES_PER_QUERY, normalized.size()));
+            List<E> found = getSession()
+                    .createQuery(
+                            "from " + getEntityClass().getName()
+                                    + " e where lower(e.code) in (:codes)")
+                    .setParameterList("codes", chunk).list();
+            for (E each : found) {
+                result.put(normalizeCode(each.getCode()), each);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String normalizeCode(String code) {
+        return code.trim().toLowerCase();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<E> findAll() {
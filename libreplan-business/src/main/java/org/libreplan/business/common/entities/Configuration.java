@@ -120,6 +120,13 @@ public class Configuration extends BaseEntity {
 
     private Boolean enabledAutomaticBudget = false;
 
+    /**
+     * Whether the daily loads of all the resources have been calculated once.
+     * Afterwards they are kept up to date each time the assignments are
+     * saved.
+     */
+    private Boolean resourceDailyLoadsCalculated = false;
+
     /**
      * Maximum users configurable directly in database for SaaS products. If
      * zero it means that there isn't any limitation.
@@ -524,4 +531,13 @@ public class Configuration extends BaseEntity {
         this.enabledAutomaticBudget = enabledAutomaticBudget;
     }
 
+    public Boolean isResourceDailyLoadsCalculated() {
+        return resourceDailyLoadsCalculated;
+    }
+
+    public void setResourceDailyLoadsCalculated(
+            Boolean resourceDailyLoadsCalculated) {
+        this.resourceDailyLoadsCalculated = resourceDailyLoadsCalculated;
+    }
+
 }
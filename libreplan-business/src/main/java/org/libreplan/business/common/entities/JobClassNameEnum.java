@@ -30,7 +30,9 @@ public enum JobClassNameEnum {
 
     IMPORT_ROSTER_FROM_TIM_JOB("org.libreplan.importers", "ImportRosterFromTimJob"),
     EXPORT_TIMESHEET_TO_TIM_JOB("org.libreplan.importers","ExportTimesheetToTimJob"),
-    SYNC_ORDERELEMENTS_WITH_JIRA_ISSUES_JOB("org.libreplan.importers","JiraOrderElementSynchronizerJob");
+    SYNC_ORDERELEMENTS_WITH_JIRA_ISSUES_JOB("org.libreplan.importers","JiraOrderElementSynchronizerJob"),
+    REPLAN_ORDERS_JOB("org.libreplan.web.planner.replanning", "ReplanOrdersJob"),
+    LEVEL_RESOURCES_JOB("org.libreplan.web.planner.leveling", "LevelResourcesJob");
 
     private String packageName;
     private String name;
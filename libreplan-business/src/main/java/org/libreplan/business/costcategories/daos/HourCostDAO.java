@@ -22,6 +22,7 @@
 package org.libreplan.business.costcategories.daos;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import org.hibernate.Query;
 import org.joda.time.LocalDate;
@@ -94,4 +95,32 @@ public class HourCostDAO extends IntegrationEntityDAO<HourCost> implements
         return (BigDecimal) query.uniqueResult();
     }
 
-}
\ No newline at end of file
+    @Override
+    @Transactional(readOnly = true)
+    public HourCostRates getRates() {
+        HourCostRates.Builder builder = HourCostRates.builder();
+        for (Object[] each : rows("select a.resource.id, a.costCategory.id, "
+                + "a.initDate, a.endDate from ResourcesCostCategoryAssignment a")) {
+            builder.addCategoryAssignment((Long) each[0], (Long) each[1],
+                    (LocalDate) each[2], (LocalDate) each[3]);
+        }
+        for (Object[] each : rows("select h.category.id, h.type.id, "
+                + "h.initDate, h.endDate, h.priceCost from HourCost h")) {
+            builder.addHourCost((Long) each[0], (Long) each[1],
+                    (LocalDate) each[2], (LocalDate) each[3],
+                    (BigDecimal) each[4]);
+        }
+        for (Object[] each : rows("select t.id, t.code, t.defaultPrice "
+                + "from TypeOfWorkHours t")) {
+            builder.addTypeOfWorkHours((Long) each[0], (String) each[1],
+                    (BigDecimal) each[2]);
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String query) {
+        return getSession().createQuery(query).list();
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.costcategories.daos;
+
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.costcategories.entities.CostCategory;
+import org.libreplan.business.costcategories.entities.HourCost;
+import org.libreplan.business.costcategories.entities.ResourcesCostCategoryAssignment;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+
+/**
+ * Read only table of the price of an hour of each {@link TypeOfWorkHours}
+ * for each resource along the time, used to calculate the cost of the hours
+ * reported without querying the database for each of them.<br />
+ *
+ * For each resource it keeps the intervals of its
+ * {@link ResourcesCostCategoryAssignment cost category assignments}, and for
+ * each {@link CostCategory} the intervals of its {@link HourCost hour costs}
+ * of each type of work hours. Both are sorted by start, so the ones active at
+ * a date are found with a binary search. The intervals include their start
+ * and end dates.
+ *
+ * @see IHourCostDAO#getRates()
+ */
+public class HourCostRates {
+
+    private static final int OPEN_START = Integer.MIN_VALUE;
+
+    private static final int OPEN_END = Integer.MAX_VALUE;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<Long, List<Period<Long>>> categoriesByResource = new HashMap<Long, List<Period<Long>>>();
+
+        private final Map<Long, Map<Long, List<Period<BigDecimal>>>> pricesByCategory = new HashMap<Long, Map<Long, List<Period<BigDecimal>>>>();
+
+        private final Map<String, Long> typesByCode = new HashMap<String, Long>();
+
+        private final Map<Long, BigDecimal> defaultPrices = new HashMap<Long, BigDecimal>();
+
+        private Builder() {
+        }
+
+        public Builder addCategoryAssignment(long resourceId,
+                long categoryId, LocalDate initDate, LocalDate endDate) {
+            listFor(categoriesByResource, resourceId).add(
+                    new Period<Long>(initDate, endDate, categoryId));
+            return this;
+        }
+
+        public Builder addHourCost(long categoryId, long typeId,
+                LocalDate initDate, LocalDate endDate, BigDecimal price) {
+            Map<Long, List<Period<BigDecimal>>> byType = pricesByCategory
+                    .get(categoryId);
+            if (byType == null) {
+                byType = new HashMap<Long, List<Period<BigDecimal>>>();
+                pricesByCategory.put(categoryId, byType);
+            }
+            listFor(byType, typeId).add(
+                    new Period<BigDecimal>(initDate, endDate, price));
+            return this;
+        }
+
+        public Builder addTypeOfWorkHours(long typeId, String code,
+                BigDecimal defaultPrice) {
+            if (code != null) {
+                typesByCode.put(code, typeId);
+            }
+            defaultPrices.put(typeId, defaultPrice);
+            return this;
+        }
+
+        private static <T> List<Period<T>> listFor(
+                Map<Long, List<Period<T>>> map, long key) {
+            List<Period<T>> result = map.get(key);
+            if (result == null) {
+                result = new ArrayList<Period<T>>();
+                map.put(key, result);
+            }
+            return result;
+        }
+
+        public HourCostRates build() {
+            Map<Long, Periods<Long>> categories = new HashMap<Long, Periods<Long>>();
+            for (Entry<Long, List<Period<Long>>> each : categoriesByResource
+                    .entrySet()) {
+                categories.put(each.getKey(), new Periods<Long>(each
+                        .getValue()));
+            }
+            Map<Long, Map<Long, Periods<BigDecimal>>> prices = new HashMap<Long, Map<Long, Periods<BigDecimal>>>();
+            for (Entry<Long, Map<Long, List<Period<BigDecimal>>>> each : pricesByCategory
+                    .entrySet()) {
+                Map<Long, Periods<BigDecimal>> byType = new HashMap<Long, Periods<BigDecimal>>();
+                for (Entry<Long, List<Period<BigDecimal>>> type : each
+                        .getValue().entrySet()) {
+                    byType.put(type.getKey(), new Periods<BigDecimal>(type
+                            .getValue()));
+                }
+                prices.put(each.getKey(), byType);
+            }
+            return new HourCostRates(categories, prices,
+                    new HashMap<String, Long>(typesByCode),
+                    new HashMap<Long, BigDecimal>(defaultPrices));
+        }
+    }
+
+    private static class Period<T> {
+
+        private final int start;
+
+        private final int end;
+
+        private final T value;
+
+        Period(LocalDate initDate, LocalDate endDate, T value) {
+            this.start = initDate != null ? toEpochDay(initDate) : OPEN_START;
+            this.end = endDate != null ? toEpochDay(endDate) : OPEN_END;
+            this.value = value;
+        }
+
+        boolean contains(int day) {
+            return start <= day && day <= end;
+        }
+    }
+
+    private static final Comparator<Period<?>> BY_START = new Comparator<Period<?>>() {
+
+        @Override
+        public int compare(Period<?> o1, Period<?> o2) {
+            return o1.start < o2.start ? -1 : (o1.start == o2.start ? 0 : 1);
+        }
+    };
+
+    /**
+     * Periods sorted by start
+     */
+    private static class Periods<T> {
+
+        private final List<Period<T>> periods;
+
+        Periods(List<Period<T>> periods) {
+            this.periods = new ArrayList<Period<T>>(periods);
+            Collections.sort(this.periods, BY_START);
+        }
+
+        /**
+         * @return the value of the period containing the day. If several do,
+         *         the one starting later
+         */
+        T at(int day) {
+            for (int i = lastStartingOnOrBefore(day); i >= 0; i--) {
+                Period<T> each = periods.get(i);
+                if (each.contains(day)) {
+                    return each.value;
+                }
+            }
+            return null;
+        }
+
+        private int lastStartingOnOrBefore(int day) {
+            int low = 0;
+            int high = periods.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (periods.get(middle).start <= day) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - 1;
+        }
+    }
+
+    private final Map<Long, Periods<Long>> categoriesByResource;
+
+    private final Map<Long, Map<Long, Periods<BigDecimal>>> pricesByCategory;
+
+    private final Map<String, Long> typesByCode;
+
+    private final Map<Long, BigDecimal> defaultPrices;
+
+    private HourCostRates(Map<Long, Periods<Long>> categoriesByResource,
+            Map<Long, Map<Long, Periods<BigDecimal>>> pricesByCategory,
+            Map<String, Long> typesByCode, Map<Long, BigDecimal> defaultPrices) {
+        this.categoriesByResource = categoriesByResource;
+        this.pricesByCategory = pricesByCategory;
+        this.typesByCode = typesByCode;
+        this.defaultPrices = defaultPrices;
+    }
+
+    /**
+     * Equivalent to
+     * {@link IHourCostDAO#getPriceCostFromResourceDateAndType(org.libreplan.business.resources.entities.Resource, LocalDate, TypeOfWorkHours)}
+     *
+     * @return the price defined by the cost category of the resource at the
+     *         date or <code>null</code> if there is none
+     */
+    public BigDecimal getPrice(long resourceId, LocalDate date, long typeId) {
+        Validate.notNull(date);
+        Periods<Long> categories = categoriesByResource.get(resourceId);
+        if (categories == null) {
+            return null;
+        }
+        int day = toEpochDay(date);
+        Long category = categories.at(day);
+        if (category == null) {
+            return null;
+        }
+        Map<Long, Periods<BigDecimal>> byType = pricesByCategory
+                .get(category);
+        Periods<BigDecimal> prices = byType != null ? byType.get(typeId)
+                : null;
+        return prices != null ? prices.at(day) : null;
+    }
+
+    /**
+     * @see #getPrice(long, LocalDate, long)
+     */
+    public BigDecimal getPrice(long resourceId, LocalDate date, String typeCode) {
+        Long typeId = typesByCode.get(typeCode);
+        return typeId != null ? getPrice(resourceId, date, typeId) : null;
+    }
+
+    /**
+     * @return the default price of the type of work hours with the given
+     *         code or <code>null</code> if there is no such type
+     */
+    public BigDecimal getDefaultPrice(String typeCode) {
+        Long typeId = typesByCode.get(typeCode);
+        return typeId != null ? defaultPrices.get(typeId) : null;
+    }
+
+}
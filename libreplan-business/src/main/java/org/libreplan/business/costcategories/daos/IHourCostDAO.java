@@ -62,4 +62,11 @@ public interface IHourCostDAO extends IIntegrationEntityDAO<HourCost> {
 
     public BigDecimal getPriceCostFromCriterionAndType(
             CostCategory category, TypeOfWorkHours type);
+
+    /**
+     * Loads all the {@link ResourcesCostCategoryAssignment}, {@link HourCost}
+     * and {@link TypeOfWorkHours} in a table, so the prices can be looked up
+     * without querying the database for each of them
+     */
+    HourCostRates getRates();
 }
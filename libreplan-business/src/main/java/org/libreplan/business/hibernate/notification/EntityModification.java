@@ -0,0 +1,93 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A modification done to a persisted entity, as notified by
+ * {@link HibernateDatabaseModificationsListener}. It's used by the
+ * snapshots with an {@link ISnapshotDeltaApplier} to update their value
+ * incrementally.
+ */
+public class EntityModification {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE;
+    }
+
+    public static EntityModification insert(Class<?> entityClass,
+            Serializable id) {
+        return new EntityModification(entityClass, id, Type.INSERT);
+    }
+
+    public static EntityModification update(Class<?> entityClass,
+            Serializable id) {
+        return new EntityModification(entityClass, id, Type.UPDATE);
+    }
+
+    public static EntityModification delete(Class<?> entityClass,
+            Serializable id) {
+        return new EntityModification(entityClass, id, Type.DELETE);
+    }
+
+    private final Class<?> entityClass;
+
+    private final Serializable id;
+
+    private final Type type;
+
+    private EntityModification(Class<?> entityClass, Serializable id,
+            Type type) {
+        Validate.notNull(entityClass);
+        Validate.notNull(type);
+        this.entityClass = entityClass;
+        this.id = id;
+        this.type = type;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return the identifier of the modified entity. It can be
+     *         <code>null</code> if Hibernate didn't provide it
+     */
+    public Serializable getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isDeletion() {
+        return type == Type.DELETE;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + entityClass.getSimpleName() + "#" + id;
+    }
+
+}
@@ -22,9 +22,10 @@ package org.libreplan.business.hibernate.notification;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -65,21 +66,29 @@ public class HibernateDatabaseModificationsListener implements
 
     private ConcurrentMap<Transaction, Dispatcher> pending = new ConcurrentHashMap<Transaction, Dispatcher>();
 
-    private Set<NotBlockingAutoUpdatedSnapshot<?>> snapshotsInterestedOn(
-            Class<?> entityClass) {
-        List<Class<?>> list = new ArrayList<Class<?>>(1);
-        list.add(entityClass);
+    private Map<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> snapshotsInterestedOn(
+            EntityModification modification) {
+        List<EntityModification> list = new ArrayList<EntityModification>(1);
+        list.add(modification);
         return snapshotsInterestedOn(list);
     }
 
-    private Set<NotBlockingAutoUpdatedSnapshot<?>> snapshotsInterestedOn(
-            Collection<? extends Class<?>> classesList) {
-        Set<NotBlockingAutoUpdatedSnapshot<?>> result = new HashSet<NotBlockingAutoUpdatedSnapshot<?>>();
-        for (Class<?> each : new HashSet<Class<?>>(classesList)) {
+    private Map<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> snapshotsInterestedOn(
+            Collection<? extends EntityModification> modifications) {
+        Map<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> result = new HashMap<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>>();
+        for (EntityModification each : modifications) {
             BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>> queue = interested
-                    .get(each);
-            if (queue != null) {
-                result.addAll(queue);
+                    .get(each.getEntityClass());
+            if (queue == null) {
+                continue;
+            }
+            for (NotBlockingAutoUpdatedSnapshot<?> snapshot : queue) {
+                List<EntityModification> forSnapshot = result.get(snapshot);
+                if (forSnapshot == null) {
+                    forSnapshot = new ArrayList<EntityModification>();
+                    result.put(snapshot, forSnapshot);
+                }
+                forSnapshot.add(each);
             }
         }
         return result;
@@ -87,16 +96,17 @@ public class HibernateDatabaseModificationsListener implements
 
     private final class Dispatcher implements Synchronization {
 
-        private BlockingQueue<Class<?>> classes = new LinkedBlockingQueue<Class<?>>();
+        private BlockingQueue<EntityModification> modifications = new LinkedBlockingQueue<EntityModification>();
         private final Transaction transaction;
 
-        public Dispatcher(Transaction transaction, Class<?> entityClass) {
-            classes.offer(entityClass);
+        public Dispatcher(Transaction transaction,
+                EntityModification modification) {
+            modifications.offer(modification);
             this.transaction = transaction;
         }
 
-        public void add(Class<?> entityClass) {
-            classes.offer(entityClass);
+        public void add(EntityModification modification) {
+            modifications.offer(modification);
         }
 
         @Override
@@ -108,12 +118,12 @@ public class HibernateDatabaseModificationsListener implements
             LOG.debug("transaction completed with status: " + status);
             pending.remove(transaction);
             if (isProbablySucessful(status)) {
-                List<Class<?>> list = new ArrayList<Class<?>>();
-                classes.drainTo(list);
+                List<EntityModification> list = new ArrayList<EntityModification>();
+                modifications.drainTo(list);
                 LOG.debug(list.size() + " modification events recorded");
-                Set<NotBlockingAutoUpdatedSnapshot<?>> toDispatch = snapshotsInterestedOn(list);
+                Map<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> toDispatch = snapshotsInterestedOn(list);
                 LOG.debug("dispatching "
-                        + toDispatch
+                        + toDispatch.keySet()
                         + " snapshots to reload due to transaction successful completion");
                 dispatch(toDispatch);
             }
@@ -132,20 +142,20 @@ public class HibernateDatabaseModificationsListener implements
 
     @Override
     public void onPostDelete(PostDeleteEvent event) {
-        modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+        modificationOn(inferTransaction(event), EntityModification.delete(
+                inferEntityClass(getEntityObject(event)), event.getId()));
     }
 
     @Override
     public void onPostUpdate(PostUpdateEvent event) {
-        modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+        modificationOn(inferTransaction(event), EntityModification.update(
+                inferEntityClass(getEntityObject(event)), event.getId()));
     }
 
     @Override
     public void onPostInsert(PostInsertEvent event) {
-        modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+        modificationOn(inferTransaction(event), EntityModification.insert(
+                inferEntityClass(getEntityObject(event)), event.getId()));
     }
 
     private Transaction inferTransaction(AbstractEvent event) {
@@ -172,38 +182,54 @@ public class HibernateDatabaseModificationsListener implements
         return entity.getClass();
     }
 
-    void modificationOn(Transaction transaction, Class<?> entityClass) {
+    void modificationOn(Transaction transaction,
+            EntityModification modification) {
         if (transaction == null) {
-            dispatch(snapshotsInterestedOn(entityClass));
+            dispatch(snapshotsInterestedOn(modification));
             return;
         }
-        Dispatcher newDispatcher = new Dispatcher(transaction, entityClass);
+        Dispatcher newDispatcher = new Dispatcher(transaction, modification);
         Dispatcher previous = null;
         previous = pending.putIfAbsent(transaction, newDispatcher);
 
         boolean dispatcherAlreadyExisted = previous != null;
         if (dispatcherAlreadyExisted) {
-            previous.add(entityClass);
+            previous.add(modification);
         } else {
             transaction.registerSynchronization(newDispatcher);
         }
     }
 
-    private void dispatch(Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched) {
-        for (NotBlockingAutoUpdatedSnapshot<?> each : toBeDispatched) {
-            dispatch(each);
+    private void dispatch(
+            Map<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> toBeDispatched) {
+        for (Entry<NotBlockingAutoUpdatedSnapshot<?>, List<EntityModification>> each : toBeDispatched
+                .entrySet()) {
+            dispatch(each.getKey(), each.getValue());
         }
     }
 
-    private void dispatch(NotBlockingAutoUpdatedSnapshot<?> each) {
-        each.reloadNeeded(executor);
+    private void dispatch(NotBlockingAutoUpdatedSnapshot<?> each,
+            List<EntityModification> modifications) {
+        each.reloadNeeded(executor, modifications);
     }
 
     @Override
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
             Callable<T> callable, ReloadOn reloadOn) {
-        final NotBlockingAutoUpdatedSnapshot<T> result;
-        result = new NotBlockingAutoUpdatedSnapshot<T>(name, callable);
+        return register(new NotBlockingAutoUpdatedSnapshot<T>(name, callable),
+                reloadOn);
+    }
+
+    @Override
+    public <T> IAutoUpdatedSnapshot<T> takeIncrementalSnapshot(String name,
+            Callable<T> callable, ISnapshotDeltaApplier<T> deltaApplier,
+            ReloadOn reloadOn) {
+        return register(new NotBlockingAutoUpdatedSnapshot<T>(name, callable,
+                deltaApplier), reloadOn);
+    }
+
+    private <T> IAutoUpdatedSnapshot<T> register(
+            NotBlockingAutoUpdatedSnapshot<T> result, ReloadOn reloadOn) {
         for (Class<?> each : reloadOn.getClassesOnWhichToReload()) {
             interested.putIfAbsent(each, emptyQueue());
             BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>> queue = interested
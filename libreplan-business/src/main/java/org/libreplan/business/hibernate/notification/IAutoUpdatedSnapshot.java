@@ -27,4 +27,10 @@ package org.libreplan.business.hibernate.notification;
 public interface IAutoUpdatedSnapshot<T> {
 
     T getValue();
+
+    /**
+     * @return the value or <code>null</code> if it is being recalculated, so
+     *         the previous value could be outdated
+     */
+    T getValueIfUpToDate();
 }
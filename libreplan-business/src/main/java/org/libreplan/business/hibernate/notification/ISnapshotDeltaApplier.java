@@ -0,0 +1,48 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.List;
+
+/**
+ * Updates the value of a snapshot from the modifications done since it was
+ * calculated, avoiding to recalculate it from scratch.
+ *
+ * The modifications already reflected in the previous value can be received
+ * again, so applying them must be idempotent. The previous value can be
+ * shared with other threads, so it must not be modified; a new value must be
+ * returned instead.
+ *
+ * @param <T>
+ *            the type of the snapshot value
+ */
+public interface ISnapshotDeltaApplier<T> {
+
+    /**
+     * @param previousValue
+     *            the last calculated value
+     * @param modifications
+     *            the modifications, in the order they were done
+     * @return the new value. <code>null</code> if the modifications can't be
+     *         applied incrementally and a full recalculation is needed
+     */
+    T applyDelta(T previousValue, List<EntityModification> modifications);
+
+}
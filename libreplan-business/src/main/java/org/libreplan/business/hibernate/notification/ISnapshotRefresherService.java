@@ -30,4 +30,16 @@ public interface ISnapshotRefresherService {
 
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn);
 
+    /**
+     * Like {@link #takeSnapshot(String, Callable, ReloadOn)}, but when the
+     * entities it depends on are modified, the <code>deltaApplier</code> is
+     * used to update the previous value instead of executing the
+     * <code>callable</code> again. The <code>callable</code> is still used for
+     * the first load and when the accumulated modifications are too many or
+     * can't be applied.
+     */
+    public <T> IAutoUpdatedSnapshot<T> takeIncrementalSnapshot(String name,
+            Callable<T> callable, ISnapshotDeltaApplier<T> deltaApplier,
+            ReloadOn reloadOn);
+
 }
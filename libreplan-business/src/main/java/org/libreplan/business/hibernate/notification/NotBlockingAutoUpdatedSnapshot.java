@@ -20,9 +20,15 @@
  */
 package org.libreplan.business.hibernate.notification;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.Validate;
@@ -38,8 +44,18 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     private static final Log LOG = LogFactory
             .getLog(NotBlockingAutoUpdatedSnapshot.class);
 
+    /**
+     * If more modifications than this are pending to be applied, the
+     * incremental snapshot is recalculated from scratch
+     */
+    static final int MAX_PENDING_MODIFICATIONS = 1000;
+
     private final Callable<T> callable;
 
+    private final ISnapshotDeltaApplier<T> deltaApplier;
+
+    private final DeltaLog deltaLog;
+
     private final AtomicReference<State> currentState;
 
     private final String name;
@@ -49,6 +65,10 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     private abstract class State {
         abstract T getValue();
 
+        T getValueIfUpToDate() {
+            return getValue();
+        }
+
         void cancel() {
         }
 
@@ -59,6 +79,10 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         boolean hasBeenInitialized() {
             return true;
         }
+
+        boolean isWaitingFor(Future<T> future) {
+            return false;
+        }
     }
 
     private class NotLaunchState extends State {
@@ -120,6 +144,20 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             return previousValue.getValue();
         }
 
+        @Override
+        T getValueIfUpToDate() {
+            if (!ongoingCalculation.isCancelled()
+                    && ongoingCalculation.isDone()) {
+                return getValue();
+            }
+            return null;
+        }
+
+        @Override
+        boolean isWaitingFor(Future<T> future) {
+            return ongoingCalculation == future;
+        }
+
         private T getValueFromFuture() {
             try {
                 return ongoingCalculation.get();
@@ -165,13 +203,25 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             ongoingCalculation.cancel(true);
         }
 
+        @Override
+        boolean isWaitingFor(Future<T> future) {
+            return ongoingCalculation == future;
+        }
+
     }
 
     public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable) {
+        this(name, callable, null);
+    }
+
+    public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable,
+            ISnapshotDeltaApplier<T> deltaApplier) {
         Validate.notNull(callable);
         Validate.notNull(name);
         this.name = "*" + name + "*";
         this.callable = callable;
+        this.deltaApplier = deltaApplier;
+        this.deltaLog = deltaApplier != null ? new DeltaLog() : null;
         this.currentState = new AtomicReference<State>(new NotLaunchState());
         this.executionsReport = new ExecutionsReport();
     }
@@ -181,31 +231,66 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         return currentState.get().getValue();
     }
 
+    @Override
+    public T getValueIfUpToDate() {
+        return currentState.get().getValueIfUpToDate();
+    }
+
+    private boolean isIncremental() {
+        return deltaApplier != null;
+    }
+
     public void reloadNeeded(ExecutorService executorService) {
-        Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
+        reloadNeeded(executorService, null);
+    }
+
+    /**
+     * @param modifications
+     *            the modifications that caused the reload. If
+     *            <code>null</code> the snapshot is recalculated from scratch
+     */
+    public void reloadNeeded(ExecutorService executorService,
+            List<EntityModification> modifications) {
+        if (isIncremental()) {
+            if (modifications == null) {
+                deltaLog.fullRecalculationNeeded();
+            } else {
+                deltaLog.addAll(modifications);
+            }
+        }
+        Future<T> future = submitCalculation(executorService);
         State previousState;
         State newState = null;
         do {
-            if (newState != null) {
+            if (newState != null && !isIncremental()) {
                 newState.cancel();
             }
             previousState = currentState.get();
+            if (previousState.isWaitingFor(future)) {
+                // the modifications will be applied by the already scheduled
+                // calculation
+                return;
+            }
             newState = previousState.nextState(future);
         } while (!currentState.compareAndSet(previousState, newState));
-        previousState.cancel();
+        // the incremental calculations depend on the previous ones so they
+        // can't be cancelled
+        if (!isIncremental()) {
+            previousState.cancel();
+        }
     }
 
     public void ensureFirstLoad(ExecutorService executorService) {
         if (hasBeenInitialized()) {
             return;
         }
-        Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
+        Future<T> future = submitCalculation(executorService);
         State previous = currentState.get();
         State newState = previous.nextState(future);
         boolean compareAndSet = currentState.compareAndSet(previous, newState);
-        if (!compareAndSet) {
+        // the future of an incremental calculation can be shared with the
+        // state set by other thread
+        if (!compareAndSet && !isIncremental()) {
             newState.cancel();
         }
     }
@@ -219,7 +304,16 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         return currentState.get().hasBeenInitialized();
     }
 
+    private Future<T> submitCalculation(ExecutorService executorService) {
+        if (isIncremental()) {
+            return deltaLog.scheduleCalculation(executorService);
+        }
+        return executorService.submit(callableDecoratedWithStatistics());
+    }
+
     private Callable<T> callableDecoratedWithStatistics() {
+        final Callable<T> calculation = isIncremental() ? deltaLog
+                .incrementalCalculation() : callable;
         final long requestTime = System.currentTimeMillis();
         return new Callable<T>() {
 
@@ -229,7 +323,7 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
                 long timeWaiting = start - requestTime;
                 Exception error = null;
                 try {
-                    return callable.call();
+                    return calculation.call();
                 } catch (Exception e) {
                     error = e;
                     LOG.error("error executing snapshot " + name);
@@ -299,4 +393,127 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         }
     }
 
+    /**
+     * Keeps the modifications pending to be applied to the last calculated
+     * value. The calculations are serialized so each one is based on the
+     * result of the previous one.<br />
+     *
+     * At most one calculation is waiting to be started. The modifications
+     * arriving meanwhile are applied by it, so a burst of modifications
+     * doesn't fill the executor with calculations blocked on the previous one.
+     */
+    private class DeltaLog {
+
+        private final Queue<EntityModification> pending = new ConcurrentLinkedQueue<EntityModification>();
+
+        private final AtomicInteger pendingSize = new AtomicInteger();
+
+        private final AtomicBoolean fullRecalculationNeeded = new AtomicBoolean();
+
+        private final Object calculationLock = new Object();
+
+        private final Object schedulingLock = new Object();
+
+        private Future<T> scheduled;
+
+        private T lastValue;
+
+        private boolean lastValueCalculated = false;
+
+        void addAll(List<EntityModification> modifications) {
+            pending.addAll(modifications);
+            if (pendingSize.addAndGet(modifications.size()) > MAX_PENDING_MODIFICATIONS) {
+                LOG.debug(name + " too many pending modifications. "
+                        + "It will be recalculated from scratch");
+                fullRecalculationNeeded();
+            }
+        }
+
+        void fullRecalculationNeeded() {
+            fullRecalculationNeeded.set(true);
+        }
+
+        /**
+         * @return the calculation that will apply the pending modifications.
+         *         It's the already scheduled one if it hasn't started
+         *         draining them yet
+         */
+        Future<T> scheduleCalculation(ExecutorService executorService) {
+            synchronized (schedulingLock) {
+                if (scheduled == null) {
+                    scheduled = executorService
+                            .submit(callableDecoratedWithStatistics());
+                }
+                return scheduled;
+            }
+        }
+
+        private void startDraining() {
+            synchronized (schedulingLock) {
+                scheduled = null;
+            }
+        }
+
+        private List<EntityModification> drain() {
+            List<EntityModification> result = new ArrayList<EntityModification>();
+            EntityModification each;
+            while ((each = pending.poll()) != null) {
+                result.add(each);
+            }
+            pendingSize.addAndGet(-result.size());
+            return result;
+        }
+
+        Callable<T> incrementalCalculation() {
+            return new Callable<T>() {
+
+                @Override
+                public T call() throws Exception {
+                    synchronized (calculationLock) {
+                        // from now on the modifications must be applied by
+                        // a new calculation
+                        startDraining();
+                        boolean fromScratch = fullRecalculationNeeded
+                                .getAndSet(false) || !lastValueCalculated;
+                        List<EntityModification> modifications = drain();
+                        T result = fromScratch ? null : applyDelta(modifications);
+                        if (result == null) {
+                            result = calculateFromScratch();
+                        }
+                        lastValue = result;
+                        lastValueCalculated = true;
+                        return result;
+                    }
+                }
+            };
+        }
+
+        private T calculateFromScratch() throws Exception {
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                // the drained modifications are lost so the next calculation
+                // can't be incremental
+                fullRecalculationNeeded();
+                throw e;
+            }
+        }
+
+        private T applyDelta(List<EntityModification> modifications) {
+            if (modifications.isEmpty()) {
+                return lastValue;
+            }
+            try {
+                T result = deltaApplier.applyDelta(lastValue, modifications);
+                LOG.debug(name + " applied " + modifications.size()
+                        + " modifications incrementally");
+                return result;
+            } catch (Exception e) {
+                LOG.error("error applying modifications to " + name
+                        + ", recalculating it from scratch", e);
+                return null;
+            }
+        }
+    }
+
 }
@@ -24,8 +24,11 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
@@ -39,8 +42,14 @@ import org.libreplan.business.calendars.entities.CalendarData;
 import org.libreplan.business.calendars.entities.CalendarException;
 import org.libreplan.business.common.AdHocTransactionService;
 import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.costcategories.daos.HourCostRates;
 import org.libreplan.business.costcategories.daos.ICostCategoryDAO;
+import org.libreplan.business.costcategories.daos.IHourCostDAO;
 import org.libreplan.business.costcategories.entities.CostCategory;
+import org.libreplan.business.costcategories.entities.HourCost;
+import org.libreplan.business.costcategories.entities.ResourcesCostCategoryAssignment;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.externalcompanies.daos.IExternalCompanyDAO;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
 import org.libreplan.business.labels.daos.ILabelDAO;
@@ -49,13 +58,15 @@ import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.labels.entities.LabelType;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
 import org.libreplan.business.planner.chart.ResourceLoadChartData;
-import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ICostCalculator;
 import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
@@ -64,7 +75,9 @@ import org.libreplan.business.resources.daos.ICriterionDAO;
 import org.libreplan.business.resources.daos.ICriterionTypeDAO;
 import org.libreplan.business.resources.daos.IResourceDAO;
 import org.libreplan.business.resources.daos.IWorkerDAO;
+import org.libreplan.business.resources.daos.ResourcesSearchIndex;
 import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.CriterionSatisfaction;
 import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.Machine;
 import org.libreplan.business.resources.entities.Resource;
@@ -131,6 +144,31 @@ public class PredefinedDatabaseSnapshots {
         return mapResources.getValue();
     }
 
+    private IAutoUpdatedSnapshot<ResourcesSearchIndex> resourcesSearchIndex;
+
+    /**
+     * @return the index or <code>null</code> if the snapshots haven't been
+     *         registered, e.g. out of the web application, or the index is
+     *         being recalculated after a modification of the resources or
+     *         their criteria
+     */
+    public ResourcesSearchIndex snapshotResourcesSearchIndex() {
+        return resourcesSearchIndex != null ? resourcesSearchIndex
+                .getValueIfUpToDate() : null;
+    }
+
+    private IAutoUpdatedSnapshot<HourCostRates> hourCostRates;
+
+    /**
+     * @return the rates or <code>null</code> if the snapshots haven't been
+     *         registered, e.g. out of the web application, or the rates are
+     *         being recalculated after a modification of the cost categories
+     */
+    public HourCostRates snapshotHourCostRates() {
+        return hourCostRates != null ? hourCostRates.getValueIfUpToDate()
+                : null;
+    }
+
     private IAutoUpdatedSnapshot<List<ExternalCompany>> externalCompanies;
 
     public List<ExternalCompany> snapshotExternalCompanies() {
@@ -197,6 +235,13 @@ public class PredefinedDatabaseSnapshots {
         mapResources = snapshot("map resources", calculateMapResources(),
                 Resource.class, Worker.class, Machine.class,
                 VirtualWorker.class);
+        resourcesSearchIndex = snapshot("resources search index",
+                calculateResourcesSearchIndex(), Resource.class, Worker.class,
+                Machine.class, VirtualWorker.class, Criterion.class,
+                CriterionSatisfaction.class);
+        hourCostRates = snapshot("hour cost rates", calculateHourCostRates(),
+                CostCategory.class, HourCost.class,
+                ResourcesCostCategoryAssignment.class, TypeOfWorkHours.class);
         externalCompanies = snapshot("external companies",
                 calculateExternalCompanies(),
                 ExternalCompany.class);
@@ -208,8 +253,11 @@ public class PredefinedDatabaseSnapshots {
                 calculateResourceLoadChartData(),
                 CalendarAvailability.class, CalendarException.class,
                 CalendarData.class, TaskElement.class, SpecificResourceAllocation.class,
-                GenericResourceAllocation.class, ResourceAllocation.class);
-        workReportLines = snapshot("work report lines", calculateWorkReportLines(),
+                GenericResourceAllocation.class, ResourceAllocation.class,
+                ResourceDailyLoad.class);
+        workReportLines = incrementalSnapshot("work report lines",
+                calculateWorkReportLines(),
+                workReportLinesDeltaApplier(workReportLineDAO),
                 WorkReportLine.class);
         estimatedCostPerTask = snapshot("estimated cost per task",
                 calculateEstimatedCostPerTask(),
@@ -228,12 +276,28 @@ public class PredefinedDatabaseSnapshots {
                 ReloadOn.onChangeOf(reloadOnChangesOf));
     }
 
+    private <T> IAutoUpdatedSnapshot<T> incrementalSnapshot(String name,
+            Callable<T> callable, ISnapshotDeltaApplier<T> deltaApplier,
+            Class<?>... reloadOnChangesOf) {
+        return snapshotRefresherService.takeIncrementalSnapshot(name,
+                callableOnReadOnlyTransaction(callable),
+                deltaApplierOnReadOnlyTransaction(deltaApplier),
+                ReloadOn.onChangeOf(reloadOnChangesOf));
+    }
+
     @SuppressWarnings("unchecked")
     private <T> Callable<T> callableOnReadOnlyTransaction(Callable<T> callable) {
         return AdHocTransactionService.readOnlyProxy(transactionService,
                 Callable.class, callable);
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> ISnapshotDeltaApplier<T> deltaApplierOnReadOnlyTransaction(
+            ISnapshotDeltaApplier<T> deltaApplier) {
+        return AdHocTransactionService.readOnlyProxy(transactionService,
+                ISnapshotDeltaApplier.class, deltaApplier);
+    }
+
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
@@ -346,6 +410,28 @@ public class PredefinedDatabaseSnapshots {
         };
     }
 
+    private Callable<ResourcesSearchIndex> calculateResourcesSearchIndex() {
+        return new Callable<ResourcesSearchIndex>() {
+
+            @Override
+            public ResourcesSearchIndex call() {
+                return resourceDAO.getSearchIndex();
+            }
+        };
+    }
+
+    @Autowired
+    private IHourCostDAO hourCostDAO;
+
+    private Callable<HourCostRates> calculateHourCostRates() {
+        return new Callable<HourCostRates>() {
+
+            @Override
+            public HourCostRates call() {
+                return hourCostDAO.getRates();
+            }
+        };
+    }
 
     @Autowired
     private IExternalCompanyDAO externalCompanyDAO;
@@ -393,7 +479,7 @@ public class PredefinedDatabaseSnapshots {
     }
 
     @Autowired
-    private IDayAssignmentDAO dayAssignmentDAO;
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
 
     @Autowired
     private IScenarioManager scenarioManager;
@@ -403,8 +489,9 @@ public class PredefinedDatabaseSnapshots {
             @Override
             public ResourceLoadChartData call() {
 
-                List<DayAssignment> dayAssignments = dayAssignmentDAO.getAllFor(
-                        scenarioManager.getCurrent(), null, null);
+                ColumnarDayAssignments dayAssignments = resourceDailyLoadDAO
+                        .getColumnarFor(scenarioManager.getCurrent(), null,
+                                null, null);
                 List<Resource> resources = resourceDAO.list(Resource.class);
                 return new ResourceLoadChartData(dayAssignments, resources);
 
@@ -424,6 +511,50 @@ public class PredefinedDatabaseSnapshots {
         };
     }
 
+    /**
+     * Removes the modified lines from the previous value and reloads the
+     * inserted and updated ones
+     */
+    static ISnapshotDeltaApplier<List<WorkReportLine>> workReportLinesDeltaApplier(
+            final IWorkReportLineDAO workReportLineDAO) {
+        return new ISnapshotDeltaApplier<List<WorkReportLine>>() {
+            @Override
+            public List<WorkReportLine> applyDelta(
+                    List<WorkReportLine> previousValue,
+                    List<EntityModification> modifications) {
+                Set<Long> modified = new HashSet<Long>();
+                Set<Long> toLoad = new LinkedHashSet<Long>();
+                for (EntityModification each : modifications) {
+                    if (each.getId() == null) {
+                        return null;
+                    }
+                    Long id = (Long) each.getId();
+                    modified.add(id);
+                    if (each.isDeletion()) {
+                        toLoad.remove(id);
+                    } else {
+                        toLoad.add(id);
+                    }
+                }
+                List<WorkReportLine> result = new ArrayList<WorkReportLine>(
+                        previousValue.size() + toLoad.size());
+                for (WorkReportLine each : previousValue) {
+                    if (!modified.contains(each.getId())) {
+                        result.add(each);
+                    }
+                }
+                for (Long each : toLoad) {
+                    try {
+                        result.add(workReportLineDAO.find(each));
+                    } catch (InstanceNotFoundException e) {
+                        // it has been removed by a later transaction
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
     @Autowired
     private ICostCalculator hoursCostCalculator;
 
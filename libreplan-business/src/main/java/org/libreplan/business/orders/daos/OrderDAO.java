@@ -35,9 +35,8 @@ import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
-import org.libreplan.business.costcategories.daos.CostCategoryDAO;
-import org.libreplan.business.costcategories.daos.ITypeOfWorkHoursDAO;
-import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+import org.libreplan.business.costcategories.daos.HourCostRates;
+import org.libreplan.business.costcategories.daos.IHourCostDAO;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.orders.entities.Order;
@@ -79,7 +78,7 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
     private ITaskSourceDAO taskSourceDAO;
 
     @Autowired
-    private ITypeOfWorkHoursDAO typeOfWorkHoursDAO;
+    private IHourCostDAO hourCostDAO;
 
     @Autowired
     private IOrderAuthorizationDAO orderAuthorizationDAO;
@@ -156,6 +155,7 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
         }
 
         List<OrderCostsPerResourceDTO> list = query.list();
+        HourCostRates rates = hourCostDAO.getRates();
 
         List<OrderCostsPerResourceDTO> filteredList = new ArrayList<OrderCostsPerResourceDTO>();
         for (OrderCostsPerResourceDTO each : list) {
@@ -170,18 +170,12 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
                 each.setOrderName(order.getName());
                 each.setOrderCode(order.getCode());
                 // Attach calculated pricePerHour
-                BigDecimal pricePerHour = CostCategoryDAO
-                        .getPriceByResourceDateAndHourType(each.getWorker(),
-                                new LocalDate(each.getDate()), each
-                                        .getHoursTypeCode());
+                BigDecimal pricePerHour = rates.getPrice(each.getWorker()
+                        .getId(), new LocalDate(each.getDate()), each
+                        .getHoursTypeCode());
                 if (pricePerHour == null) {
-                    for (TypeOfWorkHours defaultprice : typeOfWorkHoursDAO
-                            .list(TypeOfWorkHours.class)) {
-                        if (defaultprice.getCode().equals(
-                                each.getHoursTypeCode())) {
-                            pricePerHour = defaultprice.getDefaultPrice();
-                        }
-                    }
+                    pricePerHour = rates.getDefaultPrice(each
+                            .getHoursTypeCode());
                 }
 
                 each.setCostPerHour(pricePerHour);
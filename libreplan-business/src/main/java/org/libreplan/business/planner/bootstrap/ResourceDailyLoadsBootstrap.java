@@ -0,0 +1,123 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.bootstrap;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IConfigurationDAO;
+import org.libreplan.business.common.entities.Configuration;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calculates the {@link ResourceDailyLoad daily loads} of all the resources if
+ * they haven't been calculated yet, as happens when upgrading from a version
+ * without them. Afterwards they are kept up to date each time the assignments
+ * are saved.<br />
+ *
+ * The resources are processed in batches, each one in its own transaction. The
+ * last batch marks the loads as calculated in the {@link Configuration}, so an
+ * interrupted calculation is started again on the next startup.
+ */
+@Component
+@Scope("singleton")
+public class ResourceDailyLoadsBootstrap implements IDataBootstrap {
+
+    private static final Log LOG = LogFactory
+            .getLog(ResourceDailyLoadsBootstrap.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
+
+    @Autowired
+    private IConfigurationDAO configurationDAO;
+
+    @Autowired
+    private IAdHocTransactionService transactionService;
+
+    @Override
+    public void loadRequiredData() {
+        if (areLoadsCalculated()) {
+            return;
+        }
+        Long lastRefreshed = null;
+        int resources = 0;
+        List<Long> batch;
+        do {
+            batch = refreshNextBatch(lastRefreshed);
+            if (!batch.isEmpty()) {
+                lastRefreshed = batch.get(batch.size() - 1);
+                resources += batch.size();
+            }
+        } while (batch.size() == BATCH_SIZE);
+        LOG.info("calculated the daily loads of " + resources + " resources");
+    }
+
+    private boolean areLoadsCalculated() {
+        return transactionService
+                .runOnReadOnlyTransaction(new IOnTransaction<Boolean>() {
+
+                    @Override
+                    public Boolean execute() {
+                        Configuration configuration = configurationDAO
+                                .getConfiguration();
+                        return configuration != null
+                                && configuration
+                                        .isResourceDailyLoadsCalculated();
+                    }
+                });
+    }
+
+    private List<Long> refreshNextBatch(final Long afterId) {
+        return transactionService
+                .runOnTransaction(new IOnTransaction<List<Long>>() {
+
+                    @Override
+                    public List<Long> execute() {
+                        List<Long> result = resourceDailyLoadDAO
+                                .getResourceIds(afterId, BATCH_SIZE);
+                        resourceDailyLoadDAO.refresh(result);
+                        if (result.size() < BATCH_SIZE) {
+                            markLoadsAsCalculated();
+                        }
+                        return result;
+                    }
+                });
+    }
+
+    private void markLoadsAsCalculated() {
+        Configuration configuration = configurationDAO.getConfiguration();
+        if (configuration != null) {
+            configuration.setResourceDailyLoadsCalculated(true);
+            configurationDAO.save(configuration);
+        }
+    }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.chart;
+
+import static org.libreplan.business.workingday.EpochDays.fromEpochDay;
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.workingday.EpochDays;
+
+/**
+ * Read only representation of a set of {@link DayAssignment day assignments}
+ * stored in primitive columns. It's intended for load calculations over a lot
+ * of assignments, where loading the entities is too expensive.
+ *
+ * The days are stored as the number of days since {@link EpochDays#EPOCH}. The
+ * resources and the allocations are stored as an index in a dictionary of
+ * their ids. The rows are sorted by day.
+ *
+ * When read from the {@link ResourceDailyLoad daily loads} each row holds all
+ * the effort of a resource on a day, either consolidated or not, and there
+ * are no allocations.
+ *
+ * @see IResourceDailyLoadDAO#getColumnarFor
+ */
+public class ColumnarDayAssignments {
+
+    /**
+     * Allocation index of the rows that aggregate the assignments of several
+     * allocations
+     */
+    public static final int NO_ALLOCATION = -1;
+
+    /**
+     * Receives the effort assigned to a resource on a day, aggregating all the
+     * assignments of the resource on that day
+     */
+    public interface IResourceDayVisitor {
+
+        void visit(int epochDay, int resourceIndex, long seconds);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private int size = 0;
+
+        private int[] days = new int[16];
+
+        private int[] resources = new int[16];
+
+        private int[] seconds = new int[16];
+
+        private int[] allocations = new int[16];
+
+        private BitSet consolidated = new BitSet();
+
+        private final Dictionary resourcesDictionary = new Dictionary();
+
+        private final Dictionary allocationsDictionary = new Dictionary();
+
+        private Builder() {
+        }
+
+        public Builder add(LocalDate day, long resourceId, int seconds,
+                long allocationId, boolean consolidated) {
+            Validate.notNull(day);
+            return add(toEpochDay(day), resourceId, seconds,
+                    allocationsDictionary.indexFor(allocationId),
+                    consolidated);
+        }
+
+        /**
+         * Adds the effort of a resource on a day that isn't associated to an
+         * allocation, as the one read from the daily loads. Its allocation
+         * index is {@link ColumnarDayAssignments#NO_ALLOCATION}.
+         */
+        public Builder addLoad(int epochDay, long resourceId, int seconds,
+                boolean consolidated) {
+            return add(epochDay, resourceId, seconds, NO_ALLOCATION,
+                    consolidated);
+        }
+
+        private Builder add(int epochDay, long resourceId, int seconds,
+                int allocationIndex, boolean consolidated) {
+            ensureCapacity(size + 1);
+            this.days[size] = epochDay;
+            this.resources[size] = resourcesDictionary.indexFor(resourceId);
+            this.seconds[size] = seconds;
+            this.allocations[size] = allocationIndex;
+            this.consolidated.set(size, consolidated);
+            size++;
+            return this;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= days.length) {
+                return;
+            }
+            int newLength = Math.max(required, days.length * 2);
+            days = Arrays.copyOf(days, newLength);
+            resources = Arrays.copyOf(resources, newLength);
+            seconds = Arrays.copyOf(seconds, newLength);
+            allocations = Arrays.copyOf(allocations, newLength);
+        }
+
+        public ColumnarDayAssignments build() {
+            int[] order = sortedByDay();
+            ColumnarDayAssignments result = new ColumnarDayAssignments(size,
+                    resourcesDictionary.toArray(),
+                    allocationsDictionary.toArray());
+            for (int i = 0; i < size; i++) {
+                int from = order == null ? i : order[i];
+                result.days[i] = days[from];
+                result.resources[i] = resources[from];
+                result.seconds[i] = seconds[from];
+                result.allocations[i] = allocations[from];
+                result.consolidated.set(i, consolidated.get(from));
+            }
+            return result;
+        }
+
+        /**
+         * @return the positions of the rows sorted by day or
+         *         <code>null</code> if they are already sorted
+         */
+        private int[] sortedByDay() {
+            if (isSortedByDay()) {
+                return null;
+            }
+            int minDay = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                minDay = Math.min(minDay, days[i]);
+            }
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) (days[i] - minDay) << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = (int) keys[i];
+            }
+            return result;
+        }
+
+        private boolean isSortedByDay() {
+            for (int i = 1; i < size; i++) {
+                if (days[i - 1] > days[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Dictionary {
+
+        private final Map<Long, Integer> indexes = new HashMap<Long, Integer>();
+
+        private long[] ids = new long[16];
+
+        int indexFor(long id) {
+            Integer existent = indexes.get(id);
+            if (existent != null) {
+                return existent;
+            }
+            int result = indexes.size();
+            if (result == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[result] = id;
+            indexes.put(id, result);
+            return result;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, indexes.size());
+        }
+    }
+
+    private final int size;
+
+    private final int[] days;
+
+    private final int[] resources;
+
+    private final int[] seconds;
+
+    private final int[] allocations;
+
+    private final BitSet consolidated;
+
+    private final long[] resourceIds;
+
+    private final long[] allocationIds;
+
+    private ColumnarDayAssignments(int size, long[] resourceIds,
+            long[] allocationIds) {
+        this.size = size;
+        this.days = new int[size];
+        this.resources = new int[size];
+        this.seconds = new int[size];
+        this.allocations = new int[size];
+        this.consolidated = new BitSet(size);
+        this.resourceIds = resourceIds;
+        this.allocationIds = allocationIds;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getEpochDay(int row) {
+        return days[row];
+    }
+
+    public LocalDate getDay(int row) {
+        return fromEpochDay(days[row]);
+    }
+
+    public int getResourceIndex(int row) {
+        return resources[row];
+    }
+
+    public int getSeconds(int row) {
+        return seconds[row];
+    }
+
+    public int getAllocationIndex(int row) {
+        return allocations[row];
+    }
+
+    public boolean isConsolidated(int row) {
+        return consolidated.get(row);
+    }
+
+    public int getResourcesCount() {
+        return resourceIds.length;
+    }
+
+    public long getResourceId(int resourceIndex) {
+        return resourceIds[resourceIndex];
+    }
+
+    public int getAllocationsCount() {
+        return allocationIds.length;
+    }
+
+    public long getAllocationId(int allocationIndex) {
+        return allocationIds[allocationIndex];
+    }
+
+    public int getFirstEpochDay() {
+        Validate.isTrue(!isEmpty(), "there are no assignments");
+        return days[0];
+    }
+
+    public int getLastEpochDay() {
+        Validate.isTrue(!isEmpty(), "there are no assignments");
+        return days[size - 1];
+    }
+
+    /**
+     * @return the first row with a day equal or after the given one
+     */
+    private int firstRowOnOrAfter(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the seconds assigned on each day of the interval. The position
+     *         <code>i</code> corresponds to the day
+     *         <code>startInclusive + i</code>
+     */
+    public long[] sumByDay(int startInclusive, int endExclusive) {
+        Validate.isTrue(startInclusive <= endExclusive);
+        long[] result = new long[endExclusive - startInclusive];
+        int end = firstRowOnOrAfter(endExclusive);
+        for (int i = firstRowOnOrAfter(startInclusive); i < end; i++) {
+            result[days[i] - startInclusive] += seconds[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return the seconds assigned to each resource in the interval, indexed
+     *         by resource index
+     */
+    public long[] sumByResource(int startInclusive, int endExclusive) {
+        long[] result = new long[resourceIds.length];
+        int end = firstRowOnOrAfter(endExclusive);
+        for (int i = firstRowOnOrAfter(startInclusive); i < end; i++) {
+            result[resources[i]] += seconds[i];
+        }
+        return result;
+    }
+
+    /**
+     * Visits the seconds assigned to each resource on each day of the
+     * interval. The days are visited in ascending order and only the
+     * resources with some assignment on a day are visited for that day.
+     */
+    public void sumByResourceAndDay(int startInclusive, int endExclusive,
+            IResourceDayVisitor visitor) {
+        long[] byResource = new long[resourceIds.length];
+        int[] touched = new int[resourceIds.length];
+        // the first row of the day on which each resource was last touched
+        int[] touchedOnDayStarting = new int[resourceIds.length];
+        Arrays.fill(touchedOnDayStarting, -1);
+        int end = firstRowOnOrAfter(endExclusive);
+        int i = firstRowOnOrAfter(startInclusive);
+        while (i < end) {
+            int dayStart = i;
+            int day = days[i];
+            int touchedCount = 0;
+            for (; i < end && days[i] == day; i++) {
+                int resource = resources[i];
+                if (touchedOnDayStarting[resource] != dayStart) {
+                    touchedOnDayStarting[resource] = dayStart;
+                    touched[touchedCount++] = resource;
+                }
+                byResource[resource] += seconds[i];
+            }
+            for (int j = 0; j < touchedCount; j++) {
+                int resource = touched[j];
+                visitor.visit(day, resource, byResource[resource]);
+                byResource[resource] = 0;
+            }
+        }
+    }
+
+}
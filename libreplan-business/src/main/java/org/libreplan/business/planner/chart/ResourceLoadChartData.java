@@ -34,14 +34,17 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments.IResourceDayVisitor;
 import org.libreplan.business.planner.chart.ContiguousDaysLine.IValueTransformer;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
+import org.libreplan.business.workingday.EpochDays;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 
 /**
@@ -89,6 +92,72 @@ public class ResourceLoadChartData implements ILoadChartData {
         this.availability = toSortedMap(availabilityOnAllResources);
     }
 
+    /**
+     * Calculates the same data than
+     * {@link #ResourceLoadChartData(List, List)} from the assignments loaded
+     * in columns, without creating intermediate objects for each assignment.
+     */
+    public ResourceLoadChartData(ColumnarDayAssignments dayAssignments,
+            List<Resource> resources) {
+        this.load = new TreeMap<LocalDate, EffortDuration>();
+        this.overload = new TreeMap<LocalDate, EffortDuration>();
+        this.availability = new TreeMap<LocalDate, EffortDuration>();
+        if (dayAssignments.isEmpty()) {
+            return;
+        }
+        final int start = dayAssignments.getFirstEpochDay();
+        int endExclusive = dayAssignments.getLastEpochDay() + 1;
+        long[] loadByDay = dayAssignments.sumByDay(start, endExclusive);
+        final long[] overloadByDay = new long[loadByDay.length];
+        final Resource[] resourcesByIndex = byIndex(dayAssignments,
+                resources);
+        dayAssignments.sumByResourceAndDay(start, endExclusive,
+                new IResourceDayVisitor() {
+
+                    @Override
+                    public void visit(int epochDay, int resourceIndex,
+                            long seconds) {
+                        Resource resource = resourcesByIndex[resourceIndex];
+                        long capacity = resource == null ? 0
+                                : calendarCapacityFor(
+                                        resource,
+                                        PartialDay.wholeDay(EpochDays
+                                                .fromEpochDay(epochDay)))
+                                        .getSeconds();
+                        if (seconds > capacity) {
+                            overloadByDay[epochDay - start] += seconds
+                                    - capacity;
+                        }
+                    }
+                });
+        for (int i = 0; i < loadByDay.length; i++) {
+            LocalDate day = EpochDays.fromEpochDay(start + i);
+            EffortDuration availabilityOnDay = sumCalendarCapacitiesForDay(
+                    resources, day);
+            this.load.put(day, min(seconds(loadByDay[i]), availabilityOnDay));
+            this.overload.put(day,
+                    seconds(overloadByDay[i]).plus(availabilityOnDay));
+            this.availability.put(day, availabilityOnDay);
+        }
+    }
+
+    private static Resource[] byIndex(ColumnarDayAssignments dayAssignments,
+            List<Resource> resources) {
+        Map<Long, Resource> byId = new HashMap<Long, Resource>();
+        for (Resource each : resources) {
+            byId.put(each.getId(), each);
+        }
+        Resource[] result = new Resource[dayAssignments.getResourcesCount()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = byId.get(dayAssignments.getResourceId(i));
+        }
+        return result;
+    }
+
+    private static EffortDuration seconds(long seconds) {
+        return EffortDuration.seconds((int) seconds);
+    }
+
     public static IValueTransformer<List<DayAssignment>, EffortDuration> extractOverload() {
         return compound(effortByResource(), calculateOverload());
     }
@@ -0,0 +1,59 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.daos.IGenericDAO;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.entities.Scenario;
+
+/**
+ * DAO interface for {@link ResourceDailyLoad}
+ */
+public interface IResourceDailyLoadDAO extends
+        IGenericDAO<ResourceDailyLoad, Long> {
+
+    /**
+     * @return the daily loads in columns, so each row holds all the effort of
+     *         a resource on a day. All the parameters but
+     *         <code>scenario</code> can be <code>null</code>.
+     */
+    public ColumnarDayAssignments getColumnarFor(Scenario scenario,
+            LocalDate initInclusive, LocalDate endInclusive, Resource resource);
+
+    /**
+     * Recalculates the daily loads of the given resources in all the
+     * scenarios from their current day assignments
+     */
+    public void refresh(Collection<Long> resourceIds);
+
+    /**
+     * @return the ids of the resources greater than <code>afterId</code>,
+     *         that can be <code>null</code>, so the loads of all of them can
+     *         be recalculated in batches
+     */
+    public List<Long> getResourceIds(Long afterId, int maxResults);
+
+}
@@ -0,0 +1,272 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang.Validate;
+import org.hibernate.LockMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.daos.GenericDAOHibernate;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.planner.entities.ResourceDailyLoad.Accumulator;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Repository;
+
+/**
+ * DAO for {@link ResourceDailyLoad}
+ */
+@Repository
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class ResourceDailyLoadDAO extends
+        GenericDAOHibernate<ResourceDailyLoad, Long> implements
+        IResourceDailyLoadDAO {
+
+    private static final int SCROLL_FETCH_SIZE = 1000;
+
+    private static final int MAX_RESOURCES_PER_REFRESH = 100;
+
+    private static final int MAX_DAYS_PER_REFRESH = 500;
+
+    private static final String[] CONTAINERS = {
+            "SpecificDayAssignmentsContainer",
+            "GenericDayAssignmentsContainer",
+            "DerivedDayAssignmentsContainer" };
+
+    /**
+     * Used by the bootstrap, recalculates all the daily loads of the given
+     * resources in all the scenarios
+     */
+    static void refresh(Session session, Collection<Long> resourceIds) {
+        List<Long> ids = new ArrayList<Long>(resourceIds);
+        Collections.sort(ids);
+        for (int i = 0; i < ids.size(); i += MAX_RESOURCES_PER_REFRESH) {
+            List<Long> chunk = ids.subList(i,
+                    Math.min(ids.size(), i + MAX_RESOURCES_PER_REFRESH));
+            lockChunk(session, chunk);
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            parameters.put("ids", chunk);
+            recalculate(session, "resourceId in (:ids)",
+                    "d.resource.id in (:ids)", parameters);
+        }
+    }
+
+    /**
+     * Used by {@link ResourceDailyLoadsListener} before refreshing the
+     * modified days of the given resources.<br />
+     *
+     * The daily loads are deleted and inserted again, so two transactions
+     * refreshing the same day of a resource would both insert its load. The
+     * rows of the resources are locked in order to serialize the refreshes.
+     * They are locked in ascending order of id to avoid deadlocks. The
+     * transaction waiting for the lock deletes and sums again the loads once
+     * the other one has committed, so the loads include the assignments of
+     * both.
+     */
+    static void lockResources(Session session, Collection<Long> resourceIds) {
+        List<Long> ids = new ArrayList<Long>(resourceIds);
+        Collections.sort(ids);
+        for (int i = 0; i < ids.size(); i += MAX_RESOURCES_PER_REFRESH) {
+            lockChunk(session, ids.subList(i,
+                    Math.min(ids.size(), i + MAX_RESOURCES_PER_REFRESH)));
+        }
+    }
+
+    /**
+     * The lock loads the resources as entities. Hibernate can't apply a lock
+     * mode to an HQL query that only selects their ids.
+     */
+    private static void lockChunk(Session session, List<Long> sortedIds) {
+        session.createQuery(
+                "from Resource r where r.id in (:ids) order by r.id")
+                .setParameterList("ids", sortedIds)
+                .setLockMode("r", LockMode.UPGRADE).list();
+    }
+
+    /**
+     * Used by {@link ResourceDailyLoadsListener}, that receives the session
+     * from the events instead of using the current one. It recalculates the
+     * daily loads of a resource only on the days whose assignments have
+     * changed. If <code>scenarioId</code> is <code>null</code> the loads of
+     * those days are recalculated in all the scenarios. The resource must
+     * have been locked with {@link #lockResources(Session, Collection)}.
+     */
+    static void refresh(Session session, Long resourceId, Long scenarioId,
+            Collection<LocalDate> days) {
+        List<LocalDate> sorted = new ArrayList<LocalDate>(days);
+        Collections.sort(sorted);
+        for (int i = 0; i < sorted.size(); i += MAX_DAYS_PER_REFRESH) {
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            parameters.put("resource", resourceId);
+            parameters.put("days", sorted.subList(i,
+                    Math.min(sorted.size(), i + MAX_DAYS_PER_REFRESH)));
+            String loadsCondition = "resourceId = :resource and day in (:days)";
+            String assignmentsCondition = "d.resource.id = :resource and d.day in (:days)";
+            if (scenarioId != null) {
+                parameters.put("scenario", scenarioId);
+                loadsCondition += " and scenarioId = :scenario";
+                assignmentsCondition += " and c.scenario.id = :scenario";
+            }
+            recalculate(session, loadsCondition, assignmentsCondition,
+                    parameters);
+        }
+    }
+
+    /**
+     * Deletes the daily loads matching <code>loadsCondition</code> and
+     * inserts them again summing the day assignments matching
+     * <code>assignmentsCondition</code>. Both conditions must select the same
+     * resources, scenarios and days, whose rows must be already locked.
+     */
+    private static void recalculate(Session session, String loadsCondition,
+            String assignmentsCondition, Map<String, Object> parameters) {
+        bind(session.createQuery(
+                "delete from ResourceDailyLoad where " + loadsCondition),
+                parameters).executeUpdate();
+        Accumulator accumulator = new Accumulator();
+        for (String each : CONTAINERS) {
+            Query query = bind(session.createQuery(
+                    "select d.resource.id, c.scenario.id, d.day, d.duration, "
+                            + "d.consolidated from " + each
+                            + " c JOIN c.dayAssignments d where "
+                            + assignmentsCondition), parameters);
+            ScrollableResults rows = scroll(query);
+            try {
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    accumulator.add((Long) row[0], (Long) row[1],
+                            (LocalDate) row[2], (EffortDuration) row[3],
+                            Boolean.TRUE.equals(row[4]));
+                }
+            } finally {
+                rows.close();
+            }
+        }
+        for (ResourceDailyLoad each : accumulator.getLoads()) {
+            session.save(each);
+        }
+    }
+
+    private static Query bind(Query query, Map<String, Object> parameters) {
+        for (Entry<String, Object> each : parameters.entrySet()) {
+            if (each.getValue() instanceof Collection) {
+                query.setParameterList(each.getKey(),
+                        (Collection<?>) each.getValue());
+            } else {
+                query.setParameter(each.getKey(), each.getValue());
+            }
+        }
+        return query;
+    }
+
+    private static ScrollableResults scroll(Query query) {
+        return query.setReadOnly(true).setFetchSize(SCROLL_FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    @Override
+    public void refresh(Collection<Long> resourceIds) {
+        refresh(getSession(), resourceIds);
+    }
+
+    @Override
+    public ColumnarDayAssignments getColumnarFor(Scenario scenario,
+            LocalDate initInclusive, LocalDate endInclusive, Resource resource) {
+        ColumnarDayAssignments.Builder builder = ColumnarDayAssignments
+                .builder();
+        ScrollableResults rows = scroll(createLoadsQuery(
+                "select l.day, l.resourceId, l.assignedEffort, "
+                        + "l.consolidatedEffort", scenario, initInclusive,
+                endInclusive, resource));
+        try {
+            while (rows.next()) {
+                Object[] row = rows.get();
+                int day = toEpochDay((LocalDate) row[0]);
+                long resourceId = (Long) row[1];
+                int assigned = ((EffortDuration) row[2]).getSeconds();
+                int consolidated = ((EffortDuration) row[3]).getSeconds();
+                if (consolidated == 0 || assigned > consolidated) {
+                    builder.addLoad(day, resourceId, assigned - consolidated,
+                            false);
+                }
+                if (consolidated > 0) {
+                    builder.addLoad(day, resourceId, consolidated, true);
+                }
+            }
+        } finally {
+            rows.close();
+        }
+        return builder.build();
+    }
+
+    private Query createLoadsQuery(String select, Scenario scenario,
+            LocalDate initInclusive, LocalDate endInclusive, Resource resource) {
+        Validate.notNull(scenario);
+        Query query = getSession().createQuery(
+                select + " from ResourceDailyLoad l"
+                        + " where l.scenarioId = :scenario"
+                        + (initInclusive != null ? " and l.day >= :init" : "")
+                        + (endInclusive != null ? " and l.day <= :end" : "")
+                        + (resource != null ? " and l.resourceId = :resource"
+                                : "") + " order by l.day").setParameter(
+                "scenario", scenario.getId());
+        if (initInclusive != null) {
+            query.setParameter("init", initInclusive);
+        }
+        if (endInclusive != null) {
+            query.setParameter("end", endInclusive);
+        }
+        if (resource != null) {
+            query.setParameter("resource", resource.getId());
+        }
+        return query;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> getResourceIds(Long afterId, int maxResults) {
+        Query query = getSession().createQuery(
+                "select r.id from Resource r"
+                        + (afterId != null ? " where r.id > :afterId" : "")
+                        + " order by r.id").setMaxResults(maxResults);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        return query.list();
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.daos;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.transaction.Synchronization;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostDeleteEventListener;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostInsertEventListener;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.event.PostUpdateEventListener;
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.scenarios.entities.Scenario;
+
+/**
+ * Keeps the {@link ResourceDailyLoad daily loads} up to date. It records the
+ * resources and days of the {@link DayAssignment day assignments} inserted,
+ * updated or deleted on each transaction and recalculates the daily loads of
+ * only those days just before the transaction is committed, once all the
+ * assignments have been flushed. The modified resources are locked first, so
+ * the concurrent transactions modifying the same resources refresh their
+ * loads one after the other.
+ */
+public class ResourceDailyLoadsListener implements PostInsertEventListener,
+        PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Log LOG = LogFactory
+            .getLog(ResourceDailyLoadsListener.class);
+
+    private final ConcurrentMap<Transaction, PendingRefresh> pending = new ConcurrentHashMap<Transaction, PendingRefresh>();
+
+    private final class PendingRefresh implements Synchronization {
+
+        private final Transaction transaction;
+
+        private final Session session;
+
+        /**
+         * The days modified of each resource by scenario. The scenario is
+         * <code>null</code> for the assignments already detached from their
+         * allocation.
+         */
+        private final SortedMap<Long, Map<Long, SortedSet<LocalDate>>> modifiedDays = new TreeMap<Long, Map<Long, SortedSet<LocalDate>>>();
+
+        PendingRefresh(Transaction transaction, Session session) {
+            this.transaction = transaction;
+            this.session = session;
+        }
+
+        synchronized void add(Long resourceId, Long scenarioId, LocalDate day) {
+            Map<Long, SortedSet<LocalDate>> byScenario = modifiedDays
+                    .get(resourceId);
+            if (byScenario == null) {
+                byScenario = new HashMap<Long, SortedSet<LocalDate>>();
+                modifiedDays.put(resourceId, byScenario);
+            }
+            SortedSet<LocalDate> days = byScenario.get(scenarioId);
+            if (days == null) {
+                days = new TreeSet<LocalDate>();
+                byScenario.put(scenarioId, days);
+            }
+            days.add(day);
+        }
+
+        private synchronized SortedMap<Long, Map<Long, SortedSet<LocalDate>>> drain() {
+            SortedMap<Long, Map<Long, SortedSet<LocalDate>>> result = new TreeMap<Long, Map<Long, SortedSet<LocalDate>>>(
+                    modifiedDays);
+            modifiedDays.clear();
+            return result;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            SortedMap<Long, Map<Long, SortedSet<LocalDate>>> toRefresh = drain();
+            if (toRefresh.isEmpty()) {
+                return;
+            }
+            LOG.debug("refreshing the daily loads of " + toRefresh.size()
+                    + " resources");
+            ResourceDailyLoadDAO.lockResources(session, toRefresh.keySet());
+            for (Entry<Long, Map<Long, SortedSet<LocalDate>>> resource : toRefresh
+                    .entrySet()) {
+                for (Entry<Long, SortedSet<LocalDate>> scenario : resource
+                        .getValue().entrySet()) {
+                    ResourceDailyLoadDAO.refresh(session, resource.getKey(),
+                            scenario.getKey(), scenario.getValue());
+                }
+            }
+            session.flush();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            pending.remove(transaction);
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        modified(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        modified(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        modified(event.getSession(), event.getEntity());
+    }
+
+    private void modified(Session session, Object entity) {
+        if (entity instanceof DayAssignment) {
+            DayAssignment dayAssignment = (DayAssignment) entity;
+            Scenario scenario = dayAssignment.getScenario();
+            dayModified(session, dayAssignment.getResource().getId(),
+                    scenario != null ? scenario.getId() : null,
+                    dayAssignment.getDay());
+        }
+    }
+
+    private void dayModified(Session session, Long resourceId,
+            Long scenarioId, LocalDate day) {
+        Transaction transaction = session.getTransaction();
+        if (!transaction.isActive()) {
+            LOG.warn("day assignments modified outside a transaction, "
+                    + "the daily loads of resource " + resourceId
+                    + " are not refreshed");
+            return;
+        }
+        PendingRefresh newRefresh = new PendingRefresh(transaction, session);
+        PendingRefresh previous = pending.putIfAbsent(transaction, newRefresh);
+        if (previous == null) {
+            transaction.registerSynchronization(newRefresh);
+            newRefresh.add(resourceId, scenarioId, day);
+        } else {
+            previous.add(resourceId, scenarioId, day);
+        }
+    }
+
+}
@@ -18,8 +18,10 @@
  */
 package org.libreplan.business.planner.entities;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -51,6 +53,23 @@ public class AssignedEffortForResource {
                 LocalDate day);
     }
 
+    /**
+     * An {@link IAssignedEffortForResource} whose load is the effort of some
+     * {@link DayAssignment day assignments} that can be retrieved for each
+     * resource. It allows to calculate the load of a resource on all days at
+     * once.
+     *
+     * @see ResourcesLoadMatrix
+     */
+    public interface IAssignedEffortFromAssignments extends
+            IAssignedEffortForResource {
+
+        /**
+         * @return the day assignments of the resource whose effort is summed
+         */
+        public List<DayAssignment> getCountedAssignments(Resource resource);
+    }
+
     private AssignedEffortForResource() {
         // not instantiable
     }
@@ -85,6 +104,9 @@ public class AssignedEffortForResource {
      */
     public static IAssignedEffortForResource sum(
             final IAssignedEffortForResource... assignedEffortForResources) {
+        if (allFromAssignments(assignedEffortForResources)) {
+            return new SumFromAssignments(assignedEffortForResources);
+        }
         return new IAssignedEffortForResource() {
 
             @Override
@@ -103,6 +125,51 @@ public class AssignedEffortForResource {
         };
     }
 
+    private static boolean allFromAssignments(
+            IAssignedEffortForResource[] assignedEffortForResources) {
+        for (IAssignedEffortForResource each : assignedEffortForResources) {
+            if (!(each instanceof IAssignedEffortFromAssignments)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class SumFromAssignments implements
+            IAssignedEffortFromAssignments {
+
+        private final IAssignedEffortFromAssignments[] summed;
+
+        SumFromAssignments(IAssignedEffortForResource[] assignedEffortForResources) {
+            this.summed = new IAssignedEffortFromAssignments[assignedEffortForResources.length];
+            for (int i = 0; i < summed.length; i++) {
+                summed[i] = (IAssignedEffortFromAssignments) assignedEffortForResources[i];
+            }
+        }
+
+        @Override
+        public EffortDuration getAssignedDurationAt(Resource resource,
+                LocalDate day) {
+            EffortDuration result = EffortDuration.zero();
+            for (IAssignedEffortForResource each : summed) {
+                EffortDuration e = each.getAssignedDurationAt(resource, day);
+                if (e != null) {
+                    result = result.plus(e);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<DayAssignment> getCountedAssignments(Resource resource) {
+            List<DayAssignment> result = new ArrayList<DayAssignment>();
+            for (IAssignedEffortFromAssignments each : summed) {
+                result.addAll(each.getCountedAssignments(resource));
+            }
+            return result;
+        }
+    }
+
     /**
      * @see AssignedEffortForResource#sum(IAssignedEffortForResource...)
      */
@@ -123,15 +190,16 @@ public class AssignedEffortForResource {
      * aren't associated to a Resource yet. Without this, their load wouldn't be
      * noticed.
      */
-    public static class WithTheLoadOf implements IAssignedEffortForResource {
+    public static class WithTheLoadOf implements IAssignedEffortFromAssignments {
 
         private final Set<? extends ResourceAllocation<?>> allocations;
-        private final IAssignedEffortForResource implementation;
+        private final IAssignedEffortFromAssignments implementation;
 
         public WithTheLoadOf(
                 Collection<? extends ResourceAllocation<?>> allocations) {
             this.allocations = new HashSet<ResourceAllocation<?>>(allocations);
-            this.implementation = sum(this.allocations);
+            this.implementation = new SumFromAssignments(
+                    this.allocations.toArray(new IAssignedEffortForResource[0]));
         }
 
         @Override
@@ -140,6 +208,11 @@ public class AssignedEffortForResource {
             return implementation.getAssignedDurationAt(resource, day);
         }
 
+        @Override
+        public List<DayAssignment> getCountedAssignments(Resource resource) {
+            return implementation.getCountedAssignments(resource);
+        }
+
         /**
          * It returns a {@link IAssignedEffortForResource} that returns the same
          * load as <code>this</code> but without the provided
@@ -156,7 +229,7 @@ public class AssignedEffortForResource {
     }
 
     private static class AssignedEffortDiscounting implements
-            IAssignedEffortForResource {
+            IAssignedEffortFromAssignments {
 
         private final Map<Long, Set<BaseEntity>> allocations;
 
@@ -168,6 +241,17 @@ public class AssignedEffortForResource {
                 LocalDate day) {
             return resource.getAssignedDurationDiscounting(allocations, day);
         }
+
+        @Override
+        public List<DayAssignment> getCountedAssignments(Resource resource) {
+            List<DayAssignment> result = new ArrayList<DayAssignment>();
+            for (DayAssignment each : resource.getAssignments()) {
+                if (!each.belongsToSomeOf(allocations)) {
+                    result.add(each);
+                }
+            }
+            return result;
+        }
     }
 
 }
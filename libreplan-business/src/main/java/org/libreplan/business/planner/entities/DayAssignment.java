@@ -21,8 +21,6 @@
 
 package org.libreplan.business.planner.entities;
 
-import static org.libreplan.business.workingday.EffortDuration.zero;
-
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -128,9 +126,14 @@ public abstract class DayAssignment extends BaseEntity {
 
     public static EffortDuration sum(
             Collection<? extends DayAssignment> assignments) {
-        EffortDuration result = zero();
+        return EffortDuration.seconds(sumSeconds(assignments));
+    }
+
+    public static int sumSeconds(
+            Collection<? extends DayAssignment> assignments) {
+        int result = 0;
         for (DayAssignment each : assignments) {
-            result = result.plus(each.getDuration());
+            result += each.getDuration().getSeconds();
         }
         return result;
     }
@@ -249,6 +252,11 @@ public abstract class DayAssignment extends BaseEntity {
         return duration;
     }
 
+    void updateDuration(EffortDuration duration) {
+        Validate.notNull(duration);
+        this.duration = duration;
+    }
+
     public Resource getResource() {
         return resource;
     }
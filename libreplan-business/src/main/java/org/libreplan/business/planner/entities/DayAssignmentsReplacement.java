@@ -0,0 +1,117 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.planner.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.resources.entities.Resource;
+
+/**
+ * Replaces some of the {@link DayAssignment day assignments} of a
+ * {@link IDayAssignmentsContainer container} by new ones. A removed
+ * assignment is kept when a new one for the same resource and day is added,
+ * taking its duration and consolidated value. So moving a task or changing
+ * its allocation only updates the assignments that change instead of
+ * deleting and inserting all of them again.
+ *
+ * @see IDayAssignmentsContainer#replace(Collection, Collection)
+ */
+class DayAssignmentsReplacement<T extends DayAssignment> {
+
+    /**
+     * Removes <code>toRemove</code> from <code>assignments</code> and updates
+     * the ones replaced by some of <code>toAdd</code>. The rest of
+     * <code>toAdd</code> must be copied to the container afterwards.
+     */
+    static <T extends DayAssignment> DayAssignmentsReplacement<T> replace(
+            Set<T> assignments, Collection<? extends DayAssignment> toRemove,
+            Collection<? extends T> toAdd) {
+        return new DayAssignmentsReplacement<T>(assignments, toRemove, toAdd);
+    }
+
+    private final List<T> removed = new ArrayList<T>();
+
+    private final List<T> notReplacing = new ArrayList<T>();
+
+    private DayAssignmentsReplacement(Set<T> assignments,
+            Collection<? extends DayAssignment> toRemove,
+            Collection<? extends T> toAdd) {
+        Set<DayAssignment> toRemoveSet = new HashSet<DayAssignment>(toRemove);
+        Map<Resource, Map<LocalDate, T>> removedByResourceAndDay = new HashMap<Resource, Map<LocalDate, T>>();
+        for (Iterator<T> iterator = assignments.iterator(); iterator.hasNext();) {
+            T each = iterator.next();
+            if (toRemoveSet.contains(each)) {
+                iterator.remove();
+                T previous = byDay(removedByResourceAndDay, each.getResource())
+                        .put(each.getDay(), each);
+                if (previous != null) {
+                    removed.add(previous);
+                }
+            }
+        }
+        for (T each : toAdd) {
+            T existent = byDay(removedByResourceAndDay, each.getResource())
+                    .remove(each.getDay());
+            if (existent == null) {
+                notReplacing.add(each);
+            } else {
+                existent.updateDuration(each.getDuration());
+                existent.setConsolidated(each.isConsolidated());
+                assignments.add(existent);
+            }
+        }
+        for (Map<LocalDate, T> each : removedByResourceAndDay.values()) {
+            removed.addAll(each.values());
+        }
+    }
+
+    private Map<LocalDate, T> byDay(
+            Map<Resource, Map<LocalDate, T>> byResourceAndDay,
+            Resource resource) {
+        Map<LocalDate, T> result = byResourceAndDay.get(resource);
+        if (result == null) {
+            result = new HashMap<LocalDate, T>();
+            byResourceAndDay.put(resource, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the assignments removed that haven't been kept
+     */
+    List<T> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the assignments to add that don't replace an existent one
+     */
+    List<T> getNotReplacing() {
+        return notReplacing;
+    }
+
+}
@@ -20,7 +20,6 @@
  */
 package org.libreplan.business.planner.entities;
 
-import static org.libreplan.business.workingday.EffortDuration.min;
 import static org.libreplan.business.workingday.EffortDuration.seconds;
 
 import java.util.ArrayList;
@@ -102,11 +101,11 @@ public class EffortDistributor {
 
         public static EffortDuration sumDurations(
                 List<ResourceWithAssignedDuration> withoutOvertime) {
-            EffortDuration result = EffortDuration.zero();
+            int result = 0;
             for (ResourceWithAssignedDuration each : withoutOvertime) {
-                result = result.plus(each.duration);
+                result += each.duration.getSeconds();
             }
-            return result;
+            return seconds(result);
         }
 
         static List<Resource> resources(
@@ -193,8 +192,8 @@ public class EffortDistributor {
         public static List<ResourceWithDerivedData> from(
                 List<Resource> resources) {
             List<ResourceWithDerivedData> result = new ArrayList<ResourceWithDerivedData>();
-            for (Resource each : resources) {
-                result.add(new ResourceWithDerivedData(each));
+            for (int i = 0; i < resources.size(); i++) {
+                result.add(new ResourceWithDerivedData(resources.get(i), i));
             }
             return result;
         }
@@ -214,37 +213,42 @@ public class EffortDistributor {
 
         public final ICalendar calendar;
 
-        public ResourceWithDerivedData(Resource resource) {
+        /**
+         * The position of the resource in the {@link ResourcesLoadMatrix}
+         */
+        public final int index;
+
+        public ResourceWithDerivedData(Resource resource, int index) {
             this.resource = resource;
+            this.index = index;
             this.capacityUnits = getCapacityFor(resource);
             this.calendar = generateCalendarFor(resource);
         }
 
         ResourceWithAvailableCapacity withAvailableCapacityOn(PartialDay day,
-                IAssignedEffortForResource assignedEffort) {
-            EffortDuration allCapacityForDay = calendar
-                    .getCapacityOn(PartialDay.wholeDay(day.getDate()));
-            EffortDuration capacity = calendar.getCapacityOn(day);
+                ResourcesLoadMatrix assignedEffort) {
+            int allCapacityForDay = calendar.getCapacityOn(
+                    PartialDay.wholeDay(day.getDate())).getSeconds();
+            int capacity = calendar.getCapacityOn(day).getSeconds();
 
-            EffortDuration capacityForAlreadyAssigned = allCapacityForDay
-                    .minus(capacity);
+            int capacityForAlreadyAssigned = allCapacityForDay - capacity;
 
-            EffortDuration assigned = assignedEffort.getAssignedDurationAt(
-                    resource, day.getDate());
-            EffortDuration assignedInterfering = assigned.minus(min(assigned,
-                    capacityForAlreadyAssigned));
+            int assigned = assignedEffort.getAssignedSecondsAt(index,
+                    day.getDate());
+            int assignedInterfering = assigned
+                    - Math.min(assigned, capacityForAlreadyAssigned);
 
-            EffortDuration available = capacity.minus(min(assignedInterfering,
-                    capacity));
-            return new ResourceWithAvailableCapacity(resource, available);
+            int available = capacity - Math.min(assignedInterfering, capacity);
+            return new ResourceWithAvailableCapacity(resource,
+                    seconds(available));
         }
 
         Capacity getAvailableCapacityOn(PartialDay day,
-                IAssignedEffortForResource assignedEffort) {
+                ResourcesLoadMatrix assignedEffort) {
             Capacity originalCapacity = day.limitCapacity(calendar
                     .getCapacityWithOvertime(day.getDate()));
             EffortDuration alreadyAssigned = assignedEffort
-                    .getAssignedDurationAt(resource, day.getDate());
+                    .getAssignedDurationAt(index, day.getDate());
             return originalCapacity.minus(alreadyAssigned);
         }
 
@@ -306,7 +310,7 @@ public class EffortDistributor {
 
     private final List<ResourceWithDerivedData> resources;
 
-    private final IAssignedEffortForResource assignedEffortForResource;
+    private final ResourcesLoadMatrix assignedEffortForResource;
 
     private final IResourceSelector resourceSelector;
 
@@ -321,7 +325,8 @@ public class EffortDistributor {
             IAssignedEffortForResource assignedEffortForResource,
             IResourceSelector selector) {
         this.resources = ResourceWithDerivedData.from(resources);
-        this.assignedEffortForResource = assignedEffortForResource;
+        this.assignedEffortForResource = ResourcesLoadMatrix.create(
+                resources, assignedEffortForResource);
         this.resourceSelector = selector != null ? new CompoundSelector(
                 new OnlyCanWork(), selector) : new OnlyCanWork();
     }
@@ -475,13 +480,14 @@ public class EffortDistributor {
     private EffortDuration calculateDurationCanBeAdded(
             EffortDuration alreadyAssigned, Capacity capacityWithOvertime,
             EffortDuration newAddition) {
-        EffortDuration maximum = capacityWithOvertime.getStandardEffort().plus(
-                capacityWithOvertime.getAllowedExtraEffort());
-        if (alreadyAssigned.compareTo(maximum) >= 0) {
+        int maximum = capacityWithOvertime.getStandardEffort().getSeconds()
+                + capacityWithOvertime.getAllowedExtraEffort().getSeconds();
+        int assigned = alreadyAssigned.getSeconds();
+        if (assigned >= maximum) {
             return EffortDuration.zero();
         } else {
-            return EffortDuration.min(newAddition,
-                    maximum.minus(alreadyAssigned));
+            return seconds(Math.min(newAddition.getSeconds(), maximum
+                    - assigned));
         }
     }
 
@@ -504,24 +510,28 @@ public class EffortDistributor {
             LocalDate date, EffortDuration remainingDuration,
             IAssignedEffortForResource assignedEffortForEachResource,
             List<ResourceWithDerivedData> resourcesWithAvailableOvertime) {
-        List<ShareSource> shares = divisionAt(resourcesWithAvailableOvertime,
+        int[] shares = divisionAt(resourcesWithAvailableOvertime,
                 assignedEffortForEachResource, date);
-        ShareDivision currentDivision = ShareSource.all(shares);
-        ShareDivision newDivison = currentDivision.plus(remainingDuration
-                .getSeconds());
-        int[] differences = currentDivision.to(newDivison);
-        return ShareSource.durationsForEachResource(shares, differences,
-                ResourceWithDerivedData
-                        .resources(resourcesWithAvailableOvertime));
+        int[] differences = ShareDivision.increments(shares,
+                remainingDuration.getSeconds());
+        return durationsForEachResource(differences,
+                resourcesWithAvailableOvertime);
     }
 
-    private List<ShareSource> divisionAt(
-            List<ResourceWithDerivedData> resources,
+    /**
+     * @return the share in seconds of each capacity unit of the resources, the
+     *         ones of each resource being contiguous
+     */
+    private int[] divisionAt(List<ResourceWithDerivedData> resources,
             IAssignedEffortForResource assignedEffortForEachResource,
             LocalDate date) {
-        List<ShareSource> result = new ArrayList<ShareSource>();
+        int totalUnits = 0;
+        for (ResourceWithDerivedData each : resources) {
+            totalUnits += each.capacityUnits;
+        }
+        int[] result = new int[totalUnits];
+        int k = 0;
         for (int i = 0; i < resources.size(); i++) {
-            List<Share> shares = new ArrayList<Share>();
             Resource resource = resources.get(i).resource;
             ICalendar calendarForResource = resources.get(i).calendar;
             EffortDuration alreadyAssigned = assignedEffortForEachResource
@@ -535,61 +545,29 @@ public class EffortDistributor {
             final int remainder = alreadyAssignedSeconds % capacityUnits;
             for (int j = 0; j < capacityUnits; j++) {
                 int assignedSeconds = assignedForEach + (j < remainder ? 1 : 0);
-                shares.add(new Share(assignedSeconds - capacityEachOneSeconds));
+                result[k++] = assignedSeconds - capacityEachOneSeconds;
             }
-            result.add(new ShareSource(shares));
         }
         return result;
     }
 
     private static final ResourcesPerDay ONE = ResourcesPerDay.amount(1);
 
-    private static class ShareSource {
-
-        public static ShareDivision all(Collection<ShareSource> sources) {
-            List<Share> shares = new ArrayList<Share>();
-            for (ShareSource shareSource : sources) {
-                shares.addAll(shareSource.shares);
-            }
-            return ShareDivision.create(shares);
-        }
-
-        public static List<ResourceWithAssignedDuration> durationsForEachResource(
-                List<ShareSource> sources, int[] differencesInSeconds,
-                List<Resource> resources) {
-            List<ResourceWithAssignedDuration> result = new ArrayList<ResourceWithAssignedDuration>();
-            int differencesIndex = 0;
-            for (int i = 0; i < resources.size(); i++) {
-                Resource resource = resources.get(i);
-                ShareSource shareSource = sources.get(i);
-                final int differencesToTake = shareSource.shares.size();
-                int sum = sumDifferences(differencesInSeconds, differencesIndex,
-                        differencesToTake);
-                differencesIndex += differencesToTake;
-                ResourceWithAssignedDuration withAssignedDuration = new ResourceWithAssignedDuration(
-                        seconds(sum), resource);
-                if (!withAssignedDuration.duration.isZero()) {
-                    result.add(withAssignedDuration);
-                }
-            }
-            return result;
-        }
-
-        private static int sumDifferences(int[] differences, int start,
-                final int toTake) {
+    private static List<ResourceWithAssignedDuration> durationsForEachResource(
+            int[] differencesInSeconds, List<ResourceWithDerivedData> resources) {
+        List<ResourceWithAssignedDuration> result = new ArrayList<ResourceWithAssignedDuration>();
+        int differencesIndex = 0;
+        for (ResourceWithDerivedData each : resources) {
             int sum = 0;
-            for (int i = 0; i < toTake; i++) {
-                sum += differences[start + i];
+            for (int j = 0; j < each.capacityUnits; j++) {
+                sum += differencesInSeconds[differencesIndex++];
+            }
+            if (sum != 0) {
+                result.add(new ResourceWithAssignedDuration(seconds(sum),
+                        each.resource));
             }
-            return sum;
-        }
-
-        private final List<Share> shares;
-
-        private ShareSource(List<Share> shares) {
-            this.shares = shares;
         }
-
+        return result;
     }
 
 }
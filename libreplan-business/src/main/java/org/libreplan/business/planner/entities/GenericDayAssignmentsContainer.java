@@ -22,6 +22,7 @@ package org.libreplan.business.planner.entities;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang.Validate;
@@ -107,6 +108,17 @@ public class GenericDayAssignmentsContainer extends BaseEntity implements
         dayAssignments.addAll(copyToThisContainer(assignments));
     }
 
+    @Override
+    public List<GenericDayAssignment> replace(
+            Collection<? extends DayAssignment> toRemove,
+            Collection<? extends GenericDayAssignment> toAdd) {
+        DayAssignmentsReplacement<GenericDayAssignment> replacement = DayAssignmentsReplacement
+                .replace(dayAssignments, toRemove, toAdd);
+        dayAssignments.addAll(copyToThisContainer(replacement
+                .getNotReplacing()));
+        return replacement.getRemoved();
+    }
+
     private Set<GenericDayAssignment> copyToThisContainer(
             Collection<? extends GenericDayAssignment> assignments) {
         return GenericDayAssignment.copy(this, assignments);
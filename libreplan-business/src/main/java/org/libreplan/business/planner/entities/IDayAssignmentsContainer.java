@@ -21,6 +21,7 @@
 package org.libreplan.business.planner.entities;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.libreplan.business.scenarios.entities.Scenario;
@@ -44,6 +45,17 @@ public interface IDayAssignmentsContainer<T extends DayAssignment> {
 
     void resetTo(Collection<T> assignments);
 
+    /**
+     * Removes <code>toRemove</code> and adds <code>toAdd</code>. The removed
+     * assignments for the same resource and day as an added one are kept and
+     * updated, so only the changes are written to the database.
+     *
+     * @return the assignments actually removed
+     * @see DayAssignmentsReplacement
+     */
+    List<T> replace(Collection<? extends DayAssignment> toRemove,
+            Collection<? extends T> toAdd);
+
     IntraDayDate getIntraDayStart();
 
     void setIntraDayStart(IntraDayDate intraDayStart);
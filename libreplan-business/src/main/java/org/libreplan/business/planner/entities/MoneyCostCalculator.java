@@ -25,8 +25,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.libreplan.business.costcategories.daos.HourCostRates;
 import org.libreplan.business.costcategories.daos.IHourCostDAO;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
 import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,6 +60,9 @@ public class MoneyCostCalculator implements IMoneyCostCalculator {
     @Autowired
     private IHourCostDAO hourCostDAO;
 
+    @Autowired
+    private PredefinedDatabaseSnapshots predefinedDatabaseSnapshots;
+
     private Map<OrderElement, MoneyCost> moneyCostTotalMap = new HashMap<OrderElement, MoneyCost>();
 
     private class MoneyCost {
@@ -135,13 +142,11 @@ public class MoneyCostCalculator implements IMoneyCostCalculator {
         List<WorkReportLine> workReportLines = workReportLineDAO
                 .findByOrderElement(orderElement);
 
+        HourCostRates rates = predefinedDatabaseSnapshots
+                .snapshotHourCostRates();
         BigDecimal result = BigDecimal.ZERO.setScale(2);
         for (WorkReportLine workReportLine : workReportLines) {
-            BigDecimal priceCost = hourCostDAO
-                    .getPriceCostFromResourceDateAndType(
-                            workReportLine.getResource(),
-                            workReportLine.getLocalDate(),
-                            workReportLine.getTypeOfWorkHours());
+            BigDecimal priceCost = getPriceCost(rates, workReportLine);
 
             // If cost undefined via CostCategory get it from type
             if (priceCost == null) {
@@ -157,6 +162,20 @@ public class MoneyCostCalculator implements IMoneyCostCalculator {
         return result;
     }
 
+    private BigDecimal getPriceCost(HourCostRates rates,
+            WorkReportLine workReportLine) {
+        Resource resource = workReportLine.getResource();
+        TypeOfWorkHours type = workReportLine.getTypeOfWorkHours();
+        // the rates are null while they are recalculated after a
+        // modification of the cost categories, so the price is queried
+        if (rates != null && resource.getId() != null && type.getId() != null) {
+            return rates.getPrice(resource.getId(),
+                    workReportLine.getLocalDate(), type.getId());
+        }
+        return hourCostDAO.getPriceCostFromResourceDateAndType(resource,
+                workReportLine.getLocalDate(), type);
+    }
+
     /**
      * Divides {@code moneyCost} by {@code budget} if {@code budget} is
      * different from 0. Otherwise, returns 0.
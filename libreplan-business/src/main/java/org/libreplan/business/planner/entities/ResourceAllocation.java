@@ -53,7 +53,7 @@ import org.libreplan.business.calendars.entities.ThereAreHoursOnWorkHoursCalcula
 import org.libreplan.business.calendars.entities.ThereAreHoursOnWorkHoursCalculator.CapacityResult;
 import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.common.Registry;
-import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortForResource;
+import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortFromAssignments;
 import org.libreplan.business.planner.entities.DerivedAllocationGenerator.IWorkerFinder;
 import org.libreplan.business.planner.entities.allocationalgorithms.AllocationModification;
 import org.libreplan.business.planner.entities.allocationalgorithms.AllocatorForTaskDurationAndSpecifiedResourcesPerDay;
@@ -85,7 +85,7 @@ import org.libreplan.business.workingday.ResourcesPerDay;
  *         Resources are allocated to planner tasks.
  */
 public abstract class ResourceAllocation<T extends DayAssignment> extends
-        BaseEntity implements IAssignedEffortForResource {
+        BaseEntity implements IAssignedEffortFromAssignments {
 
     private static final Log LOG = LogFactory.getLog(ResourceAllocation.class);
 
@@ -1104,8 +1104,8 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
     protected void resetAllAllocationAssignmentsTo(List<T> assignments,
             IntraDayDate intraDayStart,
             IntraDayDate intraDayEnd) {
-        removingAssignments(withoutConsolidated(getAssignments()));
-        addingAssignments(assignments);
+        replacingAssignments(withoutConsolidated(getAssignments()),
+                assignments);
         updateOriginalTotalAssigment();
         getDayAssignmentsState().setIntraDayStart(intraDayStart);
         getDayAssignmentsState().setIntraDayEnd(intraDayEnd);
@@ -1231,9 +1231,9 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
     private void updateAssignments(AllocationInterval interval,
             List<T> assignmentsCreated) {
 
-        removingAssignments(withoutConsolidated(interval
-                .getAssignmentsOnInterval()));
-        addingAssignments(assignmentsCreated);
+        replacingAssignments(
+                withoutConsolidated(interval.getAssignmentsOnInterval()),
+                assignmentsCreated);
 
         updateOriginalTotalAssigment();
         updateResourcesPerDay();
@@ -1281,11 +1281,19 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
     protected final void addingAssignments(Collection<? extends T> assignments) {
         getDayAssignmentsState().addingAssignments(
-                withoutAlreadyPresent(assignments));
+                withoutAlreadyPresent(assignments,
+                        Collections.<DayAssignment> emptyList()));
+    }
+
+    private void replacingAssignments(List<? extends DayAssignment> toRemove,
+            Collection<? extends T> toAdd) {
+        getDayAssignmentsState().replacingAssignments(toRemove,
+                withoutAlreadyPresent(toAdd, toRemove));
     }
 
     private List<? extends T> withoutAlreadyPresent(
-            Collection<? extends T> assignments) {
+            Collection<? extends T> assignments,
+            Collection<? extends DayAssignment> beingRemoved) {
         if(assignments.isEmpty()){
             return Collections.emptyList();
         }
@@ -1294,8 +1302,10 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
                 DayAssignment.byDayComparator()).getDay();
         LocalDate max = Collections.max(assignments,
                 DayAssignment.byDayComparator()).getDay();
-        Set<LocalDate> daysPresent = DayAssignment.byDay(
-                getAssignments(min, max.plusDays(1))).keySet();
+        List<DayAssignment> present = new ArrayList<DayAssignment>(
+                getAssignments(min, max.plusDays(1)));
+        present.removeAll(new HashSet<DayAssignment>(beingRemoved));
+        Set<LocalDate> daysPresent = DayAssignment.byDay(present).keySet();
 
         List<T> result = new ArrayList<T>();
         for (T each : assignments) {
@@ -1551,12 +1561,20 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
             setParentFor(assignments);
             addAssignments(assignments);
             clearCachedData();
+            loadModifiedFor(assignments);
         }
 
         protected void clearCachedData() {
             dayAssignmentsOrdered = null;
         }
 
+        protected void loadModifiedFor(
+                Collection<? extends DayAssignment> assignments) {
+            for (DayAssignment each : assignments) {
+                each.getResource().loadModified();
+            }
+        }
+
         private void setParentFor(Collection<? extends T> assignments) {
             for (T each : assignments) {
                 setItselfAsParentFor(each);
@@ -1567,11 +1585,37 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
                 List<? extends DayAssignment> assignments){
             removeAssignments(assignments);
             clearCachedData();
+            loadModifiedFor(assignments);
             for (DayAssignment each : assignments) {
                 dayAssignmenteRemoval.onRemoval(ResourceAllocation.this, each);
             }
         }
 
+        protected void replacingAssignments(
+                List<? extends DayAssignment> toRemove,
+                Collection<? extends T> toAdd) {
+            setParentFor(toAdd);
+            List<? extends DayAssignment> removed = replaceAssignments(
+                    toRemove, toAdd);
+            clearCachedData();
+            loadModifiedFor(removed);
+            loadModifiedFor(toAdd);
+            for (DayAssignment each : removed) {
+                dayAssignmenteRemoval.onRemoval(ResourceAllocation.this, each);
+            }
+        }
+
+        /**
+         * @return the assignments actually removed
+         */
+        protected List<? extends DayAssignment> replaceAssignments(
+                List<? extends DayAssignment> toRemove,
+                Collection<? extends T> toAdd) {
+            removeAssignments(toRemove);
+            addAssignments(toAdd);
+            return toRemove;
+        }
+
         protected abstract void removeAssignments(
                 List<? extends DayAssignment> assignments);
 
@@ -1580,9 +1624,11 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
         @SuppressWarnings("unchecked")
         public void mergeAssignments(ResourceAllocation<?> modification) {
+            loadModifiedFor(getUnorderedAssignments());
             detachAssignments();
             resetTo(((ResourceAllocation<T>) modification).getAssignments());
             clearCachedData();
+            loadModifiedFor(getUnorderedAssignments());
         }
 
         protected abstract void resetTo(Collection<T> assignmentsCopied);
@@ -1785,6 +1831,30 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
             container.resetTo(assignmentsCopied);
         }
 
+        @Override
+        protected List<? extends DayAssignment> replaceAssignments(
+                List<? extends DayAssignment> toRemove,
+                Collection<? extends T> toAdd) {
+            return container.replace(toRemove, toAdd);
+        }
+
+        /**
+         * The assignments of the same resource and day are kept, so the
+         * unchanged days aren't deleted and inserted again
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public void mergeAssignments(ResourceAllocation<?> modification) {
+            loadModifiedFor(container.getDayAssignments());
+            for (DayAssignment each : container.replace(
+                    container.getDayAssignments(),
+                    ((ResourceAllocation<T>) modification).getAssignments())) {
+                each.detach();
+            }
+            clearCachedData();
+            loadModifiedFor(container.getDayAssignments());
+        }
+
         @Override
         IntraDayDate getIntraDayStart() {
             return container.getIntraDayStart();
@@ -1980,6 +2050,17 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
         return getAssignedDuration(assignments, start, endExclusive);
     }
 
+    @Override
+    public List<DayAssignment> getCountedAssignments(final Resource resource) {
+        return filter(new ArrayList<DayAssignment>(getAssignments()),
+                new PredicateOnDayAssignment() {
+                    @Override
+                    public boolean satisfiedBy(DayAssignment dayAssignment) {
+                        return dayAssignment.isAssignedTo(resource);
+                    }
+                });
+    }
+
     @Override
     public EffortDuration getAssignedDurationAt(Resource resource, LocalDate day) {
         IntraDayDate start = IntraDayDate.startOfDay(day);
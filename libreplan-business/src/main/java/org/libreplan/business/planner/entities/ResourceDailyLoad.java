@@ -0,0 +1,160 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Effort assigned to a resource on a day in a scenario, summing all its
+ * {@link DayAssignment day assignments}. They are kept up to date each time
+ * the assignments are saved, so the loads can be calculated without reading
+ * the assignments.<br />
+ *
+ * The resource and the scenario are kept as ids, so the loads don't prevent
+ * removing them.
+ *
+ * @see IResourceDailyLoadDAO
+ */
+public class ResourceDailyLoad extends BaseEntity {
+
+    /**
+     * Sums the assignments received into daily loads
+     */
+    public static class Accumulator {
+
+        private final Map<Key, ResourceDailyLoad> loads = new HashMap<Key, ResourceDailyLoad>();
+
+        public void add(long resourceId, long scenarioId, LocalDate day,
+                EffortDuration duration, boolean consolidated) {
+            Key key = new Key(resourceId, scenarioId, day);
+            ResourceDailyLoad load = loads.get(key);
+            if (load == null) {
+                load = ResourceDailyLoad.create(resourceId, scenarioId, day);
+                loads.put(key, load);
+            }
+            load.add(duration, consolidated);
+        }
+
+        public List<ResourceDailyLoad> getLoads() {
+            return new ArrayList<ResourceDailyLoad>(loads.values());
+        }
+    }
+
+    private static class Key {
+
+        private final long resourceId;
+
+        private final long scenarioId;
+
+        private final LocalDate day;
+
+        Key(long resourceId, long scenarioId, LocalDate day) {
+            this.resourceId = resourceId;
+            this.scenarioId = scenarioId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return resourceId == other.resourceId
+                    && scenarioId == other.scenarioId && day.equals(other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (resourceId ^ (resourceId >>> 32)) * 31 * 31
+                    + (int) (scenarioId ^ (scenarioId >>> 32)) * 31
+                    + day.hashCode();
+        }
+    }
+
+    public static ResourceDailyLoad create(long resourceId, long scenarioId,
+            LocalDate day) {
+        Validate.notNull(day);
+        return create(new ResourceDailyLoad(resourceId, scenarioId, day));
+    }
+
+    private Long resourceId;
+
+    private Long scenarioId;
+
+    private LocalDate day;
+
+    private EffortDuration assignedEffort = EffortDuration.zero();
+
+    private EffortDuration consolidatedEffort = EffortDuration.zero();
+
+    /**
+     * Constructor for Hibernate. Do not use!
+     */
+    protected ResourceDailyLoad() {
+    }
+
+    private ResourceDailyLoad(long resourceId, long scenarioId, LocalDate day) {
+        this.resourceId = resourceId;
+        this.scenarioId = scenarioId;
+        this.day = day;
+    }
+
+    private void add(EffortDuration duration, boolean consolidated) {
+        assignedEffort = assignedEffort.plus(duration);
+        if (consolidated) {
+            consolidatedEffort = consolidatedEffort.plus(duration);
+        }
+    }
+
+    public Long getResourceId() {
+        return resourceId;
+    }
+
+    public Long getScenarioId() {
+        return scenarioId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    /**
+     * @return the effort of all the assignments, including the consolidated
+     *         ones
+     */
+    public EffortDuration getAssignedEffort() {
+        return assignedEffort;
+    }
+
+    public EffortDuration getConsolidatedEffort() {
+        return consolidatedEffort;
+    }
+
+}
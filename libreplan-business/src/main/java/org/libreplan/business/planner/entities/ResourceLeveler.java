@@ -0,0 +1,482 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.planner.entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Reduces the overload of some resources moving the tasks that load them
+ * within the positions they are allowed to take. The overload of a resource on
+ * a day is the load exceeding its capacity, like it's calculated by
+ * {@link org.libreplan.business.resources.daos.ResourceLoadRatiosCalculator}.<br />
+ *
+ * The days are positions in a timeline, so the days nobody works can be left
+ * out of it. The load of a task is moved as is along with the task. The most
+ * overloaded resource-days are handled first: each task loading the
+ * resource-day is tried on all its allowed positions and the move reducing the
+ * most the total overload is done. Only the resource-days touched by a move
+ * are updated, so a move costs the same no matter the size of the timeline.<br />
+ *
+ * The allowed positions of a task are the ones between its bounds that keep
+ * the precedences with the other tasks at their current positions. A task
+ * whose bounds are the same, e.g. a critical one, is never moved.
+ */
+public class ResourceLeveler {
+
+    public static ResourceLeveler create(int resourcesCount, int daysCount) {
+        return new ResourceLeveler(resourcesCount, daysCount);
+    }
+
+    private static class Precedence {
+
+        private final int origin;
+
+        private final int destination;
+
+        private final int minDistance;
+
+        private Precedence(int origin, int destination, int minDistance) {
+            this.origin = origin;
+            this.destination = destination;
+            this.minDistance = minDistance;
+        }
+    }
+
+    private static class TaskToLevel {
+
+        private final int initialStart;
+
+        private int start;
+
+        private final int minStart;
+
+        private final int maxStart;
+
+        private final Map<Integer, Integer> secondsByCell = new HashMap<Integer, Integer>();
+
+        private final List<Precedence> incoming = new ArrayList<Precedence>();
+
+        private final List<Precedence> outgoing = new ArrayList<Precedence>();
+
+        private int[] resources;
+
+        /**
+         * The offsets of the loaded days from the start of the task
+         */
+        private int[] offsets;
+
+        private int[] seconds;
+
+        private int firstOffset;
+
+        private int lastOffset;
+
+        private TaskToLevel(int start, int minStart, int maxStart) {
+            this.initialStart = start;
+            this.start = start;
+            this.minStart = minStart;
+            this.maxStart = maxStart;
+        }
+
+        private boolean loads(int resource, int day) {
+            int offset = day - start;
+            if (offset < firstOffset || offset > lastOffset) {
+                return false;
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                if (resources[i] == resource && offsets[i] == offset) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final int resourcesCount;
+
+    private final int daysCount;
+
+    private final int[] capacity;
+
+    private final int[] load;
+
+    private final List<TaskToLevel> tasks = new ArrayList<TaskToLevel>();
+
+    /**
+     * The tasks that can be moved loading each resource
+     */
+    private List<List<TaskToLevel>> movableByResource;
+
+    private long totalOverload;
+
+    private boolean prepared = false;
+
+    private ResourceLeveler(int resourcesCount, int daysCount) {
+        Validate.isTrue(resourcesCount >= 0 && daysCount >= 0);
+        Validate.isTrue((long) resourcesCount * daysCount <= Integer.MAX_VALUE,
+                "too many resources and days to level");
+        this.resourcesCount = resourcesCount;
+        this.daysCount = daysCount;
+        this.capacity = new int[resourcesCount * daysCount];
+        this.load = new int[resourcesCount * daysCount];
+    }
+
+    private int cell(int resource, int day) {
+        return resource * daysCount + day;
+    }
+
+    private void checkCell(int resource, int day) {
+        Validate.isTrue(resource >= 0 && resource < resourcesCount,
+                "invalid resource: " + resource);
+        Validate.isTrue(day >= 0 && day < daysCount, "invalid day: " + day);
+    }
+
+    private void checkNotPrepared() {
+        Validate.isTrue(!prepared,
+                "the leveler can't be modified once it has leveled");
+    }
+
+    public void setCapacity(int resource, int day, int seconds) {
+        checkNotPrepared();
+        checkCell(resource, day);
+        Validate.isTrue(seconds >= 0);
+        capacity[cell(resource, day)] = seconds;
+    }
+
+    /**
+     * Adds a task that can be moved to any start between
+     * <code>minStart</code> and <code>maxStart</code>, both inclusive. If they
+     * are the same the task is fixed but its load is still taken into account.
+     *
+     * @return the index of the added task
+     */
+    public int addTask(int start, int minStart, int maxStart) {
+        checkNotPrepared();
+        Validate.isTrue(minStart <= start && start <= maxStart,
+                "the start must be between the bounds");
+        tasks.add(new TaskToLevel(start, minStart, maxStart));
+        return tasks.size() - 1;
+    }
+
+    public int addFixedTask(int start) {
+        return addTask(start, start, start);
+    }
+
+    /**
+     * Adds the seconds the task loads the resource on a day, the day being
+     * calculated from the current start of the task
+     */
+    public void addLoad(int task, int resource, int day, int seconds) {
+        checkNotPrepared();
+        checkCell(resource, day);
+        Validate.isTrue(seconds >= 0);
+        if (seconds == 0) {
+            return;
+        }
+        Map<Integer, Integer> secondsByCell = getTask(task).secondsByCell;
+        Integer key = cell(resource, day);
+        Integer previous = secondsByCell.get(key);
+        secondsByCell.put(key, previous == null ? seconds : previous + seconds);
+    }
+
+    /**
+     * Forces the start of <code>destination</code> to be at least
+     * <code>minDistance</code> days after the start of <code>origin</code>.
+     * Any dependency can be expressed this way; for example, an end-start one
+     * is a precedence whose minimum distance is the length of the origin.
+     */
+    public void addPrecedence(int origin, int destination, int minDistance) {
+        checkNotPrepared();
+        Precedence precedence = new Precedence(origin, destination,
+                minDistance);
+        getTask(origin).outgoing.add(precedence);
+        getTask(destination).incoming.add(precedence);
+    }
+
+    private TaskToLevel getTask(int task) {
+        Validate.isTrue(task >= 0 && task < tasks.size(), "invalid task: "
+                + task);
+        return tasks.get(task);
+    }
+
+    public int getTasksCount() {
+        return tasks.size();
+    }
+
+    public int getStart(int task) {
+        return getTask(task).start;
+    }
+
+    public boolean isMoved(int task) {
+        TaskToLevel t = getTask(task);
+        return t.start != t.initialStart;
+    }
+
+    /**
+     * @return the sum of the overload of all the resources on all the days in
+     *         seconds
+     */
+    public long getTotalOverload() {
+        prepare();
+        return totalOverload;
+    }
+
+    private void prepare() {
+        if (prepared) {
+            return;
+        }
+        prepared = true;
+        movableByResource = new ArrayList<List<TaskToLevel>>(resourcesCount);
+        for (int i = 0; i < resourcesCount; i++) {
+            movableByResource.add(new ArrayList<TaskToLevel>());
+        }
+        for (TaskToLevel each : tasks) {
+            preparePositions(each);
+            for (int i = 0; i < each.offsets.length; i++) {
+                load[cell(each.resources[i], each.start + each.offsets[i])] += each.seconds[i];
+            }
+            if (each.minStart != each.maxStart) {
+                addToMovableByResource(each);
+            }
+        }
+        totalOverload = 0;
+        for (int i = 0; i < load.length; i++) {
+            totalOverload += overloadAt(i);
+        }
+    }
+
+    private void preparePositions(TaskToLevel task) {
+        int size = task.secondsByCell.size();
+        task.resources = new int[size];
+        task.offsets = new int[size];
+        task.seconds = new int[size];
+        task.firstOffset = Integer.MAX_VALUE;
+        task.lastOffset = Integer.MIN_VALUE;
+        int i = 0;
+        for (Entry<Integer, Integer> each : task.secondsByCell.entrySet()) {
+            int cell = each.getKey();
+            task.resources[i] = cell / daysCount;
+            task.offsets[i] = cell % daysCount - task.start;
+            task.seconds[i] = each.getValue();
+            task.firstOffset = Math.min(task.firstOffset, task.offsets[i]);
+            task.lastOffset = Math.max(task.lastOffset, task.offsets[i]);
+            i++;
+        }
+        task.secondsByCell.clear();
+    }
+
+    private void addToMovableByResource(TaskToLevel task) {
+        int previous = -1;
+        int[] resources = task.resources.clone();
+        Arrays.sort(resources);
+        for (int each : resources) {
+            if (each != previous) {
+                movableByResource.get(each).add(task);
+                previous = each;
+            }
+        }
+    }
+
+    private int overloadAt(int cell) {
+        return Math.max(0, load[cell] - capacity[cell]);
+    }
+
+    /**
+     * Moves the tasks until no move reduces the total overload or
+     * <code>maxMoves</code> moves have been done. A task can be moved several
+     * times.
+     *
+     * @return the number of moves done
+     */
+    public int level(int maxMoves) {
+        prepare();
+        PriorityQueue<Long> mostOverloaded = new PriorityQueue<Long>(
+                Math.max(1, load.length / 8), Collections.<Long> reverseOrder());
+        for (int i = 0; i < load.length; i++) {
+            offerIfOverloaded(mostOverloaded, i);
+        }
+        int moves = 0;
+        while (moves < maxMoves && !mostOverloaded.isEmpty()) {
+            long top = mostOverloaded.poll();
+            int cell = (int) top;
+            if (overloadAt(cell) != (int) (top >>> 32)) {
+                // outdated, if it's still overloaded it has been offered again
+                continue;
+            }
+            Move move = bestMoveFor(cell / daysCount, cell % daysCount);
+            if (move != null) {
+                move.apply(mostOverloaded);
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    private void offerIfOverloaded(PriorityQueue<Long> queue, int cell) {
+        int overload = overloadAt(cell);
+        if (overload > 0) {
+            queue.offer(((long) overload << 32) | cell);
+        }
+    }
+
+    private class Move {
+
+        private final TaskToLevel task;
+
+        private final int newStart;
+
+        private final long reduction;
+
+        private Move(TaskToLevel task, int newStart, long reduction) {
+            this.task = task;
+            this.newStart = newStart;
+            this.reduction = reduction;
+        }
+
+        private boolean isBetterThan(Move other) {
+            if (other == null || reduction != other.reduction) {
+                return other == null || reduction > other.reduction;
+            }
+            return distance() < other.distance();
+        }
+
+        private int distance() {
+            return Math.abs(newStart - task.start);
+        }
+
+        private void apply(PriorityQueue<Long> queue) {
+            totalOverload -= unload(task);
+            offerLoadedCells(queue);
+            task.start = newStart;
+            totalOverload += doLoad(task);
+            offerLoadedCells(queue);
+        }
+
+        private void offerLoadedCells(PriorityQueue<Long> queue) {
+            for (int i = 0; i < task.offsets.length; i++) {
+                offerIfOverloaded(queue,
+                        cell(task.resources[i], task.start + task.offsets[i]));
+            }
+        }
+    }
+
+    private Move bestMoveFor(int resource, int day) {
+        Move result = null;
+        for (TaskToLevel each : movableByResource.get(resource)) {
+            if (!each.loads(resource, day)) {
+                continue;
+            }
+            Move move = bestMoveFor(each);
+            if (move != null && move.isBetterThan(result)) {
+                result = move;
+            }
+        }
+        return result;
+    }
+
+    private Move bestMoveFor(TaskToLevel task) {
+        int lower = lowerBound(task);
+        int upper = upperBound(task);
+        if (lower > upper || (lower == upper && lower == task.start)) {
+            return null;
+        }
+        long gainedRemoving = unload(task);
+        Move result = null;
+        for (int start = lower; start <= upper; start++) {
+            if (start == task.start) {
+                continue;
+            }
+            long reduction = gainedRemoving - costOfLoading(task, start);
+            if (reduction > 0) {
+                Move move = new Move(task, start, reduction);
+                if (move.isBetterThan(result)) {
+                    result = move;
+                }
+            }
+        }
+        doLoad(task);
+        return result;
+    }
+
+    private int lowerBound(TaskToLevel task) {
+        int result = Math.max(task.minStart, -task.firstOffset);
+        for (Precedence each : task.incoming) {
+            result = Math.max(result, tasks.get(each.origin).start
+                    + each.minDistance);
+        }
+        return result;
+    }
+
+    private int upperBound(TaskToLevel task) {
+        int result = Math.min(task.maxStart, daysCount - 1 - task.lastOffset);
+        for (Precedence each : task.outgoing) {
+            result = Math.min(result, tasks.get(each.destination).start
+                    - each.minDistance);
+        }
+        return result;
+    }
+
+    /**
+     * @return the overload reduced by removing the load of the task
+     */
+    private long unload(TaskToLevel task) {
+        long result = 0;
+        for (int i = 0; i < task.offsets.length; i++) {
+            int cell = cell(task.resources[i], task.start + task.offsets[i]);
+            int before = overloadAt(cell);
+            load[cell] -= task.seconds[i];
+            result += before - overloadAt(cell);
+        }
+        return result;
+    }
+
+    /**
+     * @return the overload increased by adding the load of the task
+     */
+    private long doLoad(TaskToLevel task) {
+        long result = 0;
+        for (int i = 0; i < task.offsets.length; i++) {
+            int cell = cell(task.resources[i], task.start + task.offsets[i]);
+            int before = overloadAt(cell);
+            load[cell] += task.seconds[i];
+            result += overloadAt(cell) - before;
+        }
+        return result;
+    }
+
+    private long costOfLoading(TaskToLevel task, int start) {
+        long result = 0;
+        for (int i = 0; i < task.offsets.length; i++) {
+            int cell = cell(task.resources[i], start + task.offsets[i]);
+            result += Math.max(0, load[cell] + task.seconds[i] - capacity[cell])
+                    - overloadAt(cell);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.planner.entities;
+
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments.IResourceDayVisitor;
+import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortForResource;
+import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortFromAssignments;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Keeps the effort assigned to some resources in a matrix indexed by the
+ * position of the resource and the day. The rows are built at once from the
+ * {@link DayAssignment day assignments} counted by the wrapped
+ * {@link IAssignedEffortFromAssignments}, so the lookups are array reads. The
+ * days without assignments have no effort.<br />
+ *
+ * The row of a resource is built again when its
+ * {@link Resource#getLoadModifications()} changes, i.e. when its day
+ * assignments or the ones of an allocation on it are modified. The rows of
+ * the other resources are kept.<br />
+ *
+ * If the wrapped {@link IAssignedEffortForResource} can't provide its day
+ * assignments, it's asked on every lookup.
+ */
+public class ResourcesLoadMatrix implements IAssignedEffortForResource {
+
+    public static ResourcesLoadMatrix create(List<? extends Resource> resources,
+            IAssignedEffortForResource assignedEffort) {
+        return new ResourcesLoadMatrix(resources, assignedEffort);
+    }
+
+    private static final int[] NO_SECONDS = new int[0];
+
+    private final Resource[] resources;
+
+    private final Map<Resource, Integer> indexes = new HashMap<Resource, Integer>();
+
+    private final IAssignedEffortForResource assignedEffort;
+
+    private final IAssignedEffortFromAssignments fromAssignments;
+
+    /**
+     * The assigned seconds of each resource. The first column of the row
+     * <code>i</code> is the day <code>firstDays[i]</code>
+     */
+    private final int[][] seconds;
+
+    private final int[] firstDays;
+
+    private final long[] modificationsWhenBuilt;
+
+    private ResourcesLoadMatrix(List<? extends Resource> resources,
+            IAssignedEffortForResource assignedEffort) {
+        Validate.notNull(assignedEffort);
+        this.resources = resources.toArray(new Resource[0]);
+        for (int i = 0; i < this.resources.length; i++) {
+            indexes.put(this.resources[i], i);
+        }
+        this.assignedEffort = assignedEffort;
+        this.fromAssignments = assignedEffort instanceof IAssignedEffortFromAssignments
+                ? (IAssignedEffortFromAssignments) assignedEffort
+                : null;
+        this.seconds = new int[this.resources.length][];
+        this.firstDays = new int[this.resources.length];
+        this.modificationsWhenBuilt = new long[this.resources.length];
+        if (fromAssignments != null) {
+            buildRows(allRows());
+        }
+    }
+
+    private List<Integer> allRows() {
+        List<Integer> result = new ArrayList<Integer>();
+        for (int i = 0; i < resources.length; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the position of the resource in the matrix or <code>-1</code>
+     *         if it isn't included
+     */
+    public int indexOf(Resource resource) {
+        Integer result = indexes.get(resource);
+        return result != null ? result : -1;
+    }
+
+    @Override
+    public EffortDuration getAssignedDurationAt(Resource resource,
+            LocalDate day) {
+        int index = indexOf(resource);
+        if (index < 0) {
+            return assignedEffort.getAssignedDurationAt(resource, day);
+        }
+        return getAssignedDurationAt(index, day);
+    }
+
+    public EffortDuration getAssignedDurationAt(int resourceIndex,
+            LocalDate day) {
+        return EffortDuration.seconds(getAssignedSecondsAt(resourceIndex, day));
+    }
+
+    public int getAssignedSecondsAt(int resourceIndex, LocalDate day) {
+        if (fromAssignments == null) {
+            return assignedEffort.getAssignedDurationAt(
+                    resources[resourceIndex], day).getSeconds();
+        }
+        if (isOutdated(resourceIndex)) {
+            buildRows(Collections.singletonList(resourceIndex));
+        }
+        int[] row = seconds[resourceIndex];
+        int column = toEpochDay(day) - firstDays[resourceIndex];
+        if (column < 0 || column >= row.length) {
+            return 0;
+        }
+        return row[column];
+    }
+
+    private boolean isOutdated(int resourceIndex) {
+        return resources[resourceIndex].getLoadModifications() != modificationsWhenBuilt[resourceIndex];
+    }
+
+    /**
+     * The assignments of all the rows are put together in a
+     * {@link ColumnarDayAssignments}, using the position of the resource as
+     * its id, and summed by resource and day in one pass
+     */
+    private void buildRows(List<Integer> rows) {
+        ColumnarDayAssignments.Builder builder = ColumnarDayAssignments
+                .builder();
+        for (int i : rows) {
+            modificationsWhenBuilt[i] = resources[i].getLoadModifications();
+            seconds[i] = NO_SECONDS;
+            for (DayAssignment each : fromAssignments
+                    .getCountedAssignments(resources[i])) {
+                builder.addLoad(toEpochDay(each.getDay()), i, each
+                        .getDuration().getSeconds(), false);
+            }
+        }
+        final ColumnarDayAssignments assignments = builder.build();
+        if (assignments.isEmpty()) {
+            return;
+        }
+        allocateRows(assignments);
+        assignments.sumByResourceAndDay(assignments.getFirstEpochDay(),
+                assignments.getLastEpochDay() + 1, new IResourceDayVisitor() {
+
+                    @Override
+                    public void visit(int epochDay, int resourceIndex,
+                            long assigned) {
+                        int row = (int) assignments
+                                .getResourceId(resourceIndex);
+                        seconds[row][epochDay - firstDays[row]] = (int) assigned;
+                    }
+                });
+    }
+
+    private void allocateRows(ColumnarDayAssignments assignments) {
+        int resourcesCount = assignments.getResourcesCount();
+        int[] first = new int[resourcesCount];
+        int[] last = new int[resourcesCount];
+        boolean[] found = new boolean[resourcesCount];
+        for (int i = 0; i < assignments.size(); i++) {
+            int resourceIndex = assignments.getResourceIndex(i);
+            int day = assignments.getEpochDay(i);
+            if (!found[resourceIndex]) {
+                found[resourceIndex] = true;
+                first[resourceIndex] = day;
+            }
+            last[resourceIndex] = day;
+        }
+        for (int i = 0; i < resourcesCount; i++) {
+            int row = (int) assignments.getResourceId(i);
+            firstDays[row] = first[i];
+            seconds[row] = new int[last[i] - first[i] + 1];
+        }
+    }
+
+}
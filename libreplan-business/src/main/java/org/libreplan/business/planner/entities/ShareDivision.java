@@ -22,9 +22,9 @@
 package org.libreplan.business.planner.entities;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import org.apache.commons.lang.Validate;
@@ -35,70 +35,74 @@ public class ShareDivision {
         return new ShareDivision(shares);
     }
 
-    private static class ShareWrapper implements Comparable<ShareWrapper> {
-        private Share share;
-
-        private int originalPosition;
-
-        public ShareWrapper(Share share, int originalPosition) {
-            this.share = share;
-            this.originalPosition = originalPosition;
-
-        }
-
-        @Override
-        public int compareTo(ShareWrapper other) {
-            long thisHours = share.getHours();
-            long otherHours = other.share.getHours();
-            return Long.signum(thisHours - otherHours);
+    /**
+     * Primitive counterpart of {@link #plus(int)} followed by
+     * {@link #to(ShareDivision)}. It distributes the increase filling first the
+     * smallest shares, giving the remainder to the first shares in the
+     * original order.
+     *
+     * @param shares
+     *            the current value of each share. It's not modified
+     * @param increase
+     *            the amount to distribute
+     * @return the amount each share receives
+     */
+    public static int[] increments(int[] shares, int increase) {
+        Validate.isTrue(increase >= 0);
+        int[] result = new int[shares.length];
+        if (shares.length == 0 || increase == 0) {
+            return result;
         }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (obj instanceof ShareWrapper) {
-                ShareWrapper other = (ShareWrapper) obj;
-                return getHours() == other.getHours();
+        // sorting by value, ties broken by the original position
+        long[] sorted = new long[shares.length];
+        for (int i = 0; i < shares.length; i++) {
+            sorted[i] = ((long) shares[i] << 32) | i;
+        }
+        Arrays.sort(sorted);
+        long level = valueAt(sorted, 0);
+        int remaining = increase;
+        int end = 0;
+        int remainder = 0;
+        while (remaining > 0 && end < sorted.length) {
+            end = findNextBigger(sorted, end, level);
+            long toDistribute = end == sorted.length ? remaining : Math.min(
+                    end * (valueAt(sorted, end) - level), remaining);
+            level += toDistribute / end;
+            remainder = (int) (toDistribute % end);
+            remaining -= toDistribute;
+        }
+        for (int i = 0; i < end; i++) {
+            int position = positionAt(sorted, i);
+            result[position] = (int) (level - shares[position]);
+        }
+        if (remainder > 0) {
+            // so the first original elements receive the remainder
+            int[] positions = new int[end];
+            for (int i = 0; i < end; i++) {
+                positions[i] = positionAt(sorted, i);
             }
-            return false;
-        }
-
-        @Override
-        public int hashCode() {
-            return getHours();
-        }
-
-        public static List<ShareWrapper> wrap(List<Share> shares) {
-            List<ShareWrapper> result = new ArrayList<ShareWrapper>();
-            int i = 0;
-            for (Share share : shares) {
-                result.add(new ShareWrapper(share, i));
-                i++;
+            Arrays.sort(positions);
+            for (int i = 0; i < remainder; i++) {
+                result[positions[i]]++;
             }
-            return result;
-        }
-
-        public boolean haveSameHours(ShareWrapper other) {
-            return getHours() == other.getHours();
-        }
-
-        int getHours() {
-            return this.share.getHours();
         }
+        return result;
+    }
 
-        void add(int hours) {
-            this.share = share.plus(hours);
-        }
+    private static long valueAt(long[] sorted, int i) {
+        return sorted[i] >> 32;
+    }
 
-        public static void sortByOriginalPosition(List<ShareWrapper> bucket) {
-            Collections.sort(bucket, new Comparator<ShareWrapper>() {
+    private static int positionAt(long[] sorted, int i) {
+        return (int) sorted[i];
+    }
 
-                @Override
-                public int compare(ShareWrapper o1, ShareWrapper o2) {
-                    return o1.originalPosition - o2.originalPosition;
-                }
-            });
+    private static int findNextBigger(long[] sorted, int start, long level) {
+        int i = start;
+        while (i < sorted.length && valueAt(sorted, i) <= level) {
+            i++;
         }
-
+        return i;
     }
 
     private final List<Share> shares;
@@ -114,94 +118,20 @@ public class ShareDivision {
     }
 
     public ShareDivision plus(final int increase) {
-        int remainderIncrease = increase;
-        List<ShareWrapper> wrapped = ShareWrapper.wrap(shares);
-        Collections.sort(wrapped);
-        int i = 0;
-        while (i < wrapped.size()) {
-            if (remainderIncrease == 0) {
-                break;
-            }
-            int nextBigger = findNextBigger(wrapped, i);
-            FillingBucket bucket = fillingBuckectFor(wrapped, nextBigger,
-                    remainderIncrease);
-            bucket.doTheDistribution();
-            i = nextBigger;
-            remainderIncrease = remainderIncrease - bucket.getIncreaseDone();
-            assert remainderIncrease >= 0;
+        int[] increments = increments(toSeconds(), increase);
+        List<Share> newShares = new ArrayList<Share>(shares.size());
+        for (int i = 0; i < increments.length; i++) {
+            newShares.add(shares.get(i).plus(increments[i]));
         }
-        assert remainderIncrease == 0 || shares.isEmpty() : "all is assigned";
-        return ShareDivision.create(fromWrappers(wrapped));
+        return ShareDivision.create(newShares);
     }
 
-    private ArrayList<Share> fromWrappers(List<ShareWrapper> wrapped) {
-        ArrayList<Share> newShares = new ArrayList<Share>(shares.size());
-        for (int i = 0; i < wrapped.size(); i++) {
-            newShares.add(null);
-        }
-        for (ShareWrapper shareWrapper : wrapped) {
-            newShares.set(shareWrapper.originalPosition, shareWrapper.share);
-        }
-        return newShares;
-    }
-
-    private static class FillingBucket {
-        private List<ShareWrapper> bucket;
-
-        private int increment;
-
-        private FillingBucket(List<ShareWrapper> bucket, int increment) {
-            this.bucket = bucket;
-            this.increment = increment;
-        }
-
-        public void doTheDistribution() {
-            int incrementPerShare = increment / bucket.size();
-            int remainder = increment % bucket.size();
-            if (remainder > 0) {
-                ShareWrapper.sortByOriginalPosition(this.bucket);
-                // so the first original elements receive the remainder
-            }
-            for (ShareWrapper wrapper : bucket) {
-                wrapper.add(incrementPerShare + Math.min(1, remainder));
-                if (remainder > 0) {
-                    remainder--;
-                }
-            }
-        }
-
-        int getIncreaseDone() {
-            return increment;
-        }
-    }
-
-    private static int findNextBigger(List<ShareWrapper> wrappers, int start) {
-        ShareWrapper startWrapper = wrappers.get(start);
-        for (int i = start + 1; i < wrappers.size(); i++) {
-            ShareWrapper current = wrappers.get(i);
-            if (!startWrapper.haveSameHours(current)) {
-                return i;
-            }
+    private int[] toSeconds() {
+        int[] result = new int[shares.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = shares.get(i).getHours();
         }
-        return wrappers.size();
-    }
-
-    private static FillingBucket fillingBuckectFor(List<ShareWrapper> wrappers,
-            int end, int remaining) {
-        int hoursToDistribute = end == wrappers.size() ? remaining : (int) Math
-                .min(hoursNeededToBeEqual(wrappers, 0, end), remaining);
-        return new FillingBucket(wrappers.subList(0, end), hoursToDistribute);
-    }
-
-    private static long hoursNeededToBeEqual(List<ShareWrapper> wrappers,
-            int startInclusive, int endExclusive) {
-        ShareWrapper nextLevel = wrappers.get(endExclusive);
-        ShareWrapper currentLevel = wrappers.get(startInclusive);
-        long currentLevelHours = (long) currentLevel.getHours();
-        long difference = nextLevel.getHours() - currentLevelHours;
-        // difference must be long in order to avoid integer overflow
-        assert difference > 0;
-        return (endExclusive - startInclusive) * difference;
+        return result;
     }
 
     @Override
@@ -22,6 +22,7 @@ package org.libreplan.business.planner.entities;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang.Validate;
@@ -112,6 +113,17 @@ public class SpecificDayAssignmentsContainer extends BaseEntity implements
         dayAssignments.addAll(copyToThisContainer(assignments));
     }
 
+    @Override
+    public List<SpecificDayAssignment> replace(
+            Collection<? extends DayAssignment> toRemove,
+            Collection<? extends SpecificDayAssignment> toAdd) {
+        DayAssignmentsReplacement<SpecificDayAssignment> replacement = DayAssignmentsReplacement
+                .replace(dayAssignments, toRemove, toAdd);
+        dayAssignments.addAll(copyToThisContainer(replacement
+                .getNotReplacing()));
+        return replacement.getRemoved();
+    }
+
     private Set<SpecificDayAssignment> copyToThisContainer(
             Collection<? extends SpecificDayAssignment> assignments) {
         return SpecificDayAssignment.copy(this, assignments);
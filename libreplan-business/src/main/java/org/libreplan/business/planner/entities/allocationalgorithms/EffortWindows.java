@@ -0,0 +1,134 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.entities.allocationalgorithms;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.workingday.EpochDays;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+/**
+ * Knows which whole days an allocation can be assigned effort on. The
+ * calendar of the allocation is consulted in windows of {@link #BLOCK_SIZE}
+ * consecutive days, kept as a bitmask, so the spans without effort (holidays,
+ * days not worked by part-time workers...) can be skipped in one step.
+ *
+ * It's meant to be used during a single allocation, so the modifications done
+ * to the calendars meanwhile are not considered.
+ */
+class EffortWindows {
+
+    static final int BLOCK_SIZE = 64;
+
+    private static final int BLOCK_SHIFT = 6;
+
+    /**
+     * If no day with effort is found after searching this number of blocks
+     * the search is abandoned. It's about eleven years
+     */
+    private static final int MAX_BLOCKS_SEARCHED = 64;
+
+    static EffortWindows create(ResourcesPerDayModification allocation) {
+        return new EffortWindows(allocation);
+    }
+
+    private final ResourcesPerDayModification allocation;
+
+    private final Map<Integer, Long> daysWithEffortByBlock = new HashMap<Integer, Long>();
+
+    private EffortWindows(ResourcesPerDayModification allocation) {
+        this.allocation = allocation;
+    }
+
+    /**
+     * @return the first day, starting from the given one, on which the
+     *         allocation has some effort. If it can't be found the given day
+     *         is returned
+     */
+    LocalDate firstDayWithEffortFrom(LocalDate day) {
+        int epochDay = EpochDays.toEpochDay(day);
+        int block = epochDay >> BLOCK_SHIFT;
+        int offset = epochDay & (BLOCK_SIZE - 1);
+        long mask = getDaysWithEffort(block, day, epochDay) & (-1L << offset);
+        for (int i = 0; mask == 0 && i < MAX_BLOCKS_SEARCHED; i++) {
+            block++;
+            mask = getDaysWithEffort(block, day, epochDay);
+        }
+        if (mask == 0) {
+            return day;
+        }
+        int found = (block << BLOCK_SHIFT) + Long.numberOfTrailingZeros(mask);
+        return day.plusDays(found - epochDay);
+    }
+
+    /**
+     * @return the last day, up to the given one inclusive, on which the
+     *         allocation has some effort. If it can't be found the given day
+     *         is returned
+     */
+    LocalDate lastDayWithEffortUntil(LocalDate day) {
+        int epochDay = EpochDays.toEpochDay(day);
+        int block = epochDay >> BLOCK_SHIFT;
+        int offset = epochDay & (BLOCK_SIZE - 1);
+        long mask = getDaysWithEffort(block, day, epochDay)
+                & (-1L >>> (BLOCK_SIZE - 1 - offset));
+        for (int i = 0; mask == 0 && i < MAX_BLOCKS_SEARCHED; i++) {
+            block--;
+            mask = getDaysWithEffort(block, day, epochDay);
+        }
+        if (mask == 0) {
+            return day;
+        }
+        int found = (block << BLOCK_SHIFT) + BLOCK_SIZE - 1
+                - Long.numberOfLeadingZeros(mask);
+        return day.plusDays(found - epochDay);
+    }
+
+    /**
+     * @return a bitmask with the bit <code>i</code> set if the allocation has
+     *         effort on the day <code>i</code> of the block
+     */
+    private long getDaysWithEffort(int block, LocalDate reference,
+            int referenceEpochDay) {
+        Long result = daysWithEffortByBlock.get(block);
+        if (result == null) {
+            LocalDate blockStart = reference
+                    .plusDays((block << BLOCK_SHIFT) - referenceEpochDay);
+            result = calculateDaysWithEffort(blockStart);
+            daysWithEffortByBlock.put(block, result);
+        }
+        return result;
+    }
+
+    private long calculateDaysWithEffort(LocalDate blockStart) {
+        long result = 0;
+        LocalDate day = blockStart;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (!allocation.durationAtDay(PartialDay.wholeDay(day)).isZero()) {
+                result |= 1L << i;
+            }
+            day = day.plusDays(1);
+        }
+        return result;
+    }
+
+}
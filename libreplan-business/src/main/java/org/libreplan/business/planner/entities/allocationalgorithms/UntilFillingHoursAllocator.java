@@ -130,7 +130,10 @@ public abstract class UntilFillingHoursAllocator {
         IntraDayDate current = dateFromWhichToAllocate;
         IAssignmentsCreator assignmentsCreator = resourcesPerDayModification
                 .createAssignmentsCreator();
+        EffortWindows effortWindows = EffortWindows
+                .create(resourcesPerDayModification);
         while (effortRemaining.compareTo(zero()) > 0) {
+            current = skipDaysWithoutEffort(effortWindows, current);
             PartialDay day = calculateDay(current);
             Pair<EffortDuration, EffortDuration> pair = assignForDay(
                     resourcesPerDayModification, assignmentsCreator, day,
@@ -152,6 +155,30 @@ public abstract class UntilFillingHoursAllocator {
         return finish;
     }
 
+    /**
+     * The days on which the allocation has no effort would not receive any
+     * assignment, so if <code>current</code> is at the start of one of them,
+     * it's moved to the nearest one in the scheduling direction that has some
+     * effort.
+     */
+    private IntraDayDate skipDaysWithoutEffort(EffortWindows effortWindows,
+            IntraDayDate current) {
+        if (!current.isStartOfDay()) {
+            return current;
+        }
+        if (isForwardScheduling()) {
+            LocalDate day = current.getDate();
+            LocalDate withEffort = effortWindows.firstDayWithEffortFrom(day);
+            return withEffort.equals(day) ? current : IntraDayDate
+                    .startOfDay(withEffort);
+        } else {
+            LocalDate day = current.getDate().minusDays(1);
+            LocalDate withEffort = effortWindows.lastDayWithEffortUntil(day);
+            return withEffort.equals(day) ? current : IntraDayDate
+                    .startOfDay(withEffort.plusDays(1));
+        }
+    }
+
     private IntraDayDate adjustFinish(
             ResourcesPerDayModification resourcesPerDayModification,
             EffortDuration allocatedLastDay,
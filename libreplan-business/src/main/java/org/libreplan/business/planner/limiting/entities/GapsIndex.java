@@ -0,0 +1,267 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.limiting.entities;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+
+/**
+ * Keeps the gaps of a queue ordered by start time. Every node stores the
+ * latest end of the gaps below it, so the gaps ending after a time can be
+ * found without traversing all the gaps.<br />
+ *
+ * It's implemented as a treap, so adding and removing gaps is done in
+ * logarithmic time too.
+ */
+public class GapsIndex {
+
+    public static GapsIndex create() {
+        return new GapsIndex();
+    }
+
+    private static class Node {
+
+        private final GapOnQueue gapOnQueue;
+
+        private final long sequence;
+
+        private final int priority;
+
+        private Node left;
+
+        private Node right;
+
+        /**
+         * <code>null</code> if some gap of the subtree has no end
+         */
+        private DateAndHour latestEnd;
+
+        Node(GapOnQueue gapOnQueue, long sequence, int priority) {
+            this.gapOnQueue = gapOnQueue;
+            this.sequence = sequence;
+            this.priority = priority;
+            update();
+        }
+
+        Gap getGap() {
+            return gapOnQueue.getGap();
+        }
+
+        void update() {
+            latestEnd = getGap().getEndTime();
+            include(left);
+            include(right);
+        }
+
+        private void include(Node child) {
+            if (child == null) {
+                return;
+            }
+            if (latestEnd != null
+                    && (child.latestEnd == null || child.latestEnd
+                            .isAfter(latestEnd))) {
+                latestEnd = child.latestEnd;
+            }
+        }
+
+        int compareTo(Node other) {
+            int result = compare(getGap().getStartTime(), other.getGap()
+                    .getStartTime());
+            if (result != 0) {
+                return result;
+            }
+            return sequence < other.sequence ? -1
+                    : (sequence == other.sequence ? 0 : 1);
+        }
+
+        private static int compare(DateAndHour a, DateAndHour b) {
+            if (a == null || b == null) {
+                return a == b ? 0 : (a == null ? -1 : 1);
+            }
+            return a.compareTo(b);
+        }
+
+        boolean endsAfter(DateAndHour time) {
+            return GapsIndex.endsAfter(getGap().getEndTime(), time);
+        }
+
+        boolean someEndsAfter(DateAndHour time) {
+            return GapsIndex.endsAfter(latestEnd, time);
+        }
+
+    }
+
+    private static boolean endsAfter(DateAndHour end, DateAndHour time) {
+        return time == null || end == null || end.isAfter(time);
+    }
+
+    private Node root;
+
+    private long nextSequence = 0;
+
+    private final Random priorities = new Random(0);
+
+    private final Map<GapOnQueue, Node> nodes = new IdentityHashMap<GapOnQueue, Node>();
+
+    private GapsIndex() {
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public void add(GapOnQueue gapOnQueue) {
+        Validate.notNull(gapOnQueue);
+        Validate.isTrue(!nodes.containsKey(gapOnQueue));
+        Node node = new Node(gapOnQueue, nextSequence++, priorities.nextInt());
+        nodes.put(gapOnQueue, node);
+        root = insert(root, node);
+    }
+
+    public void addAll(List<GapOnQueue> gaps) {
+        for (GapOnQueue each : gaps) {
+            add(each);
+        }
+    }
+
+    private static Node insert(Node current, Node node) {
+        if (current == null) {
+            return node;
+        }
+        if (node.compareTo(current) < 0) {
+            current.left = insert(current.left, node);
+            if (current.left.priority > current.priority) {
+                return rotateRight(current);
+            }
+        } else {
+            current.right = insert(current.right, node);
+            if (current.right.priority > current.priority) {
+                return rotateLeft(current);
+            }
+        }
+        current.update();
+        return current;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        node.update();
+        newRoot.update();
+        return newRoot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        node.update();
+        newRoot.update();
+        return newRoot;
+    }
+
+    public void remove(GapOnQueue gapOnQueue) {
+        Node node = nodes.remove(gapOnQueue);
+        if (node != null) {
+            root = remove(root, node);
+        }
+    }
+
+    public void removeAll(List<GapOnQueue> gaps) {
+        for (GapOnQueue each : gaps) {
+            remove(each);
+        }
+    }
+
+    private static Node remove(Node current, Node node) {
+        if (current == node) {
+            return merge(current.left, current.right);
+        }
+        if (node.compareTo(current) < 0) {
+            current.left = remove(current.left, node);
+        } else {
+            current.right = remove(current.right, node);
+        }
+        current.update();
+        return current;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    public void clear() {
+        root = null;
+        nodes.clear();
+    }
+
+    /**
+     * @return all the gaps ordered by start time
+     */
+    public List<GapOnQueue> getGaps() {
+        return getGapsEndingAfter(null);
+    }
+
+    /**
+     * @param time
+     *            if <code>null</code> all the gaps are returned
+     * @return the gaps that end after <code>time</code> or have no end,
+     *         ordered by start time
+     */
+    public List<GapOnQueue> getGapsEndingAfter(DateAndHour time) {
+        List<GapOnQueue> result = new ArrayList<GapOnQueue>();
+        collectEndingAfter(root, time, result);
+        return result;
+    }
+
+    private static void collectEndingAfter(Node node, DateAndHour time,
+            List<GapOnQueue> result) {
+        if (node == null || !node.someEndsAfter(time)) {
+            return;
+        }
+        collectEndingAfter(node.left, time, result);
+        if (node.endsAfter(time)) {
+            result.add(node.gapOnQueue);
+        }
+        collectEndingAfter(node.right, time, result);
+    }
+
+}
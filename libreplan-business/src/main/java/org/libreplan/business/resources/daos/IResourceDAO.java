@@ -120,4 +120,11 @@ public interface IResourceDAO extends IIntegrationEntityDAO<Resource> {
      */
     List<HoursWorkedPerWorkerInAMonthDTO> getWorkingHoursPerWorker(Integer year, Integer month);
 
+    /**
+     * Builds a {@link ResourcesSearchIndex} of all the resources and their
+     * criterion satisfactions. Only the needed columns are retrieved, the
+     * entities aren't loaded.
+     */
+    ResourcesSearchIndex getSearchIndex();
+
 }
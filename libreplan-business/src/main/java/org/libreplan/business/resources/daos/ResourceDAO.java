@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.hibernate.Query;
+import org.joda.time.LocalDate;
 import org.hibernate.criterion.Restrictions;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.labels.entities.Label;
@@ -37,6 +38,7 @@ import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.LimitingResourceQueue;
 import org.libreplan.business.resources.entities.Machine;
 import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.ResourceType;
 import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.workingday.EffortDuration;
@@ -248,6 +250,40 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
         return result;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ResourcesSearchIndex getSearchIndex() {
+        ResourcesSearchIndex.Builder builder = ResourcesSearchIndex.builder();
+        for (Object[] each : rows("select w.id, w.resourceType, w.firstName, "
+                + "w.surname, w.nif from Worker w")) {
+            builder.addWorker((Long) each[0], (ResourceType) each[1],
+                    (String) each[2], (String) each[3], (String) each[4]);
+        }
+        for (Object[] each : rows("select m.id, m.resourceType, m.name, "
+                + "m.code from Machine m")) {
+            builder.addMachine((Long) each[0], (ResourceType) each[1],
+                    (String) each[2], (String) each[3]);
+        }
+        for (Object[] each : rows("select c.id, p.id from Criterion c "
+                + "left join c.parent p")) {
+            builder.addCriterion((Long) each[0], (Long) each[1]);
+        }
+        for (Object[] each : rows("select s.resource.id, s.criterion.id, "
+                + "s.startDate, s.finishDate, s.isDeleted "
+                + "from CriterionSatisfaction s")) {
+            if (!Boolean.TRUE.equals(each[4])) {
+                builder.addSatisfaction((Long) each[0], (Long) each[1],
+                        (LocalDate) each[2], (LocalDate) each[3]);
+            }
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String query) {
+        return getSession().createQuery(query).list();
+    }
+
     private List<HoursWorkedPerWorkerInAMonthDTO> toDTO(List<Object> rows) {
         List<HoursWorkedPerWorkerInAMonthDTO> result = new ArrayList<HoursWorkedPerWorkerInAMonthDTO>();
 
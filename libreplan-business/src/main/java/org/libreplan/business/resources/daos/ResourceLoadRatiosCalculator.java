@@ -21,17 +21,17 @@ package org.libreplan.business.resources.daos;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
-import org.libreplan.business.planner.daos.IDayAssignmentDAO;
-import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.EpochDays;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -55,7 +55,7 @@ public class ResourceLoadRatiosCalculator implements
         IResourceLoadRatiosCalculator {
 
     @Autowired
-    private IDayAssignmentDAO dayAssigmentDAO;
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
 
     @Autowired
     private IResourceDAO resourceDAO;
@@ -162,19 +162,20 @@ public class ResourceLoadRatiosCalculator implements
                         HashMap<LocalDate, EffortDuration> result =
                                 new HashMap<LocalDate, EffortDuration>();
 
-                        List<DayAssignment> l = dayAssigmentDAO.getAllFor(
-                                scenario, startDate, endDate,
-                                resource);
-
-                        EffortDuration newValue = EffortDuration.zero();
-                        for (DayAssignment each: l) {
-                            if (result.containsKey(each.getDay())) {
-                                newValue = result.get(each.getDay()).
-                                        plus(each.getDuration());
-                            } else {
-                                newValue = each.getDuration();
+                        ColumnarDayAssignments assignments = resourceDailyLoadDAO
+                                .getColumnarFor(scenario, startDate, endDate,
+                                        resource);
+                        if (assignments.isEmpty()) {
+                            return result;
+                        }
+                        int start = assignments.getFirstEpochDay();
+                        long[] byDay = assignments.sumByDay(start,
+                                assignments.getLastEpochDay() + 1);
+                        for (int i = 0; i < byDay.length; i++) {
+                            if (byDay[i] > 0) {
+                                result.put(EpochDays.fromEpochDay(start + i),
+                                        EffortDuration.seconds((int) byDay[i]));
                             }
-                            result.put(each.getDay(), newValue);
                         }
                         return result;
                     }
@@ -0,0 +1,470 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.resources.daos;
+
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.resources.entities.Machine;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.ResourceType;
+import org.libreplan.business.resources.entities.Worker;
+
+/**
+ * Read only index of the resources and their criterion satisfactions, used by
+ * {@link ResourcesSearcher} to find the resources matching a query without
+ * querying the database.<br />
+ *
+ * Each resource has a position and each criterion has a bitmap of the
+ * positions of the resources that have some satisfaction of it, so the
+ * resources satisfying some criteria are found by combining bitmaps. As a
+ * resource must satisfy all the criteria at the same time, when several
+ * criteria are queried the satisfaction intervals of the resources having all
+ * of them are intersected afterwards.
+ *
+ * @see IResourceDAO#getSearchIndex()
+ */
+public class ResourcesSearchIndex {
+
+    private static final int OPEN_END = Integer.MAX_VALUE;
+
+    private static final Comparator<int[]> BY_FIRST_VALUE = new Comparator<int[]>() {
+
+        @Override
+        public int compare(int[] o1, int[] o2) {
+            return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+        }
+    };
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final List<Long> ids = new ArrayList<Long>();
+
+        private final Map<Long, Integer> positions = new HashMap<Long, Integer>();
+
+        private final BitSet workers = new BitSet();
+
+        private final Map<ResourceType, BitSet> byType = new EnumMap<ResourceType, BitSet>(
+                ResourceType.class);
+
+        private final List<String[]> caseInsensitiveNames = new ArrayList<String[]>();
+
+        private final List<String> caseSensitiveNames = new ArrayList<String>();
+
+        private final Map<Long, Set<Long>> children = new HashMap<Long, Set<Long>>();
+
+        private final Map<Long, List<int[]>> satisfactions = new HashMap<Long, List<int[]>>();
+
+        private Builder() {
+        }
+
+        /**
+         * The names are matched as the database does: the first name and the
+         * surname ignoring the case and the NIF respecting it
+         */
+        public Builder addWorker(long id, ResourceType type,
+                String firstName, String surname, String nif) {
+            int position = addResource(id, type);
+            workers.set(position);
+            caseInsensitiveNames.add(lowerCase(firstName, surname));
+            caseSensitiveNames.add(nif);
+            return this;
+        }
+
+        public Builder addMachine(long id, ResourceType type, String name,
+                String code) {
+            addResource(id, type);
+            caseInsensitiveNames.add(lowerCase(name, code));
+            caseSensitiveNames.add(null);
+            return this;
+        }
+
+        private int addResource(long id, ResourceType type) {
+            Validate.isTrue(!positions.containsKey(id),
+                    "the resource has already been added: " + id);
+            int position = ids.size();
+            ids.add(id);
+            positions.put(id, position);
+            if (type != null) {
+                if (!byType.containsKey(type)) {
+                    byType.put(type, new BitSet());
+                }
+                byType.get(type).set(position);
+            }
+            return position;
+        }
+
+        private static String[] lowerCase(String... names) {
+            String[] result = new String[names.length];
+            for (int i = 0; i < names.length; i++) {
+                result[i] = names[i] != null ? names[i].toLowerCase() : null;
+            }
+            return result;
+        }
+
+        public Builder addCriterion(long id, Long parentId) {
+            if (parentId != null) {
+                childrenOf(parentId).add(id);
+            }
+            childrenOf(id);
+            return this;
+        }
+
+        private Set<Long> childrenOf(long criterionId) {
+            Set<Long> result = children.get(criterionId);
+            if (result == null) {
+                result = new LinkedHashSet<Long>();
+                children.put(criterionId, result);
+            }
+            return result;
+        }
+
+        /**
+         * Adds a satisfaction of a resource already added. The satisfactions
+         * of unknown resources are ignored.
+         *
+         * @param finish
+         *            the exclusive end of the satisfaction. It can be
+         *            <code>null</code>
+         */
+        public Builder addSatisfaction(long resourceId, long criterionId,
+                LocalDate start, LocalDate finish) {
+            Validate.notNull(start);
+            Integer position = positions.get(resourceId);
+            if (position == null) {
+                return this;
+            }
+            int startDay = toEpochDay(start);
+            int endDay = finish != null ? toEpochDay(finish) : OPEN_END;
+            if (startDay >= endDay) {
+                return this;
+            }
+            List<int[]> list = satisfactions.get(criterionId);
+            if (list == null) {
+                list = new ArrayList<int[]>();
+                satisfactions.put(criterionId, list);
+            }
+            list.add(new int[] { position, startDay, endDay });
+            return this;
+        }
+
+        public ResourcesSearchIndex build() {
+            return new ResourcesSearchIndex(this);
+        }
+    }
+
+    /**
+     * The satisfactions of a criterion, sorted by resource position
+     */
+    private static class Satisfactions {
+
+        private final BitSet resources = new BitSet();
+
+        private final int[] positions;
+
+        private final int[] starts;
+
+        private final int[] ends;
+
+        private Satisfactions(List<int[]> rows) {
+            int[][] sorted = rows.toArray(new int[rows.size()][]);
+            Arrays.sort(sorted, BY_FIRST_VALUE);
+            positions = new int[sorted.length];
+            starts = new int[sorted.length];
+            ends = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                positions[i] = sorted[i][0];
+                starts[i] = sorted[i][1];
+                ends[i] = sorted[i][2];
+                resources.set(positions[i]);
+            }
+        }
+
+        private void addIntervalsOf(int position, List<int[]> result) {
+            int i = firstRowOf(position);
+            for (; i < positions.length && positions[i] == position; i++) {
+                result.add(new int[] { starts[i], ends[i] });
+            }
+        }
+
+        private int firstRowOf(int position) {
+            int low = 0;
+            int high = positions.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions[middle] < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private final long[] ids;
+
+    private final BitSet workers;
+
+    private final BitSet machines;
+
+    private final Map<ResourceType, BitSet> byType;
+
+    private final String[][] caseInsensitiveNames;
+
+    private final String[] caseSensitiveNames;
+
+    private final Map<Long, Set<Long>> children;
+
+    private final Map<Long, Satisfactions> satisfactions = new HashMap<Long, Satisfactions>();
+
+    private ResourcesSearchIndex(Builder builder) {
+        this.ids = new long[builder.ids.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = builder.ids.get(i);
+        }
+        this.workers = (BitSet) builder.workers.clone();
+        this.machines = new BitSet();
+        this.machines.set(0, ids.length);
+        this.machines.andNot(workers);
+        this.byType = new EnumMap<ResourceType, BitSet>(builder.byType);
+        this.caseInsensitiveNames = builder.caseInsensitiveNames
+                .toArray(new String[ids.length][]);
+        this.caseSensitiveNames = builder.caseSensitiveNames
+                .toArray(new String[ids.length]);
+        this.children = new HashMap<Long, Set<Long>>(builder.children);
+        for (Map.Entry<Long, List<int[]>> each : builder.satisfactions
+                .entrySet()) {
+            satisfactions.put(each.getKey(),
+                    new Satisfactions(each.getValue()));
+        }
+    }
+
+    public int getResourcesCount() {
+        return ids.length;
+    }
+
+    /**
+     * Finds the resources of the given class and type whose names contain
+     * <code>name</code> and that satisfy all the criteria, or any of their
+     * descendants, at the same time at some point. Any of the restrictions can
+     * be <code>null</code>. The name is matched as a LIKE of the database, so
+     * it can contain <code>%</code> and <code>_</code> wildcards.
+     *
+     * @return the ids of the resources found
+     */
+    public List<Long> search(Class<? extends Resource> klass,
+            ResourceType type, String name, Collection<Long> criteria) {
+        BitSet candidates = new BitSet();
+        candidates.set(0, ids.length);
+        if (klass != null) {
+            restrictToClass(candidates, klass);
+        }
+        if (type != null) {
+            BitSet ofType = byType.get(type);
+            if (ofType == null) {
+                return Collections.emptyList();
+            }
+            candidates.and(ofType);
+        }
+        List<List<Satisfactions>> required = new ArrayList<List<Satisfactions>>();
+        if (criteria != null) {
+            for (Long each : criteria) {
+                List<Satisfactions> satisfying = satisfactionsIncluding(each);
+                candidates.and(resourcesWithSome(satisfying));
+                required.add(satisfying);
+            }
+        }
+        Pattern caseSensitive = null;
+        Pattern caseInsensitive = null;
+        if (name != null) {
+            String nameWithWildcards = "%" + name + "%";
+            caseSensitive = fromLike(nameWithWildcards);
+            caseInsensitive = fromLike(nameWithWildcards.toLowerCase());
+        }
+        List<Long> result = new ArrayList<Long>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates
+                .nextSetBit(i + 1)) {
+            if ((name == null || matchesName(i, caseSensitive,
+                    caseInsensitive))
+                    && satisfiesAllAtSomePoint(i, required)) {
+                result.add(ids[i]);
+            }
+        }
+        return result;
+    }
+
+    private void restrictToClass(BitSet candidates,
+            Class<? extends Resource> klass) {
+        if (Worker.class.isAssignableFrom(klass)) {
+            candidates.and(workers);
+        } else if (Machine.class.isAssignableFrom(klass)) {
+            candidates.and(machines);
+        }
+    }
+
+    private List<Satisfactions> satisfactionsIncluding(Long criterion) {
+        List<Satisfactions> result = new ArrayList<Satisfactions>();
+        for (Long each : withAllDescendants(criterion)) {
+            Satisfactions satisfactionsOfCriterion = satisfactions.get(each);
+            if (satisfactionsOfCriterion != null) {
+                result.add(satisfactionsOfCriterion);
+            }
+        }
+        return result;
+    }
+
+    private Set<Long> withAllDescendants(Long criterion) {
+        Set<Long> result = new HashSet<Long>();
+        List<Long> pending = new ArrayList<Long>();
+        pending.add(criterion);
+        while (!pending.isEmpty()) {
+            Long each = pending.remove(pending.size() - 1);
+            if (result.add(each) && children.containsKey(each)) {
+                pending.addAll(children.get(each));
+            }
+        }
+        return result;
+    }
+
+    private static BitSet resourcesWithSome(List<Satisfactions> satisfying) {
+        BitSet result = new BitSet();
+        for (Satisfactions each : satisfying) {
+            result.or(each.resources);
+        }
+        return result;
+    }
+
+    /**
+     * Translates the pattern of a LIKE, with the backslash as its default
+     * escape character, to a regular expression
+     */
+    private static Pattern fromLike(String like) {
+        StringBuilder result = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '\\' && i + 1 < like.length()) {
+                literal.append(like.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                appendQuoted(result, literal);
+                result.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        appendQuoted(result, literal);
+        return Pattern.compile(result.toString(), Pattern.DOTALL);
+    }
+
+    private static void appendQuoted(StringBuilder result,
+            StringBuilder literal) {
+        if (literal.length() > 0) {
+            result.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    private boolean matchesName(int position, Pattern caseSensitive,
+            Pattern caseInsensitive) {
+        for (String each : caseInsensitiveNames[position]) {
+            if (each != null && caseInsensitive.matcher(each).matches()) {
+                return true;
+            }
+        }
+        String nif = caseSensitiveNames[position];
+        return nif != null && caseSensitive.matcher(nif).matches();
+    }
+
+    private static boolean satisfiesAllAtSomePoint(int position,
+            List<List<Satisfactions>> required) {
+        if (required.size() <= 1) {
+            // the bitmaps only contain non empty satisfactions
+            return true;
+        }
+        List<int[]> valid = null;
+        for (List<Satisfactions> each : required) {
+            List<int[]> intervals = new ArrayList<int[]>();
+            for (Satisfactions satisfactions : each) {
+                satisfactions.addIntervalsOf(position, intervals);
+            }
+            List<int[]> merged = merge(intervals);
+            valid = valid == null ? merged : intersect(valid, merged);
+            if (valid.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<int[]> merge(List<int[]> intervals) {
+        Collections.sort(intervals, BY_FIRST_VALUE);
+        List<int[]> result = new ArrayList<int[]>();
+        for (int[] each : intervals) {
+            int[] last = result.isEmpty() ? null : result
+                    .get(result.size() - 1);
+            if (last != null && each[0] <= last[1]) {
+                last[1] = Math.max(last[1], each[1]);
+            } else {
+                result.add(new int[] { each[0], each[1] });
+            }
+        }
+        return result;
+    }
+
+    private static List<int[]> intersect(List<int[]> a, List<int[]> b) {
+        List<int[]> result = new ArrayList<int[]>();
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int start = Math.max(a.get(i)[0], b.get(j)[0]);
+            int end = Math.min(a.get(i)[1], b.get(j)[1]);
+            if (start < end) {
+                result.add(new int[] { start, end });
+            }
+            if (a.get(i)[1] < b.get(j)[1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+}
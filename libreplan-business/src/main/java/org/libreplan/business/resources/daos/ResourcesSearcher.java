@@ -43,6 +43,7 @@ import org.hibernate.SessionFactory;
 import org.hibernate.classic.Session;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
 import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.Machine;
@@ -70,6 +71,15 @@ public class ResourcesSearcher implements IResourcesSearcher {
     @Autowired
     private SessionFactory sessionFactory;
 
+    @Autowired
+    private PredefinedDatabaseSnapshots databaseSnapshots;
+
+    /**
+     * Maximum number of ids in each query retrieving the resources found in
+     * the {@link ResourcesSearchIndex}
+     */
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     public IResourcesQuery<Machine> searchMachines() {
         return new Query<Machine>(Machine.class);
     }
@@ -115,6 +125,15 @@ public class ResourcesSearcher implements IResourcesSearcher {
 
         @Override
         public List<T> execute() {
+            // the index is null while it's recalculated after a modification
+            // of the resources or their satisfactions. A null type matches no
+            // resource in the database query
+            ResourcesSearchIndex index = databaseSnapshots
+                    .snapshotResourcesSearchIndex();
+            if (index != null && type != null && !someCriterionIsNew()) {
+                return findByIds(index.search(klass, type, name,
+                        criteriaIds()));
+            }
             return adHocTransactionService
                     .runOnReadOnlyTransaction(new IOnTransaction<List<T>>() {
                         @Override
@@ -129,6 +148,53 @@ public class ResourcesSearcher implements IResourcesSearcher {
                     });
         }
 
+        private boolean someCriterionIsNew() {
+            if (criteriaSpecified()) {
+                for (Criterion each : criteria) {
+                    if (each.isNewObject()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private List<Long> criteriaIds() {
+            if (!criteriaSpecified()) {
+                return null;
+            }
+            List<Long> result = new ArrayList<Long>();
+            for (Criterion each : criteria) {
+                result.add(each.getId());
+            }
+            return result;
+        }
+
+        private List<T> findByIds(final List<Long> ids) {
+            if (ids.isEmpty()) {
+                return new ArrayList<T>();
+            }
+            return adHocTransactionService
+                    .runOnReadOnlyTransaction(new IOnTransaction<List<T>>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public List<T> execute() {
+                            Session session = sessionFactory
+                                    .getCurrentSession();
+                            List<T> result = new ArrayList<T>(ids.size());
+                            for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+                                result.addAll(session
+                                        .createCriteria(klass)
+                                        .add(in("id", ids.subList(i,
+                                                Math.min(ids.size(), i
+                                                        + MAX_IDS_PER_QUERY))))
+                                        .list());
+                            }
+                            return result;
+                        }
+                    });
+        }
+
         private Criteria buildCriteria(Session session) {
             Criteria result = session.createCriteria(klass);
             result.add(eq("resourceType", type));
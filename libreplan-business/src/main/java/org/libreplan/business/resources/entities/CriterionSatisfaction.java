@@ -138,7 +138,7 @@ public class CriterionSatisfaction extends IntegrationEntity {
         if (finishDate != null) {
             this.finishDate = finishDate;
         }
-
+        satisfactionModified();
     }
 
     /**
@@ -210,6 +210,13 @@ public class CriterionSatisfaction extends IntegrationEntity {
 
     public void setCriterion(Criterion criterion) {
         this.criterion = criterion;
+        satisfactionModified();
+    }
+
+    private void satisfactionModified() {
+        if (resource != null) {
+            resource.criterionSatisfactionsModified();
+        }
     }
 
 
@@ -219,7 +226,9 @@ public class CriterionSatisfaction extends IntegrationEntity {
     }
 
     public void setResource(Resource resource) {
+        satisfactionModified();
         this.resource = resource;
+        satisfactionModified();
     }
 
     public boolean isCurrent() {
@@ -242,10 +251,12 @@ public class CriterionSatisfaction extends IntegrationEntity {
         Validate.isTrue(finishDate == null || isNewObject()
                 || getEndDate().equals(finish) || getEndDate().isBefore(finish));
         this.finishDate = finish;
+        satisfactionModified();
     }
 
     public void noFinish() {
         this.finishDate = null;
+        satisfactionModified();
     }
 
     public boolean isFinished() {
@@ -257,6 +268,7 @@ public class CriterionSatisfaction extends IntegrationEntity {
             finish(date);
         }
         this.finishDate = date;
+        satisfactionModified();
     }
 
     public void setStartDate(LocalDate date) {
@@ -266,10 +278,12 @@ public class CriterionSatisfaction extends IntegrationEntity {
                     || getStartDate().isAfter(date));
         }
         startDate = date;
+        satisfactionModified();
     }
 
     public void setIsDeleted(boolean isDeleted) {
         this.isDeleted = isDeleted;
+        satisfactionModified();
     }
 
     public boolean isIsDeleted() {
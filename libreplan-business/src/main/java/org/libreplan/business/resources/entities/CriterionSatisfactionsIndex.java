@@ -0,0 +1,189 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.resources.entities;
+
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Interval index of the {@link CriterionSatisfaction satisfactions} of a
+ * {@link Resource}. The satisfactions are grouped by criterion and each group
+ * is kept sorted by start date in an implicit balanced tree augmented with the
+ * maximum end date of each subtree, so the satisfactions that may be enforced
+ * in an interval are found in logarithmic time.<br />
+ *
+ * The dates are compared inclusively, so it returns a superset of the
+ * satisfactions that overlap with or include an {@link Interval}. The caller
+ * must check them with the actual {@link Interval} semantics.
+ *
+ * @see Resource#query()
+ */
+class CriterionSatisfactionsIndex {
+
+    static CriterionSatisfactionsIndex create(
+            Collection<? extends CriterionSatisfaction> satisfactions) {
+        return new CriterionSatisfactionsIndex(satisfactions);
+    }
+
+    static int startOf(Interval interval) {
+        return toEpochDay(interval.getStart());
+    }
+
+    static int endOf(Interval interval) {
+        return interval.getEnd() == null ? Integer.MAX_VALUE
+                : toEpochDay(interval.getEnd());
+    }
+
+    private final Map<Criterion, SatisfactionsTree> byCriterion = new HashMap<Criterion, SatisfactionsTree>();
+
+    private CriterionSatisfactionsIndex(
+            Collection<? extends CriterionSatisfaction> satisfactions) {
+        Map<Criterion, List<CriterionSatisfaction>> grouped = new HashMap<Criterion, List<CriterionSatisfaction>>();
+        for (CriterionSatisfaction each : satisfactions) {
+            List<CriterionSatisfaction> group = grouped.get(each
+                    .getCriterion());
+            if (group == null) {
+                group = new ArrayList<CriterionSatisfaction>();
+                grouped.put(each.getCriterion(), group);
+            }
+            group.add(each);
+        }
+        for (Entry<Criterion, List<CriterionSatisfaction>> each : grouped
+                .entrySet()) {
+            byCriterion.put(each.getKey(),
+                    new SatisfactionsTree(each.getValue()));
+        }
+    }
+
+    Set<Criterion> getCriterions() {
+        return Collections.unmodifiableSet(byCriterion.keySet());
+    }
+
+    /**
+     * Adds to <code>result</code> the satisfactions of
+     * <code>criterion</code> starting at or before <code>to</code> and ending
+     * at or after <code>from</code>. Both are epoch days.
+     */
+    void collect(Criterion criterion, int from, int to,
+            List<CriterionSatisfaction> result) {
+        SatisfactionsTree tree = byCriterion.get(criterion);
+        if (tree != null) {
+            tree.collect(0, tree.size(), from, to, result);
+        }
+    }
+
+    private static final Comparator<CriterionSatisfaction> BY_START_NULLS_FIRST = new Comparator<CriterionSatisfaction>() {
+
+        @Override
+        public int compare(CriterionSatisfaction o1, CriterionSatisfaction o2) {
+            LocalDate start1 = o1.getStartDate();
+            LocalDate start2 = o2.getStartDate();
+            if (start1 == null) {
+                return start2 == null ? 0 : -1;
+            }
+            if (start2 == null) {
+                return 1;
+            }
+            return start1.compareTo(start2);
+        }
+    };
+
+    private static class SatisfactionsTree {
+
+        private final CriterionSatisfaction[] satisfactions;
+
+        private final int[] starts;
+
+        private final int[] ends;
+
+        /**
+         * The maximum end of the subtree rooted at each position. The root of
+         * the range <code>[low, high)</code> is its middle position.
+         */
+        private final int[] maxEnds;
+
+        SatisfactionsTree(List<CriterionSatisfaction> group) {
+            Collections.sort(group, BY_START_NULLS_FIRST);
+            int size = group.size();
+            satisfactions = group.toArray(new CriterionSatisfaction[size]);
+            starts = new int[size];
+            ends = new int[size];
+            maxEnds = new int[size];
+            for (int i = 0; i < size; i++) {
+                starts[i] = startOf(satisfactions[i].getStartDate());
+                ends[i] = endOf(satisfactions[i].getEndDate());
+            }
+            calculateMaxEnds(0, size);
+        }
+
+        private static int startOf(LocalDate start) {
+            return start == null ? Integer.MIN_VALUE : toEpochDay(start);
+        }
+
+        private static int endOf(LocalDate end) {
+            return end == null ? Integer.MAX_VALUE : toEpochDay(end);
+        }
+
+        int size() {
+            return satisfactions.length;
+        }
+
+        private int calculateMaxEnds(int low, int high) {
+            if (low >= high) {
+                return Integer.MIN_VALUE;
+            }
+            int middle = (low + high) >>> 1;
+            maxEnds[middle] = Math.max(ends[middle], Math.max(
+                    calculateMaxEnds(low, middle),
+                    calculateMaxEnds(middle + 1, high)));
+            return maxEnds[middle];
+        }
+
+        void collect(int low, int high, int from, int to,
+                List<CriterionSatisfaction> result) {
+            if (low >= high) {
+                return;
+            }
+            int middle = (low + high) >>> 1;
+            if (maxEnds[middle] < from) {
+                return;
+            }
+            collect(low, middle, from, to, result);
+            if (starts[middle] > to) {
+                return;
+            }
+            if (ends[middle] >= from) {
+                result.add(satisfactions[middle]);
+            }
+            collect(middle + 1, high, from, to, result);
+        }
+    }
+
+}
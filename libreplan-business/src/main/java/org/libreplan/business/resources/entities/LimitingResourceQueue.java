@@ -28,7 +28,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -40,6 +43,7 @@ import org.libreplan.business.planner.limiting.entities.DateAndHour;
 import org.libreplan.business.planner.limiting.entities.Gap;
 import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
 import org.libreplan.business.planner.limiting.entities.GapInterval;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
 import org.libreplan.business.planner.limiting.entities.InsertionRequirements;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
 /**
@@ -54,7 +58,16 @@ public class LimitingResourceQueue extends BaseEntity {
     private SortedSet<LimitingResourceQueueElement> limitingResourceQueueElements =
         new TreeSet<LimitingResourceQueueElement>(new LimitingResourceQueueElementComparator());
 
-    private List<GapOnQueue> cachedGaps;
+    /**
+     * <code>null</code> if the gaps must be calculated again from scratch
+     */
+    private GapsIndex gapsIndex;
+
+    /**
+     * The gaps that follow each element. The gaps before the first element
+     * are stored under the <code>null</code> key
+     */
+    private Map<LimitingResourceQueueElement, List<GapOnQueue>> gapsAfter;
 
     public static Collection<LimitingResourceQueue> queuesOf(
             Collection<LimitingResourceQueueElement> queueElements) {
@@ -83,47 +96,127 @@ public class LimitingResourceQueue extends BaseEntity {
 
     public void addLimitingResourceQueueElement(LimitingResourceQueueElement element) {
         element.setLimitingResourceQueue(this);
-        limitingResourceQueueElements.add(element);
-        invalidCachedGaps();
+        boolean added = limitingResourceQueueElements.add(element);
+        if (added && gapsIndex != null) {
+            LimitingResourceQueueElement previous = previousTo(element);
+            removeGapsAfter(previous);
+            addGapsBetween(previous, element);
+            addGapsBetween(element, nextTo(element));
+        }
     }
 
     public void removeLimitingResourceQueueElement(LimitingResourceQueueElement element) {
-        limitingResourceQueueElements.remove(element);
+        if (gapsIndex != null && isStored(element)) {
+            LimitingResourceQueueElement previous = previousTo(element);
+            LimitingResourceQueueElement next = nextTo(element);
+            limitingResourceQueueElements.remove(element);
+            removeGapsAfter(previous);
+            removeGapsAfter(element);
+            addGapsBetween(previous, next);
+        } else {
+            limitingResourceQueueElements.remove(element);
+            invalidCachedGaps();
+        }
         element.detach();
-        invalidCachedGaps();
+    }
+
+    private boolean isStored(LimitingResourceQueueElement element) {
+        SortedSet<LimitingResourceQueueElement> since = limitingResourceQueueElements
+                .tailSet(element);
+        return !since.isEmpty() && since.first() == element;
+    }
+
+    private LimitingResourceQueueElement previousTo(
+            LimitingResourceQueueElement element) {
+        SortedSet<LimitingResourceQueueElement> before = limitingResourceQueueElements
+                .headSet(element);
+        return before.isEmpty() ? null : before.last();
+    }
+
+    private LimitingResourceQueueElement nextTo(
+            LimitingResourceQueueElement element) {
+        Iterator<LimitingResourceQueueElement> iterator = limitingResourceQueueElements
+                .tailSet(element).iterator();
+        iterator.next();
+        return iterator.hasNext() ? iterator.next() : null;
     }
 
     private void invalidCachedGaps() {
-        cachedGaps = null;
+        gapsIndex = null;
+        gapsAfter = null;
     }
 
+    /**
+     * @return the gaps of the queue ordered by start time
+     */
     public List<GapOnQueue> getGaps() {
-        if (cachedGaps == null) {
-            cachedGaps = calculateGaps();
-        }
-        return cachedGaps;
+        return getGapsIndex().getGaps();
     }
 
-    private List<GapOnQueue> calculateGaps() {
-        List<Gap> result = new ArrayList<Gap>();
-        DateAndHour previousEnd = null;
-        ResourceCalendar calendar = resource.getCalendar();
-        List<CalendarAvailability> activationPeriods = calendar.getCalendarAvailabilities();
+    private GapsIndex getGapsIndex() {
+        if (gapsIndex == null) {
+            calculateGaps();
+        }
+        return gapsIndex;
+    }
 
+    private void calculateGaps() {
+        gapsIndex = GapsIndex.create();
+        gapsAfter = new IdentityHashMap<LimitingResourceQueueElement, List<GapOnQueue>>();
+        LimitingResourceQueueElement previous = null;
         for (LimitingResourceQueueElement each : limitingResourceQueueElements) {
-            DateAndHour startTime = each.getStartTime();
-            if (previousEnd == null || startTime.isAfter(previousEnd)) {
-                List<GapInterval> gapIntervals = GapInterval.
-                        create(previousEnd, startTime).
-                        delimitByActivationPeriods(activationPeriods);
-                if (!gapIntervals.isEmpty()) {
-                    result.addAll(GapInterval.gapsOn(gapIntervals, resource));
-                }
-            }
-            previousEnd = each.getEndTime();
+            addGapsBetween(previous, each);
+            previous = each;
+        }
+        addGapsBetween(previous, null);
+    }
+
+    private void addGapsBetween(LimitingResourceQueueElement previous,
+            LimitingResourceQueueElement next) {
+        List<GapOnQueue> gaps = GapOnQueue.onQueue(this,
+                calculateGapsBetween(previous, next));
+        gapsAfter.put(previous, gaps);
+        gapsIndex.addAll(gaps);
+    }
+
+    private void removeGapsAfter(LimitingResourceQueueElement element) {
+        List<GapOnQueue> removed = gapsAfter.remove(element);
+        if (removed != null) {
+            gapsIndex.removeAll(removed);
         }
-        result.add(Gap.create(resource, previousEnd, null));
-        return GapOnQueue.onQueue(this, result);
+    }
+
+    /**
+     * @param previous
+     *            if <code>null</code> the gaps since the beginning of time
+     *            are calculated
+     * @param next
+     *            if <code>null</code> the gap until the end of time is
+     *            calculated
+     */
+    private Collection<? extends Gap> calculateGapsBetween(
+            LimitingResourceQueueElement previous,
+            LimitingResourceQueueElement next) {
+        DateAndHour previousEnd = previous != null ? previous.getEndTime()
+                : null;
+        if (next == null) {
+            return Collections.singletonList(Gap.create(resource, previousEnd,
+                    null));
+        }
+        DateAndHour startTime = next.getStartTime();
+        if (previousEnd != null && !startTime.isAfter(previousEnd)) {
+            return Collections.<Gap> emptyList();
+        }
+        ResourceCalendar calendar = resource.getCalendar();
+        List<CalendarAvailability> activationPeriods = calendar
+                .getCalendarAvailabilities();
+        List<GapInterval> gapIntervals = GapInterval
+                .create(previousEnd, startTime)
+                .delimitByActivationPeriods(activationPeriods);
+        if (gapIntervals.isEmpty()) {
+            return Collections.<Gap> emptyList();
+        }
+        return GapInterval.gapsOn(gapIntervals, resource);
     }
 
     public SortedSet<LimitingResourceQueueElement> getLimitingResourceQueueElements() {
@@ -137,7 +230,8 @@ public class LimitingResourceQueue extends BaseEntity {
     public List<GapOnQueue> getGapsPotentiallyValidFor(
             InsertionRequirements requirements) {
         List<GapOnQueue> result = new ArrayList<GapOnQueue>();
-        for (GapOnQueue each : getGaps()) {
+        for (GapOnQueue each : getGapsIndex().getGapsEndingAfter(
+                requirements.getEarliestPossibleStart())) {
             if (requirements.isPotentiallyValid(each.getGap())) {
                 result.add(each);
             }
@@ -166,6 +260,11 @@ public class LimitingResourceQueue extends BaseEntity {
         return result;
     }
 
+    /**
+     * The elements are moved by several setter calls and their position in the
+     * sorted set could be outdated meanwhile, so the gaps are calculated again
+     * from scratch on the next request
+     */
     public void queueElementMoved(
             LimitingResourceQueueElement limitingResourceQueueElement) {
         invalidCachedGaps();
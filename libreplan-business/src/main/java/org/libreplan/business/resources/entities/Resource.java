@@ -132,10 +132,16 @@ public abstract class Resource extends IntegrationEntity implements
 
     private Set<CriterionSatisfaction> criterionSatisfactions = new HashSet<CriterionSatisfaction>();
 
+    private CriterionSatisfactionsIndex satisfactionsIndex = null;
+
+    private Set<CriterionSatisfaction> satisfactionsIndexed = null;
+
     private Set<DayAssignment> dayAssignments = new HashSet<DayAssignment>();
 
     private Map<LocalDate, List<DayAssignment>> assignmentsByDayCached = null;
 
+    private long loadModifications = 0;
+
     private Set<ResourcesCostCategoryAssignment> resourcesCostCategoryAssignments =
         new HashSet<ResourcesCostCategoryAssignment>();
 
@@ -146,6 +152,27 @@ public abstract class Resource extends IntegrationEntity implements
     private void clearCachedData() {
         assignmentsByDayCached = null;
         dayAssignmentsState.clearCachedData();
+        loadModified();
+    }
+
+    /**
+     * Marks that the load assigned to this resource may have changed. It must
+     * be called when the day assignments of an allocation assigned to this
+     * resource are modified, even if they aren't associated to the resource
+     * yet.
+     *
+     * @see #getLoadModifications()
+     */
+    public void loadModified() {
+        loadModifications++;
+    }
+
+    /**
+     * @return a number that changes every time the load assigned to this
+     *         resource may have changed
+     */
+    public long getLoadModifications() {
+        return loadModifications;
     }
 
     private List<DayAssignment> getAssignmentsForDay(LocalDate date) {
@@ -259,19 +286,60 @@ public abstract class Resource extends IntegrationEntity implements
         public boolean accepts(CriterionSatisfaction satisfaction);
     }
 
+    private static abstract class CriterionPredicate implements IPredicate {
+
+        @Override
+        public boolean accepts(CriterionSatisfaction satisfaction) {
+            return accepts(satisfaction.getCriterion());
+        }
+
+        public abstract boolean accepts(Criterion criterion);
+    }
+
+    /**
+     * It must be called when the satisfactions of this resource or their
+     * criteria or dates change, so the index used by {@link Query} is
+     * rebuilt
+     */
+    public void criterionSatisfactionsModified() {
+        satisfactionsIndex = null;
+    }
+
+    private CriterionSatisfactionsIndex getSatisfactionsIndex() {
+        // the satisfactions set can be replaced by hibernate
+        if (satisfactionsIndex == null
+                || satisfactionsIndexed != criterionSatisfactions) {
+            satisfactionsIndex = CriterionSatisfactionsIndex
+                    .create(getCriterionSatisfactions());
+            satisfactionsIndexed = criterionSatisfactions;
+        }
+        return satisfactionsIndex;
+    }
+
     public class Query {
 
         private List<IPredicate> predicates = new ArrayList<IPredicate>();
+
+        private List<CriterionPredicate> criterionPredicates = new ArrayList<CriterionPredicate>();
+
+        /**
+         * Epoch days that the satisfactions must reach in order to be enforced
+         * in the intervals specified
+         */
+        private int from = Integer.MIN_VALUE;
+
+        private int to = Integer.MAX_VALUE;
+
         private Query() {
 
         }
 
         public Query from(final ICriterionType<?> type) {
-            return withNewPredicate(new IPredicate() {
+            return withNewPredicate(new CriterionPredicate() {
 
                 @Override
-                public boolean accepts(CriterionSatisfaction satisfaction) {
-                    return type.contains(satisfaction.getCriterion());
+                public boolean accepts(Criterion criterion) {
+                    return type.contains(criterion);
                 }
             });
         }
@@ -281,6 +349,18 @@ public abstract class Resource extends IntegrationEntity implements
             return this;
         }
 
+        private Query withNewPredicate(CriterionPredicate newPredicate) {
+            criterionPredicates.add(newPredicate);
+            return withNewPredicate((IPredicate) newPredicate);
+        }
+
+        private Query withNewPredicate(Interval interval,
+                IPredicate newPredicate) {
+            from = Math.max(from, CriterionSatisfactionsIndex.startOf(interval));
+            to = Math.min(to, CriterionSatisfactionsIndex.endOf(interval));
+            return withNewPredicate(newPredicate);
+        }
+
         public Query at(LocalDate date) {
             return enforcedInAll(Interval.point(date));
         }
@@ -290,7 +370,7 @@ public abstract class Resource extends IntegrationEntity implements
         }
 
         public Query enforcedInAll(final Interval interval) {
-            return withNewPredicate(new IPredicate() {
+            return withNewPredicate(interval, new IPredicate() {
 
                 @Override
                 public boolean accepts(CriterionSatisfaction satisfaction) {
@@ -300,7 +380,7 @@ public abstract class Resource extends IntegrationEntity implements
         }
 
         public Query overlapsWith(final Interval interval) {
-            return withNewPredicate(new IPredicate() {
+            return withNewPredicate(interval, new IPredicate() {
 
                 @Override
                 public boolean accepts(CriterionSatisfaction satisfaction) {
@@ -310,21 +390,21 @@ public abstract class Resource extends IntegrationEntity implements
         }
 
         public Query from(final Criterion criterion) {
-            return withNewPredicate(new IPredicate() {
+            return withNewPredicate(new CriterionPredicate() {
 
                 @Override
-                public boolean accepts(CriterionSatisfaction satisfaction) {
-                    return criterion.includes(satisfaction.getCriterion());
+                public boolean accepts(Criterion each) {
+                    return criterion.includes(each);
                 }
             });
         }
 
         public Query exactly(final Criterion criterion) {
-            return withNewPredicate(new IPredicate() {
+            return withNewPredicate(new CriterionPredicate() {
 
                 @Override
-                public boolean accepts(CriterionSatisfaction satisfaction) {
-                    return criterion.isEquivalent(satisfaction.getCriterion());
+                public boolean accepts(Criterion each) {
+                    return criterion.isEquivalent(each);
                 }
             });
         }
@@ -336,8 +416,15 @@ public abstract class Resource extends IntegrationEntity implements
          *         by start date.
          */
         public List<CriterionSatisfaction> result() {
+            CriterionSatisfactionsIndex index = getSatisfactionsIndex();
+            List<CriterionSatisfaction> candidates = new ArrayList<CriterionSatisfaction>();
+            for (Criterion each : index.getCriterions()) {
+                if (isAcceptedByAllCriterionPredicates(each)) {
+                    index.collect(each, from, to, candidates);
+                }
+            }
             ArrayList<CriterionSatisfaction> result = new ArrayList<CriterionSatisfaction>();
-            for (CriterionSatisfaction criterionSatisfaction : getCriterionSatisfactions()) {
+            for (CriterionSatisfaction criterionSatisfaction : candidates) {
                 if (isAcceptedByAllPredicates(criterionSatisfaction)) {
                     result.add(criterionSatisfaction);
                 }
@@ -346,6 +433,15 @@ public abstract class Resource extends IntegrationEntity implements
             return result;
         }
 
+        private boolean isAcceptedByAllCriterionPredicates(Criterion criterion) {
+            for (CriterionPredicate predicate : criterionPredicates) {
+                if (!predicate.accepts(criterion)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public List<CriterionSatisfaction> result(Set<CriterionSatisfaction> list) {
             ArrayList<CriterionSatisfaction> result = new ArrayList<CriterionSatisfaction>();
             for (CriterionSatisfaction criterionSatisfaction : list) {
@@ -368,7 +464,8 @@ public abstract class Resource extends IntegrationEntity implements
         }
 
         public Query current() {
-            return withNewPredicate(new IPredicate() {
+            LocalDate today = new LocalDate();
+            return withNewPredicate(Interval.point(today), new IPredicate() {
 
                 @Override
                 public boolean accepts(CriterionSatisfaction satisfaction) {
@@ -390,12 +487,12 @@ public abstract class Resource extends IntegrationEntity implements
         }
 
         public Query oneOf(final Collection<? extends ICriterionType<?>> types) {
-            return withNewPredicate(new IPredicate() {
+            return withNewPredicate(new CriterionPredicate() {
 
                 @Override
-                public boolean accepts(CriterionSatisfaction satisfaction) {
+                public boolean accepts(Criterion criterion) {
                     for (ICriterionType<?> criterionType : types) {
-                        if (criterionType.contains(satisfaction.getCriterion())) {
+                        if (criterionType.contains(criterion)) {
                             return true;
                         }
                     }
@@ -491,6 +588,7 @@ public abstract class Resource extends IntegrationEntity implements
         if (canAddSatisfaction(criterionWithItsType, interval)) {
             newSatisfaction.validate();
             criterionSatisfactions.add(newSatisfaction);
+            criterionSatisfactionsModified();
             return newSatisfaction;
         }
         final String message = getReasonForNotAddingSatisfaction(type);
@@ -576,6 +674,7 @@ public abstract class Resource extends IntegrationEntity implements
                 }
                 original.validate();
                 criterionSatisfactions.add(original);
+                criterionSatisfactionsModified();
                 if(!canAdd){
                     throw new IllegalStateException(
                         "This interval "+original.getCriterion().getName()+" not is valid because exists overlap with other criterion satisfaction");
@@ -710,6 +809,7 @@ public abstract class Resource extends IntegrationEntity implements
 
     public void removeCriterionSatisfaction(CriterionSatisfaction satisfaction) {
         criterionSatisfactions.remove(satisfaction);
+        criterionSatisfactionsModified();
     }
 
     public boolean contains(CriterionSatisfaction satisfaction) {
@@ -888,6 +988,7 @@ public abstract class Resource extends IntegrationEntity implements
 
     public void useScenario(Scenario scenario) {
         dayAssignmentsState = new OnSpecifiedScenario(scenario);
+        loadModified();
     }
 
     public int getTotalWorkHours(LocalDate start, LocalDate end) {
@@ -949,7 +1050,7 @@ public abstract class Resource extends IntegrationEntity implements
         criterionSatisfaction) {
 
         criterionSatisfactions.add(criterionSatisfaction);
-
+        criterionSatisfactionsModified();
     }
 
     public void addSatisfactions(Set<CriterionSatisfaction> addlist) throws ValidationException {
@@ -970,6 +1071,7 @@ public abstract class Resource extends IntegrationEntity implements
         validateSatisfactions(activeList);
         criterionSatisfactions.clear();
         criterionSatisfactions.addAll(newList);
+        criterionSatisfactionsModified();
     }
 
     private void validateSatisfactions(Set<CriterionSatisfaction> satisfactions)
@@ -123,9 +123,18 @@ public class EffortDuration implements Comparable<EffortDuration> {
 
     public static <T> EffortDuration sum(Iterable<? extends T> collection,
             IEffortFrom<T> effortFrom) {
-        EffortDuration result = zero();
+        return seconds(sumSeconds(collection, effortFrom));
+    }
+
+    /**
+     * Like {@link #sum(Iterable, IEffortFrom)} but accumulating the seconds in
+     * a primitive, so no intermediate {@link EffortDuration} is created
+     */
+    public static <T> int sumSeconds(Iterable<? extends T> collection,
+            IEffortFrom<T> effortFrom) {
+        int result = 0;
         for (T each : collection) {
-            result = result.plus(effortFrom.from(each));
+            result += effortFrom.from(each).seconds;
         }
         return result;
     }
@@ -140,12 +149,34 @@ public class EffortDuration implements Comparable<EffortDuration> {
         });
     }
 
+    /**
+     * The durations with a whole number of minutes up to a day are the most
+     * used ones, so they are shared instead of being created each time
+     */
+    private static final int MAX_CACHED_MINUTES = 24 * 60;
+
+    private static final EffortDuration[] cachedByMinutes = new EffortDuration[MAX_CACHED_MINUTES + 1];
+
+    static {
+        for (int i = 0; i < cachedByMinutes.length; i++) {
+            cachedByMinutes[i] = new EffortDuration(i * 60);
+        }
+    }
+
+    private static EffortDuration fromSeconds(int seconds) {
+        if (seconds >= 0 && seconds % 60 == 0
+                && seconds / 60 <= MAX_CACHED_MINUTES) {
+            return cachedByMinutes[seconds / 60];
+        }
+        return new EffortDuration(seconds);
+    }
+
     public static EffortDuration zero() {
-        return elapsing(0, Granularity.SECONDS);
+        return cachedByMinutes[0];
     }
 
     public static EffortDuration elapsing(int amount, Granularity granularity) {
-        return new EffortDuration(granularity.toSeconds(amount));
+        return fromSeconds(granularity.toSeconds(amount));
     }
 
     public static EffortDuration hours(int amount) {
@@ -190,7 +221,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
     }
 
     public EffortDuration and(int amount, Granularity granularity) {
-        return new EffortDuration(seconds + granularity.toSeconds(amount));
+        return fromSeconds(seconds + granularity.toSeconds(amount));
     }
 
     @Override
@@ -246,7 +277,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
      */
     public EffortDuration divideBy(int n) {
         Validate.isTrue(n > 0);
-        return new EffortDuration(seconds / n);
+        return fromSeconds(seconds / n);
     }
 
     /**
@@ -306,7 +337,10 @@ public class EffortDuration implements Comparable<EffortDuration> {
      *         {@link EffortDuration} and the other duration
      */
     public EffortDuration plus(EffortDuration other) {
-        return new EffortDuration(seconds + other.seconds);
+        if (other.seconds == 0) {
+            return this;
+        }
+        return fromSeconds(seconds + other.seconds);
     }
 
     public boolean isZero() {
@@ -326,7 +360,10 @@ public class EffortDuration implements Comparable<EffortDuration> {
     public EffortDuration minus(EffortDuration duration) {
         Validate.isTrue(this.compareTo(duration) >= 0,
                 "minued must not be smaller than subtrahend");
-        return new EffortDuration(seconds - duration.seconds);
+        if (duration.seconds == 0) {
+            return this;
+        }
+        return fromSeconds(seconds - duration.seconds);
     }
 
     public BigDecimal toHoursAsDecimalWithScale(int scale) {
@@ -367,6 +404,14 @@ public class EffortDuration implements Comparable<EffortDuration> {
         return Math.max(1, roundHalfUpToHours(this.decompose()));
     }
 
+    public static EffortDuration min(EffortDuration a, EffortDuration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    public static EffortDuration max(EffortDuration a, EffortDuration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
     public static EffortDuration min(EffortDuration... durations) {
         return Collections.min(Arrays.asList(durations));
     }
@@ -0,0 +1,57 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.workingday;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Converts the days to the number of days since {@link #EPOCH} and back, so
+ * they can be stored in primitive arrays and used as indexes
+ */
+public class EpochDays {
+
+    public static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+    /**
+     * It's equivalent to <code>Days.daysBetween(EPOCH, day)</code> but it
+     * doesn't create any object, so it can be used on hot paths
+     */
+    public static int toEpochDay(LocalDate day) {
+        int year = day.getYear();
+        int month = day.getMonthOfYear();
+        if (month <= 2) {
+            year--;
+        }
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5
+                + day.getDayOfMonth() - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public static LocalDate fromEpochDay(int epochDay) {
+        return EPOCH.plusDays(epochDay);
+    }
+
+    private EpochDays() {
+    }
+
+}
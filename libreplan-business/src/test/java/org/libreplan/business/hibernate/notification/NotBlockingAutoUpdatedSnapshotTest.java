@@ -0,0 +1,344 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.libreplan.business.hibernate.notification.NotBlockingAutoUpdatedSnapshot.MAX_PENDING_MODIFICATIONS;
+import static org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots.workReportLinesDeltaApplier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+
+/**
+ * Tests for the incremental calculations of
+ * {@link NotBlockingAutoUpdatedSnapshot}. The snapshot of the work report lines
+ * is used, with a fake database behind its {@link ISnapshotDeltaApplier}.
+ */
+public class NotBlockingAutoUpdatedSnapshotTest {
+
+    /**
+     * Keeps the submitted calculations until they are explicitly run, so the
+     * modifications can be accumulated before being applied
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+
+        private final Queue<Runnable> pending = new LinkedList<Runnable>();
+
+        private int executed = 0;
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        int pendingCount() {
+            return pending.size();
+        }
+
+        void runPending() {
+            Runnable each;
+            while ((each = pending.poll()) != null) {
+                executed++;
+                each.run();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<Runnable>(pending);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+
+    private final Map<Long, WorkReportLine> database = new HashMap<Long, WorkReportLine>();
+
+    private final ManualExecutor executor = new ManualExecutor();
+
+    private int fullCalculations = 0;
+
+    private boolean databaseFailing = false;
+
+    /**
+     * If not <code>null</code>, a line with this id is inserted while the
+     * next delta is being applied
+     */
+    private Long insertedDuringCalculation = null;
+
+    private NotBlockingAutoUpdatedSnapshot<List<WorkReportLine>> snapshot;
+
+    private static WorkReportLine line(long id) {
+        WorkReportLine result = createNiceMock(WorkReportLine.class);
+        expect(result.getId()).andReturn(id).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private void store(long id) {
+        database.put(id, line(id));
+    }
+
+    private Callable<List<WorkReportLine>> calculateFromScratch() {
+        return new Callable<List<WorkReportLine>>() {
+
+            @Override
+            public List<WorkReportLine> call() {
+                fullCalculations++;
+                return new ArrayList<WorkReportLine>(database.values());
+            }
+        };
+    }
+
+    private IWorkReportLineDAO workReportLineDAO()
+            throws InstanceNotFoundException {
+        IWorkReportLineDAO result = createNiceMock(IWorkReportLineDAO.class);
+        expect(result.find(isA(Long.class))).andAnswer(
+                new IAnswer<WorkReportLine>() {
+
+                    @Override
+                    public WorkReportLine answer() throws Throwable {
+                        if (databaseFailing) {
+                            throw new RuntimeException("connection lost");
+                        }
+                        if (insertedDuringCalculation != null) {
+                            Long inserted = insertedDuringCalculation;
+                            insertedDuringCalculation = null;
+                            store(inserted);
+                            snapshot.reloadNeeded(executor, asList(
+                                    EntityModification.insert(
+                                            WorkReportLine.class, inserted)));
+                        }
+                        Long id = (Long) getCurrentArguments()[0];
+                        if (!database.containsKey(id)) {
+                            throw new InstanceNotFoundException(id,
+                                    WorkReportLine.class.getName());
+                        }
+                        return database.get(id);
+                    }
+                }).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    @Before
+    public void loadSnapshot() throws InstanceNotFoundException {
+        store(1);
+        store(2);
+        store(3);
+        snapshot = new NotBlockingAutoUpdatedSnapshot<List<WorkReportLine>>(
+                "work report lines", calculateFromScratch(),
+                workReportLinesDeltaApplier(workReportLineDAO()));
+        snapshot.ensureFirstLoad(executor);
+        executor.runPending();
+        assertEquals(1, fullCalculations);
+    }
+
+    private static List<EntityModification> updates(long id, int times) {
+        List<EntityModification> result = new ArrayList<EntityModification>();
+        for (int i = 0; i < times; i++) {
+            result.add(EntityModification.update(WorkReportLine.class, id));
+        }
+        return result;
+    }
+
+    private void reload(List<EntityModification> modifications) {
+        snapshot.reloadNeeded(executor, modifications);
+        executor.runPending();
+    }
+
+    private void assertSnapshotEqualsDatabase() {
+        List<WorkReportLine> value = snapshot.getValue();
+        assertEquals(database.size(), value.size());
+        assertEquals(new HashSet<WorkReportLine>(database.values()),
+                new HashSet<WorkReportLine>(value));
+    }
+
+    @Test
+    public void theDeltasAppliedToThePreviousValueEqualAFullRecalculation() {
+        store(4);
+        store(2);
+        database.remove(3L);
+
+        reload(asList(EntityModification.insert(WorkReportLine.class, 4L),
+                EntityModification.update(WorkReportLine.class, 2L),
+                EntityModification.delete(WorkReportLine.class, 3L)));
+
+        assertEquals(1, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void eachDeltaIsAppliedOnTopOfThePreviousOne() {
+        store(4);
+        reload(asList(EntityModification.insert(WorkReportLine.class, 4L)));
+        database.remove(1L);
+        reload(asList(EntityModification.delete(WorkReportLine.class, 1L)));
+        store(2);
+        reload(asList(EntityModification.update(WorkReportLine.class, 2L)));
+
+        assertEquals(1, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void aBurstOfModificationsIsAppliedByASingleCalculation() {
+        for (long id = 4; id < 14; id++) {
+            store(id);
+            snapshot.reloadNeeded(executor, asList(EntityModification.insert(
+                    WorkReportLine.class, id)));
+        }
+        assertEquals(1, executor.pendingCount());
+
+        executor.runPending();
+
+        assertEquals(1, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void theModificationsArrivingWhileACalculationRunsAreScheduledAgain() {
+        int executedBefore = executor.executed;
+        store(4);
+        insertedDuringCalculation = 5L;
+
+        reload(asList(EntityModification.insert(WorkReportLine.class, 4L)));
+
+        assertEquals(2, executor.executed - executedBefore);
+        assertEquals(1, fullCalculations);
+        assertEquals(5, database.size());
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void upToTheMaximumPendingModificationsAreAppliedIncrementally() {
+        store(1);
+
+        reload(updates(1, MAX_PENDING_MODIFICATIONS));
+
+        assertEquals(1, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void overflowingThePendingModificationsFallsBackToAFullRecalculation() {
+        store(1);
+        int half = MAX_PENDING_MODIFICATIONS / 2 + 1;
+        snapshot.reloadNeeded(executor, updates(1, half));
+        snapshot.reloadNeeded(executor, updates(1, half));
+        assertEquals(1, executor.pendingCount());
+        executor.runPending();
+
+        assertEquals(2, fullCalculations);
+        assertSnapshotEqualsDatabase();
+
+        store(2);
+        reload(updates(2, 1));
+        assertEquals(2, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void anExceptionInTheApplierFallsBackToAFullRecalculation() {
+        store(4);
+        databaseFailing = true;
+
+        reload(asList(EntityModification.insert(WorkReportLine.class, 4L)));
+
+        assertEquals(2, fullCalculations);
+        assertSnapshotEqualsDatabase();
+
+        databaseFailing = false;
+        store(5);
+        reload(asList(EntityModification.insert(WorkReportLine.class, 5L)));
+        assertEquals(2, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void aModificationTheApplierCantHandleFallsBackToAFullRecalculation() {
+        store(4);
+
+        reload(asList(EntityModification.insert(WorkReportLine.class, null)));
+
+        assertEquals(2, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void withoutModificationsItsRecalculatedFromScratch() {
+        store(4);
+
+        reload(null);
+
+        assertEquals(2, fullCalculations);
+        assertSnapshotEqualsDatabase();
+    }
+
+    @Test
+    public void withNoPendingModificationsThePreviousValueIsKept() {
+        List<WorkReportLine> previous = snapshot.getValue();
+
+        reload(Collections.<EntityModification> emptyList());
+
+        assertEquals(1, fullCalculations);
+        assertSame(previous, snapshot.getValue());
+    }
+
+}
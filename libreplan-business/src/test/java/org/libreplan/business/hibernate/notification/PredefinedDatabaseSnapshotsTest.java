@@ -0,0 +1,191 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots.workReportLinesDeltaApplier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+
+/**
+ * Tests for the {@link ISnapshotDeltaApplier} of the work report lines
+ * snapshot of {@link PredefinedDatabaseSnapshots}
+ */
+public class PredefinedDatabaseSnapshotsTest {
+
+    private final Map<Long, WorkReportLine> database = new HashMap<Long, WorkReportLine>();
+
+    private ISnapshotDeltaApplier<List<WorkReportLine>> applier;
+
+    private static WorkReportLine line(long id) {
+        WorkReportLine result = createNiceMock(WorkReportLine.class);
+        expect(result.getId()).andReturn(id).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private WorkReportLine stored(long id) {
+        WorkReportLine result = line(id);
+        database.put(id, result);
+        return result;
+    }
+
+    @Before
+    public void createApplier() throws InstanceNotFoundException {
+        IWorkReportLineDAO workReportLineDAO = createNiceMock(IWorkReportLineDAO.class);
+        expect(workReportLineDAO.find(isA(Long.class))).andAnswer(
+                new IAnswer<WorkReportLine>() {
+
+                    @Override
+                    public WorkReportLine answer() throws Throwable {
+                        Long id = (Long) getCurrentArguments()[0];
+                        if (!database.containsKey(id)) {
+                            throw new InstanceNotFoundException(id,
+                                    WorkReportLine.class.getName());
+                        }
+                        return database.get(id);
+                    }
+                }).anyTimes();
+        replay(workReportLineDAO);
+        applier = workReportLinesDeltaApplier(workReportLineDAO);
+    }
+
+    private static void assertSameLines(List<WorkReportLine> expected,
+            List<WorkReportLine> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<WorkReportLine>(expected),
+                new HashSet<WorkReportLine>(actual));
+    }
+
+    @Test
+    public void theInsertedLinesAreLoaded() {
+        WorkReportLine first = stored(1);
+        WorkReportLine inserted = stored(2);
+
+        List<WorkReportLine> result = applier.applyDelta(asList(first),
+                asList(EntityModification.insert(WorkReportLine.class, 2L)));
+
+        assertSameLines(asList(first, inserted), result);
+    }
+
+    @Test
+    public void theUpdatedLinesAreReloaded() {
+        WorkReportLine first = stored(1);
+        WorkReportLine old = line(2);
+        WorkReportLine updated = stored(2);
+
+        List<WorkReportLine> result = applier.applyDelta(asList(first, old),
+                asList(EntityModification.update(WorkReportLine.class, 2L)));
+
+        assertSameLines(asList(first, updated), result);
+    }
+
+    @Test
+    public void theDeletedLinesAreRemoved() {
+        WorkReportLine first = stored(1);
+        WorkReportLine deleted = line(2);
+
+        List<WorkReportLine> result = applier.applyDelta(
+                asList(first, deleted),
+                asList(EntityModification.delete(WorkReportLine.class, 2L)));
+
+        assertSameLines(asList(first), result);
+    }
+
+    @Test
+    public void aLineInsertedAndDeletedAfterwardsIsNotLoaded() {
+        WorkReportLine first = stored(1);
+        stored(2);
+
+        List<WorkReportLine> result = applier.applyDelta(asList(first),
+                asList(EntityModification.insert(WorkReportLine.class, 2L),
+                        EntityModification.delete(WorkReportLine.class, 2L)));
+
+        assertSameLines(asList(first), result);
+    }
+
+    @Test
+    public void theLinesRemovedByALaterTransactionAreSkipped() {
+        WorkReportLine first = stored(1);
+
+        List<WorkReportLine> result = applier.applyDelta(asList(first),
+                asList(EntityModification.insert(WorkReportLine.class, 2L)));
+
+        assertSameLines(asList(first), result);
+    }
+
+    @Test
+    public void theModificationsAlreadyAppliedCanBeReceivedAgain() {
+        WorkReportLine first = stored(1);
+        WorkReportLine second = stored(2);
+        List<EntityModification> modifications = asList(
+                EntityModification.insert(WorkReportLine.class, 2L),
+                EntityModification.update(WorkReportLine.class, 1L));
+
+        List<WorkReportLine> once = applier.applyDelta(asList(first),
+                modifications);
+        List<WorkReportLine> twice = applier.applyDelta(once, modifications);
+
+        assertSameLines(asList(first, second), twice);
+    }
+
+    @Test
+    public void thePreviousValueIsNotModified() {
+        WorkReportLine first = stored(1);
+        stored(2);
+        List<WorkReportLine> previous = new ArrayList<WorkReportLine>(
+                asList(first, line(3)));
+
+        applier.applyDelta(previous,
+                asList(EntityModification.insert(WorkReportLine.class, 2L),
+                        EntityModification.delete(WorkReportLine.class, 3L)));
+
+        assertEquals(2, previous.size());
+        assertEquals(first, previous.get(0));
+        assertEquals(Long.valueOf(3), previous.get(1).getId());
+    }
+
+    @Test
+    public void aModificationWithoutIdNeedsAFullRecalculation() {
+        WorkReportLine first = stored(1);
+
+        assertNull(applier.applyDelta(asList(first),
+                asList(EntityModification.update(WorkReportLine.class, null))));
+    }
+
+}
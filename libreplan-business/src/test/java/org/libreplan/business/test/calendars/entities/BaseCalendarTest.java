@@ -545,6 +545,31 @@ public class BaseCalendarTest {
                 nullValue());
     }
 
+    @Test
+    public void theExceptionsOfTheDerivedCalendarOverrideTheOnesOfTheParent() {
+        BaseCalendar calendar = createChristmasCalendar();
+        BaseCalendar derived = calendar.newDerivedCalendar();
+        CalendarException ownChristmas = CalendarException.create(
+                CHRISTMAS_DAY_LOCAL_DATE, hours(4),
+                createCalendarExceptionType());
+        derived.addExceptionDay(ownChristmas);
+
+        assertThat(derived.getExceptions().size(), equalTo(1));
+        assertThat(derived.getExceptions().iterator().next(),
+                equalTo(ownChristmas));
+        assertThat(derived.getExceptionDay(CHRISTMAS_DAY_LOCAL_DATE),
+                equalTo(ownChristmas));
+
+        derived.removeExceptionDay(CHRISTMAS_DAY_LOCAL_DATE);
+        assertThat(derived.getExceptionDay(CHRISTMAS_DAY_LOCAL_DATE),
+                equalTo(calendar.getOwnExceptionDay(CHRISTMAS_DAY_LOCAL_DATE)));
+
+        calendar.removeExceptionDay(CHRISTMAS_DAY_LOCAL_DATE);
+        assertThat(derived.getExceptionDay(CHRISTMAS_DAY_LOCAL_DATE),
+                nullValue());
+        assertTrue(derived.getExceptions().isEmpty());
+    }
+
     @Test
     public void testSetParent() {
         BaseCalendar calendar = createBasicCalendar();
@@ -912,4 +937,35 @@ public class BaseCalendarTest {
         AvailabilityTimeLine availability = calendar.getAvailability();
         assertFalse(availability.isValid(MONDAY_LOCAL_DATE));
     }
+
+    @Test
+    public void theCapacityOfADerivedCalendarReflectsTheChangesOnTheParent() {
+        BaseCalendar parent = createBasicCalendar();
+        BaseCalendar derived = parent.newDerivedCalendar();
+        assertThat(derived.getCapacityOn(wholeDay(MONDAY_LOCAL_DATE)),
+                equalTo(hours(8)));
+
+        parent.setCapacityAt(Days.MONDAY, withNormalDuration(hours(4)));
+        assertThat(derived.getCapacityOn(wholeDay(MONDAY_LOCAL_DATE)),
+                equalTo(hours(4)));
+
+        addChristmasAsExceptionDay(parent);
+        assertThat(derived.getCapacityOn(wholeDay(CHRISTMAS_DAY_LOCAL_DATE)),
+                equalTo(zero()));
+    }
+
+    @Test
+    public void theCapacityIsRightOnDaysFarFromEachOther() {
+        BaseCalendar calendar = createBasicCalendar();
+        LocalDate[] mondays = { new LocalDate(1969, 12, 29),
+                new LocalDate(1600, 2, 28), new LocalDate(2000, 2, 28),
+                new LocalDate(2100, 3, 1), MONDAY_LOCAL_DATE };
+        for (LocalDate each : mondays) {
+            assertThat(each.getDayOfWeek(), equalTo(1));
+            assertThat(calendar.getCapacityOn(wholeDay(each)),
+                    equalTo(hours(8)));
+            assertThat(calendar.getCapacityOn(wholeDay(each.minusDays(1))),
+                    equalTo(zero()));
+        }
+    }
 }
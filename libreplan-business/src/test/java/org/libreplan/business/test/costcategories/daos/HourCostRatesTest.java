@@ -0,0 +1,116 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.costcategories.daos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.costcategories.daos.HourCostRates;
+
+public class HourCostRatesTest {
+
+    private static final long WORKER = 1L;
+
+    private static final long JUNIOR = 10L;
+
+    private static final long SENIOR = 11L;
+
+    private static final long NORMAL = 20L;
+
+    private static final long EXTRA = 21L;
+
+    private static final LocalDate JAN_1 = new LocalDate(2013, 1, 1);
+
+    private static final LocalDate JAN_31 = new LocalDate(2013, 1, 31);
+
+    private static final LocalDate FEB_1 = new LocalDate(2013, 2, 1);
+
+    private static final LocalDate JUN_30 = new LocalDate(2013, 6, 30);
+
+    private HourCostRates rates;
+
+    @Before
+    public void setUp() {
+        rates = HourCostRates.builder()
+                .addTypeOfWorkHours(NORMAL, "NORMAL", new BigDecimal("5"))
+                .addTypeOfWorkHours(EXTRA, "EXTRA", new BigDecimal("8"))
+                .addCategoryAssignment(WORKER, SENIOR, FEB_1, null)
+                .addCategoryAssignment(WORKER, JUNIOR, JAN_1, JAN_31)
+                .addHourCost(JUNIOR, NORMAL, JAN_1, null, new BigDecimal("10"))
+                .addHourCost(SENIOR, NORMAL, JAN_1, JUN_30,
+                        new BigDecimal("20"))
+                .addHourCost(SENIOR, NORMAL, JUN_30.plusDays(1), null,
+                        new BigDecimal("25"))
+                .addHourCost(SENIOR, EXTRA, JAN_1, null, new BigDecimal("30"))
+                .build();
+    }
+
+    @Test
+    public void thePriceIsTheOneOfTheCategoryOfTheResourceAtTheDate() {
+        assertEquals(new BigDecimal("10"),
+                rates.getPrice(WORKER, JAN_31, NORMAL));
+        assertEquals(new BigDecimal("20"),
+                rates.getPrice(WORKER, FEB_1, NORMAL));
+    }
+
+    @Test
+    public void theIntervalsIncludeTheirStartAndEnd() {
+        assertEquals(new BigDecimal("10"),
+                rates.getPrice(WORKER, JAN_1, NORMAL));
+        assertEquals(new BigDecimal("20"),
+                rates.getPrice(WORKER, JUN_30, NORMAL));
+        assertEquals(new BigDecimal("25"),
+                rates.getPrice(WORKER, JUN_30.plusDays(1), NORMAL));
+    }
+
+    @Test
+    public void theIntervalsWithoutEndAreOpen() {
+        assertEquals(new BigDecimal("25"),
+                rates.getPrice(WORKER, new LocalDate(2030, 1, 1), NORMAL));
+        assertEquals(new BigDecimal("30"),
+                rates.getPrice(WORKER, new LocalDate(2030, 1, 1), EXTRA));
+    }
+
+    @Test
+    public void thereIsNoPriceOutOfTheCategoryAssignments() {
+        assertNull(rates.getPrice(WORKER, JAN_1.minusDays(1), NORMAL));
+        assertNull(rates.getPrice(2L, FEB_1, NORMAL));
+    }
+
+    @Test
+    public void thereIsNoPriceIfTheCategoryDoesNotDefineTheType() {
+        assertNull(rates.getPrice(WORKER, JAN_31, EXTRA));
+        assertNull(rates.getPrice(WORKER, FEB_1, 99L));
+    }
+
+    @Test
+    public void theTypesCanBeLookedUpByCode() {
+        assertEquals(new BigDecimal("30"),
+                rates.getPrice(WORKER, FEB_1, "EXTRA"));
+        assertNull(rates.getPrice(WORKER, FEB_1, "UNKNOWN"));
+        assertEquals(new BigDecimal("5"), rates.getDefaultPrice("NORMAL"));
+        assertNull(rates.getDefaultPrice("UNKNOWN"));
+    }
+
+}
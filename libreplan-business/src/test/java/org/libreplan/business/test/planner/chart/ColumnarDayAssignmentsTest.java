@@ -0,0 +1,168 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.chart;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments.IResourceDayVisitor;
+import org.libreplan.business.workingday.EpochDays;
+
+public class ColumnarDayAssignmentsTest {
+
+    private static final LocalDate someDate = new LocalDate(2012, 3, 5);
+
+    private static final int day = EpochDays.toEpochDay(someDate);
+
+    private ColumnarDayAssignments assignments;
+
+    private void givenAssignments() {
+        assignments = ColumnarDayAssignments.builder()
+                .add(someDate.plusDays(2), 10L, 3600, 100L, false)
+                .add(someDate, 10L, 7200, 100L, true)
+                .add(someDate, 20L, 1800, 200L, false)
+                .add(someDate, 10L, 600, 200L, false)
+                .add(someDate.plusDays(1), 20L, 0, 200L, false).build();
+    }
+
+    @Test
+    public void theRowsAreSortedByDay() {
+        givenAssignments();
+        assertThat(assignments.size(), equalTo(5));
+        for (int i = 1; i < assignments.size(); i++) {
+            assertTrue(assignments.getEpochDay(i - 1) <= assignments
+                    .getEpochDay(i));
+        }
+        assertThat(assignments.getDay(0), equalTo(someDate));
+        assertThat(assignments.getFirstEpochDay(), equalTo(day));
+        assertThat(assignments.getLastEpochDay(), equalTo(day + 2));
+    }
+
+    @Test
+    public void theResourcesAndAllocationsAreStoredInDictionaries() {
+        givenAssignments();
+        assertThat(assignments.getResourcesCount(), equalTo(2));
+        assertThat(assignments.getAllocationsCount(), equalTo(2));
+        int last = assignments.size() - 1;
+        assertThat(assignments.getResourceId(assignments
+                .getResourceIndex(last)), equalTo(10L));
+        assertThat(assignments.getAllocationId(assignments
+                .getAllocationIndex(last)), equalTo(100L));
+        assertThat(assignments.getSeconds(last), equalTo(3600));
+        assertFalse(assignments.isConsolidated(last));
+    }
+
+    @Test
+    public void theConsolidatedFlagIsKeptAfterSorting() {
+        givenAssignments();
+        int consolidated = 0;
+        for (int i = 0; i < assignments.size(); i++) {
+            if (assignments.isConsolidated(i)) {
+                consolidated++;
+                assertThat(assignments.getSeconds(i), equalTo(7200));
+            }
+        }
+        assertThat(consolidated, equalTo(1));
+    }
+
+    @Test
+    public void theEffortCanBeSummedByDay() {
+        givenAssignments();
+        assertArrayEquals(new long[] { 9600, 0, 3600, 0 },
+                assignments.sumByDay(day, day + 4));
+        assertArrayEquals(new long[] { 0, 3600 },
+                assignments.sumByDay(day + 1, day + 3));
+        assertArrayEquals(new long[] { 0, 0 },
+                assignments.sumByDay(day - 2, day));
+    }
+
+    @Test
+    public void theEffortCanBeSummedByResource() {
+        givenAssignments();
+        long[] byResource = assignments.sumByResource(day, day + 3);
+        assertThat(byResource[indexOf(10L)], equalTo(11400L));
+        assertThat(byResource[indexOf(20L)], equalTo(1800L));
+        byResource = assignments.sumByResource(day + 1, day + 3);
+        assertThat(byResource[indexOf(10L)], equalTo(3600L));
+        assertThat(byResource[indexOf(20L)], equalTo(0L));
+    }
+
+    private int indexOf(long resourceId) {
+        for (int i = 0; i < assignments.getResourcesCount(); i++) {
+            if (assignments.getResourceId(i) == resourceId) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    @Test
+    public void theEffortCanBeSummedByResourceAndDay() {
+        givenAssignments();
+        final List<String> visited = new ArrayList<String>();
+        assignments.sumByResourceAndDay(day, day + 3,
+                new IResourceDayVisitor() {
+
+                    @Override
+                    public void visit(int epochDay, int resourceIndex,
+                            long seconds) {
+                        visited.add((epochDay - day) + ":"
+                                + assignments.getResourceId(resourceIndex)
+                                + ":" + seconds);
+                    }
+                });
+        assertThat(visited.size(), equalTo(4));
+        assertTrue(visited.contains("0:10:7800"));
+        assertTrue(visited.contains("0:20:1800"));
+        assertThat(visited.get(2), equalTo("1:20:0"));
+        assertThat(visited.get(3), equalTo("2:10:3600"));
+    }
+
+    @Test
+    public void theLoadsAreNotAssociatedToAnyAllocation() {
+        ColumnarDayAssignments loads = ColumnarDayAssignments.builder()
+                .addLoad(day + 1, 10L, 3600, false)
+                .addLoad(day, 10L, 1800, true).build();
+        assertThat(loads.getAllocationsCount(), equalTo(0));
+        assertThat(loads.getAllocationIndex(0),
+                equalTo(ColumnarDayAssignments.NO_ALLOCATION));
+        assertTrue(loads.isConsolidated(0));
+        assertArrayEquals(new long[] { 1800, 3600 },
+                loads.sumByDay(day, day + 2));
+    }
+
+    @Test
+    public void anEmptyBuilderCreatesAnEmptyStore() {
+        ColumnarDayAssignments empty = ColumnarDayAssignments.builder()
+                .build();
+        assertTrue(empty.isEmpty());
+        assertArrayEquals(new long[] { 0 }, empty.sumByDay(day, day + 1));
+    }
+
+}
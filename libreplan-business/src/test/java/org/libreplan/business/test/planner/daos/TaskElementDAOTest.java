@@ -23,6 +23,7 @@ package org.libreplan.business.test.planner.daos;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
@@ -31,11 +32,18 @@ import static org.junit.Assert.fail;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 
@@ -62,12 +70,15 @@ import org.libreplan.business.orders.entities.TaskSource;
 import org.libreplan.business.orders.entities.TaskSource.IOptionalPersistence;
 import org.libreplan.business.orders.entities.TaskSource.TaskGroupSynchronization;
 import org.libreplan.business.orders.entities.TaskSource.TaskSourceSynchronization;
+import org.libreplan.business.planner.chart.ColumnarDayAssignments;
+import org.libreplan.business.planner.daos.IResourceDailyLoadDAO;
 import org.libreplan.business.planner.daos.ISubcontractedTaskDataDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.daos.ITaskSourceDAO;
 import org.libreplan.business.planner.daos.TaskElementDAO;
 import org.libreplan.business.planner.entities.Dependency;
 import org.libreplan.business.planner.entities.Dependency.Type;
+import org.libreplan.business.planner.entities.ResourceAllocation;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.SubcontractedTaskData;
 import org.libreplan.business.planner.entities.SubcontractorDeliverDate;
@@ -81,6 +92,7 @@ import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
 import org.libreplan.business.scenarios.entities.OrderVersion;
 import org.libreplan.business.test.externalcompanies.daos.ExternalCompanyDAOTest;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.NotTransactional;
@@ -593,4 +605,176 @@ public class TaskElementDAOTest {
         transactionService.runOnTransaction(checkAllocatedHoursWereUpdated);
     }
 
+    @Autowired
+    private IResourceDailyLoadDAO resourceDailyLoadDAO;
+
+    @Test
+    @NotTransactional
+    public void theDailyLoadsAreUpdatedWhenTheDayAssignmentsAreSaved() {
+        final Worker worker = transactionService
+                .runOnTransaction(new IOnTransaction<Worker>() {
+
+                    @Override
+                    public Worker execute() {
+                        return (Worker) createValidWorker();
+                    }
+                });
+        final Long taskId = transactionService
+                .runOnTransaction(new IOnTransaction<Long>() {
+
+                    @Override
+                    public Long execute() {
+                        Task task = createValidTask();
+                        SpecificResourceAllocation allocation = SpecificResourceAllocation
+                                .create(task);
+                        allocation.setResource(worker);
+                        LocalDate start = task.getStartAsLocalDate();
+                        task.setIntraDayEndDate(IntraDayDate.startOfDay(start
+                                .plusDays(3)));
+                        allocation.onIntervalWithinTask(start,
+                                start.plusDays(3)).allocateHours(24);
+                        task.addResourceAllocation(allocation);
+                        taskElementDAO.save(task);
+                        return task.getId();
+                    }
+                });
+        assertEquals(EffortDuration.hours(24), dailyLoadsOf(worker));
+
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                Task task = findTask(taskId);
+                LocalDate start = task.getStartAsLocalDate();
+                ((SpecificResourceAllocation) allocationOf(task))
+                        .onIntervalWithinTask(start, start.plusDays(3))
+                        .allocateHours(12);
+                return null;
+            }
+        });
+        assertEquals(EffortDuration.hours(12), dailyLoadsOf(worker));
+
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                Task task = findTask(taskId);
+                task.removeResourceAllocation(allocationOf(task));
+                return null;
+            }
+        });
+        assertEquals(EffortDuration.zero(), dailyLoadsOf(worker));
+    }
+
+    @Test
+    @NotTransactional
+    public void theConcurrentSavesOfTheSameResourceAndDaysAreBothCommitted()
+            throws Exception {
+        final Worker worker = transactionService
+                .runOnTransaction(new IOnTransaction<Worker>() {
+
+                    @Override
+                    public Worker execute() {
+                        return (Worker) createValidWorker();
+                    }
+                });
+        final List<Long> taskIds = transactionService
+                .runOnTransaction(new IOnTransaction<List<Long>>() {
+
+                    @Override
+                    public List<Long> execute() {
+                        Task first = createValidTask();
+                        Task second = createValidTask();
+                        taskElementDAO.save(first);
+                        taskElementDAO.save(second);
+                        return Arrays.asList(first.getId(), second.getId());
+                    }
+                });
+
+        // both transactions have saved their assignments before any of them
+        // refreshes the daily loads on commit
+        final CyclicBarrier bothSaved = new CyclicBarrier(taskIds.size());
+        ExecutorService executor = Executors.newFixedThreadPool(taskIds
+                .size());
+        try {
+            List<Future<Void>> saves = new ArrayList<Future<Void>>();
+            for (final Long each : taskIds) {
+                saves.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() {
+                        return transactionService
+                                .runOnTransaction(allocateAndWait(each,
+                                        worker, bothSaved));
+                    }
+                }));
+            }
+            for (Future<Void> each : saves) {
+                each.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(EffortDuration.hours(48), dailyLoadsOf(worker));
+    }
+
+    private IOnTransaction<Void> allocateAndWait(final Long taskId,
+            final Worker worker, final CyclicBarrier barrier) {
+        return new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                Task task = findTask(taskId);
+                SpecificResourceAllocation allocation = SpecificResourceAllocation
+                        .create(task);
+                allocation.setResource(worker);
+                LocalDate start = task.getStartAsLocalDate();
+                task.setIntraDayEndDate(IntraDayDate.startOfDay(start
+                        .plusDays(3)));
+                allocation.onIntervalWithinTask(start, start.plusDays(3))
+                        .allocateHours(24);
+                task.addResourceAllocation(allocation);
+                taskElementDAO.save(task);
+                sessionFactory.getCurrentSession().flush();
+                try {
+                    barrier.await(1, TimeUnit.MINUTES);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                return null;
+            }
+        };
+    }
+
+    private Task findTask(Long id) {
+        try {
+            return (Task) taskElementDAO.find(id);
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ResourceAllocation<?> allocationOf(Task task) {
+        return task.getAllResourceAllocations().iterator().next();
+    }
+
+    private EffortDuration dailyLoadsOf(final Worker worker) {
+        return transactionService
+                .runOnReadOnlyTransaction(new IOnTransaction<EffortDuration>() {
+
+                    @Override
+                    public EffortDuration execute() {
+                        ColumnarDayAssignments loads = resourceDailyLoadDAO
+                                .getColumnarFor(scenarioManager.getCurrent(),
+                                        null, null, worker);
+                        int seconds = 0;
+                        for (int row = 0; row < loads.size(); row++) {
+                            seconds += loads.getSeconds(row);
+                        }
+                        return EffortDuration.seconds(seconds);
+                    }
+                });
+    }
+
 }
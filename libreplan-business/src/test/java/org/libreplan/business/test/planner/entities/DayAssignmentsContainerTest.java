@@ -0,0 +1,134 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.entities;
+
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignmentsContainer;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.entities.Scenario;
+
+/**
+ * Tests for the replacement of the assignments of a
+ * {@link SpecificDayAssignmentsContainer}
+ */
+public class DayAssignmentsContainerTest {
+
+    private static final LocalDate START = new LocalDate(2013, 3, 4);
+
+    private SpecificDayAssignmentsContainer container;
+
+    private Worker worker;
+
+    @Before
+    public void setUp() {
+        SpecificResourceAllocation allocation = createNiceMock(SpecificResourceAllocation.class);
+        Scenario scenario = createNiceMock(Scenario.class);
+        replay(allocation, scenario);
+        container = SpecificDayAssignmentsContainer.create(allocation,
+                scenario);
+        worker = Worker.create("firstName", "surName", "2333232");
+    }
+
+    private SpecificDayAssignment assignment(Resource resource, int day,
+            int hours) {
+        return SpecificDayAssignment.create(START.plusDays(day), hours(hours),
+                resource);
+    }
+
+    private SpecificDayAssignment at(int day) {
+        return DayAssignment.byDay(container.getDayAssignments())
+                .get(START.plusDays(day)).get(0);
+    }
+
+    @Test
+    public void theAssignmentsOfTheSameResourceAndDayAreKept() {
+        container.resetTo(Arrays.asList(assignment(worker, 0, 8),
+                assignment(worker, 1, 8), assignment(worker, 2, 8)));
+        SpecificDayAssignment first = at(0);
+        SpecificDayAssignment second = at(1);
+        SpecificDayAssignment third = at(2);
+
+        List<SpecificDayAssignment> removed = container.replace(
+                container.getDayAssignments(),
+                Arrays.asList(assignment(worker, 1, 4),
+                        assignment(worker, 2, 8), assignment(worker, 3, 8)));
+
+        assertEquals(Arrays.asList(first), removed);
+        assertEquals(3, container.getDayAssignments().size());
+        assertSame(second, at(1));
+        assertEquals(hours(4), second.getDuration());
+        assertSame(third, at(2));
+        assertEquals(hours(8), at(3).getDuration());
+        assertFalse(container.getDayAssignments().contains(first));
+    }
+
+    @Test
+    public void theAssignmentsOfOtherResourcesAreNotKept() {
+        Worker other = Worker.create("other", "surName", "2333233");
+        container.resetTo(Arrays.asList(assignment(worker, 0, 8)));
+        SpecificDayAssignment existent = at(0);
+
+        List<SpecificDayAssignment> removed = container.replace(
+                container.getDayAssignments(),
+                Arrays.asList(assignment(other, 0, 8)));
+
+        assertEquals(Arrays.asList(existent), removed);
+        assertEquals(other, at(0).getResource());
+    }
+
+    @Test
+    public void theAssignmentsNotRemovedAreNotTouched() {
+        container.resetTo(Arrays.asList(assignment(worker, 0, 8),
+                assignment(worker, 1, 8)));
+        SpecificDayAssignment first = at(0);
+        SpecificDayAssignment second = at(1);
+
+        List<SpecificDayAssignment> removed = container.replace(
+                Arrays.asList(second),
+                Arrays.asList(assignment(worker, 0, 2),
+                        assignment(worker, 1, 2)));
+
+        assertTrue(removed.isEmpty());
+        assertEquals(hours(8), first.getDuration());
+        assertEquals(hours(2), second.getDuration());
+        Map<LocalDate, List<SpecificDayAssignment>> byDay = DayAssignment
+                .byDay(container.getDayAssignments());
+        assertEquals(2, byDay.get(START).size());
+    }
+
+}
@@ -147,6 +147,8 @@ public class DerivedAllocationGeneratorTest {
                 result.getAssignedDurationDiscounting(isA(Map.class),
                         isA(LocalDate.class))).andReturn(hours(assignedHours))
                 .anyTimes();
+        GenericResourceAllocationTest.mockAssignmentsWithTheLoad(result,
+                new LocalDate(2009, 10, 1), new LocalDate(2009, 11, 1));
         replay(result);
         return result;
     }
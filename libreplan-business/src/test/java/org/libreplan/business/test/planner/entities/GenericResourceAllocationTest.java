@@ -59,9 +59,13 @@ import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.calendars.entities.Capacity;
 import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.calendars.entities.SameWorkHoursEveryDay;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.GenericDayAssignment;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.allocationalgorithms.ResourcesPerDayModification;
 import org.libreplan.business.resources.entities.Criterion;
@@ -178,9 +182,48 @@ public class GenericResourceAllocationTest {
             expect(
                     each.getAssignedDurationDiscounting(isA(Map.class),
                             isA(LocalDate.class))).andReturn(zero()).anyTimes();
+            expect(each.getAssignments()).andReturn(
+                    new ArrayList<DayAssignment>()).anyTimes();
         }
     }
 
+    /**
+     * The load of the resources being allocated is calculated from their day
+     * assignments. The mocked resource returns an assignment with its mocked
+     * load for each day of the interval. They belong to another allocation.
+     */
+    public static void mockAssignmentsWithTheLoad(final Resource resource,
+            final LocalDate start, final LocalDate endExclusive) {
+        final SpecificResourceAllocation other = createNiceMock(SpecificResourceAllocation.class);
+        replay(other);
+        expect(resource.getAssignments()).andAnswer(
+                new IAnswer<List<DayAssignment>>() {
+
+                    @Override
+                    public List<DayAssignment> answer() throws Throwable {
+                        List<DayAssignment> result = new ArrayList<DayAssignment>();
+                        for (LocalDate day = start; day.isBefore(endExclusive); day = day
+                                .plusDays(1)) {
+                            EffortDuration load = resource
+                                    .getAssignedDurationDiscounting(
+                                            new HashMap<Long, Set<BaseEntity>>(),
+                                            day);
+                            if (!load.isZero()) {
+                                SpecificDayAssignment assignment = SpecificDayAssignment
+                                        .create(day, load, resource);
+                                assignment.setSpecificResourceAllocation(other);
+                                result.add(assignment);
+                            }
+                        }
+                        return result;
+                    }
+                }).anyTimes();
+    }
+
+    private static final LocalDate LOAD_START = new LocalDate(2006, 9, 1);
+
+    private static final LocalDate LOAD_END = new LocalDate(2007, 1, 1);
+
     private void buildWorkersList() {
         workers = new ArrayList<Worker>();
         workers.add(worker1);
@@ -242,6 +285,7 @@ public class GenericResourceAllocationTest {
                         return loadSpec.getLoad(date);
                     }
                 }).anyTimes();
+        mockAssignmentsWithTheLoad(result, LOAD_START, LOAD_END);
         expect(result.getSatisfactionsFor(isA(Criterion.class))).andReturn(
                 satisfactionsForPredefinedCriterions(result)).anyTimes();
         replay(result);
@@ -822,6 +866,7 @@ public class GenericResourceAllocationTest {
                 worker.getAssignedDurationDiscounting(isA(Map.class),
                         isA(LocalDate.class))).andReturn(load)
                 .anyTimes();
+        mockAssignmentsWithTheLoad(worker, LOAD_START, LOAD_END);
         expect(worker.getCalendar()).andReturn(
                 createCalendar(ResourceCalendar.class, capacityPerDayAndUnit,
                         capacityUnits)).anyTimes();
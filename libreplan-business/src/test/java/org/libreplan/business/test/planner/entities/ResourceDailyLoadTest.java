@@ -0,0 +1,87 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.minutes;
+
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.ResourceDailyLoad;
+import org.libreplan.business.planner.entities.ResourceDailyLoad.Accumulator;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Tests for {@link ResourceDailyLoad}
+ */
+public class ResourceDailyLoadTest {
+
+    private static final LocalDate MONDAY = new LocalDate(2013, 4, 29);
+
+    private static ResourceDailyLoad find(List<ResourceDailyLoad> loads,
+            long resourceId, long scenarioId, LocalDate day) {
+        for (ResourceDailyLoad each : loads) {
+            if (each.getResourceId() == resourceId
+                    && each.getScenarioId() == scenarioId
+                    && each.getDay().equals(day)) {
+                return each;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void theAssignmentsOfAResourceOnADayAreSummed() {
+        Accumulator accumulator = new Accumulator();
+        accumulator.add(1L, 10L, MONDAY, hours(3), false);
+        accumulator.add(1L, 10L, MONDAY, hours(2), true);
+        accumulator.add(1L, 10L, MONDAY, minutes(30), true);
+        List<ResourceDailyLoad> loads = accumulator.getLoads();
+        assertEquals(1, loads.size());
+        ResourceDailyLoad load = loads.get(0);
+        assertEquals(hours(5).plus(minutes(30)), load.getAssignedEffort());
+        assertEquals(hours(2).plus(minutes(30)), load.getConsolidatedEffort());
+    }
+
+    @Test
+    public void eachResourceScenarioAndDayHasItsOwnLoad() {
+        Accumulator accumulator = new Accumulator();
+        accumulator.add(1L, 10L, MONDAY, hours(3), false);
+        accumulator.add(2L, 10L, MONDAY, hours(4), false);
+        accumulator.add(1L, 20L, MONDAY, hours(5), false);
+        accumulator.add(1L, 10L, MONDAY.plusDays(1), hours(6), false);
+        List<ResourceDailyLoad> loads = accumulator.getLoads();
+        assertEquals(4, loads.size());
+        assertEquals(hours(3), find(loads, 1L, 10L, MONDAY)
+                .getAssignedEffort());
+        assertEquals(hours(4), find(loads, 2L, 10L, MONDAY)
+                .getAssignedEffort());
+        assertEquals(hours(5), find(loads, 1L, 20L, MONDAY)
+                .getAssignedEffort());
+        assertEquals(hours(6), find(loads, 1L, 10L, MONDAY.plusDays(1))
+                .getAssignedEffort());
+        assertEquals(EffortDuration.zero(), find(loads, 1L, 10L, MONDAY)
+                .getConsolidatedEffort());
+    }
+
+}
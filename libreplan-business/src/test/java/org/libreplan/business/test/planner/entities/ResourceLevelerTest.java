@@ -0,0 +1,168 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.planner.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.libreplan.business.planner.entities.ResourceLeveler;
+
+public class ResourceLevelerTest {
+
+    private static final int EIGHT_HOURS = 8 * 3600;
+
+    private ResourceLeveler leveler;
+
+    private void givenLeveler(int resources, int days) {
+        leveler = ResourceLeveler.create(resources, days);
+        for (int resource = 0; resource < resources; resource++) {
+            for (int day = 0; day < days; day++) {
+                leveler.setCapacity(resource, day, EIGHT_HOURS);
+            }
+        }
+    }
+
+    private int givenFixedTaskLoading(int resource, int day) {
+        int result = leveler.addFixedTask(day);
+        leveler.addLoad(result, resource, day, EIGHT_HOURS);
+        return result;
+    }
+
+    private int givenTaskLoading(int resource, int day, int minStart,
+            int maxStart) {
+        int result = leveler.addTask(day, minStart, maxStart);
+        leveler.addLoad(result, resource, day, EIGHT_HOURS);
+        return result;
+    }
+
+    @Test
+    public void theOverloadIsTheLoadExceedingTheCapacity() {
+        givenLeveler(1, 3);
+        givenFixedTaskLoading(0, 0);
+        givenFixedTaskLoading(0, 0);
+        givenFixedTaskLoading(0, 1);
+
+        assertEquals(EIGHT_HOURS, leveler.getTotalOverload());
+    }
+
+    @Test
+    public void theFixedTasksAreNotMoved() {
+        givenLeveler(1, 3);
+        int first = givenFixedTaskLoading(0, 0);
+        int second = givenFixedTaskLoading(0, 0);
+
+        assertEquals(0, leveler.level(10));
+        assertFalse(leveler.isMoved(first));
+        assertFalse(leveler.isMoved(second));
+        assertEquals(EIGHT_HOURS, leveler.getTotalOverload());
+    }
+
+    @Test
+    public void aTaskIsMovedToTheClosestDayWithCapacityLeft() {
+        givenLeveler(1, 5);
+        givenFixedTaskLoading(0, 2);
+        givenFixedTaskLoading(0, 3);
+        int movable = givenTaskLoading(0, 2, 0, 4);
+
+        assertEquals(1, leveler.level(10));
+        assertEquals(1, leveler.getStart(movable));
+        assertEquals(0, leveler.getTotalOverload());
+    }
+
+    @Test
+    public void theTasksAreNotMovedIfTheOverloadIsNotReduced() {
+        givenLeveler(1, 3);
+        givenFixedTaskLoading(0, 0);
+        givenFixedTaskLoading(0, 1);
+        givenFixedTaskLoading(0, 2);
+        int movable = givenTaskLoading(0, 0, 0, 2);
+
+        assertEquals(0, leveler.level(10));
+        assertFalse(leveler.isMoved(movable));
+        assertEquals(EIGHT_HOURS, leveler.getTotalOverload());
+    }
+
+    @Test
+    public void thePrecedencesAreKept() {
+        givenLeveler(1, 4);
+        givenFixedTaskLoading(0, 0);
+        int movable = givenTaskLoading(0, 0, 0, 3);
+        int successor = leveler.addFixedTask(2);
+        leveler.addPrecedence(movable, successor, 2);
+
+        assertEquals(0, leveler.level(10));
+        assertFalse(leveler.isMoved(movable));
+    }
+
+    @Test
+    public void theTasksCanBeMovedWithinThePrecedences() {
+        givenLeveler(1, 4);
+        givenFixedTaskLoading(0, 1);
+        int predecessor = leveler.addFixedTask(0);
+        int movable = givenTaskLoading(0, 1, 0, 3);
+        leveler.addPrecedence(predecessor, movable, 1);
+
+        assertEquals(1, leveler.level(10));
+        assertEquals(2, leveler.getStart(movable));
+    }
+
+    @Test
+    public void theWholeLoadOfTheTaskIsMoved() {
+        givenLeveler(2, 4);
+        givenFixedTaskLoading(1, 1);
+        int movable = leveler.addTask(0, 0, 2);
+        leveler.addLoad(movable, 0, 0, EIGHT_HOURS);
+        leveler.addLoad(movable, 1, 1, EIGHT_HOURS);
+
+        assertEquals(1, leveler.level(10));
+        assertEquals(1, leveler.getStart(movable));
+        assertEquals(0, leveler.getTotalOverload());
+    }
+
+    @Test
+    public void theOverloadedDaysAreLeveledUntilNoMoveReducesTheOverload() {
+        givenLeveler(1, 4);
+        int[] tasks = new int[4];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = givenTaskLoading(0, 0, 0, 3);
+        }
+
+        assertEquals(3, leveler.level(10));
+        assertEquals(0, leveler.getTotalOverload());
+        boolean[] usedDays = new boolean[4];
+        for (int each : tasks) {
+            assertFalse(usedDays[leveler.getStart(each)]);
+            usedDays[leveler.getStart(each)] = true;
+        }
+    }
+
+    @Test
+    public void theMovesAreLimited() {
+        givenLeveler(1, 4);
+        for (int i = 0; i < 4; i++) {
+            givenTaskLoading(0, 0, 0, 3);
+        }
+
+        assertEquals(1, leveler.level(1));
+        assertTrue(leveler.getTotalOverload() > 0);
+    }
+
+}
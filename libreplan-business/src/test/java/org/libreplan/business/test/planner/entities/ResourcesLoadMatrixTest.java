@@ -0,0 +1,178 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.planner.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortForResource;
+import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortFromAssignments;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.ResourcesLoadMatrix;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+
+public class ResourcesLoadMatrixTest {
+
+    private static final LocalDate START = new LocalDate(2013, 3, 4);
+
+    private Worker first;
+
+    private Worker second;
+
+    private Map<Resource, List<DayAssignment>> assignments;
+
+    private List<Resource> retrieved;
+
+    private List<LocalDate> asked;
+
+    private ResourcesLoadMatrix matrix;
+
+    @Before
+    public void setUp() {
+        first = Worker.create();
+        second = Worker.create();
+        assignments = new HashMap<Resource, List<DayAssignment>>();
+        retrieved = new ArrayList<Resource>();
+        asked = new ArrayList<LocalDate>();
+        givenAssignment(first, START, hours(4));
+        givenAssignment(first, START, hours(2));
+        givenAssignment(first, START.plusDays(10), hours(1));
+        givenAssignment(second, START.minusDays(3), hours(8));
+        matrix = ResourcesLoadMatrix.create(Arrays.asList(first, second),
+                new IAssignedEffortFromAssignments() {
+
+                    @Override
+                    public EffortDuration getAssignedDurationAt(
+                            Resource resource, LocalDate day) {
+                        asked.add(day);
+                        EffortDuration result = zero();
+                        for (DayAssignment each : getCountedAssignments(resource)) {
+                            if (each.getDay().equals(day)) {
+                                result = result.plus(each.getDuration());
+                            }
+                        }
+                        return result;
+                    }
+
+                    @Override
+                    public List<DayAssignment> getCountedAssignments(
+                            Resource resource) {
+                        retrieved.add(resource);
+                        List<DayAssignment> result = assignments.get(resource);
+                        return result != null ? result
+                                : new ArrayList<DayAssignment>();
+                    }
+                });
+    }
+
+    private void givenAssignment(Worker worker, LocalDate day,
+            EffortDuration duration) {
+        if (!assignments.containsKey(worker)) {
+            assignments.put(worker, new ArrayList<DayAssignment>());
+        }
+        assignments.get(worker).add(
+                SpecificDayAssignment.create(day, duration, worker));
+    }
+
+    @Test
+    public void returnsTheEffortOfTheCountedAssignments() {
+        assertEquals(hours(6), matrix.getAssignedDurationAt(first, START));
+        assertEquals(hours(1),
+                matrix.getAssignedDurationAt(first, START.plusDays(10)));
+        assertEquals(hours(8),
+                matrix.getAssignedDurationAt(second, START.minusDays(3)));
+        assertEquals(hours(8), matrix.getAssignedDurationAt(
+                matrix.indexOf(second), START.minusDays(3)));
+    }
+
+    @Test
+    public void theDaysWithoutAssignmentsHaveNoEffort() {
+        assertEquals(zero(), matrix.getAssignedDurationAt(first,
+                START.plusDays(1)));
+        assertEquals(zero(), matrix.getAssignedDurationAt(first,
+                START.minusDays(700)));
+        assertEquals(zero(), matrix.getAssignedDurationAt(second,
+                START.plusDays(400)));
+        assertEquals(0, asked.size());
+    }
+
+    @Test
+    public void theAssignmentsOfEachResourceAreRetrievedOnlyOnce() {
+        for (int i = 0; i < 3; i++) {
+            matrix.getAssignedDurationAt(first, START.plusDays(i));
+            matrix.getAssignedDurationAt(second, START.plusDays(i));
+        }
+        assertEquals(Arrays.<Resource> asList(first, second), retrieved);
+        assertEquals(0, asked.size());
+    }
+
+    @Test
+    public void onlyTheRowsOfTheModifiedResourcesAreBuiltAgain() {
+        retrieved.clear();
+        givenAssignment(first, START.plusDays(20), hours(3));
+        first.loadModified();
+        assertEquals(hours(3),
+                matrix.getAssignedDurationAt(first, START.plusDays(20)));
+        assertEquals(hours(8),
+                matrix.getAssignedDurationAt(second, START.minusDays(3)));
+        assertEquals(Arrays.<Resource> asList(first), retrieved);
+    }
+
+    @Test
+    public void theResourcesNotIncludedAreAskedEveryTime() {
+        Worker other = Worker.create();
+        matrix.getAssignedDurationAt(other, START);
+        matrix.getAssignedDurationAt(other, START);
+        assertEquals(-1, matrix.indexOf(other));
+        assertEquals(2, asked.size());
+    }
+
+    @Test
+    public void ifTheAssignmentsCantBeRetrievedTheEffortIsAskedEveryTime() {
+        ResourcesLoadMatrix withoutAssignments = ResourcesLoadMatrix.create(
+                Arrays.asList(first), new IAssignedEffortForResource() {
+
+                    @Override
+                    public EffortDuration getAssignedDurationAt(
+                            Resource resource, LocalDate day) {
+                        asked.add(day);
+                        return hours(day.getDayOfMonth());
+                    }
+                });
+        assertEquals(hours(4),
+                withoutAssignments.getAssignedDurationAt(first, START));
+        assertEquals(hours(4),
+                withoutAssignments.getAssignedDurationAt(first, START));
+        assertEquals(2, asked.size());
+    }
+
+}
@@ -175,6 +175,39 @@ public class ShareDivisionTest {
         assertArrayEquals(new int[] { 3, 0, 0, 3, 3, 0 }, difference);
     }
 
+    @Test
+    public void theIncrementsCanBeCalculatedWithoutCreatingShares() {
+        assertArrayEquals(new int[] { 0, 4, 0 },
+                ShareDivision.increments(new int[] { 10, 5, 10 }, 4));
+        assertArrayEquals(new int[] { 3, 3, 2 },
+                ShareDivision.increments(new int[] { 10, 10, 10 }, 8));
+        assertArrayEquals(new int[] { 0, 5, 3 },
+                ShareDivision.increments(new int[] { 2, -5, -3 }, 8));
+        assertArrayEquals(new int[0], ShareDivision.increments(new int[0], 3));
+    }
+
+    @Test
+    public void theIncrementsAreTheSameAsTheDifferenceOfTheDivisions() {
+        int[][] examples = { { 2, 5, 10 }, { 10, 5, 5, 10 }, { 7, 1, 7, 1 },
+                { 2, 0, Integer.MAX_VALUE, Integer.MAX_VALUE } };
+        for (int[] each : examples) {
+            givenDivisionShare(asShares(each));
+            for (int increase = 0; increase < 30; increase++) {
+                assertArrayEquals(shareDivision.to(shareDivision
+                        .plus(increase)), ShareDivision.increments(each,
+                        increase));
+            }
+        }
+    }
+
+    private static Share[] asShares(int[] values) {
+        Share[] result = new Share[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = new Share(values[i]);
+        }
+        return result;
+    }
+
     @Test
     @Ignore("TODO handling substractions")
     public void canDistributeSubstraction() {
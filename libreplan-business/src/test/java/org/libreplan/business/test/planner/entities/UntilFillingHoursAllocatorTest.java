@@ -259,6 +259,63 @@ public class UntilFillingHoursAllocatorTest {
         assertThat(end, equalTo(expectedEnd));
     }
 
+    @Test
+    public void theLongPeriodsWithoutEffortAreSkipped() {
+        AvailabilityTimeLine availability = AvailabilityTimeLine.allValid();
+        availability.invalidAt(new LocalDate(2009, 10, 12), new LocalDate(
+                2010, 3, 1));
+        givenCalendarWithAvailability(availability, hours(8));
+        givenSpecificAllocations(ResourcesPerDay.amount(1));
+        IntraDayDate end = ResourceAllocation.allocating(allocations)
+                .untilAllocating(hours(24));
+        LocalDate firstValid = firstValidFrom(availability, new LocalDate(
+                2009, 10, 12));
+        assertThat(end, equalTo(IntraDayDate.startOfDay(firstValid
+                .plusDays(1))));
+        assertThat(allocations.get(0).getBeingModified().getAssignments(),
+                haveHours(8, 8, 8));
+    }
+
+    @Test
+    public void theLongPeriodsWithoutEffortAreSkippedWhenAllocatingFromEnd() {
+        givenStartDate(IntraDayDate.startOfDay(new LocalDate(2009, 10, 10)));
+        givenEndDate(IntraDayDate.startOfDay(new LocalDate(2010, 3, 10)));
+        AvailabilityTimeLine availability = AvailabilityTimeLine.allValid();
+        availability.invalidAt(new LocalDate(2009, 10, 12), new LocalDate(
+                2010, 3, 9));
+        givenCalendarWithAvailability(availability, hours(8));
+        givenSpecificAllocations(ResourcesPerDay.amount(1));
+        IntraDayDate newStart = ResourceAllocation.allocating(allocations)
+                .untilAllocating(Direction.BACKWARD, hours(24));
+        LocalDate expectedStart = thirdValidDayUntil(availability, new LocalDate(2010,
+                3, 9));
+        assertThat(newStart, equalTo(IntraDayDate.startOfDay(expectedStart)));
+    }
+
+    private LocalDate firstValidFrom(AvailabilityTimeLine availability,
+            LocalDate day) {
+        LocalDate result = day;
+        while (!availability.isValid(result)) {
+            result = result.plusDays(1);
+        }
+        return result;
+    }
+
+    /**
+     * @return the start of the third valid day going backwards from the given
+     *         one
+     */
+    private LocalDate thirdValidDayUntil(AvailabilityTimeLine availability,
+            LocalDate day) {
+        LocalDate result = day;
+        for (int found = 0; found < 3; result = result.minusDays(1)) {
+            if (availability.isValid(result)) {
+                found++;
+            }
+        }
+        return result.plusDays(1);
+    }
+
     private void givenTaskOfDaysLength(int days) {
         this.initialLengthDaysForTask = days;
     }
@@ -0,0 +1,149 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.planner.limiting.entities;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.Gap;
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+public class GapsIndexTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private LimitingResourceQueue queue;
+
+    private GapsIndex index;
+
+    @Before
+    public void setUp() {
+        ResourceCalendar calendar = createNiceMock(ResourceCalendar.class);
+        expect(calendar.getCapacityOn(isA(PartialDay.class))).andReturn(
+                EffortDuration.hours(8)).anyTimes();
+        replay(calendar);
+        Resource resource = createNiceMock(Worker.class);
+        expect(resource.getCalendar()).andReturn(calendar).anyTimes();
+        replay(resource);
+        queue = LimitingResourceQueue.create();
+        queue.setResource(resource);
+        index = GapsIndex.create();
+    }
+
+    private DateAndHour day(int day) {
+        return new DateAndHour(START.plusDays(day), 0);
+    }
+
+    private GapOnQueue gap(int startDay, Integer endDay) {
+        return Gap.create(queue.getResource(), day(startDay),
+                endDay != null ? day(endDay) : null).onQueue(queue);
+    }
+
+    @Test
+    public void theGapsAreOrderedByStartTime() {
+        GapOnQueue first = gap(0, 2);
+        GapOnQueue second = gap(3, 4);
+        GapOnQueue third = gap(6, null);
+        index.add(third);
+        index.add(first);
+        index.add(second);
+        assertEquals(Arrays.asList(first, second, third), index.getGaps());
+    }
+
+    @Test
+    public void theRemovedGapsAreNotFound() {
+        GapOnQueue first = gap(0, 2);
+        GapOnQueue second = gap(3, 4);
+        index.addAll(Arrays.asList(first, second));
+        index.remove(first);
+        assertEquals(Arrays.asList(second), index.getGapsEndingAfter(day(0)));
+        index.remove(second);
+        assertTrue(index.getGapsEndingAfter(day(0)).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void onlyTheGapsEndingAfterTheTimeAreRetrieved() {
+        GapOnQueue first = gap(0, 2);
+        GapOnQueue second = gap(3, 4);
+        GapOnQueue last = gap(6, null);
+        index.addAll(Arrays.asList(first, second, last));
+        assertEquals(Arrays.asList(second, last),
+                index.getGapsEndingAfter(day(3)));
+    }
+
+    @Test
+    public void givesTheSameResultsThanALinearSearch() {
+        Random random = new Random(3);
+        List<GapOnQueue> gaps = new ArrayList<GapOnQueue>();
+        int day = 0;
+        for (int i = 0; i < 200; i++) {
+            day += random.nextInt(3);
+            int end = day + 1 + random.nextInt(5);
+            gaps.add(gap(day, end));
+            day = end;
+        }
+        List<GapOnQueue> shuffled = new ArrayList<GapOnQueue>(gaps);
+        Collections.shuffle(shuffled, random);
+        index.addAll(shuffled);
+        for (GapOnQueue each : shuffled.subList(0, 50)) {
+            index.remove(each);
+            gaps.remove(each);
+        }
+        assertEquals(gaps, index.getGaps());
+        for (int i = 0; i < 100; i++) {
+            DateAndHour time = day(random.nextInt(day));
+            assertEquals(linearSearch(gaps, time),
+                    index.getGapsEndingAfter(time));
+        }
+    }
+
+    private List<GapOnQueue> linearSearch(List<GapOnQueue> gaps,
+            DateAndHour time) {
+        List<GapOnQueue> result = new ArrayList<GapOnQueue>();
+        for (GapOnQueue each : gaps) {
+            if (each.getGap().getEndTime().isAfter(time)) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.resources.daos;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.resources.daos.ResourcesSearchIndex;
+import org.libreplan.business.resources.entities.Machine;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.ResourceType;
+import org.libreplan.business.resources.entities.Worker;
+
+public class ResourcesSearchIndexTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private static final long SKILL = 100L;
+
+    private static final long SUBSKILL = 101L;
+
+    private static final long LOCATION = 200L;
+
+    private ResourcesSearchIndex.Builder builder;
+
+    @Before
+    public void setUp() {
+        builder = ResourcesSearchIndex.builder()
+                .addWorker(1L, ResourceType.NON_LIMITING_RESOURCE, "Jane",
+                        "Doe", "1234A")
+                .addWorker(2L, ResourceType.NON_LIMITING_RESOURCE, "John",
+                        "Smith", "5678B")
+                .addWorker(3L, ResourceType.LIMITING_RESOURCE, "Ann",
+                        "Roe", "9012C")
+                .addMachine(4L, ResourceType.NON_LIMITING_RESOURCE,
+                        "Crane", "MC-1")
+                .addCriterion(SKILL, null).addCriterion(SUBSKILL, SKILL)
+                .addCriterion(LOCATION, null);
+    }
+
+    private List<Long> search(Class<? extends Resource> klass,
+            ResourceType type, String name, Long... criteria) {
+        return builder.build().search(klass, type, name,
+                criteria.length == 0 ? null : asList(criteria));
+    }
+
+    @Test
+    public void theResourcesCanBeRestrictedByClassAndType() {
+        assertEquals(asList(1L, 2L),
+                search(Worker.class, ResourceType.NON_LIMITING_RESOURCE, null));
+        assertEquals(asList(3L),
+                search(Worker.class, ResourceType.LIMITING_RESOURCE, null));
+        assertEquals(asList(4L), search(Machine.class, null, null));
+        assertEquals(asList(1L, 2L, 3L, 4L), search(Resource.class, null,
+                null));
+    }
+
+    @Test
+    public void theNamesAreMatchedIgnoringTheCaseExceptTheNif() {
+        assertEquals(asList(1L), search(Worker.class, null, "jan"));
+        assertEquals(asList(2L), search(Worker.class, null, "SMI"));
+        assertEquals(asList(2L), search(Worker.class, null, "78B"));
+        assertTrue(search(Worker.class, null, "78b").isEmpty());
+        assertEquals(asList(4L), search(Machine.class, null, "mc-"));
+    }
+
+    @Test
+    public void theNamesAreMatchedWithTheWildcardsOfALike() {
+        assertEquals(asList(1L), search(Worker.class, null, "j%e"));
+        assertEquals(asList(1L, 2L), search(Worker.class, null, "j_"));
+        assertEquals(asList(2L), search(Worker.class, null, "5_78"));
+        assertTrue(search(Worker.class, null, "doe%jane").isEmpty());
+        assertEquals(asList(4L), search(Machine.class, null, "mc\\-1"));
+    }
+
+    @Test
+    public void theResourcesWithoutTypeAreOnlyFoundWithoutRestrictingIt() {
+        builder.addWorker(5L, null, "Richard", "Roe", "3456D");
+
+        assertEquals(asList(1L, 2L),
+                search(Worker.class, ResourceType.NON_LIMITING_RESOURCE, null));
+        assertEquals(asList(3L, 5L), search(Worker.class, null, "roe"));
+    }
+
+    @Test
+    public void theResourcesSatisfyingTheDescendantsOfACriterionAreFound() {
+        builder.addSatisfaction(1L, SKILL, START, null);
+        builder.addSatisfaction(2L, SUBSKILL, START, START.plusDays(10));
+        builder.addSatisfaction(4L, LOCATION, START, null);
+
+        assertEquals(asList(1L, 2L), search(Resource.class, null, null, SKILL));
+        assertEquals(asList(2L), search(Resource.class, null, null, SUBSKILL));
+    }
+
+    @Test
+    public void theEmptySatisfactionsAreIgnored() {
+        builder.addSatisfaction(1L, SKILL, START, START);
+
+        assertTrue(search(Worker.class, null, null, SKILL).isEmpty());
+    }
+
+    @Test
+    public void allTheCriteriaMustBeSatisfiedAtTheSameTime() {
+        builder.addSatisfaction(1L, SKILL, START, START.plusDays(10));
+        builder.addSatisfaction(1L, LOCATION, START.plusDays(5), null);
+        builder.addSatisfaction(2L, SUBSKILL, START, START.plusDays(10));
+        builder.addSatisfaction(2L, LOCATION, START.plusDays(10), null);
+
+        assertEquals(asList(1L),
+                search(Worker.class, null, null, SKILL, LOCATION));
+    }
+
+    @Test
+    public void theSatisfactionsOfTheDescendantsAreJoined() {
+        builder.addSatisfaction(1L, SKILL, START, START.plusDays(10));
+        builder.addSatisfaction(1L, SUBSKILL, START.plusDays(10),
+                START.plusDays(20));
+        builder.addSatisfaction(1L, LOCATION, START.plusDays(15), null);
+
+        assertEquals(asList(1L),
+                search(Worker.class, null, null, SKILL, LOCATION));
+    }
+
+    @Test
+    public void theUnknownCriteriaAreNotSatisfied() {
+        builder.addSatisfaction(1L, SKILL, START, null);
+
+        assertEquals(Collections.<Long> emptyList(),
+                search(Worker.class, null, null, 999L));
+    }
+
+    @Test
+    public void theNameAndTheCriteriaAreCombined() {
+        builder.addSatisfaction(1L, SKILL, START, null);
+        builder.addSatisfaction(2L, SKILL, START, null);
+
+        assertEquals(asList(2L), search(Worker.class, null, "john", SKILL));
+    }
+
+}
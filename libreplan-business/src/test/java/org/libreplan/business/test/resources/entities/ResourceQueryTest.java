@@ -0,0 +1,167 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.resources.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.test.resources.daos.CriterionSatisfactionDAOTest.year;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.CriterionSatisfaction;
+import org.libreplan.business.resources.entities.Interval;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.test.resources.daos.CriterionDAOTest;
+
+/**
+ * Tests for the temporal queries of {@link Resource#query()}
+ */
+public class ResourceQueryTest {
+
+    private Worker worker;
+
+    private Criterion criterion;
+
+    private Criterion other;
+
+    @Before
+    public void setUp() {
+        worker = Worker.create("firstName", "surName", "2333232");
+        criterion = CriterionDAOTest.createValidCriterion();
+        other = CriterionDAOTest.createValidCriterion();
+    }
+
+    private CriterionSatisfaction add(Criterion criterion, LocalDate start,
+            LocalDate end) {
+        CriterionSatisfaction result = CriterionSatisfaction.create(start,
+                criterion, worker);
+        if (end != null) {
+            result.finish(end);
+        }
+        worker.addUnvalidatedSatisfaction(result);
+        return result;
+    }
+
+    @Test
+    public void findsTheSatisfactionEnforcedAtADate() {
+        List<CriterionSatisfaction> satisfactions = new ArrayList<CriterionSatisfaction>();
+        for (int year = 1900; year < 2000; year++) {
+            satisfactions.add(add(criterion, year(year), year(year + 1)));
+        }
+        assertEquals(Arrays.asList(satisfactions.get(50)), worker.query()
+                .from(criterion).at(year(1950).plusDays(10)).result());
+        assertEquals(satisfactions.subList(10, 13),
+                worker.query().from(criterion)
+                        .overlapsWith(Interval.range(year(1910), year(1913)))
+                        .result());
+        assertTrue(worker.query().from(other).at(year(1950)).result()
+                .isEmpty());
+        assertTrue(worker.query().from(criterion).at(year(2010)).result()
+                .isEmpty());
+    }
+
+    @Test
+    public void theResultIsOrderedByStart() {
+        CriterionSatisfaction second = add(criterion, year(2005), null);
+        CriterionSatisfaction first = add(criterion, year(2000), year(2003));
+        CriterionSatisfaction ofOther = add(other, year(2001), null);
+        assertEquals(Arrays.asList(first, ofOther, second), worker.query()
+                .result());
+        assertEquals(Arrays.asList(first, second), worker.query()
+                .from(criterion).result());
+        assertEquals(Arrays.asList(ofOther, second), worker.query()
+                .overlapsWith(Interval.from(year(2004))).result());
+    }
+
+    @Test
+    public void theChangesOnTheSatisfactionsAreTakenIntoAccount() {
+        CriterionSatisfaction satisfaction = add(criterion, year(2000), null);
+        assertEquals(Arrays.asList(satisfaction),
+                worker.query().from(criterion).at(year(2010)).result());
+
+        satisfaction.finish(year(2005));
+        assertTrue(worker.query().from(criterion).at(year(2010)).result()
+                .isEmpty());
+
+        satisfaction.noFinish();
+        satisfaction.setCriterion(other);
+        assertTrue(worker.query().from(criterion).at(year(2010)).result()
+                .isEmpty());
+        assertEquals(Arrays.asList(satisfaction),
+                worker.query().from(other).at(year(2010)).result());
+
+        satisfaction.setIsDeleted(true);
+        assertTrue(worker.query().from(other).result().isEmpty());
+        satisfaction.setIsDeleted(false);
+
+        worker.removeCriterionSatisfaction(satisfaction);
+        assertTrue(worker.query().result().isEmpty());
+    }
+
+    @Test
+    public void returnsTheSameAsCheckingAllTheSatisfactions() {
+        Random random = new Random(1);
+        LocalDate origin = year(2000);
+        for (int i = 0; i < 300; i++) {
+            LocalDate start = origin.plusDays(random.nextInt(1000));
+            LocalDate end = random.nextInt(5) == 0 ? null : start
+                    .plusDays(random.nextInt(100));
+            add(random.nextBoolean() ? criterion : other, start, end);
+        }
+        for (int i = 0; i < 200; i++) {
+            LocalDate start = origin.plusDays(random.nextInt(1100) - 50);
+            LocalDate end = random.nextInt(5) == 0 ? null : start
+                    .plusDays(random.nextInt(50));
+            Interval interval = Interval.range(start, end);
+            assertEquals(
+                    checkingAll(criterion, interval, false),
+                    worker.query().from(criterion).overlapsWith(interval)
+                            .result());
+            assertEquals(checkingAll(criterion, interval, true), worker
+                    .query().from(criterion).enforcedInAll(interval).result());
+        }
+    }
+
+    private List<CriterionSatisfaction> checkingAll(Criterion criterion,
+            Interval interval, boolean enforcedInAll) {
+        List<CriterionSatisfaction> result = new ArrayList<CriterionSatisfaction>();
+        for (CriterionSatisfaction each : worker.getCriterionSatisfactions()) {
+            if (!each.getCriterion().equals(criterion)) {
+                continue;
+            }
+            if (enforcedInAll ? each.isAlwaysEnforcedIn(interval) : each
+                    .overlapsWith(interval)) {
+                result.add(each);
+            }
+        }
+        Collections.sort(result, CriterionSatisfaction.BY_START_COMPARATOR);
+        return result;
+    }
+
+}
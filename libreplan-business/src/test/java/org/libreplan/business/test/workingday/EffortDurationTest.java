@@ -224,4 +224,28 @@ public class EffortDurationTest {
         assertThat(minutes(30).roundToHours(), equalTo(1));
     }
 
+    @Test
+    public void theDurationsOfWholeMinutesUpToADayAreShared() {
+        assertTrue(zero() == seconds(0));
+        assertTrue(hours(8) == minutes(480));
+        assertTrue(hours(2).plus(minutes(30)) == minutes(150));
+        assertTrue(hours(24) == hours(24));
+        assertThat(hours(25), equalTo(hours(25)));
+        assertThat(seconds(61), equalTo(minutes(1).and(1, Granularity.SECONDS)));
+    }
+
+    @Test
+    public void canSumTheSecondsWithoutCreatingIntermediateDurations() {
+        int sum = EffortDuration.sumSeconds(
+                asList(hours(1), minutes(30), seconds(5)),
+                new EffortDuration.IEffortFrom<EffortDuration>() {
+
+                    @Override
+                    public EffortDuration from(EffortDuration each) {
+                        return each;
+                    }
+                });
+        assertThat(sum, equalTo(3600 + 1800 + 5));
+    }
+
 }
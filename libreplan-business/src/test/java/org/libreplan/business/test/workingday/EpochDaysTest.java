@@ -0,0 +1,56 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.workingday;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.libreplan.business.workingday.EpochDays.fromEpochDay;
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.workingday.EpochDays;
+
+public class EpochDaysTest {
+
+    @Test
+    public void theEpochIsTheDayZero() {
+        assertThat(toEpochDay(EpochDays.EPOCH), equalTo(0));
+        assertThat(toEpochDay(new LocalDate(1970, 1, 2)), equalTo(1));
+        assertThat(toEpochDay(new LocalDate(1969, 12, 31)), equalTo(-1));
+    }
+
+    @Test
+    public void itsTheNumberOfDaysSinceTheEpoch() {
+        LocalDate day = new LocalDate(1899, 1, 1);
+        for (int i = 0; i < 365 * 250; i += 7) {
+            LocalDate each = day.plusDays(i);
+            assertThat(toEpochDay(each), equalTo(Days.daysBetween(
+                    EpochDays.EPOCH, each).getDays()));
+        }
+    }
+
+    @Test
+    public void epochDaysCanBeConvertedBackToDates() {
+        LocalDate someDate = new LocalDate(2012, 2, 29);
+        assertThat(fromEpochDay(toEpochDay(someDate)), equalTo(someDate));
+    }
+
+}
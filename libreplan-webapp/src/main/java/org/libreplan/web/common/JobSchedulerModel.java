@@ -19,8 +19,12 @@
 
 package org.libreplan.web.common;
 
+import static org.libreplan.web.I18nHelper._;
+
+import java.util.Collections;
 import java.util.List;
 
+import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IConnectorDAO;
 import org.libreplan.business.common.daos.IJobSchedulerConfigurationDAO;
 import org.libreplan.business.common.entities.Connector;
@@ -35,6 +39,10 @@ import org.libreplan.importers.IJiraOrderElementSynchronizer;
 import org.libreplan.importers.ISchedulerManager;
 import org.libreplan.importers.SynchronizationInfo;
 import org.libreplan.web.common.concurrentdetection.OnConcurrentModification;
+import org.libreplan.web.planner.leveling.IScenarioLeveler;
+import org.libreplan.web.planner.leveling.LevelingReport;
+import org.libreplan.web.planner.replanning.IOrdersReplanner;
+import org.libreplan.web.planner.replanning.ReplanningReport;
 import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -73,6 +81,12 @@ public class JobSchedulerModel implements IJobSchedulerModel {
     @Autowired
     private IJiraOrderElementSynchronizer jiraOrderElementSynchronizer;
 
+    @Autowired
+    private IOrdersReplanner ordersReplanner;
+
+    @Autowired
+    private IScenarioLeveler scenarioLeveler;
+
     private List<SynchronizationInfo> synchronizationInfos;
 
     @Override
@@ -105,9 +119,37 @@ public class JobSchedulerModel implements IJobSchedulerModel {
                     .syncOrderElementsWithJiraIssues();
             return;
         }
+        if (name.equals(JobClassNameEnum.REPLAN_ORDERS_JOB.getName())) {
+            synchronizationInfos = asSynchronizationInfos(ordersReplanner
+                    .replanAll());
+            return;
+        }
+        if (name.equals(JobClassNameEnum.LEVEL_RESOURCES_JOB.getName())) {
+            LocalDate today = new LocalDate();
+            synchronizationInfos = asSynchronizationInfos(scenarioLeveler
+                    .level(today,
+                            today.plusMonths(IScenarioLeveler.DEFAULT_MONTHS)));
+            return;
+        }
         throw new RuntimeException("Unknown action");
     }
 
+    private List<SynchronizationInfo> asSynchronizationInfos(
+            ReplanningReport report) {
+        SynchronizationInfo result = new SynchronizationInfo(_(
+                "Replanning {0} projects", report.getOrdersToReplan()));
+        for (String each : report.getFailedReasons()) {
+            result.addFailedReason(each);
+        }
+        return Collections.singletonList(result);
+    }
+
+    private List<SynchronizationInfo> asSynchronizationInfos(
+            LevelingReport report) {
+        return Collections.singletonList(new SynchronizationInfo(_(
+                "Leveling resources: {0} tasks moved", report.getMovedTasks())));
+    }
+
     @Override
     public List<SynchronizationInfo> getSynchronizationInfos() {
         return synchronizationInfos;
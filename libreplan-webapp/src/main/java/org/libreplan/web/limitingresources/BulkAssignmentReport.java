@@ -0,0 +1,143 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.limitingresources;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+
+/**
+ * Result of assigning all the unassigned
+ * {@link LimitingResourceQueueElement} in one pass
+ */
+public class BulkAssignmentReport {
+
+    public static class Assignment {
+
+        private final LimitingResourceQueueElement element;
+
+        private final LimitingResourceQueue queue;
+
+        private final DateAndHour start;
+
+        private final DateAndHour end;
+
+        private Assignment(LimitingResourceQueueElement element) {
+            this.element = element;
+            this.queue = element.getLimitingResourceQueue();
+            this.start = element.getStartTime();
+            this.end = element.getEndTime();
+        }
+
+        public LimitingResourceQueueElement getElement() {
+            return element;
+        }
+
+        public LimitingResourceQueue getQueue() {
+            return queue;
+        }
+
+        public DateAndHour getStart() {
+            return start;
+        }
+
+        public DateAndHour getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return element + " on " + queue + ": " + start + " - " + end;
+        }
+
+    }
+
+    /**
+     * @param elements
+     *            the elements that were unassigned in the order they were
+     *            tried
+     * @param moved
+     *            the elements that were already assigned and have been moved
+     */
+    static BulkAssignmentReport create(
+            List<LimitingResourceQueueElement> elements,
+            List<LimitingResourceQueueElement> moved, boolean dryRun,
+            long elapsedMillis) {
+        return new BulkAssignmentReport(elements, moved, dryRun,
+                elapsedMillis);
+    }
+
+    private final List<Assignment> assigned = new ArrayList<Assignment>();
+
+    private final List<LimitingResourceQueueElement> notAssigned = new ArrayList<LimitingResourceQueueElement>();
+
+    private final List<Assignment> moved = new ArrayList<Assignment>();
+
+    private final boolean dryRun;
+
+    private final long elapsedMillis;
+
+    private BulkAssignmentReport(List<LimitingResourceQueueElement> elements,
+            List<LimitingResourceQueueElement> moved, boolean dryRun,
+            long elapsedMillis) {
+        for (LimitingResourceQueueElement each : elements) {
+            if (each.isDetached()) {
+                notAssigned.add(each);
+            } else {
+                assigned.add(new Assignment(each));
+            }
+        }
+        for (LimitingResourceQueueElement each : moved) {
+            if (!each.isDetached()) {
+                this.moved.add(new Assignment(each));
+            }
+        }
+        this.dryRun = dryRun;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<Assignment> getAssigned() {
+        return Collections.unmodifiableList(assigned);
+    }
+
+    public List<LimitingResourceQueueElement> getNotAssigned() {
+        return Collections.unmodifiableList(notAssigned);
+    }
+
+    public List<Assignment> getMoved() {
+        return Collections.unmodifiableList(moved);
+    }
+
+    /**
+     * @return <code>true</code> if the assignments have been discarded after
+     *         calculating them
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+}
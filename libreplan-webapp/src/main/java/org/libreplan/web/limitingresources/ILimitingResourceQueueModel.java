@@ -148,4 +148,19 @@ public interface ILimitingResourceQueueModel {
     Set<LimitingResourceQueueElement> assignLimitingResourceQueueElements(
             List<LimitingResourceQueueElement> elements);
 
+    /**
+     * Assigns all the unassigned {@link LimitingResourceQueueElement} in one
+     * pass, following the dependencies between them. As with the rest of
+     * changes, nothing is saved until <code>confirm</code> is called.<br />
+     * If <code>dryRun</code> is <code>true</code> the resulting assignments
+     * are only reported, the queues are reloaded afterwards. In that case
+     * there must not be changes pending to be confirmed.
+     */
+    BulkAssignmentReport assignAllUnassigned(boolean dryRun);
+
+    /**
+     * @return <code>true</code> if there are changes not confirmed yet
+     */
+    boolean hasUnconfirmedChanges();
+
 }
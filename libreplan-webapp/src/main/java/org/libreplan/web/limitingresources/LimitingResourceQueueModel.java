@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -88,6 +89,7 @@ import org.libreplan.business.users.entities.UserRole;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.web.common.concurrentdetection.OnConcurrentModification;
+import org.libreplan.web.limitingresources.ParallelGapsSearch.IAllocationOnGap;
 import org.libreplan.web.limitingresources.QueuesState.Edge;
 import org.libreplan.web.planner.order.SaveCommandBuilder;
 import org.libreplan.web.security.SecurityUtils;
@@ -125,6 +127,9 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
     @Autowired
     private ILimitingResourceQueueDependencyDAO limitingResourceQueueDependencyDAO;
 
+    @Autowired
+    private ParallelGapsSearch parallelGapsSearch;
+
     private QueuesState queuesState;
 
     private Interval viewInterval;
@@ -442,6 +447,14 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
         result.add(requirements.getElement());
 
+        // An allocation done at a gap doesn't overlap other elements, so
+        // only the dependencies with assigned elements can force moving them
+        if (!allocation.isAppropriative()
+                && !queuesState.hasSuccessorsOnQueues(requirements
+                        .getElement())) {
+            return result;
+        }
+
         List<LimitingResourceQueueElement> moved = shift(
                 queuesState
                         .getPotentiallyAffectedByInsertion(externalQueueElement),
@@ -640,22 +653,64 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
      * @param requirements
      * @return
      */
-    private AllocationSpec findAllocationSpecFor(InsertionRequirements requirements) {
-        List<GapOnQueue> potentiallyValidGapsFor = queuesState
-                .getPotentiallyValidGapsFor(requirements);
-        return findAllocationSpecFor(potentiallyValidGapsFor, requirements);
+    private AllocationSpec findAllocationSpecFor(
+            final InsertionRequirements requirements) {
+        List<List<GapOnQueue>> gapsByQueue = queuesState
+                .getPotentiallyValidGapsByQueue(requirements);
+        IAllocationOnGap allocationOnGap = new IAllocationOnGap() {
+
+            @Override
+            public AllocationSpec validAllocationAt(GapOnQueue gap) {
+                return findAllocationSpecAt(gap, requirements);
+            }
+        };
+        if (ParallelGapsSearch.isWorthFor(gapsByQueue)) {
+            initializeNeededToEvaluate(gapsByQueue, requirements.getElement());
+            return parallelGapsSearch.findFirstValid(gapsByQueue,
+                    allocationOnGap);
+        }
+        return ParallelGapsSearch.findFirstValidSequentially(gapsByQueue,
+                allocationOnGap);
+    }
+
+    /**
+     * The gaps are evaluated in parallel out of the Hibernate session, so
+     * the resources of the queues and the criteria of the element are
+     * initialized in this thread before
+     */
+    private void initializeNeededToEvaluate(
+            List<List<GapOnQueue>> gapsByQueue,
+            LimitingResourceQueueElement element) {
+        for (List<GapOnQueue> each : gapsByQueue) {
+            if (!each.isEmpty()) {
+                initializeResourceIfAny(each.get(0).getOriginQueue()
+                        .getResource());
+            }
+        }
+        if (element.isGeneric()) {
+            initializeCriteria(element.getCriteria());
+        }
     }
 
     private AllocationSpec findAllocationSpecFor(List<GapOnQueue> gapsOnQueue, InsertionRequirements requirements) {
-        boolean generic = requirements.getElement().isGeneric();
         for (GapOnQueue each : gapsOnQueue) {
-            for (GapOnQueue eachSubGap : getSubGaps(each,
-                    requirements.getElement(), generic)) {
-                AllocationSpec allocation = requirements
-                        .guessValidity(eachSubGap);
-                if (allocation.isValid()) {
-                    return allocation;
-                }
+            AllocationSpec allocation = findAllocationSpecAt(each,
+                    requirements);
+            if (allocation != null) {
+                return allocation;
+            }
+        }
+        return null;
+    }
+
+    private AllocationSpec findAllocationSpecAt(GapOnQueue gap,
+            InsertionRequirements requirements) {
+        boolean generic = requirements.getElement().isGeneric();
+        for (GapOnQueue eachSubGap : getSubGaps(gap,
+                requirements.getElement(), generic)) {
+            AllocationSpec allocation = requirements.guessValidity(eachSubGap);
+            if (allocation.isValid()) {
+                return allocation;
             }
         }
         return null;
@@ -681,15 +736,12 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
     private AllocationSpec findAllocationSpecForInQueue(
             InsertionRequirements requirements, LimitingResourceQueue queue) {
 
-        List<GapOnQueue> potentiallyValidGapsFor = new ArrayList<GapOnQueue>();
-
-        for (GapOnQueue each : queuesState
-                .getPotentiallyValidGapsFor(requirements)) {
-            if (each.getOriginQueue().equals(queue)) {
-                potentiallyValidGapsFor.add(each);
-            }
+        if (!queuesState.getAssignableQueues(requirements.getElement())
+                .contains(queue)) {
+            return null;
         }
-        return findAllocationSpecFor(potentiallyValidGapsFor, requirements);
+        return findAllocationSpecFor(
+                queue.getGapsPotentiallyValidFor(requirements), requirements);
     }
 
     private boolean checkAllocationIsAppropriative = true;
@@ -1236,6 +1288,49 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
     }
 
 
+    @Override
+    @Transactional(readOnly = true)
+    public BulkAssignmentReport assignAllUnassigned(boolean dryRun) {
+        Validate.isTrue(!dryRun || !hasUnconfirmedChanges(),
+                "a dry run would discard the changes not confirmed yet");
+        long start = System.currentTimeMillis();
+        List<LimitingResourceQueueElement> elements = queuesState
+                .inTopologicalOrder(new ArrayList<LimitingResourceQueueElement>(
+                        queuesState.getUnassigned()));
+        Set<LimitingResourceQueueElement> unassigned = new HashSet<LimitingResourceQueueElement>(
+                elements);
+        Set<LimitingResourceQueueElement> moved = new LinkedHashSet<LimitingResourceQueueElement>();
+        for (LimitingResourceQueueElement each : elements) {
+            for (LimitingResourceQueueElement inserted : assignLimitingResourceQueueElement(each)) {
+                if (!unassigned.contains(inserted)) {
+                    moved.add(inserted);
+                }
+            }
+        }
+        BulkAssignmentReport result = BulkAssignmentReport.create(elements,
+                new ArrayList<LimitingResourceQueueElement>(moved), dryRun,
+                System.currentTimeMillis() - start);
+        if (dryRun) {
+            discardChanges();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasUnconfirmedChanges() {
+        return !toBeSaved.isEmpty() || !toBeRemoved.isEmpty()
+                || !toBeSavedDependencies.isEmpty()
+                || !parentElementsToBeUpdated.isEmpty();
+    }
+
+    private void discardChanges() {
+        toBeSaved.clear();
+        toBeRemoved.clear();
+        toBeSavedDependencies.clear();
+        parentElementsToBeUpdated.clear();
+        doGlobalView();
+    }
+
     @Override
     public Set<LimitingResourceQueueElement> assignLimitingResourceQueueElements(
             List<LimitingResourceQueueElement> queueElements) {
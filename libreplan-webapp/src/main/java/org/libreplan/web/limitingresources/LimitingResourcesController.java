@@ -47,6 +47,7 @@ import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.LimitingResourceQueue;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.web.common.Util;
+import org.libreplan.web.limitingresources.BulkAssignmentReport.Assignment;
 import org.libreplan.web.limitingresources.LimitingResourcesPanel.IToolbarCommand;
 import org.libreplan.web.planner.order.BankHolidaysMarker;
 import org.libreplan.web.planner.taskedition.EditTaskController;
@@ -603,6 +604,48 @@ public class LimitingResourcesController extends GenericForwardComposer {
         }
     }
 
+    public void previewAssignAllUnassignedElements() {
+        if (limitingResourceQueueModel.hasUnconfirmedChanges()) {
+            showErrorMessage(_("Save the changes before previewing the "
+                    + "allocation of all items"));
+            return;
+        }
+        BulkAssignmentReport report = limitingResourceQueueModel
+                .assignAllUnassigned(true);
+        reload();
+        showInformationMessage(_(
+                "{0} elements would be allocated, {1} allocated elements "
+                        + "would be moved and {2} elements could not be "
+                        + "allocated. Calculated in {3} ms",
+                report.getAssigned().size(), report.getMoved().size(),
+                report.getNotAssigned().size(), report.getElapsedMillis()));
+    }
+
+    public void assignAllUnassignedElements() {
+        BulkAssignmentReport report = limitingResourceQueueModel
+                .assignAllUnassigned(false);
+        clearSelectAllCheckbox();
+        limitingResourcesPanel.refreshQueues(queuesOf(report));
+        reloadUnassignedLimitingResourceQueueElements();
+        if (!report.getNotAssigned().isEmpty()) {
+            showErrorMessage(_(
+                    "{0} elements could not be allocated. There is not any queue "
+                            + "that matches their resource allocation criteria",
+                    report.getNotAssigned().size()));
+        }
+    }
+
+    private Set<LimitingResourceQueue> queuesOf(BulkAssignmentReport report) {
+        Set<LimitingResourceQueue> result = new HashSet<LimitingResourceQueue>();
+        for (Assignment each : report.getAssigned()) {
+            result.add(each.getQueue());
+        }
+        for (Assignment each : report.getMoved()) {
+            result.add(each.getQueue());
+        }
+        return result;
+    }
+
     private void clearSelectAllCheckbox() {
         cbSelectAll.setChecked(false);
     }
@@ -623,6 +666,15 @@ public class LimitingResourcesController extends GenericForwardComposer {
         return result;
     }
 
+    private void showInformationMessage(String message) {
+        try {
+            Messagebox.show(message, _("Information"), Messagebox.OK,
+                    Messagebox.INFORMATION);
+        } catch (InterruptedException e) {
+
+        }
+    }
+
     private void showErrorMessage(String error) {
         try {
             Messagebox.show(error, _("Error"), Messagebox.OK, Messagebox.ERROR);
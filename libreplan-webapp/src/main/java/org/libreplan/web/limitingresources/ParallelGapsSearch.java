@@ -0,0 +1,202 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.limitingresources;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.libreplan.business.planner.limiting.entities.AllocationSpec;
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Searches the first valid {@link AllocationSpec} among the gaps of several
+ * queues. The gaps of each queue are evaluated concurrently and the winner
+ * is chosen traversing the gaps in the same order that {@link GapsMergeSort}
+ * gives them, so the result is the same that the sequential search would
+ * return.<br />
+ *
+ * The gaps are evaluated out of the Hibernate session of the caller, so all
+ * the entities needed to evaluate them must have been initialized before.
+ * The threads are stopped when the application context is closed.
+ */
+@Component
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class ParallelGapsSearch {
+
+    /**
+     * With less queues than this the gaps are evaluated on the calling
+     * thread, since handing them off to the pool would cost more
+     */
+    public static final int MIN_QUEUES_FOR_PARALLEL_SEARCH = 4;
+
+    public interface IAllocationOnGap {
+
+        /**
+         * @return the valid allocation at <code>gap</code> or
+         *         <code>null</code> if there is none
+         */
+        AllocationSpec validAllocationAt(GapOnQueue gap);
+    }
+
+    public static boolean isWorthFor(List<List<GapOnQueue>> gapsByQueue) {
+        return gapsByQueue.size() >= MIN_QUEUES_FOR_PARALLEL_SEARCH;
+    }
+
+    /**
+     * Evaluates the gaps one by one in the order given by
+     * {@link GapsMergeSort}
+     *
+     * @return the first valid allocation; <code>null</code> if there is none
+     */
+    public static AllocationSpec findFirstValidSequentially(
+            List<List<GapOnQueue>> gapsByQueue,
+            IAllocationOnGap allocationOnGap) {
+        return firstValidOn(GapsMergeSort.sort(gapsByQueue), allocationOnGap)
+                .allocation;
+    }
+
+    private final ExecutorService executor;
+
+    public ParallelGapsSearch() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    ParallelGapsSearch(int threads) {
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread result = new Thread(runnable,
+                        "limiting-queues-gaps-search-"
+                                + count.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param gapsByQueue
+     *            the potentially valid gaps of each queue ordered by start
+     *            time
+     * @return the first valid allocation; <code>null</code> if there is none
+     */
+    public AllocationSpec findFirstValid(List<List<GapOnQueue>> gapsByQueue,
+            final IAllocationOnGap allocationOnGap) {
+        List<Future<FoundAllocation>> futures = new ArrayList<Future<FoundAllocation>>();
+        for (final List<GapOnQueue> each : gapsByQueue) {
+            futures.add(executor.submit(new Callable<FoundAllocation>() {
+
+                @Override
+                public FoundAllocation call() {
+                    return firstValidOn(each, allocationOnGap);
+                }
+            }));
+        }
+        Map<GapOnQueue, AllocationSpec> found = new IdentityHashMap<GapOnQueue, AllocationSpec>();
+        for (FoundAllocation each : waitFor(futures)) {
+            if (each.gap != null) {
+                found.put(each.gap, each.allocation);
+            }
+        }
+        if (found.isEmpty()) {
+            return null;
+        }
+        for (GapOnQueue each : GapsMergeSort.sort(gapsByQueue)) {
+            AllocationSpec allocation = found.get(each);
+            if (allocation != null) {
+                return allocation;
+            }
+        }
+        throw new IllegalStateException("the gap of a valid allocation "
+                + "must be among the sorted gaps");
+    }
+
+    private static class FoundAllocation {
+
+        private static final FoundAllocation NONE = new FoundAllocation(null,
+                null);
+
+        private final GapOnQueue gap;
+
+        private final AllocationSpec allocation;
+
+        private FoundAllocation(GapOnQueue gap, AllocationSpec allocation) {
+            this.gap = gap;
+            this.allocation = allocation;
+        }
+    }
+
+    private static FoundAllocation firstValidOn(List<GapOnQueue> gaps,
+            IAllocationOnGap allocationOnGap) {
+        for (GapOnQueue each : gaps) {
+            AllocationSpec allocation = allocationOnGap.validAllocationAt(each);
+            if (allocation != null) {
+                return new FoundAllocation(each, allocation);
+            }
+        }
+        return FoundAllocation.NONE;
+    }
+
+    private static List<FoundAllocation> waitFor(
+            List<Future<FoundAllocation>> futures) {
+        List<FoundAllocation> result = new ArrayList<FoundAllocation>();
+        try {
+            for (Future<FoundAllocation> each : futures) {
+                result.add(each.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void cancel(List<Future<FoundAllocation>> futures) {
+        for (Future<FoundAllocation> each : futures) {
+            each.cancel(true);
+        }
+    }
+
+}
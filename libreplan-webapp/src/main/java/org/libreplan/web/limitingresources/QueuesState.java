@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -297,10 +298,18 @@ public class QueuesState {
      */
     public List<GapOnQueue> getPotentiallyValidGapsFor(
             InsertionRequirements requirements) {
+        return GapsMergeSort.sort(getPotentiallyValidGapsByQueue(requirements));
+    }
+
+    /**
+     * @return for each assignable queue, the gaps that could potentially fit
+     *         <code>element</code> ordered by start date
+     */
+    public List<List<GapOnQueue>> getPotentiallyValidGapsByQueue(
+            InsertionRequirements requirements) {
         List<LimitingResourceQueue> assignableQueues = getAssignableQueues(requirements
                 .getElement());
-        List<List<GapOnQueue>> allGaps = gapsFor(assignableQueues, requirements);
-        return GapsMergeSort.sort(allGaps);
+        return gapsFor(assignableQueues, requirements);
     }
 
     private List<List<GapOnQueue>> gapsFor(
@@ -601,6 +610,20 @@ public class QueuesState {
         elementsById.put(element.getId(), element);
     }
 
+    /**
+     * @return <code>true</code> if some element depending directly on
+     *         <code>element</code> is assigned to a queue
+     */
+    public boolean hasSuccessorsOnQueues(LimitingResourceQueueElement element) {
+        for (LimitingResourceQueueDependency each : graph
+                .outgoingEdgesOf(getEquivalent(element))) {
+            if (!each.getHasAsDestiny().isDetached()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public List<LimitingResourceQueueElement> inTopologicalOrder(List<LimitingResourceQueueElement> queueElements) {
         return toList(topologicalIterator(buildSubgraphFor(queueElements)));
     }
@@ -614,6 +637,8 @@ public class QueuesState {
     private DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> buildSubgraphFor(
             List<LimitingResourceQueueElement> queueElements) {
         SimpleDirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> result = instantiateDirectedGraph();
+        Set<LimitingResourceQueueElement> elements = new HashSet<LimitingResourceQueueElement>(
+                queueElements);
 
         // Iterate through elements and construct graph
         for (LimitingResourceQueueElement each : queueElements) {
@@ -622,7 +647,7 @@ public class QueuesState {
                     .getDependenciesAsOrigin()) {
                 LimitingResourceQueueElement destiny = dependency
                         .getHasAsDestiny();
-                if (queueElements.contains(destiny)) {
+                if (elements.contains(destiny)) {
                     // Add source, destiny and edge between them
                     addDependency(result, dependency);
                 }
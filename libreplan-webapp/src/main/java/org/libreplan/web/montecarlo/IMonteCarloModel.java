@@ -35,8 +35,15 @@ import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
  */
 public interface IMonteCarloModel {
 
+    /**
+     * @param seed
+     *            the seed for the random numbers. The same seed gives the same
+     *            results. If <code>null</code> a different one is used each
+     *            time
+     */
     Map<LocalDate, BigDecimal> calculateMonteCarlo(List<MonteCarloTask> tasks,
-            int times, IDesktopUpdatesEmitter<Integer> iterationProgress);
+            int times, Long seed,
+            IDesktopUpdatesEmitter<Integer> iterationProgress);
 
     void setCriticalPath(List<TaskElement> criticalPath);
 
@@ -0,0 +1,211 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * Runs the iterations of the MonteCarlo method for a list of tasks in
+ * parallel.
+ *
+ * The iterations are split in chunks of {@link #ITERATIONS_PER_CHUNK}. Each
+ * chunk uses its own random generator derived from the seed and the index of
+ * the chunk, so the same seed gives the same results regardless of the number
+ * of threads of the {@link MonteCarloExecutor}. Each chunk counts how many
+ * times each end date happens in a histogram indexed by the days since the
+ * start of the first task, and the histograms are added up at the end.
+ *
+ * @see MonteCarloModel#calculateMonteCarlo(List, int, Long,
+ *      IDesktopUpdatesEmitter)
+ */
+class MonteCarloCalculation {
+
+    static final int ITERATIONS_PER_CHUNK = 1000;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final LocalDate start;
+
+    private final int[] pessimisticDays;
+
+    private final int[] normalDays;
+
+    private final int[] optimisticDays;
+
+    private final double[] pessimisticUpperLimits;
+
+    private final double[] normalUpperLimits;
+
+    private final int maxDays;
+
+    private final int iterations;
+
+    private final long seed;
+
+    private final IDesktopUpdatesEmitter<Integer> iterationProgress;
+
+    /**
+     * @param tasks
+     *            the tasks with their durations already converted to calendar
+     *            days
+     */
+    MonteCarloCalculation(List<MonteCarloTask> tasks, int iterations,
+            long seed, IDesktopUpdatesEmitter<Integer> iterationProgress) {
+        Validate.notEmpty(tasks);
+        Validate.isTrue(iterations > 0);
+        this.start = tasks.get(0).getStartDate();
+        this.pessimisticDays = new int[tasks.size()];
+        this.normalDays = new int[tasks.size()];
+        this.optimisticDays = new int[tasks.size()];
+        this.pessimisticUpperLimits = new double[tasks.size()];
+        this.normalUpperLimits = new double[tasks.size()];
+        int max = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            MonteCarloTask each = tasks.get(i);
+            pessimisticDays[i] = each.getPessimisticDuration().intValue();
+            normalDays[i] = each.getNormalDuration().intValue();
+            optimisticDays[i] = each.getOptimisticDuration().intValue();
+            pessimisticUpperLimits[i] = each
+                    .getPessimisticDurationPercentageUpperLimit().doubleValue();
+            normalUpperLimits[i] = each.getNormalDurationPercentageUpperLimit()
+                    .doubleValue();
+            max += Math.max(pessimisticDays[i],
+                    Math.max(normalDays[i], optimisticDays[i]));
+        }
+        this.maxDays = max;
+        this.iterations = iterations;
+        this.seed = seed;
+        this.iterationProgress = iterationProgress;
+    }
+
+    /**
+     * @param executor
+     *            where the chunks of iterations are run
+     * @return the number of times each end date has been obtained
+     */
+    Map<LocalDate, Integer> doCalculation(MonteCarloExecutor executor) {
+        int chunks = (iterations + ITERATIONS_PER_CHUNK - 1)
+                / ITERATIONS_PER_CHUNK;
+        List<Future<int[]>> histograms = new ArrayList<Future<int[]>>();
+        try {
+            for (int i = 0; i < chunks; i++) {
+                int chunkIterations = Math.min(ITERATIONS_PER_CHUNK,
+                        iterations - i * ITERATIONS_PER_CHUNK);
+                histograms.add(executor.submit(chunk(i, chunkIterations)));
+            }
+            int[] result = new int[maxDays + 1];
+            int done = 0;
+            for (Future<int[]> each : histograms) {
+                add(result, get(each));
+                done++;
+                increaseProgressMeter((done * 100) / chunks);
+            }
+            return toDates(result);
+        } finally {
+            for (Future<int[]> each : histograms) {
+                each.cancel(true);
+            }
+        }
+    }
+
+    private Callable<int[]> chunk(final int index, final int chunkIterations) {
+        return new Callable<int[]>() {
+
+            @Override
+            public int[] call() {
+                Random random = new Random(mix(seed + index * GOLDEN_GAMMA));
+                int[] result = new int[maxDays + 1];
+                for (int i = 0; i < chunkIterations; i++) {
+                    result[calculateDurationDays(random)]++;
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Spreads the bits of consecutive seeds so the generators of consecutive
+     * chunks aren't correlated. It's the finalizer of the SplitMix64
+     * generator
+     */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private int calculateDurationDays(Random random) {
+        int result = 0;
+        for (int i = 0; i < pessimisticDays.length; i++) {
+            double randomNumber = random.nextDouble();
+            if (randomNumber <= pessimisticUpperLimits[i]) {
+                result += pessimisticDays[i];
+            } else if (randomNumber <= normalUpperLimits[i]) {
+                result += normalDays[i];
+            } else {
+                result += optimisticDays[i];
+            }
+        }
+        return result;
+    }
+
+    private static int[] get(Future<int[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void add(int[] result, int[] histogram) {
+        for (int i = 0; i < histogram.length; i++) {
+            result[i] += histogram[i];
+        }
+    }
+
+    private void increaseProgressMeter(int completedPercent) {
+        iterationProgress.doUpdate(completedPercent);
+    }
+
+    private Map<LocalDate, Integer> toDates(int[] histogram) {
+        Map<LocalDate, Integer> result = new HashMap<LocalDate, Integer>();
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0) {
+                result.put(start.plusDays(i), histogram[i]);
+            }
+        }
+        return result;
+    }
+
+}
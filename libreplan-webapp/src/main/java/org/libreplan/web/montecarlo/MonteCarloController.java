@@ -53,6 +53,7 @@ import org.zkoss.zul.Intbox;
 import org.zkoss.zul.Label;
 import org.zkoss.zul.Listbox;
 import org.zkoss.zul.Listitem;
+import org.zkoss.zul.Longbox;
 import org.zkoss.zul.Progressmeter;
 import org.zkoss.zul.Row;
 import org.zkoss.zul.RowRenderer;
@@ -82,6 +83,8 @@ public class MonteCarloController extends GenericForwardComposer {
 
     private Intbox ibIterations;
 
+    private Longbox lbxSeed;
+
     private Button btnRunMonteCarlo;
 
     private Checkbox cbGroupByWeeks;
@@ -133,7 +136,7 @@ public class MonteCarloController extends GenericForwardComposer {
                     int iterations = getIterations();
                     final Map<LocalDate, BigDecimal> monteCarloData = monteCarloModel
                             .calculateMonteCarlo(getSelectedCriticalPath(),
-                                    iterations,
+                                    iterations, lbxSeed.getValue(),
                                     percentageCompletedNotifier(updatesEmitter));
                     updatesEmitter.doUpdate(showCalculatedData(monteCarloData));
                 } finally {
@@ -29,14 +29,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.Validate;
 import org.hibernate.Hibernate;
 import org.joda.time.LocalDate;
 import org.libreplan.business.orders.entities.Order;
@@ -67,6 +65,9 @@ public class MonteCarloModel implements IMonteCarloModel {
     @Autowired
     private ITaskElementDAO taskDAO;
 
+    @Autowired
+    private MonteCarloExecutor monteCarloExecutor;
+
     private String CRITICAL_PATH = _("Critical path");
 
     private String DEFAULT_CRITICAL_PATH = CRITICAL_PATH + " 1";
@@ -194,23 +195,44 @@ public class MonteCarloModel implements IMonteCarloModel {
 
     @Override
     public Map<LocalDate, BigDecimal> calculateMonteCarlo(
-            List<MonteCarloTask> _tasks, int iterations,
+            List<MonteCarloTask> _tasks, int iterations, Long seed,
             IDesktopUpdatesEmitter<Integer> iterationProgress) {
 
+        List<MonteCarloTask> tasks = copyOf(_tasks);
+        adjustDurationDays(tasks);
         MonteCarloCalculation monteCarloCalculation = new MonteCarloCalculation(
-                copyOf(_tasks), iterations, iterationProgress);
-        Map<LocalDate, BigDecimal> monteCarloValues = monteCarloCalculation.doCalculation();
+                tasks, iterations, seed != null ? seed : new Date().getTime(),
+                iterationProgress);
+        Map<LocalDate, Integer> times = monteCarloCalculation
+                .doCalculation(monteCarloExecutor);
 
         // Convert number of times to probability
-        for (LocalDate key : monteCarloValues.keySet()) {
-            BigDecimal times = monteCarloValues.get(key);
-            BigDecimal probability = times.divide(
-                    BigDecimal.valueOf(iterations), 8, RoundingMode.HALF_UP);
-            monteCarloValues.put(key, probability);
+        Map<LocalDate, BigDecimal> monteCarloValues = new HashMap<LocalDate, BigDecimal>();
+        for (Entry<LocalDate, Integer> each : times.entrySet()) {
+            BigDecimal probability = BigDecimal.valueOf(each.getValue())
+                    .divide(BigDecimal.valueOf(iterations), 8,
+                            RoundingMode.HALF_UP);
+            monteCarloValues.put(each.getKey(), probability);
         }
         return monteCarloValues;
     }
 
+    /**
+     * Converts the durations in workable days to calendar days. It must be
+     * done before launching the calculation, since it uses the calendars of
+     * the tasks
+     */
+    private void adjustDurationDays(List<MonteCarloTask> tasks) {
+        for (MonteCarloTask each : tasks) {
+            each.setPessimisticDuration(MonteCarloTask.calculateRealDurationFor(
+                    each, each.getPessimisticDuration()));
+            each.setNormalDuration(MonteCarloTask.calculateRealDurationFor(
+                    each, each.getNormalDuration()));
+            each.setOptimisticDuration(MonteCarloTask.calculateRealDurationFor(
+                    each, each.getOptimisticDuration()));
+        }
+    }
+
     private List<MonteCarloTask> copyOf(List<MonteCarloTask> _tasks) {
         List<MonteCarloTask> result = new ArrayList<MonteCarloTask>();
         for (MonteCarloTask each: _tasks) {
@@ -232,120 +254,4 @@ public class MonteCarloModel implements IMonteCarloModel {
         return StringUtils.join(result, ",");
     }
 
-    private static class MonteCarloCalculation {
-
-        private Map<MonteCarloTask, Set<EstimationRange>> estimationRangesForTasks = new HashMap<MonteCarloTask, Set<EstimationRange>>();
-
-        private List<MonteCarloTask> tasks;
-
-        private int iterations;
-
-        private IDesktopUpdatesEmitter<Integer> iterationProgress;
-
-        public MonteCarloCalculation(List<MonteCarloTask> tasks,
-                int iterations,
-                IDesktopUpdatesEmitter<Integer> iterationProgress) {
-            adjustDurationDays(tasks);
-            initializeEstimationRanges(tasks);
-            this.tasks = tasks;
-            this.iterations = iterations;
-            this.iterationProgress = iterationProgress;
-        }
-
-        public Map<LocalDate, BigDecimal> doCalculation() {
-            Map<LocalDate, BigDecimal> result = new HashMap<LocalDate, BigDecimal>();
-
-            final int ONE_PERCENT = iterations / 100;
-            Random randomGenerator = new Random((new Date()).getTime());
-            // Calculate number of times a date is repeated
-            for (int i = 0; i < iterations; i++) {
-                LocalDate endDate = calculateEndDateFor(tasks, randomGenerator);
-                BigDecimal times = result.get(endDate);
-                times = times != null ? times.add(BigDecimal.ONE) : BigDecimal.ONE;
-                result.put(endDate, times);
-                if (i % ONE_PERCENT == 0) {
-                    increaseProgressMeter((i * 100) / iterations);
-                }
-            }
-
-            return result;
-        }
-
-        private void increaseProgressMeter(int completedPercent) {
-            iterationProgress.doUpdate(completedPercent);
-        }
-
-        private LocalDate calculateEndDateFor(List<MonteCarloTask> tasks,
-                Random randomGenerator) {
-            Validate.notEmpty(tasks);
-            BigDecimal durationDays = BigDecimal.ZERO;
-            MonteCarloTask first = tasks.get(0);
-
-            for (MonteCarloTask each : tasks) {
-                BigDecimal randomNumber = generate(randomGenerator);
-                durationDays = durationDays.add(getDuration(each, randomNumber));
-            }
-            return first.getStartDate().plusDays(durationDays.intValue());
-        }
-
-        private BigDecimal generate(Random randomGenerator) {
-            return BigDecimal.valueOf(randomGenerator.nextDouble());
-        }
-
-        private BigDecimal getDuration(MonteCarloTask each, BigDecimal random) {
-            ESTIMATION_TYPE type = getEstimationType(each, random);
-            Validate.notNull(type);
-            switch (type) {
-            case PESSIMISTIC:
-                BigDecimal duration = each.getPessimisticDuration();
-                return duration;
-            case NORMAL:
-                return each.getNormalDuration();
-            case OPTIMISTIC:
-                return each.getOptimisticDuration();
-            }
-            return BigDecimal.ZERO;
-        }
-
-        private void adjustDurationDays(List<MonteCarloTask> tasks) {
-            for (MonteCarloTask each : tasks) {
-                each.setPessimisticDuration(MonteCarloTask
-                        .calculateRealDurationFor(each,
-                                each.getPessimisticDuration()));
-                each.setNormalDuration(MonteCarloTask.calculateRealDurationFor(
-                        each, each.getNormalDuration()));
-                each.setOptimisticDuration(MonteCarloTask.calculateRealDurationFor(
-                        each, each.getOptimisticDuration()));
-            }
-        }
-
-        private void initializeEstimationRanges(List<MonteCarloTask> tasks) {
-            estimationRangesForTasks.clear();
-            for (MonteCarloTask each : tasks) {
-                createEstimationRangesFor(each);
-            }
-        }
-
-        private void createEstimationRangesFor(MonteCarloTask task) {
-            Set<EstimationRange> estimationRanges = new HashSet<EstimationRange>();
-            estimationRanges.add(EstimationRange.pessimisticRangeFor(task));
-            estimationRanges.add(EstimationRange.normalRangeFor(task));
-            estimationRanges.add(EstimationRange.optimisticRangeFor(task));
-            estimationRangesForTasks.put(task, estimationRanges);
-        }
-
-        public ESTIMATION_TYPE getEstimationType(MonteCarloTask task,
-                BigDecimal random) {
-            Set<EstimationRange> estimationRanges = estimationRangesForTasks
-                    .get(task);
-            for (EstimationRange each : estimationRanges) {
-                if (each.contains(random)) {
-                    return each.getEstimationType();
-                }
-            }
-            return null;
-        }
-
-    }
-
 }
@@ -1,9 +1,7 @@
 /*
  * This file is part of LibrePlan
  *
- * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
- *                         Desenvolvemento Tecnolóxico de Galicia
- * Copyright (C) 2010-2011 Igalia, S.L.
+ * Copyright (C) 2013 Igalia, S.L.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published by
@@ -18,26 +16,26 @@
  * You should have received a copy of the GNU Affero General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
+package org.libreplan.web.planner.leveling;
 
-package org.zkoss.ganttz.data.criticalpath;
-
-import java.util.Set;
-
-import org.zkoss.ganttz.data.IDependency;
+import org.joda.time.LocalDate;
 
 /**
- * Class that represents the last node of the graph.
- *
- * @author Manuel Rego Casasnovas <mrego@igalia.com>
+ * Reduces the overload of the resources moving the tasks of the scheduled
+ * projects of the current scenario within their float. The moved tasks are
+ * reallocated and saved like if they had been moved in the Gantt.
  */
-public class LastNode<T, D extends IDependency<T>> extends Node<T, D> {
+public interface IScenarioLeveler {
 
-    public LastNode(Set<? extends T> previousTasks) {
-        super(null, previousTasks, null, null, null);
-    }
+    /**
+     * Months leveled from the current day when no interval is chosen
+     */
+    int DEFAULT_MONTHS = 3;
 
-    public void updateLatestValues() {
-        setLatestFinish(getEarliestFinish());
-    }
+    /**
+     * Only the tasks between <code>start</code> and <code>end</code>, both
+     * inclusive, are moved
+     */
+    LevelingReport level(LocalDate start, LocalDate end);
 
 }
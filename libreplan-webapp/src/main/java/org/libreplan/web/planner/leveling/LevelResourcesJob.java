@@ -0,0 +1,62 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.planner.leveling;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.LocalDate;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Scope;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * A job that levels the resources for the next
+ * {@link IScenarioLeveler#DEFAULT_MONTHS} months using
+ * {@link IScenarioLeveler}
+ */
+@Component
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class LevelResourcesJob extends QuartzJobBean {
+
+    private static final Log LOG = LogFactory.getLog(LevelResourcesJob.class);
+
+    @Override
+    protected void executeInternal(JobExecutionContext context)
+            throws JobExecutionException {
+        ApplicationContext applicationContext = (ApplicationContext) context
+                .getJobDetail().getJobDataMap().get("applicationContext");
+
+        IScenarioLeveler scenarioLeveler = (IScenarioLeveler) applicationContext
+                .getBean("scenarioLeveler");
+
+        try {
+            LocalDate today = new LocalDate();
+            LevelingReport report = scenarioLeveler.level(today,
+                    today.plusMonths(IScenarioLeveler.DEFAULT_MONTHS));
+            LOG.info("Leveling of resources finished: " + report);
+        } catch (IllegalStateException e) {
+            LOG.error("Leveling of resources failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.planner.leveling;
+
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Result of {@link IScenarioLeveler#level(org.joda.time.LocalDate,
+ * org.joda.time.LocalDate)}
+ */
+public class LevelingReport {
+
+    public static LevelingReport create(int tasks, int movableTasks,
+            int movedTasks, EffortDuration overloadBefore,
+            EffortDuration overloadAfter, long elapsedMillis) {
+        return new LevelingReport(tasks, movableTasks, movedTasks,
+                overloadBefore, overloadAfter, elapsedMillis);
+    }
+
+    public static LevelingReport nothingToLevel(long elapsedMillis) {
+        return create(0, 0, 0, EffortDuration.zero(), EffortDuration.zero(),
+                elapsedMillis);
+    }
+
+    private final int tasks;
+
+    private final int movableTasks;
+
+    private final int movedTasks;
+
+    private final EffortDuration overloadBefore;
+
+    private final EffortDuration overloadAfter;
+
+    private final long elapsedMillis;
+
+    private LevelingReport(int tasks, int movableTasks, int movedTasks,
+            EffortDuration overloadBefore, EffortDuration overloadAfter,
+            long elapsedMillis) {
+        this.tasks = tasks;
+        this.movableTasks = movableTasks;
+        this.movedTasks = movedTasks;
+        this.overloadBefore = overloadBefore;
+        this.overloadAfter = overloadAfter;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the number of tasks loading the resources in the leveled
+     *         interval
+     */
+    public int getTasks() {
+        return tasks;
+    }
+
+    public int getMovableTasks() {
+        return movableTasks;
+    }
+
+    public int getMovedTasks() {
+        return movedTasks;
+    }
+
+    public EffortDuration getOverloadBefore() {
+        return overloadBefore;
+    }
+
+    /**
+     * @return the overload expected after moving the tasks. The moved tasks
+     *         are reallocated, so the real one can be a bit different
+     */
+    public EffortDuration getOverloadAfter() {
+        return overloadAfter;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d movable tasks moved, %d tasks in total, "
+                + "overload reduced from %s to %s, took %d ms", movedTasks,
+                movableTasks, tasks, overloadBefore.toFormattedString(),
+                overloadAfter.toFormattedString(), elapsedMillis);
+    }
+
+}
@@ -0,0 +1,563 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.planner.leveling;
+
+import static org.libreplan.business.workingday.EpochDays.toEpochDay;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.planner.daos.ITaskSourceDAO;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.PositionConstraintType;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.Dependency.Type;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.ResourceLeveler;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.planner.entities.TaskGroup;
+import org.libreplan.business.planner.entities.TaskPositionConstraint;
+import org.libreplan.business.resources.daos.IResourcesSearcher;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.libreplan.web.common.TemplateModel.DependencyWithVisibility;
+import org.libreplan.web.common.TemplateModelAdapter;
+import org.libreplan.web.planner.tabs.GanttDiagramBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Service;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+
+/**
+ * Levels the resources of the current scenario using a {@link ResourceLeveler}.
+ * The timeline of the leveler are the days of the interval on which some of
+ * the loaded resources can work, so moving a task over the days nobody works
+ * doesn't change its load.<br />
+ *
+ * A task can be moved if it's inside the interval, it starts at the start of a
+ * day and its allocations can be moved freely, i.e. they aren't limiting nor
+ * consolidated and the task isn't subcontracted nor has a fixed start. The
+ * task can't be moved before the start of its project nor beyond its end, its
+ * deadline, its position constraint and the dependencies of the task and its
+ * parents, so only its float is used. The rest of the tasks loading the
+ * resources are kept fixed.<br />
+ *
+ * The moved tasks are moved like in the Gantt, so their position constraint is
+ * updated, and afterwards the dependencies of their projects are enforced
+ * again, as the reallocation can change the length of a task.
+ */
+@Service
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class ScenarioLeveler implements IScenarioLeveler {
+
+    private static final Log LOG = LogFactory.getLog(ScenarioLeveler.class);
+
+    /**
+     * Maximum number of moves for each movable task
+     */
+    private static final int MAX_MOVES_PER_TASK = 10;
+
+    @Autowired
+    private IAdHocTransactionService transactionService;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IScenarioDAO scenarioDAO;
+
+    @Autowired
+    private IOrderDAO orderDAO;
+
+    @Autowired
+    private ITaskSourceDAO taskSourceDAO;
+
+    @Autowired
+    private IResourcesSearcher resourcesSearcher;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Override
+    public LevelingReport level(final LocalDate start, final LocalDate end) {
+        Validate.notNull(start);
+        Validate.notNull(end);
+        Validate.isTrue(!end.isBefore(start),
+                "the end can't be before the start");
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException(
+                    "there is already a leveling running");
+        }
+        try {
+            LevelingReport result = transactionService
+                    .runOnTransaction(new IOnTransaction<LevelingReport>() {
+
+                        @Override
+                        public LevelingReport execute() {
+                            return level(scenarioDAO
+                                    .findExistingEntity(scenarioManager
+                                            .getCurrent().getId()), start, end);
+                        }
+                    });
+            LOG.info(result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * The days of the interval on which some resource can work
+     */
+    static class Timeline {
+
+        private final LocalDate start;
+
+        private final List<LocalDate> days = new ArrayList<LocalDate>();
+
+        /**
+         * The first position on or after each day of the interval. The last
+         * one is the position after the interval
+         */
+        private final int[] firstPositionOnOrAfter;
+
+        Timeline(LocalDate start, boolean[] someoneWorks) {
+            this.start = start;
+            this.firstPositionOnOrAfter = new int[someoneWorks.length + 1];
+            LocalDate day = start;
+            for (int i = 0; i < someoneWorks.length; i++) {
+                firstPositionOnOrAfter[i] = days.size();
+                if (someoneWorks[i]) {
+                    days.add(day);
+                }
+                day = day.plusDays(1);
+            }
+            firstPositionOnOrAfter[someoneWorks.length] = days.size();
+        }
+
+        int size() {
+            return days.size();
+        }
+
+        LocalDate getDay(int position) {
+            return days.get(position);
+        }
+
+        /**
+         * @return the position of the first day on or after the given one. The
+         *         days before the interval are considered to be at its start
+         *         and the ones after it at its end
+         */
+        int positionOf(LocalDate day) {
+            int offset = toEpochDay(day) - toEpochDay(start);
+            if (offset < 0) {
+                return 0;
+            }
+            return firstPositionOnOrAfter[Math.min(offset,
+                    firstPositionOnOrAfter.length - 1)];
+        }
+
+        boolean isWorkable(LocalDate day) {
+            int position = positionOf(day);
+            return position < days.size() && days.get(position).equals(day);
+        }
+
+        int startOf(TaskElement task) {
+            return positionOf(task.getStartAsLocalDate());
+        }
+
+        int endOf(TaskElement task) {
+            return positionOf(task.getIntraDayEndDate().asExclusiveEnd());
+        }
+    }
+
+    /**
+     * A task added to the leveler
+     */
+    private static class LeveledTask {
+
+        private final Task task;
+
+        private final Order order;
+
+        private final int index;
+
+        private final int length;
+
+        private LeveledTask(Task task, Order order, int index, int length) {
+            this.task = task;
+            this.order = order;
+            this.index = index;
+            this.length = length;
+        }
+    }
+
+    private LevelingReport level(Scenario scenario, LocalDate start,
+            LocalDate end) {
+        long startTime = System.currentTimeMillis();
+        Map<Task, Order> tasks = findTasksIntersecting(scenario, start, end);
+        List<Resource> resources = new ArrayList<Resource>();
+        Map<Long, Integer> resourceIndexes = new HashMap<Long, Integer>();
+        for (Task each : tasks.keySet()) {
+            for (DayAssignment assignment : getAssignments(each)) {
+                Resource resource = assignment.getResource();
+                if (!resourceIndexes.containsKey(resource.getId())) {
+                    resourceIndexes.put(resource.getId(), resources.size());
+                    resources.add(resource);
+                }
+            }
+        }
+        int[][] capacities = capacities(resources, start, end);
+        Timeline timeline = new Timeline(start, someoneWorks(capacities));
+        if (timeline.size() == 0) {
+            return LevelingReport.nothingToLevel(System.currentTimeMillis()
+                    - startTime);
+        }
+        ResourceLeveler leveler = ResourceLeveler.create(resources.size(),
+                timeline.size());
+        for (int resource = 0; resource < resources.size(); resource++) {
+            for (int day = 0; day < timeline.size(); day++) {
+                int offset = toEpochDay(timeline.getDay(day))
+                        - toEpochDay(start);
+                leveler.setCapacity(resource, day,
+                        capacities[resource][offset]);
+            }
+        }
+        Set<Task> inTimeline = new HashSet<Task>();
+        for (Task each : tasks.keySet()) {
+            if (timeline.startOf(each) < timeline.size()) {
+                inTimeline.add(each);
+            }
+        }
+        Map<Task, LeveledTask> leveled = new HashMap<Task, LeveledTask>();
+        int movable = 0;
+        for (Entry<Task, Order> each : tasks.entrySet()) {
+            Task task = each.getKey();
+            if (!inTimeline.contains(task)) {
+                continue;
+            }
+            int taskStart = timeline.startOf(task);
+            int length = timeline.endOf(task) - taskStart;
+            int[] bounds = movableBounds(timeline, start, end, task,
+                    asLocalDate(each.getValue().getInitDate()), length,
+                    inTimeline);
+            int index = bounds != null ? leveler.addTask(taskStart, bounds[0],
+                    bounds[1]) : leveler.addFixedTask(taskStart);
+            movable += bounds != null ? 1 : 0;
+            leveled.put(task, new LeveledTask(task, each.getValue(), index,
+                    length));
+            for (DayAssignment assignment : getAssignments(task)) {
+                if (timeline.isWorkable(assignment.getDay())) {
+                    leveler.addLoad(index,
+                            resourceIndexes.get(assignment.getResource()
+                                    .getId()), timeline.positionOf(assignment
+                                    .getDay()), assignment.getDuration()
+                                    .getSeconds());
+                }
+            }
+        }
+        addPrecedences(leveler, leveled);
+        long overloadBefore = leveler.getTotalOverload();
+        leveler.level(movable * MAX_MOVES_PER_TASK);
+        List<LeveledTask> moved = new ArrayList<LeveledTask>();
+        for (LeveledTask each : leveled.values()) {
+            if (leveler.isMoved(each.index)) {
+                moved.add(each);
+            }
+        }
+        applyMoves(scenario, timeline, leveler, moved);
+        return LevelingReport.create(leveled.size(), movable, moved.size(),
+                asDuration(overloadBefore),
+                asDuration(leveler.getTotalOverload()),
+                System.currentTimeMillis() - startTime);
+    }
+
+    private Map<Task, Order> findTasksIntersecting(Scenario scenario,
+            LocalDate start, LocalDate end) {
+        Map<Task, Order> result = new LinkedHashMap<Task, Order>();
+        for (Order order : orderDAO.getOrdersByScenario(scenario)) {
+            order.useSchedulingDataFor(scenario);
+            TaskGroup root = order.getAssociatedTaskElement();
+            if (!order.isScheduled() || root == null) {
+                continue;
+            }
+            for (TaskElement each : root.getAllChildren()) {
+                if (each instanceof Task
+                        && !each.getStartAsLocalDate().isAfter(end)
+                        && each.getIntraDayEndDate().asExclusiveEnd()
+                                .isAfter(start)) {
+                    result.put((Task) each, order);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<DayAssignment> getAssignments(Task task) {
+        List<DayAssignment> result = new ArrayList<DayAssignment>();
+        for (ResourceAllocation<?> each : task.getAllResourceAllocations()) {
+            result.addAll(each.getAssignments());
+        }
+        return result;
+    }
+
+    private int[][] capacities(List<Resource> resources, LocalDate start,
+            LocalDate end) {
+        int days = toEpochDay(end) - toEpochDay(start) + 1;
+        int[][] result = new int[resources.size()][days];
+        for (int i = 0; i < resources.size(); i++) {
+            LocalDate day = start;
+            for (int j = 0; j < days; j++) {
+                result[i][j] = resources.get(i).getCalendarOrDefault()
+                        .getCapacityOn(PartialDay.wholeDay(day)).getSeconds();
+                day = day.plusDays(1);
+            }
+        }
+        return result;
+    }
+
+    private boolean[] someoneWorks(int[][] capacities) {
+        boolean[] result = new boolean[capacities.length == 0 ? 0
+                : capacities[0].length];
+        for (int[] each : capacities) {
+            for (int day = 0; day < each.length; day++) {
+                result[day] = result[day] || each[day] > 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param projectStart
+     *            the start of the project of the task, it can be
+     *            <code>null</code>
+     * @return the minimum and maximum start of the task or <code>null</code>
+     *         if it can't be moved
+     */
+    static int[] movableBounds(Timeline timeline, LocalDate start,
+            LocalDate end, Task task, LocalDate projectStart, int length,
+            Set<Task> inTimeline) {
+        if (!canBeMoved(task)
+                || task.getStartAsLocalDate().isBefore(start)
+                || task.getIntraDayEndDate().asExclusiveEnd()
+                        .isAfter(end.plusDays(1))
+                || !timeline.isWorkable(task.getStartAsLocalDate())) {
+            return null;
+        }
+        int minStart = 0;
+        int maxStart = timeline.size() - length;
+        int maxEnd = timeline.size();
+        if (projectStart != null) {
+            minStart = Math.max(minStart, timeline.positionOf(projectStart));
+        }
+        TaskPositionConstraint constraint = task.getPositionConstraint();
+        IntraDayDate constraintDate = constraint.getConstraintDate();
+        if (constraintDate != null) {
+            if (constraint.isConstraintAppliedToStart()) {
+                minStart = Math.max(minStart,
+                        timeline.positionOf(constraintDate.getDate()));
+            } else {
+                maxEnd = Math.min(maxEnd,
+                        timeline.positionOf(constraintDate.asExclusiveEnd()));
+            }
+        }
+        if (task.getDeadline() != null
+                && !task.getEndAsLocalDate().isAfter(task.getDeadline())) {
+            maxEnd = Math.min(maxEnd,
+                    timeline.positionOf(task.getDeadline().plusDays(1)));
+        }
+        for (TaskGroup parent = task.getParent(); parent != null; parent = parent
+                .getParent()) {
+            if (parent.getParent() == null) {
+                // the end of the project mustn't be delayed
+                maxEnd = Math.min(maxEnd, timeline.endOf(parent));
+            }
+            if (!parent.getDependenciesWithThisDestination().isEmpty()) {
+                minStart = Math.max(minStart, timeline.startOf(parent));
+            }
+            if (!parent.getDependenciesWithThisOrigin().isEmpty()) {
+                maxEnd = Math.min(maxEnd, timeline.endOf(parent));
+            }
+        }
+        // the dependencies with the tasks in the timeline are kept by the
+        // leveler, the rest are fixed
+        for (Dependency each : task.getDependenciesWithThisDestination()) {
+            if (!inTimeline.contains(each.getOrigin())) {
+                minStart = Math.max(minStart,
+                        minStartAfter(timeline, each, length));
+            }
+        }
+        for (Dependency each : task.getDependenciesWithThisOrigin()) {
+            if (!inTimeline.contains(each.getDestination())) {
+                maxStart = Math.min(maxStart,
+                        maxStartBefore(timeline, each, length));
+            }
+        }
+        maxStart = Math.min(maxStart, maxEnd - length);
+        int current = timeline.startOf(task);
+        if (minStart > current || current > maxStart
+                || minStart == maxStart) {
+            return null;
+        }
+        return new int[] { minStart, maxStart };
+    }
+
+    private static boolean canBeMoved(Task task) {
+        return !task.isLimiting()
+                && !task.hasConsolidations()
+                && !task.isSubcontracted()
+                && task.getIntraDayStartDate().isStartOfDay()
+                && !task.getAllResourceAllocations().isEmpty()
+                && task.getPositionConstraint().getConstraintType() != PositionConstraintType.START_IN_FIXED_DATE;
+    }
+
+    private static int minStartAfter(Timeline timeline, Dependency dependency,
+            int length) {
+        TaskElement origin = dependency.getOrigin();
+        switch (dependency.getType()) {
+        case END_START:
+            return timeline.endOf(origin);
+        case START_START:
+            return timeline.startOf(origin);
+        case END_END:
+            return timeline.endOf(origin) - length;
+        case START_END:
+            return timeline.startOf(origin) - length;
+        default:
+            throw new RuntimeException("unexpected type: "
+                    + dependency.getType());
+        }
+    }
+
+    private static int maxStartBefore(Timeline timeline, Dependency dependency,
+            int length) {
+        TaskElement destination = dependency.getDestination();
+        switch (dependency.getType()) {
+        case END_START:
+            return timeline.startOf(destination) - length;
+        case START_START:
+            return timeline.startOf(destination);
+        case END_END:
+            return timeline.endOf(destination) - length;
+        case START_END:
+            return timeline.endOf(destination);
+        default:
+            throw new RuntimeException("unexpected type: "
+                    + dependency.getType());
+        }
+    }
+
+    private void addPrecedences(ResourceLeveler leveler,
+            Map<Task, LeveledTask> leveled) {
+        for (LeveledTask origin : leveled.values()) {
+            for (Dependency each : origin.task.getDependenciesWithThisOrigin()) {
+                LeveledTask destination = leveled.get(each.getDestination());
+                if (destination != null) {
+                    leveler.addPrecedence(origin.index, destination.index,
+                            minDistance(each.getType(), origin.length,
+                                    destination.length));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the minimum number of positions between the start of the origin
+     *         and the start of the destination of a dependency of the given
+     *         type
+     */
+    static int minDistance(Type type, int originLength, int destinationLength) {
+        switch (type) {
+        case END_START:
+            return originLength;
+        case START_START:
+            return 0;
+        case END_END:
+            return originLength - destinationLength;
+        case START_END:
+            return -destinationLength;
+        default:
+            throw new RuntimeException("unexpected type: " + type);
+        }
+    }
+
+    private void applyMoves(Scenario scenario, Timeline timeline,
+            ResourceLeveler leveler, List<LeveledTask> moved) {
+        Map<Order, GanttDiagramGraph<TaskElement, DependencyWithVisibility>> graphs = new LinkedHashMap<Order, GanttDiagramGraph<TaskElement, DependencyWithVisibility>>();
+        for (LeveledTask each : moved) {
+            if (!graphs.containsKey(each.order)) {
+                graphs.put(each.order, GanttDiagramBuilder
+                        .createForcingDependencies(each.order,
+                                TemplateModelAdapter.create(scenario,
+                                        asLocalDate(each.order.getInitDate()),
+                                        asLocalDate(each.order.getDeadline()),
+                                        resourcesSearcher)));
+            }
+        }
+        for (LeveledTask each : moved) {
+            Task task = each.task;
+            task.getDatesHandler(scenario, resourcesSearcher).moveTo(
+                    IntraDayDate.startOfDay(timeline.getDay(leveler
+                            .getStart(each.index))));
+            task.explicityMoved(task.getIntraDayStartDate(),
+                    task.getIntraDayEndDate());
+        }
+        for (Entry<Order, GanttDiagramGraph<TaskElement, DependencyWithVisibility>> each : graphs
+                .entrySet()) {
+            each.getValue().enforceAllRestrictions();
+            for (TaskSource taskSource : each.getKey()
+                    .getTaskSourcesFromBottomToTop()) {
+                taskSourceDAO.save(taskSource);
+            }
+        }
+    }
+
+    private static EffortDuration asDuration(long seconds) {
+        return EffortDuration.seconds((int) Math.min(seconds,
+                Integer.MAX_VALUE));
+    }
+
+    private static LocalDate asLocalDate(Date date) {
+        return date != null ? LocalDate.fromDateFields(date) : null;
+    }
+
+}
@@ -379,6 +379,7 @@ public class SaveCommandBuilder {
         }
 
         private void doTheSaving() {
+            SavingPhases phases = new SavingPhases();
             Order order = state.getOrder();
             generateOrderElementCodes(order);
             createAdvancePercentagesIfRequired(order);
@@ -386,6 +387,7 @@ public class SaveCommandBuilder {
             checkConstraintOrderUniqueCode(order);
             checkConstraintHoursGroupUniqueCode(order);
             state.synchronizeTrees();
+            phases.finished("preparing the project");
 
             TaskGroup rootTask = state.getRootTask();
 
@@ -398,13 +400,16 @@ public class SaveCommandBuilder {
                 taskElementDAO.reattach(rootTask);
             }
             orderDAO.save(order);
+            phases.finished("saving the project");
 
             saveDerivedScenarios(order);
             deleteOrderElementWithoutParent(order);
             deleteUnboundedDependencies();
+            phases.finished("removing elements without parent");
 
             updateTasksRelatedData();
             removeTasksToRemove();
+            phases.finished("saving the tasks");
             loadDataAccessedWithNotPosedAsTransientInOrder(state.getOrder());
             loadDataAccessedWithNotPosedAsTransient(state.getOrder());
             if (state.getRootTask() != null) {
@@ -415,8 +420,16 @@ public class SaveCommandBuilder {
             saveOrderAuthorizations();
 
             removeTaskElementsWithTaskSourceNull();
+            phases.finished("removing orphaned data");
+
+            // the day assignments are written now instead of on commit, so
+            // the time spent on it is reported
+            orderDAO.flush();
+            phases.finished("flushing");
 
             state.updateSavedOrderState();
+            LOG.debug("project " + order.getCode() + " saved. "
+                    + phases.getReport());
         }
 
         private void removeTaskElementsWithTaskSourceNull() {
@@ -1049,6 +1062,29 @@ public class SaveCommandBuilder {
 
     }
 
+    /**
+     * Measures the time spent on each of the consecutive phases of the saving
+     */
+    private static class SavingPhases {
+
+        private final long start = System.currentTimeMillis();
+
+        private long lastPhaseEnd = start;
+
+        private final StringBuilder report = new StringBuilder();
+
+        void finished(String phase) {
+            long now = System.currentTimeMillis();
+            report.append(", ").append(phase).append(": ")
+                    .append(now - lastPhaseEnd).append(" ms");
+            lastPhaseEnd = now;
+        }
+
+        String getReport() {
+            return "It took " + (lastPhaseEnd - start) + " ms" + report;
+        }
+    }
+
     private static final class LabelCreatorForInvalidValues implements
             IMessagesForUser.ICustomLabelCreator {
 
@@ -1,9 +1,7 @@
 /*
  * This file is part of LibrePlan
  *
- * Copyright (C) 2009-2010 Fundación para o Fomento da Calidade Industrial e
- *                         Desenvolvemento Tecnolóxico de Galicia
- * Copyright (C) 2010-2011 Igalia, S.L.
+ * Copyright (C) 2013 Igalia, S.L.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Affero General Public License as published by
@@ -19,22 +17,18 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package org.zkoss.ganttz.data.criticalpath;
-
-import java.util.Set;
-
-import org.zkoss.ganttz.data.IDependency;
-
+package org.libreplan.web.planner.replanning;
 
 /**
- * Class that represents the initial node of the graph.
+ * Replans all the scheduled projects of the current scenario without any user
+ * session. Each project is reloaded, its allocations are reapplied, its
+ * dependencies enforced again and it's saved on its own transaction.
  *
- * @author Manuel Rego Casasnovas <mrego@igalia.com>
+ * It's useful after a modification affecting many projects, for example a
+ * change in a calendar.
  */
-public class InitialNode<T, D extends IDependency<T>> extends Node<T, D> {
+public interface IOrdersReplanner {
 
-    public InitialNode(Set<? extends T> nextTasks) {
-        super(null, null, nextTasks, null, null);
-    }
+    ReplanningReport replanAll();
 
-}
\ No newline at end of file
+}
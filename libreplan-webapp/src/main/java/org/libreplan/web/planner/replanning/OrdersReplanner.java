@@ -0,0 +1,366 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.planner.replanning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.planner.daos.ITaskSourceDAO;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.planner.entities.TaskGroup;
+import org.libreplan.business.resources.daos.IResourcesSearcher;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.web.common.TemplateModel.DependencyWithVisibility;
+import org.libreplan.web.common.TemplateModelAdapter;
+import org.libreplan.web.planner.tabs.GanttDiagramBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Service;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+
+/**
+ * Replans the projects in the same way that it's done when changing of
+ * scenario. The projects that don't share resources are independent and are
+ * replanned in parallel, the ones sharing resources are replanned one after
+ * the other so each one sees the load of the previous ones.
+ *
+ * The resources shared are the ones of the current allocations. A generic
+ * allocation could pick new resources while being replanned, so the
+ * independence of the groups is not guaranteed, like it happens with two users
+ * planning at the same time.<br />
+ *
+ * The threads are shared by all the replannings and stopped when the
+ * application context is closed.
+ */
+@Service
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class OrdersReplanner implements IOrdersReplanner {
+
+    private static final Log LOG = LogFactory.getLog(OrdersReplanner.class);
+
+    @Autowired
+    private IAdHocTransactionService transactionService;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IScenarioDAO scenarioDAO;
+
+    @Autowired
+    private IOrderDAO orderDAO;
+
+    @Autowired
+    private ITaskSourceDAO taskSourceDAO;
+
+    @Autowired
+    private IResourcesSearcher resourcesSearcher;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final int threads;
+
+    private final ExecutorService executor;
+
+    static class OrderToReplan {
+
+        private final Long id;
+
+        private final String name;
+
+        private final Set<Long> resources;
+
+        OrderToReplan(Long id, String name, Set<Long> resources) {
+            this.id = id;
+            this.name = name;
+            this.resources = resources;
+        }
+
+    }
+
+    public OrdersReplanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    OrdersReplanner(int threads) {
+        this.threads = threads;
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread result = new Thread(runnable, "orders-replanning-"
+                        + count.incrementAndGet());
+                result.setDaemon(true);
+                return result;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ReplanningReport replanAll() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException(
+                    "there is already a replanning running");
+        }
+        try {
+            return doReplanAll();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReplanningReport doReplanAll() {
+        final Long scenarioId = transactionService
+                .runOnReadOnlyTransaction(new IOnTransaction<Long>() {
+
+                    @Override
+                    public Long execute() {
+                        return scenarioManager.getCurrent().getId();
+                    }
+                });
+        List<OrderToReplan> toReplan = transactionService
+                .runOnReadOnlyTransaction(new IOnTransaction<List<OrderToReplan>>() {
+
+                    @Override
+                    public List<OrderToReplan> execute() {
+                        return findOrdersToReplan(scenarioDAO
+                                .findExistingEntity(scenarioId));
+                    }
+                });
+        List<List<OrderToReplan>> groups = independentGroups(toReplan);
+        ReplanningReport report = ReplanningReport.start(toReplan.size(),
+                groups.size(), Math.max(1, Math.min(groups.size(), threads)));
+        replanGroups(scenarioId, groups, report);
+        LOG.info(report);
+        return report;
+    }
+
+    /**
+     * Replans each group on a thread of the pool and waits for all of them.
+     * The failure of a project is registered in the <code>report</code> and
+     * doesn't stop the replanning of the rest
+     */
+    void replanGroups(Long scenarioId, List<List<OrderToReplan>> groups,
+            ReplanningReport report) {
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        try {
+            for (List<OrderToReplan> each : groups) {
+                futures.add(executor.submit(replanGroup(scenarioId, each,
+                        report)));
+            }
+            for (Future<Void> each : futures) {
+                each.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("replanning interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<Void> each : futures) {
+                each.cancel(true);
+            }
+            report.finished();
+        }
+    }
+
+    private List<OrderToReplan> findOrdersToReplan(Scenario scenario) {
+        List<OrderToReplan> result = new ArrayList<OrderToReplan>();
+        for (Order each : orderDAO.getOrdersByScenario(scenario)) {
+            each.useSchedulingDataFor(scenario);
+            if (each.isScheduled()) {
+                result.add(new OrderToReplan(each.getId(), each.getName(),
+                        getResourcesIds(each)));
+            }
+        }
+        return result;
+    }
+
+    private Set<Long> getResourcesIds(Order order) {
+        Set<Long> result = new HashSet<Long>();
+        TaskGroup rootTask = order.getAssociatedTaskElement();
+        if (rootTask == null) {
+            return result;
+        }
+        for (ResourceAllocation<?> each : rootTask.getAllResourceAllocations()) {
+            for (Resource resource : each.getAssociatedResources()) {
+                result.add(resource.getId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the orders grouped so no resource is shared between groups. The
+     *         biggest groups are first, so they are started earlier
+     */
+    static List<List<OrderToReplan>> independentGroups(
+            List<OrderToReplan> orders) {
+        int[] parent = new int[orders.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        Map<Long, Integer> firstOrderUsing = new HashMap<Long, Integer>();
+        for (int i = 0; i < orders.size(); i++) {
+            for (Long each : orders.get(i).resources) {
+                Integer previous = firstOrderUsing.get(each);
+                if (previous == null) {
+                    firstOrderUsing.put(each, i);
+                } else {
+                    parent[root(parent, i)] = root(parent, previous);
+                }
+            }
+        }
+        Map<Integer, List<OrderToReplan>> byRoot = new LinkedHashMap<Integer, List<OrderToReplan>>();
+        for (int i = 0; i < orders.size(); i++) {
+            int root = root(parent, i);
+            List<OrderToReplan> group = byRoot.get(root);
+            if (group == null) {
+                group = new ArrayList<OrderToReplan>();
+                byRoot.put(root, group);
+            }
+            group.add(orders.get(i));
+        }
+        List<List<OrderToReplan>> result = new ArrayList<List<OrderToReplan>>(
+                byRoot.values());
+        Collections.sort(result, new Comparator<List<OrderToReplan>>() {
+
+            @Override
+            public int compare(List<OrderToReplan> o1, List<OrderToReplan> o2) {
+                return o2.size() - o1.size();
+            }
+        });
+        return result;
+    }
+
+    private static int root(int[] parent, int i) {
+        int result = i;
+        while (parent[result] != result) {
+            parent[result] = parent[parent[result]];
+            result = parent[result];
+        }
+        return result;
+    }
+
+    private Callable<Void> replanGroup(final Long scenarioId,
+            final List<OrderToReplan> group, final ReplanningReport report) {
+        return new Callable<Void>() {
+
+            @Override
+            public Void call() {
+                for (OrderToReplan each : group) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return null;
+                    }
+                    replan(scenarioId, each, report);
+                }
+                return null;
+            }
+        };
+    }
+
+    private void replan(final Long scenarioId, final OrderToReplan order,
+            ReplanningReport report) {
+        long start = System.currentTimeMillis();
+        try {
+            replanOnTransaction(scenarioId, order.id);
+            report.replanned(System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            LOG.error("error replanning project " + order.name, e);
+            report.failed(order.name, e.getMessage(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    void replanOnTransaction(final Long scenarioId, final Long orderId) {
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                replan(scenarioDAO.findExistingEntity(scenarioId),
+                        orderDAO.findExistingEntity(orderId));
+                return null;
+            }
+        });
+    }
+
+    private void replan(Scenario scenario, Order order) {
+        order.useSchedulingDataFor(scenario);
+        GanttDiagramGraph<TaskElement, DependencyWithVisibility> graph = GanttDiagramBuilder
+                .createForcingDependencies(order, TemplateModelAdapter.create(
+                        scenario, asLocalDate(order.getInitDate()),
+                        asLocalDate(order.getDeadline()), resourcesSearcher));
+        for (TaskSource each : order.getTaskSourcesFromBottomToTop()) {
+            TaskElement taskElement = each.getTask();
+            if (taskElement instanceof Task) {
+                ((Task) taskElement).reassignAllocationsWithNewResources(
+                        scenario, resourcesSearcher);
+            }
+        }
+        graph.enforceAllRestrictions();
+        for (TaskSource each : order.getTaskSourcesFromBottomToTop()) {
+            taskSourceDAO.save(each);
+        }
+    }
+
+    private LocalDate asLocalDate(Date date) {
+        return date != null ? LocalDate.fromDateFields(date) : null;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.planner.replanning;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Scope;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * A job that replans all the projects using {@link IOrdersReplanner}
+ */
+@Component
+@Scope(BeanDefinition.SCOPE_SINGLETON)
+public class ReplanOrdersJob extends QuartzJobBean {
+
+    private static final Log LOG = LogFactory.getLog(ReplanOrdersJob.class);
+
+    @Override
+    protected void executeInternal(JobExecutionContext context)
+            throws JobExecutionException {
+        ApplicationContext applicationContext = (ApplicationContext) context
+                .getJobDetail().getJobDataMap().get("applicationContext");
+
+        IOrdersReplanner ordersReplanner = (IOrdersReplanner) applicationContext
+                .getBean("ordersReplanner");
+
+        try {
+            ReplanningReport report = ordersReplanner.replanAll();
+            LOG.info("Replanning successful: " + report.isSuccessful());
+        } catch (IllegalStateException e) {
+            LOG.error("Replanning of projects failed", e);
+        }
+    }
+
+}
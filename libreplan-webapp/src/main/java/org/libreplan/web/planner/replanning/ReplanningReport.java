@@ -0,0 +1,150 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.planner.replanning;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of {@link IOrdersReplanner#replanAll()}. It can be filled from
+ * several threads.
+ */
+public class ReplanningReport {
+
+    public static ReplanningReport start(int orders, int groups, int threads) {
+        return new ReplanningReport(orders, groups, threads);
+    }
+
+    private final int ordersToReplan;
+
+    private final int independentGroups;
+
+    private final int threads;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private long elapsedMillis = -1;
+
+    private int replanned = 0;
+
+    private long slowestOrderMillis = 0;
+
+    private long totalOrdersMillis = 0;
+
+    private final Map<String, String> failed = new LinkedHashMap<String, String>();
+
+    private ReplanningReport(int ordersToReplan, int independentGroups,
+            int threads) {
+        this.ordersToReplan = ordersToReplan;
+        this.independentGroups = independentGroups;
+        this.threads = threads;
+    }
+
+    synchronized void replanned(long millis) {
+        replanned++;
+        registerTime(millis);
+    }
+
+    synchronized void failed(String orderName, String reason, long millis) {
+        failed.put(orderName, reason);
+        registerTime(millis);
+    }
+
+    private void registerTime(long millis) {
+        totalOrdersMillis += millis;
+        slowestOrderMillis = Math.max(slowestOrderMillis, millis);
+    }
+
+    synchronized void finished() {
+        elapsedMillis = System.currentTimeMillis() - startTime;
+    }
+
+    public int getOrdersToReplan() {
+        return ordersToReplan;
+    }
+
+    /**
+     * @return the number of groups of projects not sharing resources. The
+     *         groups are replanned in parallel
+     */
+    public int getIndependentGroups() {
+        return independentGroups;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public synchronized int getReplanned() {
+        return replanned;
+    }
+
+    /**
+     * @return the reason of the failure of each project that couldn't be
+     *         replanned, by project name
+     */
+    public synchronized Map<String, String> getFailed() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, String>(
+                failed));
+    }
+
+    public synchronized List<String> getFailedReasons() {
+        List<String> result = new ArrayList<String>();
+        for (Map.Entry<String, String> each : failed.entrySet()) {
+            result.add(each.getKey() + ": " + each.getValue());
+        }
+        return result;
+    }
+
+    public synchronized boolean isSuccessful() {
+        return failed.isEmpty();
+    }
+
+    /**
+     * @return the wall-clock time of the whole replanning or -1 if it hasn't
+     *         finished yet
+     */
+    public synchronized long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public synchronized long getSlowestOrderMillis() {
+        return slowestOrderMillis;
+    }
+
+    public synchronized long getAverageOrderMillis() {
+        int done = replanned + failed.size();
+        return done == 0 ? 0 : totalOrdersMillis / done;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d of %d projects replanned, %d failed, "
+                + "%d independent groups on %d threads, took %d ms "
+                + "(%d ms on average per project, slowest %d ms)",
+                replanned, ordersToReplan, failed.size(), independentGroups,
+                threads, elapsedMillis, getAverageOrderMillis(),
+                slowestOrderMillis);
+    }
+
+}
@@ -22,11 +22,18 @@
 package org.libreplan.ws.common.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.IntegrationEntity;
@@ -47,6 +54,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 public abstract class GenericRESTService<E extends IntegrationEntity,
     DTO extends IntegrationEntityDTO> {
 
+    private static final Log LOG = LogFactory.getLog(GenericRESTService.class);
+
     @Autowired
     protected IAdHocTransactionService transactionService;
 
@@ -64,9 +73,89 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
     protected InstanceConstraintViolationsListDTO save(
         List<? extends DTO> entityDTOs) {
 
+        return new InstanceConstraintViolationsListDTO(
+            saveOneByOne(entityDTOs, 1));
+
+    }
+
+    /**
+     * It saves (inserts or updates) a list of entities in chunks of
+     * <code>batchSize</code> entities. Each chunk is saved in a separate
+     * transaction, retrieving the existing entities of the chunk with a
+     * single query.
+     *
+     * If saving a chunk fails, its transaction is rolled back and its
+     * entities are saved again one by one, so only the failing ones are
+     * reported and discarded. The chunks repeating any of the values returned
+     * by {@link #getValuesValidatedOnAnotherTransaction(IntegrationEntityDTO)}
+     * are directly saved one by one.
+     *
+     * If <code>batchSize</code> is <code>null</code> or lower than two, it's
+     * equivalent to {@link #save(List)}.
+     */
+    protected InstanceConstraintViolationsListDTO save(
+        List<? extends DTO> entityDTOs, Integer batchSize) {
+
+        if (batchSize == null || batchSize < 2) {
+            return save(entityDTOs);
+        }
+
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
+            new ArrayList<InstanceConstraintViolationsDTO>();
+
+        for (int i = 0; i < entityDTOs.size(); i += batchSize) {
+
+            List<? extends DTO> chunk = entityDTOs.subList(i,
+                Math.min(i + batchSize, entityDTOs.size()));
+
+            if (hasRepeatedValuesValidatedOnAnotherTransaction(chunk)) {
+                LOG.info("The items from " + (i + 1) + " to "
+                    + (i + chunk.size()) + " can't be validated together. "
+                    + "Saving them one by one");
+                instanceConstraintViolationsList.addAll(
+                    saveOneByOne(chunk, i + 1));
+                continue;
+            }
+
+            try {
+                insertOrUpdate(chunk);
+            } catch (RuntimeException e) {
+                LOG.info("Error saving the items from " + (i + 1) + " to "
+                    + (i + chunk.size()) + ". Saving them one by one", e);
+                instanceConstraintViolationsList.addAll(
+                    saveOneByOne(chunk, i + 1));
+            }
+
+        }
+
+        return new InstanceConstraintViolationsListDTO(
+            instanceConstraintViolationsList);
+
+    }
+
+    private boolean hasRepeatedValuesValidatedOnAnotherTransaction(
+        List<? extends DTO> entityDTOs) {
+
+        Set<String> values = new HashSet<String>();
+
+        for (DTO each : entityDTOs) {
+            for (String value : getValuesValidatedOnAnotherTransaction(each)) {
+                if (!values.add(value)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+
+    }
+
+    private List<InstanceConstraintViolationsDTO> saveOneByOne(
+        List<? extends DTO> entityDTOs, long firstNumItem) {
+
         List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
             new ArrayList<InstanceConstraintViolationsDTO>();
-        long numItem = 1;
+        long numItem = firstNumItem;
 
         for (DTO entityDTO : entityDTOs) {
 
@@ -101,8 +190,7 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
 
         }
 
-        return new InstanceConstraintViolationsListDTO(
-            instanceConstraintViolationsList);
+        return instanceConstraintViolationsList;
 
     }
 
@@ -155,6 +243,87 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
 
     }
 
+    /**
+     * It saves (inserts or updates) several entity DTOs by using a single new
+     * transaction. The entities already existing are retrieved with a single
+     * query.
+     *
+     * @throws ValidationException if validations are not passed by any of
+     *         them
+     * @throws RecoverableErrorException if a recoverable error occurs
+     */
+    protected void insertOrUpdate(final List<? extends DTO> entityDTOs)
+        throws ValidationException, RecoverableErrorException {
+
+        IOnTransaction<Void> save = new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+
+                IIntegrationEntityDAO<E> entityDAO =
+                    getIntegrationEntityDAO();
+                Map<String, E> existing = entityDAO.findByCodes(
+                    codesOf(entityDTOs));
+
+                for (DTO entityDTO : entityDTOs) {
+
+                    String code = StringUtils.isBlank(entityDTO.code) ? null
+                        : entityDAO.normalizeCode(entityDTO.code);
+                    E entity = code != null ? existing.get(code) : null;
+
+                    /* Insert or update? */
+                    if (entity != null) {
+                        updateEntity(entity, entityDTO);
+                    } else {
+                        entity = toEntity(entityDTO);
+                        if (code != null) {
+                            existing.put(code, entity);
+                        }
+                    }
+
+                    entity.validate();
+                    beforeSaving(entity);
+                    entityDAO.saveWithoutValidating(entity);
+                    afterSaving(entity);
+
+                }
+
+                entityDAO.flush();
+                return null;
+
+            }
+
+        };
+
+        transactionService.runOnAnotherTransaction(save);
+
+    }
+
+    private List<String> codesOf(List<? extends DTO> entityDTOs) {
+        List<String> result = new ArrayList<String>();
+        for (DTO each : entityDTOs) {
+            result.add(each.code);
+        }
+        return result;
+    }
+
+    /**
+     * It returns the values of the DTO checked by validations that query the
+     * database on another transaction, e.g. the uniqueness of the NIF of a
+     * worker. Those validations can't see the entities saved in the same
+     * chunk by {@link #save(List, Integer)}, so the chunks repeating any of
+     * these values are saved one by one. The values must be normalized as
+     * the validations compare them.
+     *
+     * Default implementation returns an empty list.
+     */
+    protected List<String> getValuesValidatedOnAnotherTransaction(
+        DTO entityDTO) {
+
+        return Collections.emptyList();
+
+    }
+
     /**
      * It allows to add operations that must be done before saving.
      *
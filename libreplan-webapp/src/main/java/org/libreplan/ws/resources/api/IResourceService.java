@@ -41,6 +41,13 @@ public interface IResourceService {
     public InstanceConstraintViolationsListDTO addResources(
         ResourceListDTO resources);
 
+    /**
+     * If <code>batchSize</code> is not <code>null</code>, the resources are
+     * saved in chunks of that size, each one in its own transaction.
+     */
+    public InstanceConstraintViolationsListDTO addResources(
+        ResourceListDTO resources, Integer batchSize);
+
     public ResourceListDTO getResources();
 
     Response getResource(String code);
@@ -22,6 +22,7 @@
 package org.libreplan.ws.resources.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang.StringUtils;
@@ -51,6 +53,7 @@ import org.libreplan.ws.common.impl.RecoverableErrorException;
 import org.libreplan.ws.resources.api.IResourceService;
 import org.libreplan.ws.resources.api.ResourceDTO;
 import org.libreplan.ws.resources.api.ResourceListDTO;
+import org.libreplan.ws.resources.api.WorkerDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -73,13 +76,22 @@ public class ResourceServiceREST
     @Autowired
     private IEntitySequenceDAO entitySequenceDAO;
 
+    @Override
+    public InstanceConstraintViolationsListDTO addResources(
+        ResourceListDTO resources) {
+
+        return addResources(resources, null);
+
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
     public InstanceConstraintViolationsListDTO addResources(
-        ResourceListDTO resources) {
+        ResourceListDTO resources,
+        @QueryParam("batch-size") Integer batchSize) {
 
-        return save(resources.resources);
+        return save(resources.resources, batchSize);
 
     }
 
@@ -98,6 +110,21 @@ public class ResourceServiceREST
 
     }
 
+    @Override
+    protected List<String> getValuesValidatedOnAnotherTransaction(
+        ResourceDTO entityDTO) {
+
+        if (entityDTO instanceof WorkerDTO) {
+            String nif = ((WorkerDTO) entityDTO).nif;
+            if (!StringUtils.isBlank(nif)) {
+                // the uniqueness of the NIF is checked ignoring the case
+                return Collections.singletonList(nif.trim().toLowerCase());
+            }
+        }
+        return Collections.emptyList();
+
+    }
+
     @Override
     protected ResourceDTO toDTO(Resource entity) {
         return ResourceConverter.toDTO(entity);
@@ -37,6 +37,13 @@ public interface IWorkReportService {
     public InstanceConstraintViolationsListDTO addWorkReports(
             WorkReportListDTO workReportListDTO);
 
+    /**
+     * If <code>batchSize</code> is not <code>null</code>, the work reports are
+     * saved in chunks of that size, each one in its own transaction.
+     */
+    public InstanceConstraintViolationsListDTO addWorkReports(
+            WorkReportListDTO workReportListDTO, Integer batchSize);
+
     public Response getWorkReport(String code);
 
     Response removeWorkReport(String code);
@@ -33,6 +33,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -84,12 +85,19 @@ public class WorkReportServiceREST extends
         return new WorkReportListDTO(findAll());
     }
 
+    @Override
+    public InstanceConstraintViolationsListDTO addWorkReports(
+            WorkReportListDTO workReportListDTO) {
+        return addWorkReports(workReportListDTO, null);
+    }
+
     @Override
     @POST
     @Consumes("application/xml")
     public InstanceConstraintViolationsListDTO addWorkReports(
-            WorkReportListDTO workReportListDTO) {
-        return save(workReportListDTO.workReports);
+            WorkReportListDTO workReportListDTO,
+            @QueryParam("batch-size") Integer batchSize) {
+        return save(workReportListDTO.workReports, batchSize);
     }
 
     @Override
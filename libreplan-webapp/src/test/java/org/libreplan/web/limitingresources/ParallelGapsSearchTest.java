@@ -0,0 +1,131 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Test;
+import org.libreplan.business.planner.limiting.entities.AllocationSpec;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.web.limitingresources.ParallelGapsSearch.IAllocationOnGap;
+
+/**
+ * Tests for {@link ParallelGapsSearch}
+ */
+public class ParallelGapsSearchTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private final ParallelGapsSearch parallelGapsSearch = new ParallelGapsSearch(
+            3);
+
+    private final Map<GapOnQueue, AllocationSpec> validAllocations = new IdentityHashMap<GapOnQueue, AllocationSpec>();
+
+    private final IAllocationOnGap allocationOnGap = new IAllocationOnGap() {
+
+        @Override
+        public AllocationSpec validAllocationAt(GapOnQueue gap) {
+            return validAllocations.get(gap);
+        }
+    };
+
+    @After
+    public void shutdown() {
+        parallelGapsSearch.shutdown();
+    }
+
+    private List<List<GapOnQueue>> givenGaps(Random random, int queues,
+            int gapsPerQueue, double validProbability) {
+        List<List<GapOnQueue>> result = new ArrayList<List<GapOnQueue>>();
+        for (int i = 0; i < queues; i++) {
+            LimitingResourceQueue queue = LimitingResourceQueue.create();
+            List<GapOnQueue> gaps = new ArrayList<GapOnQueue>();
+            LocalDate day = START.plusDays(random.nextInt(5));
+            for (int j = 0; j < gapsPerQueue; j++) {
+                GapOnQueue gap = GapOnQueue.onQueue(queue,
+                        new DateAndHour(day, random.nextInt(8)), null).get(0);
+                if (random.nextDouble() < validProbability) {
+                    validAllocations.put(gap,
+                            createNiceMock(AllocationSpec.class));
+                }
+                gaps.add(gap);
+                day = day.plusDays(1 + random.nextInt(3));
+            }
+            result.add(gaps);
+        }
+        return result;
+    }
+
+    @Test
+    public void theParallelSearchPicksTheSameGapThanTheSequentialOne() {
+        Random random = new Random(0);
+        for (int i = 0; i < 50; i++) {
+            validAllocations.clear();
+            List<List<GapOnQueue>> gapsByQueue = givenGaps(random, 8, 10,
+                    0.2);
+            AllocationSpec sequential = ParallelGapsSearch
+                    .findFirstValidSequentially(gapsByQueue, allocationOnGap);
+            assertSame(sequential, parallelGapsSearch.findFirstValid(
+                    gapsByQueue, allocationOnGap));
+        }
+    }
+
+    @Test
+    public void theFirstValidGapIsFoundEvenIfItsQueueIsTheLast() {
+        List<List<GapOnQueue>> gapsByQueue = givenGaps(new Random(1), 6, 4,
+                0);
+        List<GapOnQueue> lastQueue = gapsByQueue.get(gapsByQueue.size() - 1);
+        GapOnQueue earliest = GapOnQueue.onQueue(
+                lastQueue.get(0).getOriginQueue(),
+                new DateAndHour(START.minusDays(1), 0), null).get(0);
+        lastQueue.add(0, earliest);
+        validAllocations.put(earliest, createNiceMock(AllocationSpec.class));
+        validAllocations.put(gapsByQueue.get(0).get(3),
+                createNiceMock(AllocationSpec.class));
+        AllocationSpec result = parallelGapsSearch.findFirstValid(
+                gapsByQueue, allocationOnGap);
+        assertNotNull(result);
+        assertSame(validAllocations.get(earliest), result);
+    }
+
+    @Test
+    public void ifThereIsNoValidGapNothingIsFound() {
+        List<List<GapOnQueue>> gapsByQueue = givenGaps(new Random(2), 6, 4,
+                0);
+        assertNull(parallelGapsSearch.findFirstValid(gapsByQueue,
+                allocationOnGap));
+        assertNull(ParallelGapsSearch.findFirstValidSequentially(gapsByQueue,
+                allocationOnGap));
+    }
+
+}
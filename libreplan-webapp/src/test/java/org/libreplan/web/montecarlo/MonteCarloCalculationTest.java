@@ -0,0 +1,118 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Task;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * Tests for {@link MonteCarloCalculation}
+ */
+public class MonteCarloCalculationTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private static final int ITERATIONS = 5
+            * MonteCarloCalculation.ITERATIONS_PER_CHUNK + 500;
+
+    private final MonteCarloExecutor oneThread = new MonteCarloExecutor(1);
+
+    private final MonteCarloExecutor fourThreads = new MonteCarloExecutor(4);
+
+    private final IDesktopUpdatesEmitter<Integer> noProgress = new IDesktopUpdatesEmitter<Integer>() {
+
+        @Override
+        public void doUpdate(Integer value) {
+        }
+    };
+
+    @After
+    public void shutdown() {
+        oneThread.shutdown();
+        fourThreads.shutdown();
+    }
+
+    private static MonteCarloTask givenTask(int workableDays) {
+        Task task = createNiceMock(Task.class);
+        expect(task.getWorkableDays()).andReturn(workableDays).anyTimes();
+        expect(task.getStartAsLocalDate()).andReturn(START).anyTimes();
+        replay(task);
+        return MonteCarloTask.create(task);
+    }
+
+    private static List<MonteCarloTask> givenTasks(int... workableDays) {
+        List<MonteCarloTask> result = new ArrayList<MonteCarloTask>();
+        for (int each : workableDays) {
+            result.add(givenTask(each));
+        }
+        return result;
+    }
+
+    private Map<LocalDate, Integer> calculate(MonteCarloExecutor executor,
+            List<MonteCarloTask> tasks, long seed) {
+        return new MonteCarloCalculation(tasks, ITERATIONS, seed, noProgress)
+                .doCalculation(executor);
+    }
+
+    private static int total(Map<LocalDate, Integer> histogram) {
+        int result = 0;
+        for (Integer each : histogram.values()) {
+            result += each;
+        }
+        return result;
+    }
+
+    @Test
+    public void theSameSeedGivesTheSameHistogramWhateverTheThreads() {
+        List<MonteCarloTask> tasks = givenTasks(10, 4, 7, 12);
+        Map<LocalDate, Integer> sequential = calculate(oneThread, tasks, 42L);
+        Map<LocalDate, Integer> parallel = calculate(fourThreads, tasks, 42L);
+        assertEquals(sequential, parallel);
+        assertEquals(ITERATIONS, total(parallel));
+    }
+
+    @Test
+    public void theSameSeedGivesTheSameHistogramOnEachCalculation() {
+        List<MonteCarloTask> tasks = givenTasks(10, 4, 7, 12);
+        assertEquals(calculate(fourThreads, tasks, 7L),
+                calculate(fourThreads, tasks, 7L));
+    }
+
+    @Test
+    public void differentSeedsGiveDifferentHistograms() {
+        List<MonteCarloTask> tasks = givenTasks(10, 4, 7, 12);
+        assertFalse(calculate(fourThreads, tasks, 1L).equals(
+                calculate(fourThreads, tasks, 2L)));
+    }
+
+}
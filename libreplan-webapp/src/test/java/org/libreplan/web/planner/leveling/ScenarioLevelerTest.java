@@ -0,0 +1,203 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.planner.leveling;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.Dependency.Type;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskGroup;
+import org.libreplan.business.planner.entities.TaskPositionConstraint;
+import org.libreplan.business.workingday.IntraDayDate;
+import org.libreplan.web.planner.leveling.ScenarioLeveler.Timeline;
+
+/**
+ * Tests for the bounds within which {@link ScenarioLeveler} moves the tasks
+ */
+public class ScenarioLevelerTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private static final int DAYS = 20;
+
+    private static final LocalDate END = START.plusDays(DAYS - 1);
+
+    private final Timeline timeline = new Timeline(START, everyoneWorks());
+
+    private final TaskGroup project = givenProject();
+
+    private final Set<Task> inTimeline = new HashSet<Task>();
+
+    private static boolean[] everyoneWorks() {
+        boolean[] result = new boolean[DAYS];
+        Arrays.fill(result, true);
+        return result;
+    }
+
+    private static TaskGroup givenProject() {
+        TaskGroup result = createNiceMock(TaskGroup.class);
+        expect(result.getStartAsLocalDate()).andReturn(START).anyTimes();
+        expect(result.getIntraDayEndDate()).andReturn(
+                IntraDayDate.startOfDay(END.plusDays(1))).anyTimes();
+        expect(result.getDependenciesWithThisOrigin()).andReturn(
+                new HashSet<Dependency>()).anyTimes();
+        expect(result.getDependenciesWithThisDestination()).andReturn(
+                new HashSet<Dependency>()).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static class TaskBuilder {
+
+        private final Task task = createNiceMock(Task.class);
+
+        private final Set<Dependency> incoming = new HashSet<Dependency>();
+
+        private final Set<Dependency> outgoing = new HashSet<Dependency>();
+
+        private final int length;
+
+        private TaskBuilder(TaskGroup parent, int startOffset, int length) {
+            this.length = length;
+            LocalDate start = START.plusDays(startOffset);
+            LocalDate end = start.plusDays(length);
+            Set<ResourceAllocation<?>> allocations = new HashSet<ResourceAllocation<?>>();
+            allocations.add(createNiceMock(ResourceAllocation.class));
+            expect(task.getAllResourceAllocations()).andReturn(allocations)
+                    .anyTimes();
+            expect(task.getPositionConstraint()).andReturn(
+                    new TaskPositionConstraint()).anyTimes();
+            expect(task.getStartAsLocalDate()).andReturn(start).anyTimes();
+            expect(task.getIntraDayStartDate()).andReturn(
+                    IntraDayDate.startOfDay(start)).anyTimes();
+            expect(task.getEndAsLocalDate()).andReturn(end).anyTimes();
+            expect(task.getIntraDayEndDate()).andReturn(
+                    IntraDayDate.startOfDay(end)).anyTimes();
+            expect(task.getParent()).andReturn(parent).anyTimes();
+            expect(task.getDependenciesWithThisDestination()).andReturn(
+                    incoming).anyTimes();
+            expect(task.getDependenciesWithThisOrigin()).andReturn(outgoing)
+                    .anyTimes();
+            replay(task);
+        }
+    }
+
+    private TaskBuilder givenTask(int startOffset, int length) {
+        return new TaskBuilder(project, startOffset, length);
+    }
+
+    private static void givenDependency(TaskBuilder origin,
+            TaskBuilder destination, Type type) {
+        Dependency dependency = createNiceMock(Dependency.class);
+        expect(dependency.getOrigin()).andReturn(origin.task).anyTimes();
+        expect(dependency.getDestination()).andReturn(destination.task)
+                .anyTimes();
+        expect(dependency.getType()).andReturn(type).anyTimes();
+        replay(dependency);
+        origin.outgoing.add(dependency);
+        destination.incoming.add(dependency);
+    }
+
+    private int[] boundsOf(TaskBuilder task, LocalDate projectStart) {
+        return ScenarioLeveler.movableBounds(timeline, START, END, task.task,
+                projectStart, task.length, inTimeline);
+    }
+
+    @Test
+    public void aTaskWithoutRestrictionsCanBeMovedAlongTheProject() {
+        TaskBuilder task = givenTask(8, 4);
+        assertArrayEquals(new int[] { 0, DAYS - 4 }, boundsOf(task, null));
+    }
+
+    @Test
+    public void anEndStartDependencyWithAFixedTaskLimitsTheShift() {
+        TaskBuilder before = givenTask(2, 3);
+        TaskBuilder task = givenTask(8, 4);
+        TaskBuilder after = givenTask(15, 2);
+        givenDependency(before, task, Type.END_START);
+        givenDependency(task, after, Type.END_START);
+        assertArrayEquals(new int[] { 5, 11 }, boundsOf(task, null));
+    }
+
+    @Test
+    public void aStartStartDependencyWithAFixedTaskLimitsTheShift() {
+        TaskBuilder before = givenTask(3, 3);
+        TaskBuilder task = givenTask(8, 4);
+        TaskBuilder after = givenTask(14, 2);
+        givenDependency(before, task, Type.START_START);
+        givenDependency(task, after, Type.START_START);
+        assertArrayEquals(new int[] { 3, 14 }, boundsOf(task, null));
+    }
+
+    @Test
+    public void theDependenciesWithTasksInTheTimelineAreLeftToTheLeveler() {
+        TaskBuilder before = givenTask(2, 3);
+        TaskBuilder task = givenTask(8, 4);
+        givenDependency(before, task, Type.END_START);
+        inTimeline.add(before.task);
+        assertArrayEquals(new int[] { 0, DAYS - 4 }, boundsOf(task, null));
+    }
+
+    @Test
+    public void theDistanceOfTheDependenciesBetweenLeveledTasks() {
+        assertEquals(3, ScenarioLeveler.minDistance(Type.END_START, 3, 5));
+        assertEquals(0, ScenarioLeveler.minDistance(Type.START_START, 3, 5));
+        assertEquals(-2, ScenarioLeveler.minDistance(Type.END_END, 3, 5));
+        assertEquals(-5, ScenarioLeveler.minDistance(Type.START_END, 3, 5));
+    }
+
+    @Test
+    public void aTaskIsNotMovedBeforeTheStartOfItsProject() {
+        TaskBuilder task = givenTask(8, 4);
+        assertArrayEquals(new int[] { 6, DAYS - 4 },
+                boundsOf(task, START.plusDays(6)));
+    }
+
+    @Test
+    public void aTaskAtTheStartOfItsProjectCanOnlyBeDelayed() {
+        TaskBuilder task = givenTask(6, 4);
+        assertArrayEquals(new int[] { 6, DAYS - 4 },
+                boundsOf(task, START.plusDays(6)));
+    }
+
+    @Test
+    public void aTaskThatCantBeMovedHasNoBounds() {
+        TaskBuilder before = givenTask(2, 6);
+        TaskBuilder task = givenTask(8, 4);
+        TaskBuilder after = givenTask(12, 2);
+        givenDependency(before, task, Type.END_START);
+        givenDependency(task, after, Type.END_START);
+        assertNull(boundsOf(task, null));
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.planner.replanning;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+import org.libreplan.web.planner.replanning.OrdersReplanner.OrderToReplan;
+
+/**
+ * Tests for {@link OrdersReplanner}
+ */
+public class OrdersReplannerTest {
+
+    private static final Long SCENARIO_ID = 1L;
+
+    private static final Long FAILING_ORDER_ID = 2L;
+
+    private final Set<Long> replannedOrders = Collections
+            .synchronizedSet(new HashSet<Long>());
+
+    private final OrdersReplanner replanner = new OrdersReplanner(2) {
+
+        @Override
+        void replanOnTransaction(Long scenarioId, Long orderId) {
+            if (FAILING_ORDER_ID.equals(orderId)) {
+                throw new RuntimeException("no capacity");
+            }
+            replannedOrders.add(orderId);
+        }
+    };
+
+    @After
+    public void shutdown() {
+        replanner.shutdown();
+    }
+
+    private static OrderToReplan order(long id, Long... resources) {
+        return new OrderToReplan(id, "order" + id, new HashSet<Long>(
+                asList(resources)));
+    }
+
+    @Test
+    public void theOrdersSharingResourcesAreInTheSameGroup() {
+        OrderToReplan first = order(1, 10L, 11L);
+        OrderToReplan second = order(2, 12L);
+        OrderToReplan third = order(3, 11L, 12L);
+        List<List<OrderToReplan>> groups = OrdersReplanner
+                .independentGroups(asList(first, second, third));
+        assertEquals(1, groups.size());
+        assertEquals(asList(first, second, third), groups.get(0));
+    }
+
+    @Test
+    public void theOrdersWithDisjointResourcesAreInDifferentGroups() {
+        OrderToReplan first = order(1, 10L);
+        OrderToReplan second = order(2, 11L);
+        OrderToReplan third = order(3);
+        List<List<OrderToReplan>> groups = OrdersReplanner
+                .independentGroups(asList(first, second, third));
+        assertEquals(3, groups.size());
+        for (List<OrderToReplan> each : groups) {
+            assertEquals(1, each.size());
+        }
+    }
+
+    @Test
+    public void theBiggestGroupsAreFirst() {
+        OrderToReplan alone = order(1, 10L);
+        OrderToReplan first = order(2, 11L);
+        OrderToReplan second = order(3, 11L);
+        List<List<OrderToReplan>> groups = OrdersReplanner
+                .independentGroups(asList(alone, first, second));
+        assertEquals(asList(asList(first, second), asList(alone)), groups);
+    }
+
+    @Test
+    public void aFailingOrderDoesntAbortTheOtherGroups() {
+        List<List<OrderToReplan>> groups = new ArrayList<List<OrderToReplan>>();
+        groups.add(asList(order(FAILING_ORDER_ID, 10L), order(3, 10L)));
+        groups.add(asList(order(4, 11L)));
+        groups.add(asList(order(5, 12L)));
+        ReplanningReport report = ReplanningReport.start(4, groups.size(), 2);
+
+        replanner.replanGroups(SCENARIO_ID, groups, report);
+
+        assertEquals(new HashSet<Long>(asList(3L, 4L, 5L)), replannedOrders);
+        assertEquals(3, report.getReplanned());
+        assertFalse(report.isSuccessful());
+        assertEquals(asList("order" + FAILING_ORDER_ID),
+                new ArrayList<String>(report.getFailed().keySet()));
+        assertEquals("no capacity",
+                report.getFailed().get("order" + FAILING_ORDER_ID));
+        assertTrue(report.getElapsedMillis() >= 0);
+    }
+
+}
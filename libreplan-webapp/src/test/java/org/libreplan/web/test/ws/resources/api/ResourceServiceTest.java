@@ -73,6 +73,7 @@ import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.resources.entities.ResourceEnum;
 import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
+import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.resources.api.CriterionSatisfactionDTO;
 import org.libreplan.ws.resources.api.IResourceService;
 import org.libreplan.ws.resources.api.MachineDTO;
@@ -823,6 +824,103 @@ constraintViolations
 
     }
 
+    @Test
+    public void testAddResourcesInBatches() {
+
+        /* Create resource DTOs. */
+        List<ResourceDTO> resources = new ArrayList<ResourceDTO>();
+        for (int i = 0; i < 5; i++) {
+            resources.add(new MachineDTO(getUniqueName(), "desc"));
+        }
+        resources.add(new WorkerDTO(getUniqueName(), "surname",
+            getUniqueName()));
+
+        /* Test. */
+        assertNoConstraintViolations(resourceService.addResources(
+            new ResourceListDTO(resources), 4));
+
+        for (ResourceDTO each : resources) {
+            assertTrue(resourceDAO.existsByCode(each.code));
+        }
+
+    }
+
+    @Test
+    public void testUpdateResourcesInBatches() {
+
+        /* Create the machines. */
+        MachineDTO m1 = new MachineDTO(getUniqueName(), "desc");
+        MachineDTO m2 = new MachineDTO(getUniqueName(), "desc");
+        assertNoConstraintViolations(resourceService.addResources(
+            createResourceListDTO(m1, m2)));
+
+        /* Update them in the same batch. */
+        MachineDTO m1Updated = new MachineDTO(m1.code, m1.name, "desc1");
+        MachineDTO m2Updated = new MachineDTO(m2.code, m2.name, "desc2");
+        assertNoConstraintViolations(resourceService.addResources(
+            createResourceListDTO(m1Updated, m2Updated), 2));
+
+        assertEquals("desc1",
+            machineDAO.findExistingEntityByCode(m1.code).getDescription());
+        assertEquals("desc2",
+            machineDAO.findExistingEntityByCode(m2.code).getDescription());
+
+    }
+
+    @Test
+    public void testAddResourcesInBatchesWithAFailingOneInTheMiddle() {
+
+        /* Create resource DTOs. */
+        MachineDTO m1 = new MachineDTO(getUniqueName(), "desc");
+        MachineDTO m2 = new MachineDTO(getUniqueName(), null, "desc");
+                                                     // Missing name.
+        MachineDTO m3 = new MachineDTO(getUniqueName(), "desc");
+        MachineDTO m4 = new MachineDTO(getUniqueName(), "desc");
+
+        /* Test. */
+        InstanceConstraintViolationsListDTO result = resourceService
+            .addResources(createResourceListDTO(m1, m2, m3, m4), 3);
+
+        assertOneConstraintViolation(result);
+        InstanceConstraintViolationsDTO m2Violations =
+            result.instanceConstraintViolationsList.get(0);
+        assertEquals(Long.valueOf(2), m2Violations.numItem);
+        assertEquals(m2.code, m2Violations.code);
+
+        assertTrue(resourceDAO.existsByCode(m1.code));
+        assertFalse(resourceDAO.existsByCode(m2.code));
+        assertTrue(resourceDAO.existsByCode(m3.code));
+        assertTrue(resourceDAO.existsByCode(m4.code));
+
+    }
+
+    @Test
+    public void testAddWorkersWithTheSameNifInABatch() {
+
+        /* Create worker DTOs, the second one repeating the nif. */
+        String nif = getUniqueName();
+        WorkerDTO w1 = new WorkerDTO(getUniqueName(), "surname", nif);
+        WorkerDTO w2 = new WorkerDTO(getUniqueName(), "surname",
+            ' ' + nif.toUpperCase() + ' ');
+        WorkerDTO w3 = new WorkerDTO(getUniqueName(), "surname",
+            getUniqueName());
+
+        /* Test. */
+        InstanceConstraintViolationsListDTO result = resourceService
+            .addResources(createResourceListDTO(w1, w2, w3), 3);
+
+        assertOneConstraintViolation(result);
+        InstanceConstraintViolationsDTO w2Violations =
+            result.instanceConstraintViolationsList.get(0);
+        assertEquals(Long.valueOf(2), w2Violations.numItem);
+        assertEquals(w2.code, w2Violations.code);
+
+        assertTrue(resourceDAO.existsByCode(w1.code));
+        assertFalse(resourceDAO.existsByCode(w2.code));
+        assertTrue(resourceDAO.existsByCode(w3.code));
+
+    }
+
     private CriterionType createCriterionType() {
         return createCriterionType(ResourceEnum.WORKER, true);
     }